@@ -34,6 +34,11 @@ public class PublicAccountService extends RcsService {
      * uri used to get the account detail,search state
      */
     public static final Uri CONTENT_URI_SEARCH_DETAIL = Uri.parse("content://com.cmcc.ccs.public_account_search/detail");
+    /**
+     * uri used to search the public accounts stored locally, see
+     * {@link #getLocalSearchUri(String, String, int)}
+     */
+    public static final Uri CONTENT_URI_LOCAL_SEARCH = Uri.parse("content://com.cmcc.ccs.public_account_info/search");
 
     private IPublicAccountService api = null;
     public static final class Error {
@@ -50,6 +55,32 @@ public class PublicAccountService extends RcsService {
         public static final String STATE = "state";
         public static final String BRIEF_INTRODUCTION = "brief_introduction";
         public static final String CONFIG = "config";
+        /**
+         * position of a row in the local search results
+         */
+        public static final String SEARCH_KEY = "search_key";
+    }
+
+    /**
+     * Returns the uri to query a page of the local search of public accounts.
+     * <p>
+     * Results are ranked by recommend level. The next page is queried with the
+     * {@link Columns#SEARCH_KEY} of the last row of the current page, so that
+     * any page is as fast to get as the first one.
+     *
+     * @param keyword keywords, each one matched as a word prefix
+     * @param afterKey search key of the last row of the previous page, null for the first page
+     * @param pagesize max number of rows of the page
+     * @return uri to query with the content resolver
+     */
+    public static Uri getLocalSearchUri(String keyword, String afterKey, int pagesize) {
+        Uri.Builder builder = CONTENT_URI_LOCAL_SEARCH.buildUpon()
+                .appendQueryParameter("keyword", keyword)
+                .appendQueryParameter("limit", String.valueOf(pagesize));
+        if (afterKey != null) {
+            builder.appendQueryParameter("after", afterKey);
+        }
+        return builder.build();
     }
 
     /**
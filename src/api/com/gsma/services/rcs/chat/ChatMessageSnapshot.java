@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gsma.services.rcs.chat;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.gsma.services.rcs.contacts.ContactId;
+
+/**
+ * Immutable snapshot of a chat message
+ * <p>
+ * All the attributes are read at once when the snapshot is taken, so that
+ * the getters do not cost any IPC. A snapshot is not updated afterwards: use
+ * {@link ChatMessage} to follow a message which is still in progress.
+ *
+ * @see ChatService#getChatMessageSnapshot(String)
+ * @see ChatService#getChatMessageSnapshots(java.util.List)
+ */
+public class ChatMessageSnapshot implements Parcelable {
+
+	private final String mId;
+
+	private final ContactId mContact;
+
+	private final String mContent;
+
+	private final String mMimeType;
+
+	private final int mDirection;
+
+	private final long mTimestamp;
+
+	private final long mTimestampSent;
+
+	private final long mTimestampDelivered;
+
+	private final long mTimestampDisplayed;
+
+	private final int mStatus;
+
+	private final int mReasonCode;
+
+	private final String mChatId;
+
+	private final boolean mRead;
+
+	/**
+	 * Constructor
+	 *
+	 * @param id Message ID
+	 * @param contact Remote contact
+	 * @param content Content
+	 * @param mimeType Mime type
+	 * @param direction Direction
+	 * @param timestamp Local time-stamp
+	 * @param timestampSent Time-stamp sent
+	 * @param timestampDelivered Time-stamp delivered
+	 * @param timestampDisplayed Time-stamp displayed
+	 * @param status Status
+	 * @param reasonCode Reason code
+	 * @param chatId Chat ID
+	 * @param read True if the message is read
+	 * @hide
+	 */
+	public ChatMessageSnapshot(String id, ContactId contact, String content, String mimeType,
+			int direction, long timestamp, long timestampSent, long timestampDelivered,
+			long timestampDisplayed, int status, int reasonCode, String chatId, boolean read) {
+		mId = id;
+		mContact = contact;
+		mContent = content;
+		mMimeType = mimeType;
+		mDirection = direction;
+		mTimestamp = timestamp;
+		mTimestampSent = timestampSent;
+		mTimestampDelivered = timestampDelivered;
+		mTimestampDisplayed = timestampDisplayed;
+		mStatus = status;
+		mReasonCode = reasonCode;
+		mChatId = chatId;
+		mRead = read;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param in Parcelable source
+	 */
+	public ChatMessageSnapshot(Parcel in) {
+		mId = in.readString();
+		if (in.readInt() != 0) {
+			mContact = ContactId.CREATOR.createFromParcel(in);
+		} else {
+			mContact = null;
+		}
+		mContent = in.readString();
+		mMimeType = in.readString();
+		mDirection = in.readInt();
+		mTimestamp = in.readLong();
+		mTimestampSent = in.readLong();
+		mTimestampDelivered = in.readLong();
+		mTimestampDisplayed = in.readLong();
+		mStatus = in.readInt();
+		mReasonCode = in.readInt();
+		mChatId = in.readString();
+		mRead = in.readInt() != 0;
+	}
+
+	/**
+	 * Parcelable creator
+	 *
+	 * @hide
+	 */
+	public static final Parcelable.Creator<ChatMessageSnapshot> CREATOR = new Parcelable.Creator<ChatMessageSnapshot>() {
+		public ChatMessageSnapshot createFromParcel(Parcel in) {
+			return new ChatMessageSnapshot(in);
+		}
+
+		public ChatMessageSnapshot[] newArray(int size) {
+			return new ChatMessageSnapshot[size];
+		}
+	};
+
+	/**
+	 * Returns the message ID
+	 *
+	 * @return ID
+	 */
+	public String getId() {
+		return mId;
+	}
+
+	/**
+	 * Returns the contact
+	 *
+	 * @return ContactId
+	 */
+	public ContactId getRemoteContact() {
+		return mContact;
+	}
+
+	/**
+	 * Returns the message content
+	 *
+	 * @return String
+	 */
+	public String getContent() {
+		return mContent;
+	}
+
+	/**
+	 * Returns the mime type of the chat message
+	 *
+	 * @return String
+	 */
+	public String getMimeType() {
+		return mMimeType;
+	}
+
+	/**
+	 * Returns the direction of message (incoming or outgoing)
+	 *
+	 * @return Direction
+	 * @see com.gsma.services.rcs.RcsCommon.Direction
+	 */
+	public int getDirection() {
+		return mDirection;
+	}
+
+	/**
+	 * Returns the local time-stamp of the chat message
+	 *
+	 * @return long
+	 * @see ChatMessage#getTimestamp()
+	 */
+	public long getTimestamp() {
+		return mTimestamp;
+	}
+
+	/**
+	 * Returns the time-stamp of when the chat message was sent
+	 *
+	 * @return long
+	 * @see ChatMessage#getTimestampSent()
+	 */
+	public long getTimestampSent() {
+		return mTimestampSent;
+	}
+
+	/**
+	 * Returns the local time-stamp of when the chat message was delivered
+	 *
+	 * @return long
+	 * @see ChatMessage#getTimestampDelivered()
+	 */
+	public long getTimestampDelivered() {
+		return mTimestampDelivered;
+	}
+
+	/**
+	 * Returns the local time-stamp of when the chat message was displayed
+	 *
+	 * @return long
+	 * @see ChatMessage#getTimestampDisplayed()
+	 */
+	public long getTimestampDisplayed() {
+		return mTimestampDisplayed;
+	}
+
+	/**
+	 * Returns the status of the chat message
+	 *
+	 * @return Status
+	 */
+	public int getStatus() {
+		return mStatus;
+	}
+
+	/**
+	 * Returns the reason code of the chat message
+	 *
+	 * @return ReasonCode
+	 */
+	public int getReasonCode() {
+		return mReasonCode;
+	}
+
+	/**
+	 * Returns the chat ID of this chat message
+	 *
+	 * @return String
+	 */
+	public String getChatId() {
+		return mChatId;
+	}
+
+	/**
+	 * Returns true is this chat message has been marked as read
+	 *
+	 * @return boolean
+	 */
+	public boolean isRead() {
+		return mRead;
+	}
+
+	/**
+	 * Describe the kinds of special objects contained in this Parcelable's marshalled representation
+	 *
+	 * @return Integer
+	 * @hide
+	 */
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+
+	/**
+	 * Write parcelable object
+	 *
+	 * @param dest The Parcel in which the object should be written
+	 * @param flags Additional flags about how the object should be written
+	 * @hide
+	 */
+	@Override
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeString(mId);
+		if (mContact != null) {
+			dest.writeInt(1);
+			mContact.writeToParcel(dest, flags);
+		} else {
+			dest.writeInt(0);
+		}
+		dest.writeString(mContent);
+		dest.writeString(mMimeType);
+		dest.writeInt(mDirection);
+		dest.writeLong(mTimestamp);
+		dest.writeLong(mTimestampSent);
+		dest.writeLong(mTimestampDelivered);
+		dest.writeLong(mTimestampDisplayed);
+		dest.writeInt(mStatus);
+		dest.writeInt(mReasonCode);
+		dest.writeString(mChatId);
+		dest.writeInt(mRead ? 1 : 0);
+	}
+}
@@ -22,6 +22,7 @@
 package com.gsma.services.rcs.chat;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import android.content.ComponentName;
@@ -213,6 +214,24 @@ public class ChatService extends RcsService {
         }
     }
 
+    /**
+     * Mark a list of received messages as read in a single call
+     * 
+     * @param msgIds List of message ids
+     * @throws RcsServiceException
+     */
+    public void markMessagesAsRead(List<String> msgIds) throws RcsServiceException {
+        if (api != null) {
+            try {
+                api.markMessagesAsRead(msgIds);
+            } catch(Exception e) {
+                throw new RcsServiceException(e.getMessage());
+            }
+        } else {
+            throw new RcsServiceNotAvailableException();
+        }
+    }
+
 	/**
 	 * Set the parameter that controls whether to respond or not to display reports when requested by the remote.
 	 * <p>
@@ -326,6 +345,48 @@ public class ChatService extends RcsService {
 		}
 	}
 
+	/**
+	 * Returns a snapshot of a chat message: all its attributes are read in a
+	 * single call
+	 * 
+	 * @param msgId Message ID
+	 * @return ChatMessageSnapshot or null if the message is not found
+	 * @throws RcsServiceException
+	 */
+	public ChatMessageSnapshot getChatMessageSnapshot(String msgId) throws RcsServiceException {
+		if (api != null) {
+			try {
+				return api.getChatMessageSnapshot(msgId);
+			} catch (Exception e) {
+				throw new RcsServiceException(e.getMessage());
+			}
+		} else {
+			throw new RcsServiceNotAvailableException();
+		}
+	}
+
+	/**
+	 * Returns the snapshots of a list of chat messages, e.g. a page of a
+	 * conversation, in a single call
+	 * 
+	 * @param msgIds List of message IDs
+	 * @return List of snapshots in the order of the IDs, the messages not
+	 *         found are skipped
+	 * @throws RcsServiceException
+	 */
+	public List<ChatMessageSnapshot> getChatMessageSnapshots(List<String> msgIds)
+			throws RcsServiceException {
+		if (api != null) {
+			try {
+				return api.getChatMessageSnapshots(msgIds);
+			} catch (Exception e) {
+				throw new RcsServiceException(e.getMessage());
+			}
+		} else {
+			throw new RcsServiceNotAvailableException();
+		}
+	}
+
 
     /**********************************************************************************
      *  tct-stack add for CMCC message modes
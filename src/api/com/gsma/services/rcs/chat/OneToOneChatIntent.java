@@ -35,6 +35,11 @@ public class OneToOneChatIntent {
 	 * Intent includes the following extras:
 	 * <ul>
 	 * <li> {@link #EXTRA_MESSAGE_ID} containing the message ID of chat message.
+	 * <li> {@link #EXTRA_MESSAGE_IDS} optionally containing the message IDs of
+	 * the chat messages of the same MIME-type notified at once, e.g. when
+	 * stored messages are delivered by the network. {@link #EXTRA_MIME_TYPE}
+	 * is the MIME-type of all of them and {@link #EXTRA_MESSAGE_ID} the
+	 * message ID of the last of them.
 	 * </ul>
 	 */
 	public final static String ACTION_NEW_ONE_TO_ONE_CHAT_MESSAGE = "com.gsma.services.rcs.chat.action.NEW_ONE_TO_ONE_CHAT_MESSAGE";
@@ -48,4 +53,9 @@ public class OneToOneChatIntent {
 	 * Message ID of received message
 	 */
 	public final static String EXTRA_MESSAGE_ID = "messageId";
+
+	/**
+	 * Message IDs of received messages notified at once
+	 */
+	public final static String EXTRA_MESSAGE_IDS = "messageIds";
 }
@@ -20,12 +20,11 @@ package com.gsma.services.rcs.contacts;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import android.content.Context;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import com.gsma.services.rcs.RcsContactFormatException;
 
@@ -53,14 +52,27 @@ public class ContactUtils {
 	private final String mCountryAreaCode;
 
 	/**
-	 * Regular expression to validate phone numbers
+	 * Max number of digits of a phone number, international prefix or
+	 * country code prefix excluded
 	 */
-	private final static String REGEXP_CONTACT = "^00\\d{1,15}$|^[+]?\\d{1,15}$|^\\d{1,15}$";
+	private final static int MAX_DIGITS = 15;
 
 	/**
-	 * Pattern to check contact
+	 * Max number of ContactIds kept by each cache
 	 */
-	private final static Pattern PATTERN_CONTACT = Pattern.compile(REGEXP_CONTACT);
+	private final static int CONTACT_CACHE_SIZE = 256;
+
+	/**
+	 * ContactIds formatted by formatContact, by input number
+	 */
+	private final LruCache<String, ContactId> mFormattedContacts = new LruCache<String, ContactId>(
+			CONTACT_CACHE_SIZE);
+
+	/**
+	 * ContactIds normalized by normalizeNumber, by input number
+	 */
+	private final LruCache<String, ContactId> mNormalizedContacts = new LruCache<String, ContactId>(
+			CONTACT_CACHE_SIZE);
 
 	private final static String MSISDN_PREFIX_INTERNATIONAL = "00";
 
@@ -395,13 +407,76 @@ public class ContactUtils {
 			return null;
 			
 		}
-		contact = contact.replaceAll("[ -]", "");
-		Matcher matcher = PATTERN_CONTACT.matcher(contact);
-		if (matcher.find()) {
-			return matcher.group();
+		int length = contact.length();
+		char[] buffer = null;
+		int count = 0;
+		for (int i = 0; i < length; i++) {
+			char c = contact.charAt(i);
+			if (c == ' ' || c == '-') {
+				if (buffer == null) {
+					buffer = new char[length];
+					contact.getChars(0, i, buffer, 0);
+				}
+				continue;
+			}
+			if ((c < '0' || c > '9') && (c != '+' || count != 0)) {
+				// Only digits with an optional leading '+' are allowed
+				return null;
+				
+			}
+			if (buffer != null) {
+				buffer[count] = c;
+			}
+			count++;
+		}
+		if (count == 0) {
+			return null;
+			
+		}
+		char first = buffer != null ? buffer[0] : contact.charAt(0);
+		int digits = count;
+		if (first == '+') {
+			digits--;
+		} else if (count > MAX_DIGITS) {
+			// Only a number with the international prefix may be that long
+			char second = buffer != null ? buffer[1] : contact.charAt(1);
+			if (first == '0' && second == '0') {
+				digits -= MSISDN_PREFIX_INTERNATIONAL.length();
+			}
+		}
+		if (digits < 1 || digits > MAX_DIGITS) {
+			return null;
+			
+		}
+		return buffer != null ? new String(buffer, 0, count) : contact;
+	}
+
+	/**
+	 * Remove blank and minus characters from contact without any validation
+	 * 
+	 * @param contact
+	 *            the phone number
+	 * @return phone string stripped of separators (the same instance if it
+	 *         does not contain any separator)
+	 */
+	private static String removeSeparators(String contact) {
+		int length = contact.length();
+		int i = 0;
+		while (i < length && contact.charAt(i) != ' ' && contact.charAt(i) != '-') {
+			i++;
+		}
+		if (i == length) {
+			return contact;
 			
 		}
-		return null;
+		StringBuilder sb = new StringBuilder(length).append(contact, 0, i);
+		for (; i < length; i++) {
+			char c = contact.charAt(i);
+			if (c != ' ' && c != '-') {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
 	}
 
 	/**
@@ -425,6 +500,25 @@ public class ContactUtils {
 	 * @return the ContactId
 	 */
 	public ContactId formatContact(String contact) {
+		if (contact != null) {
+			ContactId contactId = mFormattedContacts.get(contact);
+			if (contactId != null) {
+				return contactId;
+			}
+		}
+		ContactId contactId = doFormatContact(contact);
+		mFormattedContacts.put(contact, contactId);
+		return contactId;
+	}
+
+	/**
+	 * Formats the given contact without looking up the cache
+	 * 
+	 * @param contact
+	 *            the contact phone number
+	 * @return the ContactId
+	 */
+	private ContactId doFormatContact(String contact) {
 		
 		contact = stripSeparators(contact);
 		
@@ -462,9 +556,33 @@ public class ContactUtils {
 		return new ContactId(contact);	
 	}
 	
+	/**
+	 * Normalizes the given number to an international representation without
+	 * checking its syntax.
+	 * 
+	 * @param contact
+	 *            the contact phone number
+	 * @return the ContactId
+	 */
 	public ContactId normalizeNumber(String contact) {
+		ContactId contactId = mNormalizedContacts.get(contact);
+		if (contactId == null) {
+			contactId = doNormalizeNumber(contact);
+			mNormalizedContacts.put(contact, contactId);
+		}
+		return contactId;
+	}
+
+	/**
+	 * Normalizes the given number without looking up the cache
+	 * 
+	 * @param contact
+	 *            the contact phone number
+	 * @return the ContactId
+	 */
+	private ContactId doNormalizeNumber(String contact) {
 		
-		contact = contact.replaceAll("[ -]", "");
+		contact = removeSeparators(contact);
 		
 		if (contact.startsWith(COUNTRY_CODE_PREFIX)) {
 			return new ContactId(contact);
@@ -186,4 +186,49 @@ public class MultimediaStreamingSession extends MultimediaSession {
 			throw new RcsServiceException(e.getMessage());
 		}
 	}
+
+	/**
+	 * Returns the number of payloads waiting to be sent. An application may
+	 * use it to adapt its production rate.
+	 * 
+	 * @return Number of payloads
+	 * @throws RcsServiceException
+	 */
+	public int getSendQueueSize() throws RcsServiceException {
+		try {
+			return sessionIntf.getSendQueueSize();
+		} catch (Exception e) {
+			throw new RcsServiceException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the number of payloads dropped because they were produced
+	 * faster than they could be sent
+	 * 
+	 * @return Number of payloads
+	 * @throws RcsServiceException
+	 */
+	public long getDroppedPayloads() throws RcsServiceException {
+		try {
+			return sessionIntf.getDroppedPayloads();
+		} catch (Exception e) {
+			throw new RcsServiceException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the smoothed delay between the time a payload is given to
+	 * {@link #sendPayload(byte[])} and the time it is sent to the network
+	 * 
+	 * @return Latency in milliseconds
+	 * @throws RcsServiceException
+	 */
+	public long getSendLatency() throws RcsServiceException {
+		try {
+			return sessionIntf.getSendLatency();
+		} catch (Exception e) {
+			throw new RcsServiceException(e.getMessage());
+		}
+	}
 }
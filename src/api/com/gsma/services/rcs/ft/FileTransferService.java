@@ -280,6 +280,24 @@ public class FileTransferService extends RcsService {
             throw new RcsServiceNotAvailableException();
         }
     }
+
+    /**
+     * Mark a list of received file transfers as read in a single call
+     * 
+     * @param transferIds List of file transfer IDs
+     * @throws RcsServiceException
+     */
+    public void markFileTransfersAsRead(List<String> transferIds) throws RcsServiceException {
+        if (api != null) {
+            try {
+                api.markFileTransfersAsRead(transferIds);
+            } catch(Exception e) {
+                throw new RcsServiceException(e.getMessage());
+            }
+        } else {
+            throw new RcsServiceNotAvailableException();
+        }
+    }
     
     /**
      * Returns the list of file transfers in progress
@@ -305,6 +323,48 @@ public class FileTransferService extends RcsService {
 		}
     }    
 
+    /**
+     * Returns a snapshot of a file transfer: all its attributes are read in a
+     * single call
+     * 
+     * @param transferId Transfer ID
+     * @return FileTransferSnapshot or null if the file transfer is not found
+     * @throws RcsServiceException
+     */
+    public FileTransferSnapshot getFileTransferSnapshot(String transferId) throws RcsServiceException {
+		if (api != null) {
+			try {
+				return api.getFileTransferSnapshot(transferId);
+			} catch(Exception e) {
+				throw new RcsServiceException(e.getMessage());
+			}
+		} else {
+			throw new RcsServiceNotAvailableException();
+		}
+    }
+
+    /**
+     * Returns the snapshots of a list of file transfers, e.g. a page of a
+     * conversation, in a single call
+     * 
+     * @param transferIds List of transfer IDs
+     * @return List of snapshots in the order of the IDs, the file transfers
+     *         not found are skipped
+     * @throws RcsServiceException
+     */
+    public List<FileTransferSnapshot> getFileTransferSnapshots(List<String> transferIds)
+            throws RcsServiceException {
+		if (api != null) {
+			try {
+				return api.getFileTransferSnapshots(transferIds);
+			} catch(Exception e) {
+				throw new RcsServiceException(e.getMessage());
+			}
+		} else {
+			throw new RcsServiceNotAvailableException();
+		}
+    }
+
 	/**
 	 * Returns a current file transfer from its unique ID
 	 * 
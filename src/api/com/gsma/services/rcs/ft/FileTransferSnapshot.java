@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gsma.services.rcs.ft;
+
+import android.net.Uri;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.gsma.services.rcs.contacts.ContactId;
+
+/**
+ * Immutable snapshot of a file transfer
+ * <p>
+ * All the attributes are read at once when the snapshot is taken, so that
+ * the getters do not cost any IPC. A snapshot is not updated afterwards: use
+ * {@link FileTransfer} to follow or to control a transfer in progress.
+ *
+ * @see FileTransferService#getFileTransferSnapshot(String)
+ * @see FileTransferService#getFileTransferSnapshots(java.util.List)
+ */
+public class FileTransferSnapshot implements Parcelable {
+
+	private final String mTransferId;
+
+	private final String mChatId;
+
+	private final ContactId mContact;
+
+	private final String mFileName;
+
+	private final long mFileSize;
+
+	private final String mMimeType;
+
+	private final Uri mFileIcon;
+
+	private final Uri mFile;
+
+	private final int mState;
+
+	private final int mReasonCode;
+
+	private final int mDirection;
+
+	private final long mTimestamp;
+
+	private final long mTransferred;
+
+	private final boolean mRead;
+
+	/**
+	 * Constructor
+	 *
+	 * @param transferId File transfer ID
+	 * @param chatId Chat ID
+	 * @param contact Remote contact
+	 * @param fileName File name
+	 * @param fileSize File size
+	 * @param mimeType Mime type
+	 * @param fileIcon File icon
+	 * @param file File
+	 * @param state State
+	 * @param reasonCode Reason code
+	 * @param direction Direction
+	 * @param timestamp Local time-stamp
+	 * @param transferred Size already transferred
+	 * @param read True if the file transfer is read
+	 * @hide
+	 */
+	public FileTransferSnapshot(String transferId, String chatId, ContactId contact,
+			String fileName, long fileSize, String mimeType, Uri fileIcon, Uri file, int state,
+			int reasonCode, int direction, long timestamp, long transferred, boolean read) {
+		mTransferId = transferId;
+		mChatId = chatId;
+		mContact = contact;
+		mFileName = fileName;
+		mFileSize = fileSize;
+		mMimeType = mimeType;
+		mFileIcon = fileIcon;
+		mFile = file;
+		mState = state;
+		mReasonCode = reasonCode;
+		mDirection = direction;
+		mTimestamp = timestamp;
+		mTransferred = transferred;
+		mRead = read;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param in Parcelable source
+	 */
+	public FileTransferSnapshot(Parcel in) {
+		mTransferId = in.readString();
+		mChatId = in.readString();
+		if (in.readInt() != 0) {
+			mContact = ContactId.CREATOR.createFromParcel(in);
+		} else {
+			mContact = null;
+		}
+		mFileName = in.readString();
+		mFileSize = in.readLong();
+		mMimeType = in.readString();
+		mFileIcon = in.readParcelable(Uri.class.getClassLoader());
+		mFile = in.readParcelable(Uri.class.getClassLoader());
+		mState = in.readInt();
+		mReasonCode = in.readInt();
+		mDirection = in.readInt();
+		mTimestamp = in.readLong();
+		mTransferred = in.readLong();
+		mRead = in.readInt() != 0;
+	}
+
+	/**
+	 * Parcelable creator
+	 *
+	 * @hide
+	 */
+	public static final Parcelable.Creator<FileTransferSnapshot> CREATOR = new Parcelable.Creator<FileTransferSnapshot>() {
+		public FileTransferSnapshot createFromParcel(Parcel in) {
+			return new FileTransferSnapshot(in);
+		}
+
+		public FileTransferSnapshot[] newArray(int size) {
+			return new FileTransferSnapshot[size];
+		}
+	};
+
+	/**
+	 * Returns the file transfer ID
+	 *
+	 * @return Transfer ID
+	 */
+	public String getTransferId() {
+		return mTransferId;
+	}
+
+	/**
+	 * Returns the chat ID if this file transfer is a group file transfer
+	 *
+	 * @return Chat ID
+	 */
+	public String getChatId() {
+		return mChatId;
+	}
+
+	/**
+	 * Returns the remote contact
+	 *
+	 * @return Contact
+	 */
+	public ContactId getRemoteContact() {
+		return mContact;
+	}
+
+	/**
+	 * Returns the complete filename including the path of the file to be
+	 * transferred
+	 *
+	 * @return Filename
+	 */
+	public String getFileName() {
+		return mFileName;
+	}
+
+	/**
+	 * Returns the size of the file to be transferred
+	 *
+	 * @return Size in bytes
+	 */
+	public long getFileSize() {
+		return mFileSize;
+	}
+
+	/**
+	 * Returns the MIME type of the file to be transferred
+	 *
+	 * @return Type
+	 */
+	public String getMimeType() {
+		return mMimeType;
+	}
+
+	/**
+	 * Returns the Uri of the file icon
+	 *
+	 * @return Uri
+	 */
+	public Uri getFileIcon() {
+		return mFileIcon;
+	}
+
+	/**
+	 * Returns the Uri of the file
+	 *
+	 * @return Uri
+	 */
+	public Uri getFile() {
+		return mFile;
+	}
+
+	/**
+	 * Returns the state of the file transfer
+	 *
+	 * @return State
+	 * @see FileTransfer.State
+	 */
+	public int getState() {
+		return mState;
+	}
+
+	/**
+	 * Returns the reason code of the state of the file transfer
+	 *
+	 * @return ReasonCode
+	 * @see FileTransfer.ReasonCode
+	 */
+	public int getReasonCode() {
+		return mReasonCode;
+	}
+
+	/**
+	 * Returns the direction of the transfer (incoming or outgoing)
+	 *
+	 * @return Direction
+	 * @see com.gsma.services.rcs.RcsCommon.Direction
+	 */
+	public int getDirection() {
+		return mDirection;
+	}
+
+	/**
+	 * Returns the local time-stamp of the file transfer
+	 *
+	 * @return long
+	 */
+	public long getTimestamp() {
+		return mTimestamp;
+	}
+
+	/**
+	 * Returns the size already transferred
+	 *
+	 * @return Size in bytes
+	 */
+	public long getTransferred() {
+		return mTransferred;
+	}
+
+	/**
+	 * Returns true is this file transfer has been marked as read
+	 *
+	 * @return boolean
+	 */
+	public boolean isRead() {
+		return mRead;
+	}
+
+	/**
+	 * Describe the kinds of special objects contained in this Parcelable's marshalled representation
+	 *
+	 * @return Integer
+	 * @hide
+	 */
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+
+	/**
+	 * Write parcelable object
+	 *
+	 * @param dest The Parcel in which the object should be written
+	 * @param flags Additional flags about how the object should be written
+	 * @hide
+	 */
+	@Override
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeString(mTransferId);
+		dest.writeString(mChatId);
+		if (mContact != null) {
+			dest.writeInt(1);
+			mContact.writeToParcel(dest, flags);
+		} else {
+			dest.writeInt(0);
+		}
+		dest.writeString(mFileName);
+		dest.writeLong(mFileSize);
+		dest.writeString(mMimeType);
+		dest.writeParcelable(mFileIcon, flags);
+		dest.writeParcelable(mFile, flags);
+		dest.writeInt(mState);
+		dest.writeInt(mReasonCode);
+		dest.writeInt(mDirection);
+		dest.writeLong(mTimestamp);
+		dest.writeLong(mTransferred);
+		dest.writeInt(mRead ? 1 : 0);
+	}
+}
@@ -58,4 +58,33 @@ public abstract class GroupFileTransferListener extends IGroupFileTransferListen
      */
     public abstract void onProgressUpdate(String chatId, String transferId, long currentSize,
             long totalSize);
+
+    /**
+     * Callback called with the progress of several group file transfers at
+     * once. Progress updates are coalesced by the service, so that only the
+     * latest progress of each transfer is notified. By default each progress
+     * is notified to {@link #onProgressUpdate(String, String, long, long)}.
+     *
+     * @param chatIds Ids of chats
+     * @param transferIds Ids of file transfers
+     * @param currentSizes Current transferred sizes in bytes
+     * @param totalSizes Total sizes to transfer in bytes
+     */
+    public void onProgressUpdates(String[] chatIds, String[] transferIds, long[] currentSizes,
+            long[] totalSizes) {
+        for (int i = 0; i < transferIds.length; i++) {
+            onProgressUpdate(chatIds[i], transferIds[i], currentSizes[i], totalSizes[i]);
+        }
+    }
+
+    /**
+     * Queried by the service when the listener is added: batches of progress
+     * updates are only notified to listeners which support them.
+     *
+     * @return True
+     * @hide
+     */
+    public boolean isProgressBatchSupported() {
+        return true;
+    }
 }
@@ -52,4 +52,33 @@ public abstract class OneToOneFileTransferListener extends IOneToOneFileTransfer
 	 */
 	public abstract void onProgressUpdate(ContactId contact, String transferId, long currentSize,
 			long totalSize);
+
+	/**
+	 * Callback called with the progress of several file transfers at once.
+	 * Progress updates are coalesced by the service, so that only the latest
+	 * progress of each transfer is notified. By default each progress is
+	 * notified to {@link #onProgressUpdate(ContactId, String, long, long)}.
+	 * 
+	 * @param contacts Contact IDs
+	 * @param transferIds Ids of file transfers
+	 * @param currentSizes Current transferred sizes in bytes
+	 * @param totalSizes Total sizes to transfer in bytes
+	 */
+	public void onProgressUpdates(ContactId[] contacts, String[] transferIds, long[] currentSizes,
+			long[] totalSizes) {
+		for (int i = 0; i < transferIds.length; i++) {
+			onProgressUpdate(contacts[i], transferIds[i], currentSizes[i], totalSizes[i]);
+		}
+	}
+
+	/**
+	 * Queried by the service when the listener is added: batches of progress
+	 * updates are only notified to listeners which support them.
+	 * 
+	 * @return True
+	 * @hide
+	 */
+	public boolean isProgressBatchSupported() {
+		return true;
+	}
 }
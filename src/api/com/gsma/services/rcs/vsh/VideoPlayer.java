@@ -105,6 +105,30 @@ public abstract class VideoPlayer extends IVideoPlayer.Stub {
 	 */
 	public abstract VideoCodec getCodec();
 
+	/**
+	 * Returns true if the player handles the RTCP feedback of the remote, i.e.
+	 * it retransmits the RTP packets requested by a generic NACK and sends a
+	 * key frame when a picture loss (PLI) or a full intra request (FIR) is
+	 * received. The RTCP feedback is offered to the remote only if the player
+	 * handles it. By default the RTCP feedback is not handled.
+	 * 
+	 * @return Boolean
+	 */
+	public boolean isRtcpFeedbackSupported() {
+		return false;
+	}
+
+	/**
+	 * Sets the RTCP feedback accepted by the remote. It is called before the
+	 * player is opened.
+	 * 
+	 * @param nack True if the lost packets are requested by a generic NACK
+	 * @param pli True if a key frame is requested by a PLI
+	 * @param fir True if a key frame is requested by a FIR
+	 */
+	public void setRtcpFeedback(boolean nack, boolean pli, boolean fir) {
+	}
+
 	/**
 	 * Returns the list of player event listeners
 	 * 
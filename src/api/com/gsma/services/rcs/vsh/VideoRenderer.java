@@ -103,6 +103,29 @@ public abstract class VideoRenderer extends IVideoRenderer.Stub {
 	 * @return List of codecs
 	 */
 	public abstract VideoCodec[] getSupportedCodecs();
+
+	/**
+	 * Returns true if the renderer sends RTCP feedback to the remote, i.e. it
+	 * requests the lost RTP packets by a generic NACK and a key frame by a
+	 * picture loss indication (PLI). The RTCP feedback offered by the remote
+	 * is accepted only if the renderer sends it. By default no RTCP feedback
+	 * is sent.
+	 * 
+	 * @return Boolean
+	 */
+	public boolean isRtcpFeedbackSupported() {
+		return false;
+	}
+
+	/**
+	 * Sets the RTCP feedback accepted for the session. It is called before the
+	 * renderer is opened.
+	 * 
+	 * @param nack True if the lost packets may be requested by a generic NACK
+	 * @param pli True if a key frame may be requested by a PLI
+	 */
+	public void setRtcpFeedback(boolean nack, boolean pli) {
+	}
 	
 	/**
 	 * Returns the list of renderer event listeners
@@ -48,6 +48,7 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 
 import com.orangelabs.rcs.core.security.cert.KeyStoreManager;
+import com.orangelabs.rcs.platform.network.TlsContextManager;
 
 /**
  * extended implementation of a network layer that allows to define a private java
@@ -64,7 +65,29 @@ public class SslNetworkLayer implements NetworkLayer {
 
     private SSLServerSocketFactory sslServerSocketFactory;
 
-	public SslNetworkLayer(String trustStoreFile, String keyStoreFile,
+	/**
+	 * The SSL context is pooled, so that the network layers of successive
+	 * stacks share the TLS sessions with the proxy and resume them.
+	 */
+	public SslNetworkLayer(final String trustStoreFile, final String keyStoreFile,
+			final char[] keyStorePassword, final String keyStoreType)
+			throws GeneralSecurityException, FileNotFoundException, IOException {
+		String key = "sip:" + keyStoreType + ":" + keyStoreFile + ":" + trustStoreFile + ":"
+				+ KeyStoreManager.isOwnCertificateUsed();
+		SSLContext sslContext = TlsContextManager.getContext(key,
+				new TlsContextManager.ContextFactory() {
+					@Override
+					public SSLContext createContext() throws GeneralSecurityException,
+							IOException {
+						return createSslContext(trustStoreFile, keyStoreFile,
+								keyStorePassword, keyStoreType);
+					}
+				});
+		sslServerSocketFactory = sslContext.getServerSocketFactory();
+		sslSocketFactory = TlsContextManager.getSocketFactory(sslContext);
+	}
+
+	private static SSLContext createSslContext(String trustStoreFile, String keyStoreFile,
 			char[] keyStorePassword, String keyStoreType)
 			throws GeneralSecurityException, FileNotFoundException, IOException {
 		SSLContext sslContext;
@@ -97,8 +120,7 @@ public class SslNetworkLayer implements NetworkLayer {
 			tmFactory.init((KeyStore) null);
 		}
 		sslContext.init(km, tmFactory.getTrustManagers(), secureRandom);
-		sslServerSocketFactory = sslContext.getServerSocketFactory();
-		sslSocketFactory = sslContext.getSocketFactory();
+		return sslContext;
 	}
 
     public ServerSocket createServerSocket(int port, int backlog,
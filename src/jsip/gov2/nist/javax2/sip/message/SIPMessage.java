@@ -178,6 +178,24 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      */
     protected Object applicationData;
 
+    /**
+     * Encoding of the last transmission, reused by the retransmissions.
+     */
+    private byte[] lastEncoding;
+
+    private String lastEncodingTransport;
+
+    private volatile boolean retransmission;
+
+    private static final String UTF8 = "UTF-8";
+
+    private static final ThreadLocal<EncodingBuffer> encodingBuffer = new ThreadLocal<EncodingBuffer>() {
+        @Override
+        protected EncodingBuffer initialValue() {
+            return new EncodingBuffer();
+        }
+    };
+
     /**
      * Return true if the header belongs only in a Request.
      * 
@@ -400,6 +418,11 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
     /**
      * Encode the message as a byte array. Use this when the message payload is a binary byte
      * array.
+     * <p>
+     * The first line and the headers are encoded in a buffer reused by the successive encodings
+     * of the calling thread, then converted in a single pass to the returned array. The result
+     * is kept so that a retransmission of the message by the transaction layer does not encode
+     * it again, see {@link #setRetransmission(boolean)}.
      * 
      * @return The Canonical byte array representation of the message (including the canonical
      *         byte array representation of the SDP payload if it exists all in one contiguous
@@ -409,6 +432,15 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         if (this instanceof SIPRequest && ((SIPRequest) this).isNullRequest()) {
             return "\r\n\r\n".getBytes();
         }
+        byte[] encoded = this.lastEncoding;
+        if (this.retransmission && encoded != null
+                && transport.equalsIgnoreCase(this.lastEncodingTransport)) {
+            return encoded;
+        }
+        String firstLine = this.getFirstLine();
+        if (firstLine == null && this instanceof SIPRequest) {
+            return new byte[0];
+        }
         // JvB: added to fix case where application provides the wrong transport
         // in the topmost Via header
         ViaHeader topVia = (ViaHeader) this.getHeader(ViaHeader.NAME);
@@ -418,7 +450,13 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
             InternalErrorHandler.handleException(e);
         }
 
-        StringBuffer encoding = new StringBuffer();
+        EncodingBuffer buffer = encodingBuffer.get();
+        StringBuffer encoding = buffer.text;
+        encoding.setLength(0);
+        if (firstLine != null) {
+            encoding.append(firstLine);
+        }
+        int firstLineLength = encoding.length();
         synchronized (this.headers) {
             Iterator<SIPHeader> it = this.headers.iterator();
 
@@ -432,31 +470,153 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         contentLengthHeader.encode(encoding);
         encoding.append(NEWLINE);
 
-        byte[] retval = null;
         byte[] content = this.getRawContent();
-        if (content != null) {
-            // Append the content
-
+        int contentLength = (content != null) ? content.length : 0;
+        String charset = getCharset();
+        if (UTF8.equalsIgnoreCase(charset)) {
+            // The first line is always UTF-8: encode everything in one pass
+            char[] chars = buffer.getChars(encoding);
+            int length = encoding.length();
+            encoded = new byte[utf8Length(chars, length) + contentLength];
+            int offset = encodeUtf8(chars, length, encoded);
+            if (content != null) {
+                System.arraycopy(content, 0, encoded, offset, contentLength);
+            }
+        } else {
+            byte[] rlbytes = null;
             byte[] msgarray = null;
             try {
-                msgarray = encoding.toString().getBytes( getCharset() );
+                rlbytes = encoding.substring(0, firstLineLength).getBytes(UTF8);
+                msgarray = encoding.substring(firstLineLength).getBytes(charset);
             } catch (UnsupportedEncodingException ex) {
                 InternalErrorHandler.handleException(ex);
             }
+            encoded = new byte[rlbytes.length + msgarray.length + contentLength];
+            System.arraycopy(rlbytes, 0, encoded, 0, rlbytes.length);
+            System.arraycopy(msgarray, 0, encoded, rlbytes.length, msgarray.length);
+            if (content != null) {
+                System.arraycopy(content, 0, encoded, rlbytes.length + msgarray.length,
+                        contentLength);
+            }
+        }
+        buffer.release();
 
-            retval = new byte[msgarray.length + content.length];
-            System.arraycopy(msgarray, 0, retval, 0, msgarray.length);
-            System.arraycopy(content, 0, retval, msgarray.length, content.length);
-        } else {
-            // Message content does not exist.
+        this.lastEncoding = encoded;
+        this.lastEncodingTransport = transport;
+        return encoded;
+    }
 
-            try {
-                retval = encoding.toString().getBytes( getCharset() );
-            } catch (UnsupportedEncodingException ex) {
-                InternalErrorHandler.handleException(ex);
+    /**
+     * Mark the next encodings of this message as retransmissions. A retransmission reuses the
+     * bytes of the previous transmission on the same transport, provided that no header has
+     * been attached or removed and that the content has not been changed meanwhile. Headers
+     * modified in place are not detected: the transaction layer only sets this flag around the
+     * retransmission of a message it has already sent.
+     * 
+     * @param retransmission true to reuse the previous encoding
+     */
+    public void setRetransmission(boolean retransmission) {
+        this.retransmission = retransmission;
+    }
+
+    /**
+     * Forget the encoding of the previous transmission.
+     */
+    private void invalidateEncoding() {
+        this.lastEncoding = null;
+    }
+
+    /**
+     * Returns the number of bytes of the UTF-8 encoding of the given characters.
+     */
+    private static int utf8Length(char[] chars, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                count++;
+            } else if (c < 0x800) {
+                count += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(chars[i + 1])) {
+                count += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Malformed surrogate, replaced by '?' as String.getBytes() does
+                count++;
+            } else {
+                count += 3;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Encode the given characters in UTF-8 at the beginning of the destination array.
+     * 
+     * @return the number of bytes written.
+     */
+    private static int encodeUtf8(char[] chars, int length, byte[] dest) {
+        int offset = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                dest[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[offset++] = (byte) (0xc0 | (c >> 6));
+                dest[offset++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(chars[i + 1])) {
+                int cp = Character.toCodePoint(c, chars[++i]);
+                dest[offset++] = (byte) (0xf0 | (cp >> 18));
+                dest[offset++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                dest[offset++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                dest[offset++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                dest[offset++] = (byte) '?';
+            } else {
+                dest[offset++] = (byte) (0xe0 | (c >> 12));
+                dest[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dest[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Per-thread buffers used to encode messages as bytes.
+     */
+    private static final class EncodingBuffer {
+        /**
+         * Buffers which have grown over this capacity for a large message are not kept.
+         */
+        private static final int MAX_KEPT_CAPACITY = 16 * 1024;
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        StringBuffer text = new StringBuffer(INITIAL_CAPACITY);
+
+        char[] chars = new char[INITIAL_CAPACITY];
+
+        char[] getChars(StringBuffer encoding) {
+            int length = encoding.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            encoding.getChars(0, length, chars, 0);
+            return chars;
+        }
+
+        void release() {
+            if (text.capacity() > MAX_KEPT_CAPACITY) {
+                text = new StringBuffer(INITIAL_CAPACITY);
+            } else {
+                text.setLength(0);
+            }
+            if (chars.length > MAX_KEPT_CAPACITY) {
+                chars = new char[INITIAL_CAPACITY];
             }
         }
-        return retval;
     }
 
     /**
@@ -491,6 +651,9 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         if (this.messageContentObject != null)
             retval.messageContentObject = makeClone(messageContentObject);
         retval.unrecognizedHeaders = this.unrecognizedHeaders;
+        retval.lastEncoding = null;
+        retval.lastEncodingTransport = null;
+        retval.retransmission = false;
         return retval;
     }
 
@@ -641,6 +804,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         if (header == null) {
             throw new NullPointerException("null header");
         }
+        invalidateEncoding();
 
         SIPHeader h;
 
@@ -721,6 +885,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      * @param top -- flag that indicates which end of header list to process.
      */
     public void removeHeader(String headerName, boolean top) {
+        invalidateEncoding();
 
         String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(headerName);
         SIPHeader toRemove = (SIPHeader) nameTable.get(headerNameLowerCase);
@@ -780,6 +945,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
 
         if (headerName == null)
             throw new NullPointerException("null arg");
+        invalidateEncoding();
         String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(headerName);
         SIPHeader removed = (SIPHeader) nameTable.remove(headerNameLowerCase);
         // nothing to do then we are done.
@@ -1341,6 +1507,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      * @param content is the content, as String, array of bytes, or other object.
      */
     private void computeContentLength(Object content) {
+        invalidateEncoding();
         int length = 0;
         if (content != null) {
             if (content instanceof String) {
@@ -1367,6 +1534,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      * Remove the message content if it exists.
      */
     public void removeContent() {
+        invalidateEncoding();
         messageContent = null;
         messageContentBytes = null;
         messageContentObject = null;
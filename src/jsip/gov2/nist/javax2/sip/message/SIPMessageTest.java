@@ -0,0 +1,160 @@
+package gov2.nist.javax2.sip.message;
+
+import gov2.nist.javax2.sip.header.SIPHeader;
+import gov2.nist.javax2.sip.header.TimeStamp;
+import gov2.nist.javax2.sip.parser.StringMsgParser;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class SIPMessageTest extends TestCase {
+
+    private static final String INVITE = "INVITE sip:bob@example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK776asdhds\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: <sip:bob@example.com>\r\n"
+            + "From: \"Zoë 東京\" <sip:alice@example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@10.0.0.1\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@10.0.0.1>\r\n"
+            + "Subject: 😀\r\n"
+            + "Content-Type: application/sdp\r\n"
+            + "Content-Length: 4\r\n"
+            + "\r\n"
+            + "v=0\n";
+
+    private static final String RESPONSE = "SIP/2.0 180 Ringing\r\n"
+            + "Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK776asdhds\r\n"
+            + "To: <sip:bob@example.com>;tag=a6c85cf\r\n"
+            + "From: <sip:alice@example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@10.0.0.1\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Content-Length: 0\r\n"
+            + "\r\n";
+
+    private static SIPMessage parse(String message) throws Exception {
+        return new StringMsgParser().parseSIPMessage(message.getBytes("UTF-8"));
+    }
+
+    private static byte[] encodeAsRetransmission(SIPMessage message, String transport) {
+        message.setRetransmission(true);
+        try {
+            return message.encodeAsBytes(transport);
+        } finally {
+            message.setRetransmission(false);
+        }
+    }
+
+    public void testRequestEncodingMatchesTheTextEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        byte[] encoded = request.encodeAsBytes("UDP");
+        assertTrue(Arrays.equals(request.encode().getBytes("UTF-8"), encoded));
+        assertEquals(INVITE, new String(encoded, "UTF-8"));
+    }
+
+    public void testResponseEncodingMatchesTheTextEncoding() throws Exception {
+        SIPMessage response = parse(RESPONSE);
+        assertEquals(RESPONSE, new String(response.encodeAsBytes("UDP"), "UTF-8"));
+    }
+
+    public void testBinaryContentIsAppendedAsIs() throws Exception {
+        SIPMessage request = parse(INVITE);
+        byte[] content = new byte[] { 0, (byte) 0xff, (byte) 0xc3, 0x28 };
+        request.setMessageContent("application", "octet-stream", content);
+        byte[] encoded = request.encodeAsBytes("UDP");
+        byte[] tail = Arrays.copyOfRange(encoded, encoded.length - content.length,
+                encoded.length);
+        assertTrue(Arrays.equals(content, tail));
+    }
+
+    public void testFirstTransmissionIsEncodedEachTime() throws Exception {
+        SIPMessage request = parse(INVITE);
+        byte[] first = request.encodeAsBytes("UDP");
+        byte[] second = request.encodeAsBytes("UDP");
+        assertNotSame(first, second);
+        assertTrue(Arrays.equals(first, second));
+    }
+
+    public void testRetransmissionReusesThePreviousEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        byte[] first = request.encodeAsBytes("UDP");
+        assertSame(first, encodeAsRetransmission(request, "UDP"));
+        assertSame(first, encodeAsRetransmission(request, "udp"));
+    }
+
+    public void testRetransmissionOnAnotherTransportIsEncodedAgain() throws Exception {
+        SIPMessage request = parse(INVITE);
+        byte[] first = request.encodeAsBytes("UDP");
+        byte[] retransmitted = encodeAsRetransmission(request, "TCP");
+        assertNotSame(first, retransmitted);
+        // The transport of the topmost Via follows the transport actually used
+        assertTrue(new String(retransmitted, "UTF-8").contains("SIP/2.0/TCP"));
+    }
+
+    public void testSetHeaderInvalidatesTheEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        request.encodeAsBytes("UDP");
+        TimeStamp timeStamp = new TimeStamp();
+        timeStamp.setTimeStamp(54.0f);
+        request.setHeader(timeStamp);
+        String retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertTrue(retransmitted.contains("Timestamp: 54"));
+
+        // A refreshed header is encoded too
+        TimeStamp refreshed = new TimeStamp();
+        refreshed.setTimeStamp(55.0f);
+        request.setHeader(refreshed);
+        retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertTrue(retransmitted.contains("Timestamp: 55"));
+        assertFalse(retransmitted.contains("Timestamp: 54"));
+    }
+
+    public void testAttachHeaderInvalidatesTheEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        request.encodeAsBytes("UDP");
+        request.attachHeader((SIPHeader) parseHeader("Supported: timer"), false);
+        String retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertTrue(retransmitted.contains("Supported: timer"));
+    }
+
+    public void testRemoveHeaderInvalidatesTheEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        request.encodeAsBytes("UDP");
+        request.removeHeader("Subject");
+        String retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertFalse(retransmitted.contains("Subject"));
+
+        request.encodeAsBytes("UDP");
+        request.removeFirst("Contact");
+        retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertFalse(retransmitted.contains("Contact"));
+    }
+
+    public void testContentChangeInvalidatesTheEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        request.encodeAsBytes("UDP");
+        request.setMessageContent("application", "sdp", "v=1\n");
+        String retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertTrue(retransmitted.endsWith("Content-Length: 4\r\n\r\nv=1\n"));
+
+        request.removeContent();
+        retransmitted = new String(encodeAsRetransmission(request, "UDP"), "UTF-8");
+        assertTrue(retransmitted.endsWith("Content-Length: 0\r\n\r\n"));
+    }
+
+    public void testCloneDoesNotShareTheEncoding() throws Exception {
+        SIPMessage request = parse(INVITE);
+        byte[] first = request.encodeAsBytes("UDP");
+        request.setRetransmission(true);
+        SIPMessage clone = (SIPMessage) request.clone();
+        request.setRetransmission(false);
+        byte[] cloned = encodeAsRetransmission(clone, "UDP");
+        assertNotSame(first, cloned);
+        assertTrue(Arrays.equals(first, cloned));
+    }
+
+    private static Object parseHeader(String header) throws Exception {
+        return new StringMsgParser().parseSIPHeader(header);
+    }
+}
@@ -1010,7 +1010,7 @@ public class SIPClientTransaction extends SIPTransaction implements ServerRespon
                         }
                         lastRequest.setHeader(timeStamp);
                     }
-                    super.sendMessage(lastRequest);
+                    retransmitMessage(lastRequest);
                     if (this.notifyOnRetransmit) {
                         TimeoutEvent txTimeout = new TimeoutEvent(this.getSipProvider(), this,
                                 Timeout.RETRANSMIT);
@@ -796,7 +796,7 @@ public class SIPServerTransaction extends SIPTransaction implements ServerReques
                     if (lastResponse != null) {
 
                         // Send the message to the client
-                        super.sendMessage(lastResponse);
+                        retransmitMessage(lastResponse);
 
                     }
                 } else if (transactionRequest.getMethod().equals(Request.ACK)) {
@@ -1128,7 +1128,7 @@ public class SIPServerTransaction extends SIPTransaction implements ServerReques
                 if (!this.retransmissionAlertEnabled || sipStack.isTransactionPendingAck(this) ) {
                     // Retransmit last response until ack.
                     if (lastResponse.getStatusCode() / 100 > 2 && !this.isAckSeen)
-                        super.sendMessage(lastResponse);
+                        retransmitMessage(lastResponse);
                 } else {
                     // alert the application to retransmit the last response
                     SipProviderImpl sipProvider = (SipProviderImpl) this.getSipProvider();
@@ -1150,7 +1150,7 @@ public class SIPServerTransaction extends SIPTransaction implements ServerReques
     private void fireReliableResponseRetransmissionTimer() {
         try {
 
-            super.sendMessage(this.pendingReliableResponse);
+            retransmitMessage(this.pendingReliableResponse);
 
         } catch (IOException e) {
             if (sipStack.isLoggingEnabled())
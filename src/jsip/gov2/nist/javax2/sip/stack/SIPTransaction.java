@@ -761,6 +761,25 @@ public abstract class SIPTransaction extends MessageChannel implements
         }
     }
 
+    /**
+     * Retransmit a message already sent by this transaction to the SIP peer.
+     * The bytes of the previous transmission are sent again unless the
+     * message has been changed meanwhile.
+     *
+     * @param messageToSend
+     *            Message to retransmit.
+     */
+    protected void retransmitMessage(SIPMessage messageToSend) throws IOException {
+        messageToSend.setRetransmission(true);
+        try {
+            encapsulatedChannel.sendMessage(messageToSend,
+                    this.peerInetAddress, this.peerPort);
+        } finally {
+            messageToSend.setRetransmission(false);
+            this.startTransactionTimer();
+        }
+    }
+
     /**
      * Parse the byte array as a message, process it through the transaction,
      * and send it to the SIP peer. This is just a placeholder method -- calling
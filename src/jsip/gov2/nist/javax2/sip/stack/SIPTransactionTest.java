@@ -0,0 +1,212 @@
+package gov2.nist.javax2.sip.stack;
+
+import gov2.nist.javax2.sip.SipStackImpl;
+import gov2.nist.javax2.sip.header.TimeStamp;
+import gov2.nist.javax2.sip.message.SIPMessage;
+import gov2.nist.javax2.sip.parser.StringMsgParser;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+public class SIPTransactionTest extends TestCase {
+
+    private static final String OPTIONS = "OPTIONS sip:bob@example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK776asdhds\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: <sip:bob@example.com>\r\n"
+            + "From: <sip:alice@example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@10.0.0.1\r\n"
+            + "CSeq: 63104 OPTIONS\r\n"
+            + "Content-Length: 0\r\n"
+            + "\r\n";
+
+    private SipStackImpl stack;
+
+    private RecordingChannel channel;
+
+    private SIPClientTransaction transaction;
+
+    private SIPMessage request;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        Properties properties = new Properties();
+        properties.setProperty("javax2.sip.STACK_NAME", "SIPTransactionTest");
+        stack = new SipStackImpl(properties);
+        channel = new RecordingChannel(stack);
+        transaction = new SIPClientTransaction(stack, channel);
+        request = new StringMsgParser().parseSIPMessage(OPTIONS.getBytes("UTF-8"));
+    }
+
+    protected void tearDown() throws Exception {
+        stack.stop();
+        super.tearDown();
+    }
+
+    /**
+     * Send the request as a new transmission on the channel of the transaction
+     */
+    private void transmit() throws IOException {
+        channel.sendMessage(request, channel.getPeerInetAddress(), channel.getPeerPort());
+    }
+
+    public void testRetransmissionSendsTheBytesOfTheTransmission() throws Exception {
+        transmit();
+        transaction.retransmitMessage(request);
+        transaction.retransmitMessage(request);
+        assertEquals(3, channel.sent.size());
+        assertSame(channel.sent.get(0), channel.sent.get(1));
+        assertSame(channel.sent.get(0), channel.sent.get(2));
+    }
+
+    public void testRetransmissionEncodesARefreshedTimestamp() throws Exception {
+        transmit();
+        // As done by the client transaction before a retransmission
+        TimeStamp timeStamp = new TimeStamp();
+        timeStamp.setTimeStamp(42.0f);
+        request.setHeader(timeStamp);
+        transaction.retransmitMessage(request);
+        assertNotSame(channel.sent.get(0), channel.sent.get(1));
+        assertTrue(new String(channel.sent.get(1), "UTF-8").contains("Timestamp: 42"));
+    }
+
+    public void testTransmissionAfterARetransmissionIsEncodedAgain() throws Exception {
+        transmit();
+        transaction.retransmitMessage(request);
+        transmit();
+        assertNotSame(channel.sent.get(0), channel.sent.get(2));
+        assertEquals(new String(channel.sent.get(0), "UTF-8"),
+                new String(channel.sent.get(2), "UTF-8"));
+    }
+
+    public void testRetransmissionFlagIsResetOnFailure() throws Exception {
+        transmit();
+        channel.failure = new IOException("unreachable");
+        try {
+            transaction.retransmitMessage(request);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // Expected
+        }
+        channel.failure = null;
+        transmit();
+        assertNotSame(channel.sent.get(0), channel.sent.get(2));
+    }
+
+    /**
+     * Message channel recording the bytes sent instead of sending them
+     */
+    private static class RecordingChannel extends MessageChannel {
+
+        final List<byte[]> sent = new ArrayList<byte[]>();
+
+        IOException failure;
+
+        private final SIPTransactionStack sipStack;
+
+        private final InetAddress peer;
+
+        RecordingChannel(SIPTransactionStack sipStack) throws IOException {
+            this.sipStack = sipStack;
+            this.peer = InetAddress.getByName("127.0.0.1");
+        }
+
+        @Override
+        protected void sendMessage(SIPMessage message, InetAddress receiverAddress,
+                int receiverPort, boolean reconnectFlag) throws IOException {
+            sent.add(message.encodeAsBytes(getTransport()));
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void sendMessage(SIPMessage sipMessage) throws IOException {
+            sendMessage(sipMessage, peer, 5060, false);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public SIPTransactionStack getSIPStack() {
+            return sipStack;
+        }
+
+        @Override
+        public String getTransport() {
+            return "UDP";
+        }
+
+        @Override
+        public boolean isReliable() {
+            return false;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public String getPeerAddress() {
+            return peer.getHostAddress();
+        }
+
+        @Override
+        protected InetAddress getPeerInetAddress() {
+            return peer;
+        }
+
+        @Override
+        protected String getPeerProtocol() {
+            return "UDP";
+        }
+
+        @Override
+        public int getPeerPort() {
+            return 5060;
+        }
+
+        @Override
+        public int getPeerPacketSourcePort() {
+            return 5060;
+        }
+
+        @Override
+        public InetAddress getPeerPacketSourceAddress() {
+            return peer;
+        }
+
+        @Override
+        public String getKey() {
+            return getKey(peer, 5060, "UDP");
+        }
+
+        @Override
+        public String getHost() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public int getPort() {
+            return 5060;
+        }
+
+        @Override
+        public String getViaHost() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public int getViaPort() {
+            return 5060;
+        }
+    }
+}
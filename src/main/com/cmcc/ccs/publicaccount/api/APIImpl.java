@@ -77,7 +77,7 @@ public class APIImpl implements IPublicAccountApi, HttpRequestHandler {
     private Handler mHandler = null;
 
     /*indicates the session is inited*/
-    private boolean isInited = false;
+    private volatile boolean isInited = false;
 
     static{
         ACCESSADDRESS = RcsSettings.getInstance().getPublicAccessAddress();
@@ -90,6 +90,8 @@ public class APIImpl implements IPublicAccountApi, HttpRequestHandler {
     private APIImpl(Context context,Handler handler) {
         sContext = context;
         mHttpClient = new HttpClient(sContext);
+        // all the requests go to the same server: reuse the connection
+        mHttpClient.setKeepAlive(true);
         initUserID();
         sHttpBodyPart = initHttpBodyPart();
         sHttpBodyPartWithoutInfo = initHttpBodyPartWithoutInfo();
@@ -183,8 +185,13 @@ public class APIImpl implements IPublicAccountApi, HttpRequestHandler {
 
     private String excute(String method, String bodyStr, String result) {
         if(!isInited){
-            LogI("not inited...");
-            Authorization();
+            // requests run on several workers: authorize only once
+            synchronized (this) {
+                if(!isInited){
+                    LogI("not inited...");
+                    Authorization();
+                }
+            }
         }
 
         Message message = mHandler.obtainMessage();
@@ -515,7 +522,7 @@ public class APIImpl implements IPublicAccountApi, HttpRequestHandler {
     }
 
     @Override
-    public void Authorization(){
+    public synchronized void Authorization(){
         try {
             HttpRequest httpRequest = createHttpHead(mHttpClient.post(ACCESSADDRESS));
             if(null == httpRequest ){
@@ -16,8 +16,13 @@
  ******************************************************************************/
 
 package com.cmcc.ccs.publicaccount.api;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import android.os.Handler;
 import android.os.RemoteCallbackList;
@@ -61,6 +66,55 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
     private final static Executor mDisplayNotificationProcessor = Executors
             .newSingleThreadExecutor();
 
+    /**
+     * max number of requests sent in parallel to the public account server
+     */
+    private static final int MAX_API_WORKERS = 3;
+
+    /**
+     * max number of requests waiting for a worker
+     */
+    private static final int MAX_PENDING_API_REQUESTS = 64;
+
+    /**
+     * how long an info or a menu got from the server is served from memory
+     */
+    private static final long RESPONSE_MAX_AGE = 5 * 60 * 1000L;
+
+    private static final String KEY_DETAIL = "detail:";
+
+    private static final String KEY_MENU = "menu:";
+
+    /**
+     * the bounded pool running the requests to the public account server
+     */
+    private final ThreadPoolExecutor mApiExecutor = new ThreadPoolExecutor(MAX_API_WORKERS,
+            MAX_API_WORKERS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(
+                    MAX_PENDING_API_REQUESTS));
+
+    /**
+     * the keys of the requests queued or running, an identical request is
+     * not sent again: its listeners get the result of the pending one
+     */
+    private final ConcurrentHashMap<String, Boolean> mPendingRequests = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * the last info and menu got from the server by account
+     */
+    private final ConcurrentHashMap<String, CachedResponse> mResponseCache = new ConcurrentHashMap<String, CachedResponse>();
+
+    private static final class CachedResponse {
+        final long timestamp;
+        final String content;
+        final String desc;
+
+        CachedResponse(String content, String desc) {
+            this.timestamp = System.currentTimeMillis();
+            this.content = content;
+            this.desc = desc;
+        }
+    }
+
     private final RcsServiceRegistrationEventBroadcaster mRcsServiceRegistrationEventBroadcaster = new RcsServiceRegistrationEventBroadcaster();
 
     /**
@@ -104,11 +158,13 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
                     //write data
                     String pa_uuid = data.otherParam.get("pa_uuid");
                     iMessageLog.followPublicAccount(pa_uuid);
+                    mResponseCache.remove(KEY_DETAIL + pa_uuid);
                     broadcaster.onFollowPublicAccount(pa_uuid, data.code, data.desc);
                     break;
                 case IPublicAccountApi.APIDescription.METHOD_CANCELSUBSCRIBE:
                     pa_uuid = data.otherParam.get("pa_uuid");
                     iMessageLog.unfollowPublicAccount(pa_uuid);
+                    mResponseCache.remove(KEY_DETAIL + pa_uuid);
                     broadcaster.onUnFollowPublicAccount(pa_uuid, data.code, data.desc);
                     break;
                 case IPublicAccountApi.APIDescription.METHOD_COMPLAINPUBLIC:
@@ -120,6 +176,7 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
                 case IPublicAccountApi.APIDescription.METHOD_GETPUBLICDETAIL:
                     pa_uuid = data.otherParam.get("pa_uuid");
                     iMessageLog.saveInfo(pa_uuid,data.lastXml);
+                    cacheResponse(KEY_DETAIL + pa_uuid, data);
                     broadcaster.onGetInfo(pa_uuid, data.code, data.desc);
                     break;
                 case IPublicAccountApi.APIDescription.METHOD_GETPUBLICLIST:
@@ -129,6 +186,7 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
                 case IPublicAccountApi.APIDescription.METHOD_GETPUBLICMENU:
                     pa_uuid = data.otherParam.get("pa_uuid");
                     iMessageLog.saveMenu(pa_uuid, data.lastXml);
+                    cacheResponse(KEY_MENU + pa_uuid, data);
                     broadcaster.onMenuConfigUpdated(pa_uuid,data.lastXml, data.code, data.desc);
                     break;
                 case IPublicAccountApi.APIDescription.METHOD_GETPUBLICRECOMMEND:
@@ -170,12 +228,13 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
         mCore = core;
         mChatServiceImpl = chatServiceImpl;
         mIPublicAccountApi = APIImpl.newInstance(AndroidFactory.getApplicationContext(),mHandler);
-        new Thread(new Runnable() {
+        mApiExecutor.allowCoreThreadTimeOut(true);
+        submit(null, new Runnable() {
             @Override
             public void run() {
                 mIPublicAccountApi.Authorization();
             }
-        }).start();
+        });
     }
 
     /* (non-Javadoc)
@@ -279,12 +338,25 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
             return;
         }
 
-        new Thread(new Runnable() {
+        final CachedResponse cached = getCachedResponse(KEY_DETAIL + accountnumber);
+        if(null != cached){
+            LogI("getPublicAccountInfo served from cache");
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    broadcaster.onGetInfo(accountnumber, IPublicAccountApi.ResultCode._000000, cached.desc);
+                }
+            });
+            return;
+        }
+
+        submit(KEY_DETAIL + accountnumber, new Runnable() {
             @Override
             public void run() {
-                mIPublicAccountApi.getPublicDetail(accountnumber, DateUtils.getUTCStringForCMCC());
+                mIPublicAccountApi.getPublicDetail(accountnumber,
+                        getRequestTimestamp(getLocalTimestamps(accountnumber)[0]));
             }
-        }).start();
+        });
     }
 
     /* (non-Javadoc)
@@ -298,12 +370,12 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
             return;
         }
 
-        new Thread(new Runnable() {
+        submit("subscribe:" + accountnumber, new Runnable() {
             @Override
             public void run() {
                 mIPublicAccountApi.subscribe(accountnumber);
             }
-        }).start();
+        });
     }
 
     /* (non-Javadoc)
@@ -318,12 +390,12 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
             return;
         }
 
-        new Thread(new Runnable() {
+        submit("search:" + keyword + ":" + order + ":" + pagesize + ":" + pageno, new Runnable() {
             @Override
             public void run() {
                 mIPublicAccountApi.getPublicList(keyword, order, pagesize, pageno);
             }
-        }).start();
+        });
     }
 
     /* (non-Javadoc)
@@ -337,12 +409,12 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
             return;
         }
 
-        new Thread(new Runnable() {
+        submit("unsubscribe:" + accountnumber, new Runnable() {
             @Override
             public void run() {
                 mIPublicAccountApi.cancelSubscribe(accountnumber);
             }
-        }).start();
+        });
     }
 
     /* (non-Javadoc)
@@ -369,12 +441,12 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
             return;
         }
 
-        new Thread(new Runnable() {
+        submit(null, new Runnable() {
             @Override
             public void run() {
                 mIPublicAccountApi.complainPublic(accountnumber, IPublicAccountApi.ComplainType.TYPE_CONTENT, "", content, "");
             }
-        }).start();
+        });
     }
 
     /* (non-Javadoc)
@@ -388,12 +460,95 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
             return;
         }
 
-        new Thread(new Runnable() {
+        final CachedResponse cached = getCachedResponse(KEY_MENU + accountnumber);
+        if(null != cached){
+            LogI("updateMenuConfig served from cache");
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    broadcaster.onMenuConfigUpdated(accountnumber, cached.content,
+                            IPublicAccountApi.ResultCode._000000, cached.desc);
+                }
+            });
+            return;
+        }
+
+        submit(KEY_MENU + accountnumber, new Runnable() {
             @Override
             public void run() {
+                // The menu body is not stored locally, so it is always requested in full
                 mIPublicAccountApi.getPublicMenu(accountnumber, DateUtils.getUTCStringForCMCC());
             }
-        }).start();
+        });
+    }
+
+    /**
+     * run a request to the public account server on the worker pool
+     * @param key the key of the request, null if it shall never be coalesced
+     * @param request the request
+     */
+    private void submit(final String key, final Runnable request){
+        if(null != key && null != mPendingRequests.putIfAbsent(key, Boolean.TRUE)){
+            LogI("submit request already pending{key=["+key+"]}");
+            return;
+        }
+
+        try {
+            mApiExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        request.run();
+                    } finally {
+                        if(null != key){
+                            mPendingRequests.remove(key);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if(null != key){
+                mPendingRequests.remove(key);
+            }
+            if (logger.isActivated()) {
+                logger.error("Too many pending public account requests, request dropped", e);
+            }
+        }
+    }
+
+    /**
+     * get the timestamp sent with a request: the timestamp of the local copy,
+     * so that the server only answers the changes, else the current time
+     * @param localTimestamp the timestamp of the local copy, null if unknown
+     * @return the timestamp
+     */
+    static String getRequestTimestamp(String localTimestamp){
+        return TextUtils.isEmpty(localTimestamp) ? DateUtils.getUTCStringForCMCC() : localTimestamp;
+    }
+
+    private String[] getLocalTimestamps(String accountnumber){
+        return MessageLogImpl.newInstance(AndroidFactory.getApplicationContext())
+                .getPublicAccountTimestamps(accountnumber);
+    }
+
+    private void cacheResponse(String key, ResultWrap data){
+        if(data.code == IPublicAccountApi.ResultCode._000000){
+            mResponseCache.put(key, new CachedResponse(data.lastXml, data.desc));
+        } else {
+            mResponseCache.remove(key);
+        }
+    }
+
+    private CachedResponse getCachedResponse(String key){
+        CachedResponse cached = mResponseCache.get(key);
+        if(null == cached){
+            return null;
+        }
+        if(System.currentTimeMillis() - cached.timestamp > RESPONSE_MAX_AGE){
+            mResponseCache.remove(key, cached);
+            return null;
+        }
+        return cached;
     }
 
     private void LogI(String msg){
@@ -446,6 +601,7 @@ public class PublicAccountServiceImpl extends IPublicAccountService.Stub{
         if (logger.isActivated()) {
             logger.info("Chat service API is closed");
         }
+        mApiExecutor.shutdown();
     }
 
     public class PublicAccountEventBroadcaster{
@@ -0,0 +1,17 @@
+package com.cmcc.ccs.publicaccount.api;
+
+import junit.framework.TestCase;
+
+public class PublicAccountServiceImplTest extends TestCase {
+
+	/**
+	 * The info request is conditional: the timestamp of the local copy is sent
+	 * back so that the server only answers the changes
+	 */
+	public void testLocalTimestampIsSentBack() {
+		assertEquals("2015-03-04T20:00:00+08:00",
+				PublicAccountServiceImpl.getRequestTimestamp("2015-03-04T20:00:00+08:00"));
+		assertEquals("20150304200000",
+				PublicAccountServiceImpl.getRequestTimestamp("20150304200000"));
+	}
+}
@@ -55,9 +55,21 @@ public interface IMessageLog {
      * @param orderCols
      * @param pagesize
      * @return
+     * @deprecated scans the whole table, use {@link #searchPublicAccount(String, String, int)}
      */
+    @Deprecated
     public Cursor searchPublicAccount(String keyword,int pageno,String orderCols,int pagesize);
 
+    /**
+     * search the local accounts with the full-text index, ranked by
+     * recommend level
+     * @param keyword keywords, each one matched as a word prefix
+     * @param afterKey search key of the last row of the previous page, null for the first page
+     * @param pagesize max number of rows
+     * @return cursor of accounts with their search key
+     */
+    public Cursor searchPublicAccount(String keyword,String afterKey,int pagesize);
+
     /**
      * unfollow
      * @param accountnumber
@@ -93,5 +105,13 @@ public interface IMessageLog {
      */
     public boolean saveMenu(String pa_uuid,String content);
 
+    /**
+     * get the timestamps of the local copy of an account, they are sent back
+     * to the server so that an unchanged info or menu is not transferred again
+     * @param pa_uuid
+     * @return {updatetime, menutimestamp}, an entry is null if unknown
+     */
+    public String[] getPublicAccountTimestamps(String pa_uuid);
+
     public boolean saveSearch(String body);
 }
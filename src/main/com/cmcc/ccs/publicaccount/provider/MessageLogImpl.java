@@ -17,8 +17,8 @@
 
 package com.cmcc.ccs.publicaccount.provider;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -49,6 +49,14 @@ public class MessageLogImpl implements IMessageLog {
     private LocalContentResolver mLocalContentResolver;
     private static IMessageLog messageLog = null;
 
+    /*
+     * creating a factory and a parser for each document is costly: the
+     * factory is shared and each thread keeps its own parser, which is reset
+     * by setInput
+     */
+    private static XmlPullParserFactory sParserFactory = null;
+    private static final ThreadLocal<XmlPullParser> sParser = new ThreadLocal<XmlPullParser>();
+
     public static IMessageLog newInstance(Context context){
         if(null != messageLog){
             return messageLog;
@@ -69,6 +77,10 @@ public class MessageLogImpl implements IMessageLog {
     public void insert(AccountModel accountModel,Uri uri) {
         LogI("insert entry{"+accountModel.toString()+"}");
 
+        mLocalContentResolver.insert(MessageProvider.CONTENT_URI_SEARCH, toContentValues(accountModel));
+    }
+
+    private static ContentValues toContentValues(AccountModel accountModel){
         ContentValues values = new ContentValues();
         values.put(MessageProvider.Columns._ID,accountModel.getid());
         values.put(MessageProvider.Columns.ACCOUNT,accountModel.getAccount());
@@ -78,8 +90,7 @@ public class MessageLogImpl implements IMessageLog {
         values.put(MessageProvider.Columns.NAME,accountModel.getName());
         values.put(MessageProvider.Columns.PORTRAIT,accountModel.getPortrait());
         values.put(MessageProvider.Columns.STATE,accountModel.getState());
-
-        mLocalContentResolver.insert(MessageProvider.CONTENT_URI_SEARCH, values);
+        return values;
     }
 
     /* (non-Javadoc)
@@ -87,14 +98,20 @@ public class MessageLogImpl implements IMessageLog {
      */
     @Override
     public void insert(Set<AccountModel> accountModels,Uri uri) {
-        LogI("insert entry{"+accountModels.toString()+"}");
         if(null == accountModels || accountModels.isEmpty()){
             return;
         }
+        LogI("insert entry{"+accountModels.toString()+"}");
 
+        long start = System.currentTimeMillis();
+        ContentValues[] values = new ContentValues[accountModels.size()];
+        int i = 0;
         for (AccountModel accountModel : accountModels) {
-            insert(accountModel,uri);
+            values[i++] = toContentValues(accountModel);
         }
+        // the whole page is written in one transaction
+        int count = mLocalContentResolver.bulkInsert(MessageProvider.CONTENT_URI_SEARCH, values);
+        LogI("insert "+count+" rows in "+(System.currentTimeMillis() - start)+" ms");
     }
 
     /* (non-Javadoc)
@@ -114,6 +131,7 @@ public class MessageLogImpl implements IMessageLog {
     /* (non-Javadoc)
      * @see com.cmcc.ccs.publicaccount.provider.IMessageLog#searchPublicAccount(java.lang.String, int, int, int)
      */
+    @Deprecated
     @Override
     public Cursor searchPublicAccount(String keyword, int pageno, String order, int pagesize) {
         LogI("searchPublicAccount entry{keyword=["+keyword+"] pageno=["+pageno+"] order=["+order+"] pagesize=["+pagesize+"]}");
@@ -135,6 +153,26 @@ public class MessageLogImpl implements IMessageLog {
         return  mLocalContentResolver.query(MessageProvider.CONTENT_URI, null, selection, null, sortOrder+limit);
     }
 
+    /* (non-Javadoc)
+     * @see com.cmcc.ccs.publicaccount.provider.IMessageLog#searchPublicAccount(java.lang.String, java.lang.String, int)
+     */
+    @Override
+    public Cursor searchPublicAccount(String keyword, String afterKey, int pagesize) {
+        LogI("searchPublicAccount entry{keyword=["+keyword+"] afterKey=["+afterKey+"] pagesize=["+pagesize+"]}");
+
+        if(TextUtils.isEmpty(keyword) || pagesize < 1){
+            return null;
+        }
+
+        Uri.Builder builder = MessageProvider.CONTENT_URI_LOCAL_SEARCH.buildUpon()
+                .appendQueryParameter(MessageProvider.QUERY_PARAM_KEYWORD, keyword)
+                .appendQueryParameter(MessageProvider.QUERY_PARAM_LIMIT, String.valueOf(pagesize));
+        if(!TextUtils.isEmpty(afterKey)){
+            builder.appendQueryParameter(MessageProvider.QUERY_PARAM_AFTER, afterKey);
+        }
+        return mLocalContentResolver.query(builder.build(), null, null, null, null);
+    }
+
     /* (non-Javadoc)
      * @see com.cmcc.ccs.publicaccount.provider.IMessageLog#unfollowPublicAccount(java.lang.String)
      */
@@ -209,25 +247,33 @@ public class MessageLogImpl implements IMessageLog {
         }
 
         Map<String, String> parseStr = parse(body);
+        /*
+         * only the fields sent by the server are updated: when the local copy
+         * is up to date the answer does not carry the info again
+         */
         ContentValues values = new ContentValues();
-        values.put(MessageProvider.Columns.BRIEF_INTRODUCTION, parseStr.get("intro"));
-        values.put(MessageProvider.Columns.NAME, parseStr.get("name"));
-        values.put(MessageProvider.Columns.PORTRAIT, parseStr.get("logo"));
-        values.put(MessageProvider.Columns.STATE, parseStr.get("activestatus"));
-        values.put(MessageProvider.Columns.IDTYPE, parseStr.get("idtype"));
-        values.put(MessageProvider.Columns.RECOMMEND_LEVEL, parseStr.get("recommendlevel"));
-        values.put(MessageProvider.Columns.TYPE, parseStr.get("type"));
-        values.put(MessageProvider.Columns.UPDATETIME, parseStr.get("updatetime"));
-        values.put(MessageProvider.Columns.MENUTYPE, parseStr.get("menutype"));
-        values.put(MessageProvider.Columns.MENUTIMESTAMP, parseStr.get("menutimestamp"));
-        values.put(MessageProvider.Columns.ACCEPTSTATUS, parseStr.get("acceptstatus"));
-        values.put(MessageProvider.Columns.ISFOLLOW, parseStr.get("subscribestatus"));
-        values.put(MessageProvider.Columns.TEL, parseStr.get("tel"));
-        values.put(MessageProvider.Columns.EMAIL, parseStr.get("email"));
-        values.put(MessageProvider.Columns.ZIP, parseStr.get("zip"));
-        values.put(MessageProvider.Columns.ADDR, parseStr.get("addr"));
-        values.put(MessageProvider.Columns.FILED, parseStr.get("field"));
-        values.put(MessageProvider.Columns.QRCODE, parseStr.get("qrcode"));
+        putIfPresent(values, MessageProvider.Columns.BRIEF_INTRODUCTION, parseStr, "intro");
+        putIfPresent(values, MessageProvider.Columns.NAME, parseStr, "name");
+        putIfPresent(values, MessageProvider.Columns.PORTRAIT, parseStr, "logo");
+        putIfPresent(values, MessageProvider.Columns.STATE, parseStr, "activestatus");
+        putIfPresent(values, MessageProvider.Columns.IDTYPE, parseStr, "idtype");
+        putIfPresent(values, MessageProvider.Columns.RECOMMEND_LEVEL, parseStr, "recommendlevel");
+        putIfPresent(values, MessageProvider.Columns.TYPE, parseStr, "type");
+        putIfPresent(values, MessageProvider.Columns.UPDATETIME, parseStr, "updatetime");
+        putIfPresent(values, MessageProvider.Columns.MENUTYPE, parseStr, "menutype");
+        putIfPresent(values, MessageProvider.Columns.MENUTIMESTAMP, parseStr, "menutimestamp");
+        putIfPresent(values, MessageProvider.Columns.ACCEPTSTATUS, parseStr, "acceptstatus");
+        putIfPresent(values, MessageProvider.Columns.ISFOLLOW, parseStr, "subscribestatus");
+        putIfPresent(values, MessageProvider.Columns.TEL, parseStr, "tel");
+        putIfPresent(values, MessageProvider.Columns.EMAIL, parseStr, "email");
+        putIfPresent(values, MessageProvider.Columns.ZIP, parseStr, "zip");
+        putIfPresent(values, MessageProvider.Columns.ADDR, parseStr, "addr");
+        putIfPresent(values, MessageProvider.Columns.FILED, parseStr, "field");
+        putIfPresent(values, MessageProvider.Columns.QRCODE, parseStr, "qrcode");
+        if(values.size() == 0){
+            LogI("saveInfo local copy is up to date");
+            return true;
+        }
         //update table account and tmep account
         mLocalContentResolver.update(MessageProvider.CONTENT_URI, values,MessageProvider.Columns.ACCOUNT+"=?", new String[]{pa_uuid});
         mLocalContentResolver.update(MessageProvider.CONTENT_URI_SEARCH, values,MessageProvider.Columns.ACCOUNT+"=?", new String[]{pa_uuid});
@@ -252,14 +298,61 @@ public class MessageLogImpl implements IMessageLog {
         return true;
     }
 
+    private static void putIfPresent(ContentValues values, String column, Map<String, String> parseStr, String tag){
+        if(parseStr.containsKey(tag)){
+            values.put(column, parseStr.get(tag));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.cmcc.ccs.publicaccount.provider.IMessageLog#getPublicAccountTimestamps(java.lang.String)
+     */
+    @Override
+    public String[] getPublicAccountTimestamps(String pa_uuid) {
+        LogI("getPublicAccountTimestamps entry{accountnumber=["+pa_uuid+"]}");
+
+        String[] timestamps = new String[2];
+        if(TextUtils.isEmpty(pa_uuid)){
+            return timestamps;
+        }
+
+        Cursor cursor = mLocalContentResolver.query(MessageProvider.CONTENT_URI, new String[] {
+                MessageProvider.Columns.UPDATETIME, MessageProvider.Columns.MENUTIMESTAMP
+        }, MessageProvider.Columns.ACCOUNT+"=?", new String[]{pa_uuid}, null);
+        if(null == cursor){
+            return timestamps;
+        }
+        try {
+            if(cursor.moveToFirst()){
+                timestamps[0] = cursor.getString(0);
+                timestamps[1] = cursor.getString(1);
+            }
+        } finally {
+            cursor.close();
+        }
+        return timestamps;
+    }
+
+    private static XmlPullParser obtainParser() throws XmlPullParserException {
+        XmlPullParser parser = sParser.get();
+        if(null == parser){
+            synchronized (MessageLogImpl.class) {
+                if(null == sParserFactory){
+                    sParserFactory = XmlPullParserFactory.newInstance();
+                }
+                parser = sParserFactory.newPullParser();
+            }
+            sParser.set(parser);
+        }
+        return parser;
+    }
+
     public static Map<String, String> parse(String inStr) {
         Map<String, String> result = new HashMap<String, String>();
-        XmlPullParserFactory xmlPullParseFacotry = null;
         XmlPullParser xmlParser = null;
         try {
-            xmlPullParseFacotry = XmlPullParserFactory.newInstance();
-            xmlParser = xmlPullParseFacotry.newPullParser();
-            xmlParser.setInput(new ByteArrayInputStream(inStr.getBytes()), "utf-8");
+            xmlParser = obtainParser();
+            xmlParser.setInput(new StringReader(inStr));
             int eventType = xmlParser.getEventType();
             while (XmlPullParser.END_DOCUMENT != eventType) {
                 switch (eventType) {
@@ -397,13 +490,11 @@ public class MessageLogImpl implements IMessageLog {
 
     private Set<AccountModel> parsePublicList(String inStr){
         Set<AccountModel> result = new HashSet<AccountModel>();
-        XmlPullParserFactory xmlPullParseFacotry = null;
         XmlPullParser xmlParser = null;
         try {
-            xmlPullParseFacotry = XmlPullParserFactory.newInstance();
-            xmlParser = xmlPullParseFacotry.newPullParser();
+            xmlParser = obtainParser();
             AccountModel tempModel = null;
-            xmlParser.setInput(new ByteArrayInputStream(inStr.getBytes()), "utf-8");
+            xmlParser.setInput(new StringReader(inStr));
             int eventType = xmlParser.getEventType();
             while (XmlPullParser.END_DOCUMENT != eventType) {
                 switch (eventType) {
@@ -31,6 +31,12 @@ import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author leizhang
  *
@@ -59,7 +65,27 @@ public class MessageProvider extends ContentProvider {
      * uri used to get the account detail,search state
      */
     public static final Uri CONTENT_URI_SEARCH_DETAIL = Uri.parse("content://com.cmcc.ccs.public_account_search/detail");
+    /**
+     * uri used to search the local accounts with the full-text index, see
+     * {@link #QUERY_PARAM_KEYWORD}, {@link #QUERY_PARAM_AFTER} and
+     * {@link #QUERY_PARAM_LIMIT}
+     */
+    public static final Uri CONTENT_URI_LOCAL_SEARCH = Uri.parse("content://com.cmcc.ccs.public_account_info/search");
+    /**
+     * query parameter of the local search: the keyword(s) to search
+     */
+    public static final String QUERY_PARAM_KEYWORD = "keyword";
+    /**
+     * query parameter of the local search: the search key of the last row of
+     * the previous page, absent for the first page
+     */
+    public static final String QUERY_PARAM_AFTER = "after";
+    /**
+     * query parameter of the local search: the max number of rows
+     */
+    public static final String QUERY_PARAM_LIMIT = "limit";
     public static final String TABLE_ACCOUNT = "account";
+    public static final String TABLE_ACCOUNT_FTS = "account_fts";
     public static final String TABLE_TMP_ACCOUNT = "tmp_account";
     public static final String VIEW_ACCOUNT_SIMPLE = "simple_account";
     private final String DB_NAME = "publicaccount.db";
@@ -84,8 +110,44 @@ public class MessageProvider extends ContentProvider {
         match(CONTENT_URI_SEARCH, UriType.Message.SEARCH);
         match(CONTENT_URI_ACCOUNT_DETAIL, UriType.Message.ACCOUNT_DETAIL);
         match(CONTENT_URI_SEARCH_DETAIL, UriType.Message.ACCOUNT_SEARCH_DETAIL);
+        match(CONTENT_URI_LOCAL_SEARCH, UriType.Message.LOCAL_SEARCH);
     }
 
+    /**
+     * rank of an account in the search results, the best ranked first
+     */
+    private static final String SEARCH_RANK = new StringBuilder("IFNULL(a.")
+            .append(Columns.RECOMMEND_LEVEL).append(",0)").toString();
+
+    private static final String SEARCH_ORDER = new StringBuilder(SEARCH_RANK)
+            .append(" DESC,a.").append(Columns.DOC_ID).append(" ASC").toString();
+
+    private static final String SEARCH_KEY = new StringBuilder(SEARCH_RANK)
+            .append("||':'||a.").append(Columns.DOC_ID).append(" AS ").append(Columns.SEARCH_KEY)
+            .toString();
+
+    private static final String SEARCH_AFTER = new StringBuilder(" AND (").append(SEARCH_RANK)
+            .append("<CAST(? AS INTEGER) OR (").append(SEARCH_RANK)
+            .append("=CAST(? AS INTEGER) AND a.").append(Columns.DOC_ID)
+            .append(">CAST(? AS INTEGER)))").toString();
+
+    /**
+     * columns of the account table which may be requested by a local search
+     */
+    private static final Set<String> ACCOUNT_COLUMNS = new HashSet<String>(Arrays.asList(
+            Columns._ID, Columns.DOC_ID, Columns.ACCOUNT, Columns.NAME, Columns.PORTRAIT,
+            Columns.BRIEF_INTRODUCTION, Columns.STATE, Columns.CONFIG, Columns.IDTYPE,
+            Columns.RECOMMEND_LEVEL, Columns.UPDATETIME, Columns.MENUTYPE, Columns.MENUTIMESTAMP,
+            Columns.TEL, Columns.EMAIL, Columns.ZIP, Columns.ADDR, Columns.FILED, Columns.QRCODE,
+            Columns.ISFOLLOW));
+
+    /**
+     * columns searched by LIKE when the full-text index can not be used
+     */
+    private static final String[] SEARCHED_COLUMNS = new String[] {
+            Columns.ACCOUNT, Columns.NAME, Columns.BRIEF_INTRODUCTION
+    };
+
     private DBHelper mDBHelper = null;
     private SQLiteDatabase db = null;
     /* (non-Javadoc)
@@ -140,6 +202,13 @@ public class MessageProvider extends ContentProvider {
                     cursor.setNotificationUri(getContext().getContentResolver(), uri);
                     return cursor;
                 }
+                case UriType.Message.LOCAL_SEARCH:
+                {
+                    db = mDBHelper.getReadableDatabase();
+                    cursor = searchAccounts(db, projection, uri);
+                    cursor.setNotificationUri(getContext().getContentResolver(), CONTENT_URI);
+                    return cursor;
+                }
                 default:
                     throw new IllegalArgumentException(new StringBuilder("Unsupported URI ")
                             .append(uri).append("!").toString());
@@ -189,6 +258,45 @@ public class MessageProvider extends ContentProvider {
         return null;
     }
 
+    /* (non-Javadoc)
+     * @see android.content.ContentProvider#bulkInsert(android.net.Uri, android.content.ContentValues[])
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        String table;
+        switch (sUriMatcher.match(uri)) {
+            case UriType.Message.MESSAGE:
+                table = TABLE_ACCOUNT;
+                break;
+            case UriType.Message.SEARCH:
+                table = TABLE_TMP_ACCOUNT;
+                break;
+            default:
+                throw new IllegalArgumentException(new StringBuilder("Unsupported URI ")
+                        .append(uri).append("!").toString());
+        }
+
+        /*
+         * one transaction for all the rows: the journal is synced once, and
+         * the rows having the same columns reuse the statement compiled for
+         * the first one
+         */
+        int count = 0;
+        db = mDBHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (ContentValues value : values) {
+                if (db.insert(table, null, value) != -1) {
+                    count++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
     /* (non-Javadoc)
      * @see android.content.ContentProvider#delete(android.net.Uri, java.lang.String, java.lang.String[])
      */
@@ -225,6 +333,211 @@ public class MessageProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Search the accounts matching the keywords of the uri with the full-text
+     * index. Results are ranked by recommend level and paginated with the
+     * search key of the last row of the previous page, so that the cost of a
+     * page neither depends on the size of the catalogue nor on its depth.
+     *
+     * @param db database
+     * @param projection columns of the account table to return, null for all
+     * @param uri search uri with its query parameters
+     * @return cursor with the requested columns and the search key
+     */
+    private Cursor searchAccounts(SQLiteDatabase db, String[] projection, Uri uri) {
+        List<String> keywords = toKeywords(uri.getQueryParameter(QUERY_PARAM_KEYWORD));
+        if (keywords.isEmpty()) {
+            throw new IllegalArgumentException("No keyword to search in ".concat(uri.toString()));
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        appendProjection(sql, projection);
+        sql.append(',').append(SEARCH_KEY).append(" FROM ").append(TABLE_ACCOUNT).append(" a");
+        List<String> args = new ArrayList<String>();
+        appendSearchSelection(sql, args, keywords);
+        String after = uri.getQueryParameter(QUERY_PARAM_AFTER);
+        int separator = after == null ? -1 : after.indexOf(':');
+        if (separator > 0) {
+            String rank = after.substring(0, separator);
+            String docId = after.substring(separator + 1);
+            sql.append(SEARCH_AFTER);
+            args.add(rank);
+            args.add(rank);
+            args.add(docId);
+        }
+        sql.append(" ORDER BY ").append(SEARCH_ORDER);
+        String limit = uri.getQueryParameter(QUERY_PARAM_LIMIT);
+        if (limit != null) {
+            sql.append(" LIMIT ").append(parseLimit(limit, uri));
+        }
+        return db.rawQuery(sql.toString(), args.toArray(new String[args.size()]));
+    }
+
+    /**
+     * Append the requested columns of the account table aliased as a. The
+     * columns are checked as they can not be passed as arguments.
+     *
+     * @param sql query being built
+     * @param projection columns of the account table, null for all
+     */
+    static void appendProjection(StringBuilder sql, String[] projection) {
+        if (projection == null) {
+            sql.append("a.*");
+            return;
+        }
+        for (int i = 0; i < projection.length; i++) {
+            if (!ACCOUNT_COLUMNS.contains(projection[i])) {
+                throw new IllegalArgumentException("Invalid column in the projection: "
+                        .concat(String.valueOf(projection[i])));
+            }
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("a.").append(projection[i]);
+        }
+    }
+
+    /**
+     * Append the join and the selection of the accounts matching all the
+     * keywords. The full-text index only matches word prefixes, and its
+     * tokenizer does not split CJK text into words: keywords containing CJK
+     * characters are searched as substrings with LIKE instead.
+     *
+     * @param sql query selecting from the account table aliased as a
+     * @param args arguments of the query
+     * @param keywords keywords, not empty
+     */
+    static void appendSearchSelection(StringBuilder sql, List<String> args, List<String> keywords) {
+        boolean cjk = false;
+        for (String keyword : keywords) {
+            cjk |= containsCjk(keyword);
+        }
+        if (!cjk) {
+            sql.append(" JOIN ").append(TABLE_ACCOUNT_FTS).append(" f ON f.docid=a.")
+                    .append(Columns.DOC_ID).append(" WHERE f.").append(TABLE_ACCOUNT_FTS)
+                    .append(" MATCH ?");
+            args.add(toMatchExpression(keywords));
+            return;
+        }
+        sql.append(" WHERE ");
+        for (int i = 0; i < keywords.size(); i++) {
+            if (i > 0) {
+                sql.append(" AND ");
+            }
+            String pattern = toLikePattern(keywords.get(i));
+            sql.append('(');
+            for (int j = 0; j < SEARCHED_COLUMNS.length; j++) {
+                if (j > 0) {
+                    sql.append(" OR ");
+                }
+                sql.append("a.").append(SEARCHED_COLUMNS[j]).append(" LIKE ? ESCAPE '\\'");
+                args.add(pattern);
+            }
+            sql.append(')');
+        }
+    }
+
+    /**
+     * Check if a keyword contains CJK characters, which are not split into
+     * words by the full-text tokenizer
+     *
+     * @param keyword keyword
+     * @return true if the keyword contains CJK characters
+     */
+    static boolean containsCjk(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            Character.UnicodeBlock block = Character.UnicodeBlock.of(keyword.charAt(i));
+            if (block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                    || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                    || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                    || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                    || block == Character.UnicodeBlock.HIRAGANA
+                    || block == Character.UnicodeBlock.KATAKANA
+                    || block == Character.UnicodeBlock.HANGUL_SYLLABLES
+                    || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                    || Character.isHighSurrogate(keyword.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convert a keyword into a LIKE pattern matching it as a substring
+     *
+     * @param keyword keyword
+     * @return pattern, with the wildcards of the keyword escaped by a backslash
+     */
+    static String toLikePattern(String keyword) {
+        StringBuilder pattern = new StringBuilder("%");
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    /**
+     * Parse the limit of the local search
+     *
+     * @param limit value of the limit query parameter
+     * @param uri search uri
+     * @return max number of rows
+     */
+    private static int parseLimit(String limit, Uri uri) {
+        try {
+            int value = Integer.parseInt(limit);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        throw new IllegalArgumentException(new StringBuilder("Invalid limit in ").append(uri)
+                .toString());
+    }
+
+    /**
+     * Split the keywords typed by the user
+     *
+     * @param keyword keywords separated by blanks, may be null
+     * @return keywords, empty if there is none
+     */
+    static List<String> toKeywords(String keyword) {
+        List<String> keywords = new ArrayList<String>();
+        if (keyword == null) {
+            return keywords;
+        }
+        for (String token : keyword.trim().split("\\s+")) {
+            // Quotes would end the phrase of a match expression
+            token = token.replace("\"", "");
+            if (token.length() > 0) {
+                keywords.add(token);
+            }
+        }
+        return keywords;
+    }
+
+    /**
+     * Convert keywords into a full-text match expression where each keyword
+     * is a prefix
+     *
+     * @param keywords keywords, not empty
+     * @return match expression
+     */
+    static String toMatchExpression(List<String> keywords) {
+        StringBuilder match = new StringBuilder();
+        for (String keyword : keywords) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(keyword).append("*\"");
+        }
+        return match.toString();
+    }
+
     private void LogI(String msg) {
         if (DEBUG) {
             if (logger.isActivated())
@@ -289,10 +602,22 @@ public class MessageProvider extends ContentProvider {
         public static final String ADDR = "addr";//string
         public static final String FILED = "field";//string
         public static final String QRCODE = "qrcode";//string
+
+        /**
+         * the position of a row in the local search results, to be passed
+         * with {@link MessageProvider#QUERY_PARAM_AFTER} to get the next page
+         */
+        public static final String SEARCH_KEY = "search_key";
+
+        /**
+         * integer key of an account in the full-text index, an alias of the
+         * rowid so that it is kept by VACUUM
+         */
+        public static final String DOC_ID = "doc_id";
     }
 
     private final class DBHelper extends SQLiteOpenHelper{
-        private static final int DATABASE_VERSION = 5;
+        private static final int DATABASE_VERSION = 7;
 
         public DBHelper(Context ctx) {
             super(ctx, DB_NAME, null, DATABASE_VERSION);
@@ -304,6 +629,7 @@ public class MessageProvider extends ContentProvider {
         @Override
         public void onCreate(SQLiteDatabase db) {
             createMessageTable(db);
+            createSearchIndex(db);
         }
 
         /* (non-Javadoc)
@@ -311,14 +637,113 @@ public class MessageProvider extends ContentProvider {
          */
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            if (oldVersion < 7) {
+                // the index was keyed on the implicit rowid of the account
+                // table, which may be renumbered by VACUUM
+                dropSearchIndex(db);
+                migrateAccountTable(db);
+            }
             onCreate(db);
+            if (oldVersion < 7) {
+                // index the accounts stored before the index existed
+                db.execSQL(new StringBuilder("INSERT INTO ").append(TABLE_ACCOUNT_FTS).append("(")
+                        .append(TABLE_ACCOUNT_FTS).append(") VALUES('rebuild')").toString());
+            }
+        }
+
+        /**
+         * drop the full-text index and its triggers
+         *
+         * @param database database
+         */
+        private void dropSearchIndex(SQLiteDatabase database) {
+            String[] triggers = {
+                    "_bu", "_bd", "_au", "_ai"
+            };
+            for (String trigger : triggers) {
+                database.execSQL(new StringBuilder("DROP TRIGGER IF EXISTS ")
+                        .append(TABLE_ACCOUNT_FTS).append(trigger).toString());
+            }
+            database.execSQL("DROP TABLE IF EXISTS ".concat(TABLE_ACCOUNT_FTS));
+        }
+
+        /**
+         * copy the accounts into a table having the integer key of the index
+         *
+         * @param database database
+         */
+        private void migrateAccountTable(SQLiteDatabase database) {
+            String oldTable = TABLE_ACCOUNT.concat("_old");
+            database.execSQL("DROP VIEW IF EXISTS ".concat(VIEW_ACCOUNT_SIMPLE));
+            database.execSQL(new StringBuilder("ALTER TABLE ").append(TABLE_ACCOUNT)
+                    .append(" RENAME TO ").append(oldTable).toString());
+            createMessageTable(database);
+            // the columns of the old table depend on its version
+            StringBuilder columns = new StringBuilder();
+            Cursor cursor = database.rawQuery(new StringBuilder("PRAGMA table_info(")
+                    .append(oldTable).append(")").toString(), null);
+            try {
+                int nameIdx = cursor.getColumnIndexOrThrow("name");
+                while (cursor.moveToNext()) {
+                    if (columns.length() > 0) {
+                        columns.append(',');
+                    }
+                    columns.append(cursor.getString(nameIdx));
+                }
+            } finally {
+                cursor.close();
+            }
+            // keep the rowids so that the search keys already returned stay valid
+            database.execSQL(new StringBuilder("INSERT INTO ").append(TABLE_ACCOUNT).append("(")
+                    .append(Columns.DOC_ID).append(",").append(columns).append(") SELECT rowid,")
+                    .append(columns).append(" FROM ").append(oldTable).toString());
+            database.execSQL("DROP TABLE ".concat(oldTable));
+        }
+
+        /**
+         * create the full-text index of the account table, kept in sync by
+         * triggers
+         *
+         * @param database database
+         */
+        private void createSearchIndex(SQLiteDatabase database) {
+            String indexedColumns = new StringBuilder(Columns.ACCOUNT).append(",")
+                    .append(Columns.NAME).append(",")
+                    .append(Columns.BRIEF_INTRODUCTION).toString();
+            String newValues = new StringBuilder("new.").append(Columns.DOC_ID).append(",new.")
+                    .append(Columns.ACCOUNT)
+                    .append(",new.").append(Columns.NAME)
+                    .append(",new.").append(Columns.BRIEF_INTRODUCTION).toString();
+            database.execSQL(new StringBuilder("CREATE VIRTUAL TABLE IF NOT EXISTS ")
+                    .append(TABLE_ACCOUNT_FTS).append(" USING fts4(content=\"")
+                    .append(TABLE_ACCOUNT).append("\",").append(indexedColumns).append(")")
+                    .toString());
+            database.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ")
+                    .append(TABLE_ACCOUNT_FTS).append("_bu BEFORE UPDATE ON ").append(TABLE_ACCOUNT)
+                    .append(" BEGIN DELETE FROM ").append(TABLE_ACCOUNT_FTS)
+                    .append(" WHERE docid=old.").append(Columns.DOC_ID).append("; END").toString());
+            database.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ")
+                    .append(TABLE_ACCOUNT_FTS).append("_bd BEFORE DELETE ON ").append(TABLE_ACCOUNT)
+                    .append(" BEGIN DELETE FROM ").append(TABLE_ACCOUNT_FTS)
+                    .append(" WHERE docid=old.").append(Columns.DOC_ID).append("; END").toString());
+            database.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ")
+                    .append(TABLE_ACCOUNT_FTS).append("_au AFTER UPDATE ON ").append(TABLE_ACCOUNT)
+                    .append(" BEGIN INSERT INTO ").append(TABLE_ACCOUNT_FTS).append("(docid,")
+                    .append(indexedColumns).append(") VALUES(").append(newValues).append("); END")
+                    .toString());
+            database.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ")
+                    .append(TABLE_ACCOUNT_FTS).append("_ai AFTER INSERT ON ").append(TABLE_ACCOUNT)
+                    .append(" BEGIN INSERT INTO ").append(TABLE_ACCOUNT_FTS).append("(docid,")
+                    .append(indexedColumns).append(") VALUES(").append(newValues).append("); END")
+                    .toString());
         }
 
         private void createMessageTable(SQLiteDatabase database){
             //create account table
             database.execSQL(new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(TABLE_ACCOUNT)
                     .append("(")
-                    .append(Columns._ID).append(" TEXT NOT NULL PRIMARY KEY,")
+                    .append(Columns.DOC_ID).append(" INTEGER PRIMARY KEY,")
+                    .append(Columns._ID).append(" TEXT NOT NULL UNIQUE,")
                     .append(Columns.ACCOUNT).append(" TEXT NOT NULL,")
                     .append(Columns.NAME).append(" TEXT NOT NULL,")
                     .append(Columns.PORTRAIT).append(" TEXT NOT NULL,")
@@ -366,7 +791,7 @@ public class MessageProvider extends ContentProvider {
                     );
 
             //create simple account view
-            database.execSQL(new StringBuilder("CREATE VIEW ").append(VIEW_ACCOUNT_SIMPLE).append(" AS SELECT ")
+            database.execSQL(new StringBuilder("CREATE VIEW IF NOT EXISTS ").append(VIEW_ACCOUNT_SIMPLE).append(" AS SELECT ")
                     .append(Columns.ACCOUNT).append(" ,")
                     .append(Columns.NAME).append(" ,")
                     .append(Columns.IDTYPE).append(" ,")
@@ -385,6 +810,7 @@ public class MessageProvider extends ContentProvider {
             public static final int SEARCH = 2;
             public static final int ACCOUNT_DETAIL = 3;
             public static final int ACCOUNT_SEARCH_DETAIL = 4;
+            public static final int LOCAL_SEARCH = 5;
         }
 
     }
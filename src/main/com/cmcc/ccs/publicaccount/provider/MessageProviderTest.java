@@ -0,0 +1,73 @@
+package com.cmcc.ccs.publicaccount.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class MessageProviderTest extends TestCase {
+
+	private final StringBuilder sql = new StringBuilder();
+
+	private final List<String> args = new ArrayList<String>();
+
+	public void testKeywordsAreSplitOnBlanks() {
+		assertEquals(Arrays.asList("china", "mobile"), MessageProvider.toKeywords(" china \t mobile "));
+		assertEquals(Arrays.asList("ab"), MessageProvider.toKeywords("\"a\"b \"\""));
+		assertTrue(MessageProvider.toKeywords("  ").isEmpty());
+		assertTrue(MessageProvider.toKeywords(null).isEmpty());
+	}
+
+	public void testLatinKeywordsUseTheFullTextIndex() {
+		MessageProvider.appendSearchSelection(sql, args, Arrays.asList("china", "mob"));
+		assertEquals(" JOIN account_fts f ON f.docid=a.doc_id WHERE f.account_fts MATCH ?",
+				sql.toString());
+		assertEquals(Arrays.asList("\"china*\" \"mob*\""), args);
+	}
+
+	public void testCjkKeywordsAreSearchedAsSubstrings() {
+		// The simple tokenizer keeps "中国移动" as a single token: "移动*" would not match it
+		MessageProvider.appendSearchSelection(sql, args, Arrays.asList("移动"));
+		assertEquals(" WHERE (a.account LIKE ? ESCAPE '\\' OR a.name LIKE ? ESCAPE '\\'"
+				+ " OR a.brief_introduction LIKE ? ESCAPE '\\')", sql.toString());
+		assertEquals(Arrays.asList("%移动%", "%移动%", "%移动%"), args);
+	}
+
+	public void testMixedKeywordsAreAllSearchedAsSubstrings() {
+		MessageProvider.appendSearchSelection(sql, args, Arrays.asList("10086", "客服"));
+		assertFalse(sql.toString().contains("MATCH"));
+		assertEquals(2, sql.toString().split(" AND ").length);
+		assertEquals(6, args.size());
+		assertEquals("%10086%", args.get(0));
+		assertEquals("%客服%", args.get(3));
+	}
+
+	public void testCjkDetection() {
+		assertTrue(MessageProvider.containsCjk("中国"));
+		assertTrue(MessageProvider.containsCjk("abcカタ"));
+		assertTrue(MessageProvider.containsCjk("한국"));
+		assertTrue(MessageProvider.containsCjk("ａｂｃ"));
+		assertFalse(MessageProvider.containsCjk("china-mobile_10086"));
+		assertFalse(MessageProvider.containsCjk("café"));
+	}
+
+	public void testLikeWildcardsAreEscaped() {
+		assertEquals("%100\\%\\_a\\\\b%", MessageProvider.toLikePattern("100%_a\\b"));
+	}
+
+	public void testProjectionIsChecked() {
+		MessageProvider.appendProjection(sql, new String[] {
+				MessageProvider.Columns.ACCOUNT, MessageProvider.Columns.NAME
+		});
+		assertEquals("a.account,a.name", sql.toString());
+		try {
+			MessageProvider.appendProjection(sql, new String[] {
+				"name FROM account; --"
+			});
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+}
@@ -22,8 +22,9 @@
 
 package com.orangelabs.rcs.core;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax2.sip.address.SipURI;
 import javax2.sip.header.ContactHeader;
@@ -101,7 +102,18 @@ public abstract class ImsService implements ImsServiceDispatcher.Service {
 	/**
 	 * ImsServiceSessionCache with session dialog path's CallId as key
 	 */
-	private Map<String, ImsServiceSession> mImsServiceSessionCache = new HashMap<String, ImsServiceSession>();
+	private final ConcurrentHashMap<String, ImsServiceSession> mImsServiceSessionCache = new ConcurrentHashMap<String, ImsServiceSession>();
+
+	/**
+	 * Lock used by extending classes to perform compound operations over
+	 * their own session caches
+	 */
+	private final Object mImsServiceSessionOperationLock = new Object();
+
+	/**
+	 * Executor applying deferred session removals, shared by all services
+	 */
+	private static final ExecutorService sSessionRemovalExecutor = Executors.newSingleThreadExecutor();
 
 	/**
      * The logger
@@ -160,33 +172,38 @@ public abstract class ImsService implements ImsServiceDispatcher.Service {
 	}
 
 	/*
-	 * This method is by choice not synchronized here since the class
-	 * extending this base-class will need to handle the synchronization
-	 * over a larger scope when calling this method anyway and we would like
-	 * to avoid double locks.
+	 * The session cache is a concurrent map, hence no lock is needed to
+	 * add, remove or look up a single session.
 	 */
 	protected void addImsServiceSession(ImsServiceSession session){
 		mImsServiceSessionCache.put(session.getDialogPath().getCallId(), session);
 	}
 
 	/*
-	 * This method is by choice not synchronized here since the class
-	 * extending this base-class will need to handle the synchronization
-	 * over a larger scope when calling this method anyway and we would like
-	 * to avoid double locks.
+	 * The session is only removed if it is still the one cached for its
+	 * CallId, so that a late removal never drops a more recent session.
 	 */
 	protected void removeImsServiceSession(ImsServiceSession session){
-		mImsServiceSessionCache.remove(session.getDialogPath().getCallId());
+		mImsServiceSessionCache.remove(session.getDialogPath().getCallId(), session);
 	}
 
 	public ImsServiceSession getImsServiceSession(String callId) {
-		synchronized (getImsServiceSessionOperationLock()) {
-			return mImsServiceSessionCache.get(callId);
-		}
+		return mImsServiceSessionCache.get(callId);
 	}
 
 	protected Object getImsServiceSessionOperationLock() {
-		return mImsServiceSessionCache;
+		return mImsServiceSessionOperationLock;
+	}
+
+	/**
+	 * Defer a session removal so that ongoing threads trying to get that
+	 * session can finish up before it is actually removed. Removals are
+	 * applied in order on a single thread shared by all services.
+	 *
+	 * @param removal Removal operation
+	 */
+	protected void deferSessionRemoval(Runnable removal) {
+		sSessionRemovalExecutor.execute(removal);
 	}
 
     /**
@@ -223,10 +240,8 @@ public abstract class ImsService implements ImsServiceDispatcher.Service {
 	public abstract void check();
 
 	public void abortAllSessions(int imsAbortionReason) {
-		synchronized (getImsServiceSessionOperationLock()) {
-			for (ImsServiceSession session : mImsServiceSessionCache.values()) {
-				session.abortSession(imsAbortionReason);
-			}
+		for (ImsServiceSession session : mImsServiceSessionCache.values()) {
+			session.abortSession(imsAbortionReason);
 		}
 	}
 
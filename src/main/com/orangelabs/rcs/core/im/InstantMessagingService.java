@@ -22,11 +22,11 @@
 
 package com.orangelabs.rcs.core.im;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax2.sip.header.ContactHeader;
 import javax2.sip.message.Response;
@@ -108,28 +108,33 @@ public class InstantMessagingService extends ImsService {
 	/**
 	 * OneToOneChatSessionCache with ContactId as key
 	 */
-	private Map<ContactId, OneToOneChatSession> mOneToOneChatSessionCache = new HashMap<ContactId, OneToOneChatSession>();
+	private final ConcurrentHashMap<ContactId, OneToOneChatSession> mOneToOneChatSessionCache = new ConcurrentHashMap<ContactId, OneToOneChatSession>();
 
 	/**
 	 * GroupChatSessionCache with ChatId as key
 	 */
-	private Map<String, GroupChatSession> mGroupChatSessionCache = new HashMap<String, GroupChatSession>();
+	private final ConcurrentHashMap<String, GroupChatSession> mGroupChatSessionCache = new ConcurrentHashMap<String, GroupChatSession>();
 
 	/**
 	 * FileSharingSessionCache with FileTransferId as key
 	 */
-	private Map<String, FileSharingSession> mFileTransferSessionCache = new HashMap<String, FileSharingSession>();
+	private final ConcurrentHashMap<String, FileSharingSession> mFileTransferSessionCache = new ConcurrentHashMap<String, FileSharingSession>();
 
 	/**
 	 * FileUploadSessionCache with UploadId as key
 	 */
-	private Map<String, FileUploadSession> mFileUploadSessionCache = new HashMap<String, FileUploadSession>();
+	private final ConcurrentHashMap<String, FileUploadSession> mFileUploadSessionCache = new ConcurrentHashMap<String, FileUploadSession>();
 
 	/**
 	 * GroupChatConferenceSubscriberCache with Conference subscriber's dialog
 	 * path CallId as key
 	 */
-	private Map<String, GroupChatSession> mGroupChatConferenceSubscriberCache = new HashMap<String, GroupChatSession>();
+	private final ConcurrentHashMap<String, GroupChatSession> mGroupChatConferenceSubscriberCache = new ConcurrentHashMap<String, GroupChatSession>();
+
+	/**
+	 * Number of cached file sharing sessions not initiated by remote
+	 */
+	private final AtomicInteger mOutgoingFileTransferSessionCount = new AtomicInteger();
 
     /**
      * Chat features tags
@@ -273,10 +278,8 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Add OneToOneChatSession with contact '")
 					.append(contact).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			mOneToOneChatSessionCache.put(contact, session);
-			addImsServiceSession(session);
-		}
+		mOneToOneChatSessionCache.put(contact, session);
+		addImsServiceSession(session);
 	}
 
 	public void removeSession(final OneToOneChatSession session) {
@@ -286,19 +289,18 @@ public class InstantMessagingService extends ImsService {
 					.append(contact).append("'").toString());
 		}
 		/*
-		 * Performing remove session operation on a new thread so that ongoing
-		 * threads trying to get that session can finish up before it is
-		 * actually removed
+		 * Performing remove session operation later so that ongoing threads
+		 * trying to get that session can finish up before it is actually
+		 * removed. The session is only removed if it is still the one cached
+		 * for its key.
 		 */
-		new Thread() {
+		deferSessionRemoval(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (getImsServiceSessionOperationLock()) {
-					mOneToOneChatSessionCache.remove(contact);
-					removeImsServiceSession(session);
-				}
+				mOneToOneChatSessionCache.remove(contact, session);
+				removeImsServiceSession(session);
 			}
-		}.start();
+		});
 	}
 
 	public OneToOneChatSession getOneToOneChatSession(ContactId contact) {
@@ -306,9 +308,7 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Get OneToOneChatSession with contact '")
 					.append(contact).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			return mOneToOneChatSessionCache.get(contact);
-		}
+		return mOneToOneChatSessionCache.get(contact);
 	}
 
 	public void addSession(GroupChatSession session) {
@@ -317,10 +317,8 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Add GroupChatSession with chatId '").append(chatId)
 					.append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			mGroupChatSessionCache.put(chatId, session);
-			addImsServiceSession(session);
-		}
+		mGroupChatSessionCache.put(chatId, session);
+		addImsServiceSession(session);
 	}
 
 	public void removeSession(final GroupChatSession session) {
@@ -330,25 +328,24 @@ public class InstantMessagingService extends ImsService {
 					.append("'").toString());
 		}
 		/*
-		 * Performing remove session operation on a new thread so that ongoing
-		 * threads trying to get that session can finish up before it is
-		 * actually removed
+		 * Performing remove session operation later so that ongoing threads
+		 * trying to get that session can finish up before it is actually
+		 * removed. The session is only removed if it is still the one cached
+		 * for its key.
 		 */
-		new Thread() {
+		deferSessionRemoval(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (getImsServiceSessionOperationLock()) {
-					SipDialogPath conferenceSubscriberDialogPath = session
-							.getConferenceEventSubscriber().getDialogPath();
-					if (conferenceSubscriberDialogPath != null) {
-						mGroupChatConferenceSubscriberCache.remove(conferenceSubscriberDialogPath
-								.getCallId());
-					}
-					mGroupChatSessionCache.remove(chatId);
-					removeImsServiceSession(session);
+				SipDialogPath conferenceSubscriberDialogPath = session
+						.getConferenceEventSubscriber().getDialogPath();
+				if (conferenceSubscriberDialogPath != null) {
+					mGroupChatConferenceSubscriberCache.remove(
+							conferenceSubscriberDialogPath.getCallId(), session);
 				}
+				mGroupChatSessionCache.remove(chatId, session);
+				removeImsServiceSession(session);
 			}
-		}.start();
+		});
 	}
 
 	public GroupChatSession getGroupChatSession(String chatId) {
@@ -356,9 +353,7 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Get GroupChatSession with chatId '").append(chatId)
 					.append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			return mGroupChatSessionCache.get(chatId);
-		}
+		return mGroupChatSessionCache.get(chatId);
 	}
 
 	public void addGroupChatConferenceSubscriber(String callId, GroupChatSession session) {
@@ -366,9 +361,7 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Add GroupChatConferenceSubscriber with callId '")
 					.append(callId).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			mGroupChatConferenceSubscriberCache.put(callId, session);
-		}
+		mGroupChatConferenceSubscriberCache.put(callId, session);
 	}
 
 	public void removeGroupChatConferenceSubscriber(final String callId) {
@@ -377,18 +370,16 @@ public class InstantMessagingService extends ImsService {
 					.append(callId).append("'").toString());
 		}
 		/*
-		 * Performing remove session operation on a new thread so that ongoing
-		 * threads trying to get that session can finish up before it is
-		 * actually removed
+		 * Performing remove session operation later so that ongoing threads
+		 * trying to get that session can finish up before it is actually
+		 * removed
 		 */
-		new Thread() {
+		deferSessionRemoval(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (getImsServiceSessionOperationLock()) {
-					mGroupChatConferenceSubscriberCache.remove(callId);
-				}
+				mGroupChatConferenceSubscriberCache.remove(callId);
 			}
-		}.start();
+		});
 	}
 
 	public GroupChatSession getGroupChatSessionOfConferenceSubscriber(String callId) {
@@ -396,24 +387,20 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Get GroupChatSession with ConferenceSunscriber '")
 					.append(callId).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			return mGroupChatConferenceSubscriberCache.get(callId);
-		}
+		return mGroupChatConferenceSubscriberCache.get(callId);
 	}
 
 	public boolean isChatSessionAvailable() {
-		synchronized (getImsServiceSessionOperationLock()) {
-			/*
-			 * maxChatSessions == 0 means that the allowed number of chat
-			 * sessions in use is disabled
-			 */
-			int maxChatSessions = mRcsSettings.getMaxChatSessions();
-			if (maxChatSessions == 0) {
-				return true;
-			}
-
-			return mOneToOneChatSessionCache.size() + mGroupChatSessionCache.size() < maxChatSessions;
+		/*
+		 * maxChatSessions == 0 means that the allowed number of chat
+		 * sessions in use is disabled
+		 */
+		int maxChatSessions = mRcsSettings.getMaxChatSessions();
+		if (maxChatSessions == 0) {
+			return true;
 		}
+
+		return mOneToOneChatSessionCache.size() + mGroupChatSessionCache.size() < maxChatSessions;
 	}
 
 	public void assertAvailableChatSession(String errorMessage) throws CoreException {
@@ -435,17 +422,23 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Add FileSharingSession with fileTransfer ID '")
 					.append(fileTransferId).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			mFileTransferSessionCache.put(fileTransferId, session);
-			/*
-			 * Only FileSharingSessions of type ImsFileSharingSession has a
-			 * dialog path. Hence add only those type of sessions to the
-			 * ImsServiceSession cache.
-			 */
-			if (session instanceof ImsFileSharingSession) {
-				addImsServiceSession(session);
+		FileSharingSession previousSession = mFileTransferSessionCache.put(fileTransferId, session);
+		if (previousSession != session) {
+			if (!session.isInitiatedByRemote()) {
+				mOutgoingFileTransferSessionCount.incrementAndGet();
+			}
+			if (previousSession != null && !previousSession.isInitiatedByRemote()) {
+				mOutgoingFileTransferSessionCount.decrementAndGet();
 			}
 		}
+		/*
+		 * Only FileSharingSessions of type ImsFileSharingSession has a
+		 * dialog path. Hence add only those type of sessions to the
+		 * ImsServiceSession cache.
+		 */
+		if (session instanceof ImsFileSharingSession) {
+			addImsServiceSession(session);
+		}
 	}
 
 	public void removeSession(final FileSharingSession session) {
@@ -455,26 +448,28 @@ public class InstantMessagingService extends ImsService {
 					.append(fileTransferId).append("'").toString());
 		}
 		/*
-		 * Performing remove session operation on a new thread so that ongoing
-		 * threads trying to get that session can finish up before it is
-		 * actually removed
+		 * Performing remove session operation later so that ongoing threads
+		 * trying to get that session can finish up before it is actually
+		 * removed. The session is only removed if it is still the one cached
+		 * for its key.
 		 */
-		new Thread() {
+		deferSessionRemoval(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (getImsServiceSessionOperationLock()) {
-					mFileTransferSessionCache.remove(fileTransferId);
-					/*
-					 * Only FileSharingSessions of type ImsFileSharingSession
-					 * has a dialog path. Hence it is possible to remove only
-					 * those type of sessions to the ImsServiceSession cache.
-					 */
-					if (session instanceof ImsFileSharingSession) {
-						removeImsServiceSession(session);
-					}
+				if (mFileTransferSessionCache.remove(fileTransferId, session)
+						&& !session.isInitiatedByRemote()) {
+					mOutgoingFileTransferSessionCount.decrementAndGet();
+				}
+				/*
+				 * Only FileSharingSessions of type ImsFileSharingSession
+				 * has a dialog path. Hence it is possible to remove only
+				 * those type of sessions to the ImsServiceSession cache.
+				 */
+				if (session instanceof ImsFileSharingSession) {
+					removeImsServiceSession(session);
 				}
 			}
-		}.start();
+		});
 	}
 
 	public FileSharingSession getFileSharingSession(String fileTransferId) {
@@ -482,9 +477,7 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Get FileSharingSession with fileTransfer ID '")
 					.append(fileTransferId).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			return mFileTransferSessionCache.get(fileTransferId);
-		}
+		return mFileTransferSessionCache.get(fileTransferId);
 	}
 
 	public void addSession(FileUploadSession session) {
@@ -493,9 +486,7 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Add FileUploadSession with upload ID '")
 					.append(uploadId).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			mFileUploadSessionCache.put(uploadId, session);
-		}
+		mFileUploadSessionCache.put(uploadId, session);
 	}
 
 	public void removeSession(final FileUploadSession session) {
@@ -505,18 +496,17 @@ public class InstantMessagingService extends ImsService {
 					.append(uploadId).append("'").toString());
 		}
 		/*
-		 * Performing remove session operation on a new thread so that ongoing
-		 * threads trying to get that session can finish up before it is
-		 * actually removed
+		 * Performing remove session operation later so that ongoing threads
+		 * trying to get that session can finish up before it is actually
+		 * removed. The session is only removed if it is still the one cached
+		 * for its key.
 		 */
-		new Thread() {
+		deferSessionRemoval(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (getImsServiceSessionOperationLock()) {
-					mFileUploadSessionCache.remove(uploadId);
-				}
+				mFileUploadSessionCache.remove(uploadId, session);
 			}
-		}.start();
+		});
 	}
 
 	public FileUploadSession getFileUploadSession(String uploadId) {
@@ -524,24 +514,20 @@ public class InstantMessagingService extends ImsService {
 			logger.debug(new StringBuilder("Get FileUploadSession with upload ID '")
 					.append(uploadId).append("'").toString());
 		}
-		synchronized (getImsServiceSessionOperationLock()) {
-			return mFileUploadSessionCache.get(uploadId);
-		}
+		return mFileUploadSessionCache.get(uploadId);
 	}
 
 	public boolean isFileTransferSessionAvailable() {
-		synchronized (getImsServiceSessionOperationLock()) {
-			/*
-			 * maxFtSessions == 0 means that the checking of allowed number of
-			 * file transfer sessions in use is disabled
-			 */
-			int maxFileTransferSessions = mRcsSettings.getMaxFileTransferSessions();
-			if (maxFileTransferSessions == 0) {
-				return true;
-			}
-
-			return mFileTransferSessionCache.size() + mFileUploadSessionCache.size() < maxFileTransferSessions;
+		/*
+		 * maxFtSessions == 0 means that the checking of allowed number of
+		 * file transfer sessions in use is disabled
+		 */
+		int maxFileTransferSessions = mRcsSettings.getMaxFileTransferSessions();
+		if (maxFileTransferSessions == 0) {
+			return true;
 		}
+
+		return mFileTransferSessionCache.size() + mFileUploadSessionCache.size() < maxFileTransferSessions;
 	}
 
 	public void assertAvailableFileTransferSession(String errorMessage) throws CoreException {
@@ -582,29 +568,35 @@ public class InstantMessagingService extends ImsService {
 	 * @return boolean
 	 */
 	public boolean isMaxConcurrentOutgoingFileTransfersReached() {
-		int nrOfConcurrentOutgoingFileTransferSessions = 0;
-		synchronized (getImsServiceSessionOperationLock()) {
-			for (FileSharingSession session : mFileTransferSessionCache.values()) {
-				if (!session.isInitiatedByRemote()) {
-					nrOfConcurrentOutgoingFileTransferSessions++;
-				}
-			}
-			/*
-			 * maxConcurrentOutgoingFilrTransferSessions == 0 means that the
-			 * checking of allowed concurrent number of outgoing file transfers
-			 * in use is disabled
-			 */
-			int maxConcurrentOutgoingFileTransferSessions = mRcsSettings
-					.getMaxConcurrentOutgoingFileTransferSessions();
-			if (maxConcurrentOutgoingFileTransferSessions == 0) {
-				return false;
-			}
-			if (nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions) {
-				return true;
-			}
-			nrOfConcurrentOutgoingFileTransferSessions += mFileUploadSessionCache.size();
-			return nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions;
+		/*
+		 * maxConcurrentOutgoingFilrTransferSessions == 0 means that the
+		 * checking of allowed concurrent number of outgoing file transfers
+		 * in use is disabled
+		 */
+		int maxConcurrentOutgoingFileTransferSessions = mRcsSettings
+				.getMaxConcurrentOutgoingFileTransferSessions();
+		if (maxConcurrentOutgoingFileTransferSessions == 0) {
+			return false;
+		}
+		int nrOfConcurrentOutgoingFileTransferSessions = mOutgoingFileTransferSessionCount.get()
+				+ mFileUploadSessionCache.size();
+		return nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions;
+	}
+
+	/**
+	 * Resumes at once a paused HTTP file transfer which is waiting for its
+	 * turn in the resume queue, without waiting for a free slot
+	 *
+	 * @param fileTransferId File transfer ID
+	 * @return Returns true if the transfer was waiting to be resumed, else
+	 *         returns false
+	 */
+	public boolean prioritizeFileTransferResume(String fileTransferId) {
+		FtHttpResumeManager resumeManager = mResumeManager;
+		if (resumeManager == null) {
+			return false;
 		}
+		return resumeManager.prioritize(fileTransferId, FtHttpResumeManager.PRIORITY_USER);
 	}
 
 	/**
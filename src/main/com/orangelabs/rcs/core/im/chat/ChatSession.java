@@ -539,7 +539,7 @@ public abstract class ChatSession extends ImsServiceSession implements MsrpEvent
 						// File transfer over HTTP message
 						// Parse HTTP document
 						FileTransferHttpInfoDocument fileInfo = FileTransferUtils.parseFileTransferHttpDocument(cpimMsg
-								.getMessageContent().getBytes(UTF8));
+								.getMessageContentBytes());
 						if (fileInfo != null) {
 							receiveHttpFileTransfer(contact, getRemoteDisplayName(), fileInfo, cpimMsgId);
 							// Mark the message as waiting a displayed report if needed
@@ -555,7 +555,7 @@ public abstract class ChatSession extends ImsServiceSession implements MsrpEvent
 									cpimMsg.getMessageContent(), MimeType.TEXT_MESSAGE, date, null);
 							receive(msg, imdnDisplayedRequested);
 						} else if (ChatUtils.isApplicationIsComposingType(contentType)) {
-							receiveIsComposing(contact, cpimMsg.getMessageContent().getBytes(UTF8));
+							receiveIsComposing(contact, cpimMsg.getMessageContentBytes());
 						} else if (ChatUtils.isMessageImdnType(contentType)) {
 							receiveMessageDeliveryStatus(contact, cpimMsg.getMessageContent());
 						} else if (ChatUtils.isGeolocType(contentType)) {
@@ -837,6 +837,15 @@ public abstract class ChatSession extends ImsServiceSession implements MsrpEvent
 	 */
 	public abstract void sendIsComposingStatus(boolean status);
 
+	/**
+	 * Returns the is composing manager
+	 *
+	 * @return Is composing manager
+	 */
+	protected IsComposingManager getIsComposingManager() {
+		return mIsComposingMgr;
+	}
+
 //	/**
 //	 * Add a participant to the session
 //	 *
@@ -22,6 +22,9 @@
 
 package com.orangelabs.rcs.core.im.chat;
 
+import java.util.List;
+import java.util.Set;
+
 import com.gsma.services.rcs.chat.ParticipantInfo;
 import com.gsma.services.rcs.contacts.ContactId;
 import com.orangelabs.rcs.core.ImsSessionListener;
@@ -40,6 +43,16 @@ public interface ChatSessionListener extends ImsSessionListener {
 	 * @param imdnDisplayedRequested Indicates whether display notification is requested
 	 */
     public void handleReceiveMessage(ChatMessage msg, boolean imdnDisplayedRequested);
+
+    /**
+     * Batch of new messages received, e.g. stored messages replayed by the
+     * store & forward server
+     * 
+     * @param msgs Chat messages in the order they were received
+     * @param imdnDisplayedRequestedIds IDs of the messages for which display
+     *            notification is requested
+     */
+    public void handleReceiveMessages(List<ChatMessage> msgs, Set<String> imdnDisplayedRequestedIds);
     
     /**
      * IM error
@@ -165,6 +165,9 @@ public abstract class GroupChatSession extends ChatSession {
      * Close media session
      */
     public void closeMediaSession() {
+        // Stop the is-composing timers
+        getIsComposingManager().stop();
+
         // Close MSRP session
         closeMsrpSession();
     }
@@ -235,6 +238,7 @@ public abstract class GroupChatSession extends ChatSession {
 	 */
 	@Override
 	public void sendChatMessage(ChatMessage msg) {
+		getIsComposingManager().resetLocalStatus();
 		String from = getImsService().getUser().getPublicAddress();
 		String to = ChatUtils.ANOMYNOUS_URI;
 		String msgId = msg.getMessageId();
@@ -283,6 +287,10 @@ public abstract class GroupChatSession extends ChatSession {
 
     @Override
 	public void sendIsComposingStatus(boolean status) {
+		if (!getIsComposingManager().updateLocalStatus(status)) {
+			// Status unchanged or refreshed recently
+			return;
+		}
 		String from = getImsService().getUser().getPublicUri();
 		String to = ChatUtils.ANOMYNOUS_URI;
 		String msgId = IdGenerator.generateMessageID();
@@ -685,8 +693,7 @@ public abstract class GroupChatSession extends ChatSession {
 			// File transfer over HTTP message
 			// Parse HTTP document
             FileTransferHttpInfoDocument fileInfo = FileTransferUtils
-                    .parseFileTransferHttpDocument(cpimMsg.getMessageContent().getBytes(
-                            UTF8));
+                    .parseFileTransferHttpDocument(cpimMsg.getMessageContentBytes());
 			if (fileInfo != null) {
 				receiveHttpFileTransfer(remoteId, pseudo, fileInfo, cpimMsgId);
 			} else {
@@ -703,8 +710,7 @@ public abstract class GroupChatSession extends ChatSession {
 			} else {
 				if (ChatUtils.isApplicationIsComposingType(contentType)) {
 					// Is composing event
-                    receiveIsComposing(remoteId,
-                            cpimMsg.getMessageContent().getBytes(UTF8));
+                    receiveIsComposing(remoteId, cpimMsg.getMessageContentBytes());
 				} else {
 					if (ChatUtils.isMessageImdnType(contentType)) {
 						// Delivery report
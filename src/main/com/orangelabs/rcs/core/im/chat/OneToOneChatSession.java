@@ -144,6 +144,9 @@ public abstract class OneToOneChatSession extends ChatSession {
 		// Stop the activity manager
 		getActivityManager().stop();
 
+		// Stop the is-composing timers
+		getIsComposingManager().stop();
+
 		// Close MSRP session
 		closeMsrpSession();
 	}
@@ -154,6 +157,7 @@ public abstract class OneToOneChatSession extends ChatSession {
 	 */
 	@Override
 	public void sendChatMessage(ChatMessage msg) {
+		getIsComposingManager().resetLocalStatus();
 		String from = ChatUtils.ANOMYNOUS_URI;
 		String to = ChatUtils.ANOMYNOUS_URI;
 		String msgId = msg.getMessageId();
@@ -203,6 +207,10 @@ public abstract class OneToOneChatSession extends ChatSession {
 	 * @param status Status
 	 */
 	public void sendIsComposingStatus(boolean status) {
+		if (!getIsComposingManager().updateLocalStatus(status)) {
+			// Status unchanged or refreshed recently
+			return;
+		}
 		String content = IsComposingInfo.buildIsComposingInfo(status);
 		String msgId = IdGenerator.generateMessageID();
 		sendDataChunks(msgId, content, IsComposingInfo.MIME_TYPE,
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.core.im.chat.cpim;
+
+/**
+ * Table of CPIM headers
+ * <p>
+ * Names are case-insensitive. A CPIM message has a handful of headers, so they
+ * are kept in two arrays in their order of insertion and looked up linearly.
+ */
+class CpimHeaders {
+	/**
+	 * Initial capacity
+	 */
+	private static final int INITIAL_CAPACITY = 8;
+
+	/**
+	 * Header names
+	 */
+	private String[] names = new String[INITIAL_CAPACITY];
+
+	/**
+	 * Header values
+	 */
+	private String[] values = new String[INITIAL_CAPACITY];
+
+	/**
+	 * Number of headers
+	 */
+	private int size = 0;
+
+	/**
+	 * Returns the index of a header
+	 *
+	 * @param name Header name
+	 * @return Index or -1 if not found
+	 */
+	private int indexOf(String name) {
+		for (int i = 0; i < size; i++) {
+			if (names[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the value of a header
+	 *
+	 * @param name Header name
+	 * @return Value or null if not found
+	 */
+	public String get(String name) {
+		int index = indexOf(name);
+		if (index == -1) {
+			return null;
+		}
+		return values[index];
+	}
+
+	/**
+	 * Set a header, replacing the header of the same name if any
+	 *
+	 * @param name Header name
+	 * @param value Header value
+	 */
+	public void put(String name, String value) {
+		int index = indexOf(name);
+		if (index != -1) {
+			values[index] = value;
+			return;
+		}
+		if (size == names.length) {
+			String[] newNames = new String[size * 2];
+			String[] newValues = new String[size * 2];
+			System.arraycopy(names, 0, newNames, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			names = newNames;
+			values = newValues;
+		}
+		names[size] = name;
+		values[size] = value;
+		size++;
+	}
+
+	/**
+	 * Returns the number of headers
+	 *
+	 * @return Size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the name of a header
+	 *
+	 * @param index Index
+	 * @return Name
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Returns the value of a header
+	 *
+	 * @param index Index
+	 * @return Value
+	 */
+	public String getValue(int index) {
+		return values[index];
+	}
+}
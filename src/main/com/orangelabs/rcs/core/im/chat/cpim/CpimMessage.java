@@ -19,11 +19,8 @@ package com.orangelabs.rcs.core.im.chat.cpim;
 
 import static com.orangelabs.rcs.utils.StringUtils.UTF8;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.gsma.services.rcs.chat.ChatLog;
 import com.orangelabs.rcs.core.im.chat.imdn.ImdnDocument;
@@ -95,19 +92,39 @@ public class CpimMessage {
 	public static final String HEADER_CONTENT_DISPOSITION = "Content-Disposition";
 	
 	/**
-	 * Message content
+	 * Header "Content-Transfer-Encoding"
+	 */
+	static final String HEADER_CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
+
+	/**
+	 * Message content, decoded on first access
 	 */
 	private String msgContent = null;
+
+	/**
+	 * Buffer holding the raw message content
+	 */
+	private final byte[] data;
+
+	/**
+	 * Offset of the raw message content in the buffer
+	 */
+	private final int contentOffset;
+
+	/**
+	 * Length of the raw message content
+	 */
+	private final int contentLength;
 	
 	/**
 	 * MIME headers
 	 */
-	private HashMap<String, String> headers = new HashMap<String, String>();
+	private final CpimHeaders headers;
 	
 	/**
 	 * MIME content headers
 	 */
-	private HashMap<String, String> contentHeaders = new HashMap<String, String>();
+	private final CpimHeaders contentHeaders;
 
 
 
@@ -128,12 +145,17 @@ public class CpimMessage {
 	 * 
 	 * @param headers MIME headers
 	 * @param contentHeaders MIME content headers
-	 * @param msgContent Content
+	 * @param data Buffer holding the raw content, which is not copied
+	 * @param offset Offset of the raw content in the buffer
+	 * @param length Length of the raw content
 	 */
-	public CpimMessage(HashMap<String, String> headers, HashMap<String, String> contentHeaders, String msgContent) {
+	CpimMessage(CpimHeaders headers, CpimHeaders contentHeaders, byte[] data, int offset,
+			int length) {
 		this.headers = headers;
 		this.contentHeaders = contentHeaders;
-		this.msgContent = msgContent;
+		this.data = data;
+		this.contentOffset = offset;
+		this.contentLength = length;
 	}
 	
     /**
@@ -142,16 +164,11 @@ public class CpimMessage {
      * @return Content type
      */
     public String getContentType() {
-    	String type = contentHeaders.get(CpimMessage.HEADER_CONTENT_TYPE);
-    	if (type == null) {
-    		return contentHeaders.get(CpimMessage.HEADER_CONTENT_TYPE2);
-    	} else {
-    		return type;
-    	}
+    	return contentHeaders.get(CpimMessage.HEADER_CONTENT_TYPE);
     }
     
     /**
-     * Returns MIME header
+     * Returns MIME header (the name is case-insensitive)
      * 
      * @param name Header name
      * @return Header value
@@ -161,7 +178,7 @@ public class CpimMessage {
 	}
 	
     /**
-     * Returns MIME content header
+     * Returns MIME content header (the name is case-insensitive)
      * 
      * @param name Header name
      * @return Header value
@@ -176,9 +193,34 @@ public class CpimMessage {
      * @return Content
      */
     public String getMessageContent() {
+		if (msgContent == null) {
+			if (isBase64Encoded()) {
+				msgContent = new String(getMessageContentBytes(), UTF8);
+			} else {
+				msgContent = new String(data, contentOffset, contentLength, UTF8);
+			}
+		}
 		return msgContent;
 	}
 
+    /**
+     * Returns message content as bytes, without decoding it to a string
+     * 
+     * @return Content
+     */
+    public byte[] getMessageContentBytes() {
+		byte[] content = Arrays.copyOfRange(data, contentOffset, contentOffset + contentLength);
+		if (isBase64Encoded()) {
+			content = Base64.decodeBase64(content);
+		}
+		return content;
+	}
+
+    private boolean isBase64Encoded() {
+		return StringIgnoreCase.equals(Base64.ENCODING_TYPE,
+				contentHeaders.get(HEADER_CONTENT_TRANSFER_ENCODING));
+	}
+
     /**
      * Returns message date
      * 
@@ -196,17 +238,15 @@ public class CpimMessage {
 
     
     public static class Builder {
-    	private static final String HEADER_CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
-		
     	/**
     	 * MIME headers
     	 */
-    	private HashMap<String, String> headers = new HashMap<String, String>();
+    	private CpimHeaders headers = new CpimHeaders();
     	
     	/**
     	 * MIME content headers
     	 */
-    	private HashMap<String, String> contentHeaders = new HashMap<String, String>();
+    	private CpimHeaders contentHeaders = new CpimHeaders();
     	byte[] msgContent = null;
     	
     	Builder() {
@@ -264,10 +304,6 @@ public class CpimMessage {
     		return this;
     	}
     	
-    	private String contentHeader(String key) {
-    		return contentHeaders.get(key);
-    	}
-    	
     	public Builder body(String rawMessage) {
     		msgContent = rawMessage.getBytes(UTF8);
     		return this;
@@ -279,14 +315,7 @@ public class CpimMessage {
     	}
     	    	
     	public CpimMessage build() {
-    		
-    		byte[] content = msgContent;
-    		if (StringIgnoreCase.equals(Base64.ENCODING_TYPE, 
-    				contentHeader(HEADER_CONTENT_TRANSFER_ENCODING))) {
-    			content = Base64.decodeBase64(msgContent);
-    		}
-
-    		return new CpimMessage(headers, contentHeaders, new String(content, UTF8));
+    		return new CpimMessage(headers, contentHeaders, msgContent, 0, msgContent.length);
     	}
     	
     	public Builder imdn(String messageId) {
@@ -311,13 +340,13 @@ public class CpimMessage {
 
 		Output getCommonPart() {
 			Output out = new Output();
-    		for (Map.Entry<String,String> pair : headers.entrySet()) {
-    			out.header(pair.getKey(), pair.getValue());
+    		for (int i = 0; i < headers.size(); i++) {
+    			out.header(headers.getName(i), headers.getValue(i));
     		}
     		out.newline();
     		
-    		for (Map.Entry<String,String> pair : contentHeaders.entrySet()) {
-    			out.header(pair.getKey(), pair.getValue());
+    		for (int i = 0; i < contentHeaders.size(); i++) {
+    			out.header(contentHeaders.getName(i), contentHeaders.getValue(i));
     		}
     		out.newline();
 			return out;
@@ -334,29 +363,20 @@ public class CpimMessage {
 			return this;
 		}
 		
-		private byte[] combine(byte[] content) throws IOException {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			try {
-				bos.write(msg.toString().getBytes(UTF8));
-				bos.write(content);
-				return bos.toByteArray();
-			}
-			finally{
-				bos.close();   			
-			}
-		}
-		
 		String getMessage(byte[] content) {
 			return msg.append(new String(content, UTF8)).toString();
 		}
 		
-		byte[] getBytes(byte[] content) {   			
-			try {
-				return combine(content);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			return null;
+		/**
+		 * Returns the headers followed by the content: the content is copied once,
+		 * straight into the returned array
+		 */
+		byte[] getBytes(byte[] content) {
+			byte[] head = msg.toString().getBytes(UTF8);
+			byte[] result = new byte[head.length + content.length];
+			System.arraycopy(head, 0, result, 0, head.length);
+			System.arraycopy(content, 0, result, head.length, content.length);
+			return result;
 		}
 		
 		Output newline() {
@@ -24,10 +24,12 @@ package com.orangelabs.rcs.core.im.chat.cpim;
 
 import static com.orangelabs.rcs.utils.StringUtils.UTF8;
 
-import java.util.StringTokenizer;
-
 /**
  * CPIM parser (see RFC3862)
+ * <p>
+ * Headers are parsed in place from the raw bytes. The message content is not
+ * copied: the CPIM message refers to it in the input buffer and decodes it on
+ * first access.
  *
  * @author jexa7410
  */
@@ -37,6 +39,11 @@ public class CpimParser {
 	 */
 	private CpimMessage cpim = null;
 
+	/**
+	 * Input data
+	 */
+	private byte[] data;
+
 	/**
 	 * Constructor
 	 *
@@ -44,7 +51,7 @@ public class CpimParser {
 	 * @throws Exception
 	 */
     public CpimParser(byte data[]) throws Exception {
-        parse(new String(data, UTF8));
+        parse(data);
 	}
 
 	/**
@@ -54,7 +61,7 @@ public class CpimParser {
 	 * @throws Exception
 	 */
     public CpimParser(String data) throws Exception {
-        parse(data);
+        parse(data.getBytes(UTF8));
 	}
 
     /***
@@ -72,7 +79,7 @@ public class CpimParser {
      * @param data Input data
      * @throws Exception
      */
-	private void parse(String data) throws Exception {
+	private void parse(byte[] data) throws Exception {
 		/* CPIM sample:
 	    From: MR SANDERS <im:piglet@100akerwood.com>
 	    To: Depressed Donkey <im:eeyore@100akerwood.com>
@@ -84,46 +91,90 @@ public class CpimParser {
 
 	    Here is the text of my message.
 	    */
+		this.data = data;
 		try {
 			// Read message headers
-			CpimMessage.Builder builder = new CpimMessage.Builder();
-			
-			int begin = 0;
-			int end = data.indexOf(CpimMessage.DOUBLE_CRLF, begin);
-			String block2 = data.substring(begin, end);
-			StringTokenizer lines = new StringTokenizer(block2, CpimMessage.CRLF);
-			
-			while(lines.hasMoreTokens()) {
-				String token = lines.nextToken();
-				
-				CpimHeader hd = parseHeader(token);
-				builder.header(hd.getName(), hd.getValue());
-			}
+			CpimHeaders headers = new CpimHeaders();
+			int end = indexOfDoubleCrlf(0);
+			parseHeaders(0, end, headers);
 
 			// Read the MIME-encapsulated content header
-			begin = end+4;
-			end = data.indexOf(CpimMessage.DOUBLE_CRLF, begin);
-			String block3 = data.substring(begin, end);
-			lines = new StringTokenizer(block3, CpimMessage.CRLF);
+			CpimHeaders contentHeaders = new CpimHeaders();
+			int begin = end + 4;
+			end = indexOfDoubleCrlf(begin);
+			parseHeaders(begin, end, contentHeaders);
 
-			while(lines.hasMoreTokens()) {
-				String token = lines.nextToken();
-				
-				CpimHeader hd = parseHeader(token);
-				builder.contentHeader(hd.getName(), hd.getValue());
-			}
-
-			// Read the message content
-			begin = end+4;
-			builder.body(data.substring(begin));
-
-			// Create the CPIM message
-			cpim = builder.build();
+			// The message content is left in place
+			begin = end + 4;
+			cpim = new CpimMessage(headers, contentHeaders, data, begin, data.length - begin);
 		} catch(Exception e) {
 			throw new Exception("Bad CPIM message format");
 		}
 	}
 
+	/**
+	 * Returns the index of the next empty line
+	 *
+	 * @param from Start index
+	 * @return Index of the CRLF CRLF sequence
+	 * @throws Exception if not found
+	 */
+	private int indexOfDoubleCrlf(int from) throws Exception {
+		for (int i = from; i + 3 < data.length; i++) {
+			if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r'
+					&& data[i + 3] == '\n') {
+				return i;
+			}
+		}
+		throw new Exception("Missing empty line");
+	}
+
+	/**
+	 * Parse a block of header lines, separated by CR or LF
+	 *
+	 * @param start Start index (inclusive)
+	 * @param end End index (exclusive)
+	 * @param headers Headers table to fill
+	 * @throws Exception if a line is not a header
+	 */
+	private void parseHeaders(int start, int end, CpimHeaders headers) throws Exception {
+		int lineStart = start;
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			int colon = -1;
+			while (lineEnd < end && data[lineEnd] != '\r' && data[lineEnd] != '\n') {
+				if (colon == -1 && data[lineEnd] == ':') {
+					colon = lineEnd;
+				}
+				lineEnd++;
+			}
+			if (lineEnd > lineStart) {
+				if (colon == -1) {
+					throw new Exception("Bad header");
+				}
+				headers.put(decodeTrimmed(lineStart, colon), decodeTrimmed(colon + 1, lineEnd));
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	/**
+	 * Decode a range of the data without its leading and trailing whitespace
+	 *
+	 * @param start Start index (inclusive)
+	 * @param end End index (exclusive)
+	 * @return String
+	 */
+	private String decodeTrimmed(int start, int end) {
+		while (start < end && (data[start] & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (data[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		return new String(data, start, end - start, UTF8);
+	}
+
 	/**
 	 * Parse CPIM header
 	 * 
@@ -23,7 +23,8 @@
 package com.orangelabs.rcs.core.im.chat.event;
 
 import java.io.ByteArrayInputStream;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 
@@ -42,7 +43,6 @@ import com.orangelabs.rcs.core.im.InstantMessagingService;
 import com.orangelabs.rcs.core.im.chat.ChatError;
 import com.orangelabs.rcs.core.im.chat.ChatSessionListener;
 import com.orangelabs.rcs.core.im.chat.GroupChatSession;
-import com.orangelabs.rcs.core.im.chat.ParticipantInfoUtils;
 import com.orangelabs.rcs.platform.registry.RegistryFactory;
 import com.orangelabs.rcs.protocol.sip.SipDialogPath;
 import com.orangelabs.rcs.protocol.sip.SipRequest;
@@ -51,7 +51,6 @@ import com.orangelabs.rcs.protocol.sip.SipTransactionContext;
 import com.orangelabs.rcs.protocol.sip.SipUtils;
 import com.orangelabs.rcs.provider.messaging.MessagingLog;
 import com.orangelabs.rcs.provider.settings.RcsSettings;
-import com.orangelabs.rcs.utils.ContactUtils;
 import com.orangelabs.rcs.utils.PeriodicRefresher;
 import com.orangelabs.rcs.utils.logger.Logger;
 
@@ -97,9 +96,9 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 	private SessionAuthenticationAgent authenticationAgent;
 
     /**
-	 * List of connected participants
+	 * Roster of the conference
 	 */
-	private Set<ParticipantInfo> participants;	
+	private ConferenceRoster roster;
 	
 	/**
      * The logger
@@ -116,7 +115,7 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
     	this.imsModule = session.getImsService().getImsModule();
 		this.authenticationAgent = new SessionAuthenticationAgent(imsModule);
 		// Initiate list of participants with list of invited with status UNKNOWN
-		participants = new HashSet<ParticipantInfo>(session.getParticipants());
+		roster = new ConferenceRoster(session.getParticipants());
 		
     	int defaultExpirePeriod = RcsSettings.getInstance().getSubscribeExpirePeriod();
     	int minExpireValue = RegistryFactory.getFactory().readInteger(REGISTRY_MIN_EXPIRE_PERIOD, -1);
@@ -151,7 +150,7 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 	 * @return List of participants
 	 */
     public Set<ParticipantInfo> getParticipants() {
-		return participants;
+		return roster.getParticipants();
 	}
 
 	/**
@@ -188,15 +187,35 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 						}
 						session.setMaxParticipants(maxParticipants);
 					}
-					Set<ParticipantInfo> newSet = new HashSet<ParticipantInfo>();
-					if (!ConferenceInfoDocument.STATE_FULL.equalsIgnoreCase(conference.getState())) {
-						newSet = new HashSet<ParticipantInfo>(participants);
+					boolean full = ConferenceInfoDocument.STATE_FULL.equalsIgnoreCase(conference.getState());
+					int version = conference.getVersion();
+					switch (roster.checkVersion(version, full)) {
+					case ConferenceRoster.VERSION_STALE:
+						if (logger.isActivated()) {
+							logger.debug("Ignore conference info version " + version);
+						}
+						conference = null;
+						break;
+					case ConferenceRoster.VERSION_GAP:
+						// Partial documents have been lost: re-subscribe to get a full document
+						if (logger.isActivated()) {
+							logger.warn("Conference info version " + version + " out of sequence: resynchronize");
+						}
+						conference = null;
+						subscribe();
+						break;
+					default:
+						roster.startUpdate(version, full);
+						break;
 					}
+				}
+				if (conference != null) {
+					List<ParticipantInfo> changes = new ArrayList<ParticipantInfo>();
 					Vector<User> users = conference.getUsers();
 					for (User user : users) {
 						ContactId contact;
 						try {
-							contact = ContactUtils.createContactId(user.getEntity());
+							contact = roster.getContact(user.getEntity());
 						} catch (RcsContactFormatException e) {
 							// Invalid entity
 							continue;
@@ -211,6 +230,24 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 							continue;
 						}
 
+						if (user.isDeleted()) {
+							// Removed from the roster by a partial document: the participant has left
+							String state = user.getDisconnectionMethod();
+							if (state == null) {
+								state = User.STATE_DEPARTED;
+							}
+							ParticipantInfo departed = roster.remove(contact, getStatus(state));
+							if (departed != null) {
+								changes.add(departed);
+								// Notify session listeners
+								for (int j = 0; j < session.getListeners().size(); j++) {
+									((ChatSessionListener) session.getListeners().get(j)).handleConferenceEvent(contact,
+											user.getDisplayName(), state);
+								}
+							}
+							continue;
+						}
+
 						// Get state
 						String state = user.getState();
 						String method = user.getDisconnectionMethod();
@@ -238,10 +275,9 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 							state = User.STATE_PENDING;
 						}
 						ParticipantInfo item2add = new ParticipantInfo(contact, getStatus(state));
-						// Update the set of participants
-						ParticipantInfoUtils.addParticipant(newSet, item2add);
-						// Check if original set has changed
-						if (participants.contains(item2add) == false) {
+						// Update the roster and check if the participant has changed
+						if (roster.update(item2add)) {
+							changes.add(item2add);
 							// Notify session listeners
 							for (int j = 0; j < session.getListeners().size(); j++) {
 								((ChatSessionListener) session.getListeners().get(j)).handleConferenceEvent(contact,
@@ -249,9 +285,9 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 							}
 						}
 					}
-					if (session instanceof GroupChatSession && newSet.equals(participants) == false) {
+					if (roster.endUpdate() && session instanceof GroupChatSession) {
 						// Update the set of participants of the terminating group chat session
-						UpdateSessionParticipantSet(newSet);
+						UpdateSessionParticipantSet(changes);
 					}
 				}
 			} catch (Exception e) {
@@ -274,20 +310,15 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 	/**
 	 * Update the set of participants of the group chat session to be aligned with the provider content
 	 * 
-	 * @param newSet
-	 *            the new set of participants
+	 * @param changes
+	 *            the participants whose status has changed
 	 */
-	private void UpdateSessionParticipantSet(final Set<ParticipantInfo> newSet) {
-		// Save old set of participants
-		Set<ParticipantInfo> oldSet = participants;
-		participants = newSet;
+	private void UpdateSessionParticipantSet(final List<ParticipantInfo> changes) {
 		// Update provider
-		MessagingLog.getInstance().updateGroupChatParticipant(session.getContributionID(), participants);
-		// Notify participant status change. Make a copy of new set.
-		Set<ParticipantInfo> workSet = new HashSet<ParticipantInfo>(newSet);
-		// Notify status change for the new set
-		workSet.removeAll(oldSet);
-		for (ParticipantInfo item : workSet) {
+		MessagingLog.getInstance().updateGroupChatParticipant(session.getContributionID(),
+				roster.getParticipants());
+		// Notify status change of the changed participants only
+		for (ParticipantInfo item : changes) {
 			for (int i = 0; i < session.getListeners().size(); i++) {
 				((ChatSessionListener) session.getListeners().get(i)).handleParticipantStatusChanged(item);
 			}
@@ -407,6 +438,8 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 					if (dialogPath == null) {
 						
 						dialogPath = imsModule.getSipManager().createServiceDialogPath(getPresentity());
+						// Versions of the documents are specific to a subscription dialog
+						roster.resetVersion();
 					} else {
 						// Increment the Cseq number of the dialog path
 						dialogPath.incrementCseq();
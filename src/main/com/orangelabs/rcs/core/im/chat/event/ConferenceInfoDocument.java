@@ -42,6 +42,11 @@ public class ConferenceInfoDocument {
      */
     private String state;
 
+    /**
+     * Version attribute (-1 if absent)
+     */
+    private int version;
+
     /**
      * List of users
      */
@@ -64,8 +69,20 @@ public class ConferenceInfoDocument {
      * @param state State attribute
      */
     public ConferenceInfoDocument(String entity, String state) {
+        this(entity, state, -1);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param entity Conference URI
+     * @param state State attribute
+     * @param version Version attribute (-1 if absent)
+     */
+    public ConferenceInfoDocument(String entity, String state, int version) {
         this.entity = entity;
         this.state = state;
+        this.version = version;
     }
 
     /**
@@ -86,6 +103,15 @@ public class ConferenceInfoDocument {
         return state;
     }
 
+    /**
+     * Return the version
+     *
+     * @return Version or -1 if not contained in the conference info
+     */
+    public int getVersion() {
+        return version;
+    }
+
     /**
      * Add a user
      *
@@ -146,7 +146,14 @@ public class ConferenceInfoParser extends DefaultHandler {
 		if (localName.equals("conference-info")) {
 			String entity = attr.getValue("entity").trim();
 			String state = attr.getValue("state").trim();
-			conference = new ConferenceInfoDocument(entity, state);
+			int version = -1;
+			String value = attr.getValue("version");
+			if (value != null) {
+				try {
+					version = Integer.parseInt(value.trim());
+				} catch(NumberFormatException e) {}
+			}
+			conference = new ConferenceInfoDocument(entity, state, version);
 		} else
 		if (localName.equals("user")) {
 			String entity = attr.getValue("entity").trim();
@@ -158,6 +165,8 @@ public class ConferenceInfoParser extends DefaultHandler {
 				} catch(Exception e) {}
 			}
 			user = new User(entity, me);
+			user.setDeleted(ConferenceInfoDocument.STATE_DELETED.equalsIgnoreCase(attr
+					.getValue("state")));
 		}
 	}
 
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.core.im.chat.event;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.gsma.services.rcs.RcsContactFormatException;
+import com.gsma.services.rcs.chat.ParticipantInfo;
+import com.gsma.services.rcs.contacts.ContactId;
+import com.orangelabs.rcs.utils.ContactUtils;
+
+/**
+ * Roster of a conference built from conference-info documents (RFC 4575).
+ * <p>
+ * Full documents replace the roster while partial documents are applied as
+ * deltas on top of it. The version of the documents is checked so that a
+ * lost partial document is detected and a resynchronization with a full
+ * document may be requested.
+ * <p>
+ * Documents are applied by the thread which receives the notifications,
+ * while the snapshot of the participants may be read from any thread.
+ *
+ * @author jexa7410
+ */
+public class ConferenceRoster {
+	/**
+	 * The document may be applied
+	 */
+	public static final int VERSION_OK = 0;
+
+	/**
+	 * The document is older than the roster or a resynchronization is
+	 * pending: it shall be ignored
+	 */
+	public static final int VERSION_STALE = 1;
+
+	/**
+	 * Some partial documents have been lost: a full document is needed
+	 */
+	public static final int VERSION_GAP = 2;
+
+	/**
+	 * Participants by contact
+	 */
+	private final Map<ContactId, ParticipantInfo> participants = new HashMap<ContactId, ParticipantInfo>();
+
+	/**
+	 * Contacts of the user entities already received
+	 */
+	private final Map<String, ContactId> contacts = new HashMap<String, ContactId>();
+
+	/**
+	 * Contacts not listed yet by the full document being applied
+	 */
+	private Set<ContactId> unlisted = null;
+
+	/**
+	 * Version of the last applied document (-1 if unknown)
+	 */
+	private int version = -1;
+
+	/**
+	 * Resynchronization pending flag
+	 */
+	private boolean resyncPending = false;
+
+	/**
+	 * Modified flag of the document being applied
+	 */
+	private boolean modified = false;
+
+	/**
+	 * Snapshot of the participants, rebuilt when a document modifies them
+	 */
+	private volatile Set<ParticipantInfo> snapshot;
+
+	/**
+	 * Constructor
+	 *
+	 * @param initialParticipants Initial set of participants
+	 */
+	public ConferenceRoster(Set<ParticipantInfo> initialParticipants) {
+		for (ParticipantInfo participant : initialParticipants) {
+			participants.put(participant.getContact(), participant);
+		}
+		snapshot = Collections.unmodifiableSet(new HashSet<ParticipantInfo>(participants.values()));
+	}
+
+	/**
+	 * Check the version of a document against the roster
+	 *
+	 * @param documentVersion Version of the document (-1 if absent)
+	 * @param full True if the document is a full document
+	 * @return VERSION_OK, VERSION_STALE or VERSION_GAP
+	 */
+	public synchronized int checkVersion(int documentVersion, boolean full) {
+		if (full || documentVersion < 0 || version < 0) {
+			// A full document is always authoritative
+			return VERSION_OK;
+		}
+		if (resyncPending || documentVersion <= version) {
+			return VERSION_STALE;
+		}
+		if (documentVersion > version + 1) {
+			resyncPending = true;
+			return VERSION_GAP;
+		}
+		return VERSION_OK;
+	}
+
+	/**
+	 * Forget the version of the documents, e.g. when a new subscription
+	 * dialog is created
+	 */
+	public synchronized void resetVersion() {
+		version = -1;
+		resyncPending = false;
+	}
+
+	/**
+	 * Start applying a document
+	 *
+	 * @param documentVersion Version of the document (-1 if absent)
+	 * @param full True if the document is a full document
+	 */
+	public synchronized void startUpdate(int documentVersion, boolean full) {
+		modified = false;
+		if (full) {
+			unlisted = new HashSet<ContactId>(participants.keySet());
+			resyncPending = false;
+		} else {
+			unlisted = null;
+		}
+		if (documentVersion >= 0) {
+			version = documentVersion;
+		}
+	}
+
+	/**
+	 * Returns the contact of a user entity
+	 *
+	 * @param entity User entity
+	 * @return Contact
+	 * @throws RcsContactFormatException
+	 */
+	public ContactId getContact(String entity) throws RcsContactFormatException {
+		ContactId contact = contacts.get(entity);
+		if (contact == null) {
+			contact = ContactUtils.createContactId(entity);
+			contacts.put(entity, contact);
+		}
+		return contact;
+	}
+
+	/**
+	 * Update a participant of the document being applied
+	 *
+	 * @param participant Participant
+	 * @return Returns true if the participant is new or its status has changed
+	 */
+	public boolean update(ParticipantInfo participant) {
+		ContactId contact = participant.getContact();
+		if (unlisted != null) {
+			unlisted.remove(contact);
+		}
+		ParticipantInfo current = participants.get(contact);
+		if (current != null && current.getStatus() == participant.getStatus()) {
+			return false;
+		}
+		participants.put(contact, participant);
+		modified = true;
+		return true;
+	}
+
+	/**
+	 * Remove a participant deleted by the document being applied
+	 *
+	 * @param contact Contact
+	 * @param status Last status of the participant, e.g. departed
+	 * @return Participant with its last status to be notified, or null if
+	 *         the contact was not a participant
+	 */
+	public ParticipantInfo remove(ContactId contact, int status) {
+		if (unlisted != null) {
+			unlisted.remove(contact);
+		}
+		if (participants.remove(contact) == null) {
+			return null;
+		}
+		modified = true;
+		return new ParticipantInfo(contact, status);
+	}
+
+	/**
+	 * End applying a document: participants not listed by a full document
+	 * are removed
+	 *
+	 * @return Returns true if the roster has been modified by the document
+	 */
+	public boolean endUpdate() {
+		if (unlisted != null) {
+			for (ContactId contact : unlisted) {
+				participants.remove(contact);
+				modified = true;
+			}
+			unlisted = null;
+		}
+		if (modified) {
+			snapshot = Collections.unmodifiableSet(new HashSet<ParticipantInfo>(participants.values()));
+		}
+		return modified;
+	}
+
+	/**
+	 * Returns the participants
+	 *
+	 * @return Unmodifiable set of participants
+	 */
+	public Set<ParticipantInfo> getParticipants() {
+		return snapshot;
+	}
+}
@@ -0,0 +1,111 @@
+package com.orangelabs.rcs.core.im.chat.event;
+
+import java.lang.reflect.Constructor;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.gsma.services.rcs.chat.ParticipantInfo;
+import com.gsma.services.rcs.chat.ParticipantInfo.Status;
+import com.gsma.services.rcs.contacts.ContactId;
+
+public class ConferenceRosterTest extends TestCase {
+
+	private ContactId alice;
+
+	private ContactId bob;
+
+	private ContactId carol;
+
+	private ConferenceRoster roster;
+
+	/**
+	 * Contact IDs are created without the formatting of the phone numbers,
+	 * which needs the application context
+	 */
+	private static ContactId createContact(String number) throws Exception {
+		Constructor<ContactId> constructor = ContactId.class.getDeclaredConstructor(String.class);
+		constructor.setAccessible(true);
+		return constructor.newInstance(number);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		alice = createContact("+33600000001");
+		bob = createContact("+33600000002");
+		carol = createContact("+33600000003");
+		Set<ParticipantInfo> participants = new HashSet<ParticipantInfo>();
+		participants.add(new ParticipantInfo(alice, Status.CONNECTED));
+		participants.add(new ParticipantInfo(bob, Status.CONNECTED));
+		roster = new ConferenceRoster(participants);
+		roster.startUpdate(1, true);
+		roster.update(new ParticipantInfo(alice, Status.CONNECTED));
+		roster.update(new ParticipantInfo(bob, Status.CONNECTED));
+		assertFalse(roster.endUpdate());
+	}
+
+	private static int getStatus(Set<ParticipantInfo> participants, ContactId contact) {
+		for (ParticipantInfo participant : participants) {
+			if (participant.getContact().equals(contact)) {
+				return participant.getStatus();
+			}
+		}
+		return -1;
+	}
+
+	public void testPartialDocumentWithADeletedUser() throws Exception {
+		ConferenceInfoDocument document = new ConferenceInfoDocument("sips:conf233@example.com",
+				ConferenceInfoDocument.STATE_PARTIAL, 2);
+		User deleted = new User("tel:+33600000002", false);
+		deleted.setDeleted(true);
+		document.addUser(deleted);
+		User joined = new User("tel:+33600000003", false);
+		joined.setState(User.STATE_CONNECTED);
+		document.addUser(joined);
+
+		assertEquals(ConferenceRoster.VERSION_OK, roster.checkVersion(document.getVersion(), false));
+		roster.startUpdate(document.getVersion(), false);
+		// The departure is returned so that it is notified
+		assertTrue(document.getUsers().get(0).isDeleted());
+		ParticipantInfo departed = roster.remove(bob, Status.DEPARTED);
+		assertNotNull(departed);
+		assertEquals(bob, departed.getContact());
+		assertEquals(Status.DEPARTED, departed.getStatus());
+		assertFalse(document.getUsers().get(1).isDeleted());
+		assertTrue(roster.update(new ParticipantInfo(carol, Status.CONNECTED)));
+		assertTrue(roster.endUpdate());
+
+		Set<ParticipantInfo> participants = roster.getParticipants();
+		assertEquals(2, participants.size());
+		assertEquals(Status.CONNECTED, getStatus(participants, alice));
+		assertEquals(Status.CONNECTED, getStatus(participants, carol));
+		assertEquals(-1, getStatus(participants, bob));
+	}
+
+	public void testDeletingAnUnknownUserIsNotAChange() {
+		roster.startUpdate(2, false);
+		assertNull(roster.remove(carol, Status.DEPARTED));
+		assertFalse(roster.endUpdate());
+		assertEquals(2, roster.getParticipants().size());
+	}
+
+	public void testFullDocumentRemovesTheUnlistedParticipants() {
+		roster.startUpdate(2, true);
+		roster.update(new ParticipantInfo(alice, Status.CONNECTED));
+		assertTrue(roster.endUpdate());
+		assertEquals(1, roster.getParticipants().size());
+		assertEquals(Status.CONNECTED, getStatus(roster.getParticipants(), alice));
+	}
+
+	public void testVersions() {
+		assertEquals(ConferenceRoster.VERSION_STALE, roster.checkVersion(1, false));
+		assertEquals(ConferenceRoster.VERSION_GAP, roster.checkVersion(3, false));
+		// Partial documents are ignored until the full document is received
+		assertEquals(ConferenceRoster.VERSION_STALE, roster.checkVersion(2, false));
+		assertEquals(ConferenceRoster.VERSION_OK, roster.checkVersion(5, true));
+		roster.startUpdate(5, true);
+		roster.endUpdate();
+		assertEquals(ConferenceRoster.VERSION_OK, roster.checkVersion(6, false));
+	}
+}
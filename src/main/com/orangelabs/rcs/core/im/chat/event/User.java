@@ -43,6 +43,8 @@ public class User {
 	private String disconnectionMethod = null;
 	
 	private String failureReason = null;
+
+	private boolean deleted = false;
 	
 	public User(String entity, boolean me) {
 		this.entity = entity;
@@ -72,6 +74,19 @@ public class User {
 	public void setDisplayName(String displayName) {
 		this.displayName = displayName;
 	}
+
+	/**
+	 * Is the user deleted from the conference by a partial document
+	 *
+	 * @return Boolean
+	 */
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
 	
 	public void setDisconnectionMethod(String method) {
 		this.disconnectionMethod = method;
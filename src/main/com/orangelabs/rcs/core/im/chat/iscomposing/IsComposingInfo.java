@@ -35,6 +35,11 @@ public class IsComposingInfo {
 	 * MIME type
 	 */
 	public static String MIME_TYPE = "application/im-iscomposing+xml";
+
+	/**
+	 * Refresh time of the active state sent to the remote (in seconds)
+	 */
+	public static final int REFRESH_TIME = 60;
 
 	/**
 	 * CRLF constant
@@ -123,7 +128,7 @@ public class IsComposingInfo {
                 .append("</state>").append(CRLF).append("<contenttype>")
                 .append(MimeType.TEXT_MESSAGE).append("</contenttype>").append(CRLF)
                 .append("<lastactive>").append(DateUtils.encodeDate(System.currentTimeMillis()))
-                .append("</lastactive>").append(CRLF).append("<refresh>60</refresh>").append(CRLF)
+                .append("</lastactive>").append(CRLF).append("<refresh>").append(REFRESH_TIME).append("</refresh>").append(CRLF)
                 .append("</isComposing>").toString();
     }
 }
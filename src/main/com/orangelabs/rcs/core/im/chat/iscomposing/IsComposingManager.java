@@ -26,29 +26,52 @@ import com.orangelabs.rcs.utils.logger.Logger;
 import org.xml.sax.InputSource;
 
 import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
 /**
  * Is Composing manager which manages "is composing" events as per RFC3994. It handles the
  * status (idle or active) of contact according to received messages and timers.
+ * <p>
+ * The listeners are only notified when the status of a contact changes. The expiration of
+ * the active status is tracked per contact on a timer shared by all the sessions: a refresh
+ * only pushes the deadline back. The local status is sent on changes only, and an active
+ * status is refreshed at most once per refresh interval.
  */
 public class IsComposingManager {
     /**
-     * Timer for expiration timeout
+     * Timer shared by all the sessions for the expiration of the active status
      */
-    private Timer timer = new Timer();
-    
-    /**
-     * Expiration timer task
-     */
-    private ExpirationTimer timerTask = null;
+    private static Timer sTimer;
 
     /**
      * Is-composing timeout (in seconds)
      */
     private int timeout = 120;
-    
+
+    /**
+     * Min interval between two active status sent (in milliseconds), shorter than the refresh
+     * time announced to the remote so that it does not expire the status in between
+     */
+    private static final long ACTIVE_REFRESH_INTERVAL = (IsComposingInfo.REFRESH_TIME - 10) * 1000L;
+
+    /**
+     * Expiration timer of the active contacts
+     */
+    private final Map<ContactId, ExpirationTimer> activeContacts = new HashMap<ContactId, ExpirationTimer>();
+
+    /**
+     * Local status sent to the remote
+     */
+    private boolean localStatus = false;
+
+    /**
+     * Time when the local active status has been sent
+     */
+    private long localActiveTime = 0L;
+
     /**
      * IM session
      */
@@ -67,6 +90,13 @@ public class IsComposingManager {
     public IsComposingManager(ChatSession session) {
     	this.session = session;
     }
+
+    private static synchronized Timer getTimer() {
+        if (sTimer == null) {
+            sTimer = new Timer(IsComposingManager.class.getSimpleName(), true);
+        }
+        return sTimer;
+    }
     
     /**
      * Receive is-composing event
@@ -81,26 +111,24 @@ public class IsComposingManager {
 			IsComposingParser parser = new IsComposingParser(input);
 			IsComposingInfo isComposingInfo = parser.getIsComposingInfo();
 			if ((isComposingInfo != null) && isComposingInfo.isStateActive()) {
-				// Send status message to "active"
-    	    	for(int j=0; j < session.getListeners().size(); j++) {
-    	    		((ChatSessionListener)session.getListeners().get(j)).handleIsComposingEvent(contact, true);
-				}
-				
-				// Start the expiration timer
+				// Start or push back the expiration timer
+				boolean changed;
 				if (isComposingInfo.getRefreshTime() != 0) {
-					startExpirationTimer(isComposingInfo.getRefreshTime(), contact);
+					changed = startExpirationTimer(isComposingInfo.getRefreshTime(), contact);
 				} else {
-					startExpirationTimer(timeout, contact);
+					changed = startExpirationTimer(timeout, contact);
+				}
+
+				// Send status message to "active"
+				if (changed) {
+					notifyListeners(contact, true);
 				}
 			} else {
-				// Send status message to "idle"
-    	    	for(int j=0; j < session.getListeners().size(); j++) {
-    	    		((ChatSessionListener)session.getListeners().get(j)).handleIsComposingEvent(contact, false);
+				// Stop the expiration timer and send status message to "idle"
+				if (stopExpirationTimer(contact)) {
+					notifyListeners(contact, false);
 				}
-
-				// Stop the expiration timer
-				stopExpirationTimer(contact);
-			}					
+			}
     	} catch(Exception e) {
     		if (logger.isActivated()) {
     			logger.error("Can't parse is-composing event", e);
@@ -117,51 +145,133 @@ public class IsComposingManager {
 	public void receiveIsComposingEvent(ContactId contact, boolean state) {
     	// We just received an instant message, so if composing info was active, it must
 		// be changed to idle. If it was already idle, no need to notify listener again
-    	for(int j=0; j < session.getListeners().size(); j++) {
-    		((ChatSessionListener)session.getListeners().get(j)).handleIsComposingEvent(contact, state);
+		if (stopExpirationTimer(contact) || state) {
+			notifyListeners(contact, state);
 		}
-				
-		// Stop the expiration timer
-		stopExpirationTimer(contact);
+    }
+
+    /**
+     * Update the local status and check if it shall be sent to the remote: a status is only
+     * sent when it changes, or to refresh an active status once per refresh interval.
+     *
+     * @param status Local status
+     * @return Returns true if the status shall be sent
+     */
+    public synchronized boolean updateLocalStatus(boolean status) {
+        long now = System.currentTimeMillis();
+        if (status) {
+            if (localStatus && now - localActiveTime < ACTIVE_REFRESH_INTERVAL) {
+                return false;
+            }
+            localActiveTime = now;
+        } else if (!localStatus) {
+            return false;
+        }
+        localStatus = status;
+        return true;
+    }
+
+    /**
+     * Reset the local status after a message has been sent, as the remote considers the
+     * sender of a message as idle (RFC3994)
+     */
+    public synchronized void resetLocalStatus() {
+        localStatus = false;
     }
    
     /**
-     * Start the expiration timer for a given contact
+     * Start the expiration timer for a given contact, or push it back if already started
      * 
      * @param duration Timer period
      * @param contact Contact identifier
+     * @return Returns true if the contact was idle
      */
-    public synchronized void startExpirationTimer(long duration, ContactId contact) {
-    	// Remove old timer
-		if (timerTask != null) {
-			timerTask.cancel();
-			timerTask = null;
-		}
-
-    	// Start timer
+    public synchronized boolean startExpirationTimer(long duration, ContactId contact) {
     	if (logger.isActivated()) {
     		logger.debug("Start is-composing timer for " + duration +  "s");
     	}
-    	timerTask = new ExpirationTimer(contact);
-    	timer = new Timer();
-    	timer.schedule(timerTask, duration*1000);
+    	long deadline = System.currentTimeMillis() + duration * 1000;
+    	ExpirationTimer timerTask = activeContacts.get(contact);
+    	boolean wasIdle = timerTask == null;
+    	if (timerTask != null && timerTask.deadline <= deadline) {
+    		// The task reschedules itself when it runs before the deadline
+    		timerTask.deadline = deadline;
+    		return false;
+    	}
+    	if (timerTask != null) {
+    		timerTask.cancel();
+    	}
+    	timerTask = new ExpirationTimer(contact, deadline);
+    	activeContacts.put(contact, timerTask);
+    	getTimer().schedule(timerTask, duration * 1000);
+    	return wasIdle;
     }
 
     /**
      * Stop the expiration timer for a given contact
      * 
      * @param contact Contact identifier
+     * @return Returns true if the contact was active
      */
-    public synchronized void stopExpirationTimer(ContactId contact) {
-    	// Stop timer
+    public synchronized boolean stopExpirationTimer(ContactId contact) {
+    	ExpirationTimer timerTask = activeContacts.remove(contact);
+    	if (timerTask == null) {
+    		return false;
+    	}
     	if (logger.isActivated()) {
     		logger.debug("Stop is-composing timer");
     	}
-    	
-        // TODO : stop timer for a given contact
-		if (timerTask != null) {
-			timerTask.cancel();
-			timerTask = null;
+    	timerTask.cancel();
+    	return true;
+    }
+
+    /**
+     * Stop the expiration timers of all the contacts, without notifying the listeners. It
+     * is called when the session is closed.
+     */
+    public synchronized void stop() {
+    	if (activeContacts.isEmpty()) {
+    		return;
+    	}
+    	for (ExpirationTimer timerTask : activeContacts.values()) {
+    		timerTask.cancel();
+    	}
+    	activeContacts.clear();
+    	// Release the session held by the cancelled tasks
+    	getTimer().purge();
+    }
+
+    /**
+     * Expire the active status of a contact unless it has been refreshed
+     *
+     * @param timerTask Expiration timer of the contact
+     * @return Returns true if the contact is now idle
+     */
+    private synchronized boolean expire(ExpirationTimer timerTask) {
+    	if (activeContacts.get(timerTask.contact) != timerTask) {
+    		return false;
+    	}
+    	long delay = timerTask.deadline - System.currentTimeMillis();
+    	if (delay > 0) {
+    		// Refreshed in the meantime
+    		ExpirationTimer newTask = new ExpirationTimer(timerTask.contact, timerTask.deadline);
+    		activeContacts.put(timerTask.contact, newTask);
+    		getTimer().schedule(newTask, delay);
+    		return false;
+    	}
+    	activeContacts.remove(timerTask.contact);
+    	return true;
+    }
+
+    /**
+     * Notify the listeners of the session of the status of a contact
+     *
+     * @param contact Contact identifier
+     * @param status Status
+     */
+    private void notifyListeners(ContactId contact, boolean status) {
+    	for(int j=0; j < session.getListeners().size(); j++) {
+    		((ChatSessionListener)session.getListeners().get(j)).handleIsComposingEvent(contact, status);
 		}
     }
     
@@ -170,20 +280,31 @@ public class IsComposingManager {
      */
     private class ExpirationTimer extends TimerTask {
     	
-    	private ContactId contact;
+    	private final ContactId contact;
+
+    	private long deadline;
     	
-    	public ExpirationTimer(ContactId contact){
+    	public ExpirationTimer(ContactId contact, long deadline){
     		this.contact = contact;
+    		this.deadline = deadline;
     	}
     	
         public void run() {
+        	if (!expire(this)) {
+        		return;
+        	}
         	if (logger.isActivated()){
         		logger.debug("Is-composing timer has expired: " + contact + " is now considered idle");
         	}
         	
 			// Send status message to "idle"
-	    	for(int j=0; j < session.getListeners().size(); j++) {
-	    		((ChatSessionListener)session.getListeners().get(j)).handleIsComposingEvent(contact, false);
+			try {
+				notifyListeners(contact, false);
+			} catch (RuntimeException e) {
+				// The shared timer thread shall survive a failing listener
+				if (logger.isActivated()) {
+					logger.error("Can't notify the is-composing expiration", e);
+				}
 			}
         }
     }    
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2014 Sony Mobile Communications Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.orangelabs.rcs.core.im.chat.standfw;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.orangelabs.rcs.core.im.chat.ChatMessage;
+import com.orangelabs.rcs.utils.logger.Logger;
+
+/**
+ * Bookkeeping of the stored messages replayed in batches by the terminating
+ * store & forward session.
+ * <p>
+ * Messages received twice are dropped. The delivery report of a message is
+ * held back until its batch is persisted, and a batch which fails to persist
+ * is not acknowledged. The object itself is the lock of the replay state.
+ */
+abstract class StoredMessageReplay {
+	/**
+	 * Max number of stored messages replayed in a batch
+	 */
+	private final int mBatchSize;
+
+	/**
+	 * IDs of the messages received by the session
+	 */
+	private final Set<String> mReceivedIds = new HashSet<String>();
+
+	/**
+	 * Messages received but not persisted yet
+	 */
+	private final Map<String, StoredMessage> mPendingMessages = new HashMap<String, StoredMessage>();
+
+	/**
+	 * Number of messages waiting to be replayed
+	 */
+	private int mQueuedCount = 0;
+
+	/**
+	 * The logger
+	 */
+	private static final Logger logger = Logger.getLogger(StoredMessageReplay.class.getSimpleName());
+
+	/**
+	 * Stored message waiting to be replayed, with its report requests
+	 */
+	static class StoredMessage {
+		final ChatMessage mMsg;
+
+		final boolean mDisplayReportRequested;
+
+		/**
+		 * Set under the lock of the replay state
+		 */
+		boolean mDeliveryReportRequested = false;
+
+		StoredMessage(ChatMessage msg, boolean displayReportRequested) {
+			mMsg = msg;
+			mDisplayReportRequested = displayReportRequested;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param batchSize Max number of stored messages replayed in a batch
+	 */
+	StoredMessageReplay(int batchSize) {
+		mBatchSize = batchSize;
+	}
+
+	/**
+	 * Queue a stored message for replay. It is called under the lock of the
+	 * replay state, so that a batch never misses its bookkeeping.
+	 *
+	 * @param msgId Message ID
+	 * @param storedMsg Stored message
+	 */
+	abstract void queue(String msgId, StoredMessage storedMsg);
+
+	/**
+	 * Returns the IDs of the messages already persisted
+	 *
+	 * @param msgIds Message IDs
+	 * @return Persisted message IDs
+	 */
+	abstract Set<String> getPersistedMessageIds(List<String> msgIds);
+
+	/**
+	 * Persist and notify new messages
+	 *
+	 * @param msgs New messages in the order they were received
+	 * @param displayReportRequestedIds IDs of the messages requesting a display report
+	 */
+	abstract void deliver(List<ChatMessage> msgs, Set<String> displayReportRequestedIds);
+
+	/**
+	 * Send the delivery report of a persisted message
+	 *
+	 * @param msgId Message ID
+	 */
+	abstract void sendDeliveryReport(String msgId);
+
+	/**
+	 * Receive a stored message
+	 *
+	 * @param msg Message
+	 * @param displayReportRequested True if a display report is requested
+	 * @return Returns true if the batch is full and shall be replayed now
+	 */
+	synchronized boolean receive(ChatMessage msg, boolean displayReportRequested) {
+		String msgId = msg.getMessageId();
+		if (!mReceivedIds.add(msgId)) {
+			if (logger.isActivated()) {
+				logger.debug("Drop stored message " + msgId + " already received");
+			}
+			return false;
+		}
+		StoredMessage storedMsg = new StoredMessage(msg, displayReportRequested);
+		mPendingMessages.put(msgId, storedMsg);
+		queue(msgId, storedMsg);
+		return ++mQueuedCount >= mBatchSize;
+	}
+
+	/**
+	 * Hold back the delivery report of a message until it is persisted
+	 *
+	 * @param msgId Message ID
+	 * @return Returns true if the report is held back, false if it may be sent now
+	 */
+	synchronized boolean deferDeliveryReport(String msgId) {
+		StoredMessage storedMsg = mPendingMessages.get(msgId);
+		if (storedMsg == null) {
+			return false;
+		}
+		storedMsg.mDeliveryReportRequested = true;
+		return true;
+	}
+
+	/**
+	 * Replay a batch of stored messages
+	 *
+	 * @param storedMsgs Messages in the order they were received
+	 */
+	void replay(List<StoredMessage> storedMsgs) {
+		List<ChatMessage> msgs = new ArrayList<ChatMessage>(storedMsgs.size());
+		List<String> msgIds = new ArrayList<String>(storedMsgs.size());
+		Set<String> displayReportRequestedIds = new HashSet<String>();
+		for (StoredMessage storedMsg : storedMsgs) {
+			String msgId = storedMsg.mMsg.getMessageId();
+			msgs.add(storedMsg.mMsg);
+			msgIds.add(msgId);
+			if (storedMsg.mDisplayReportRequested) {
+				displayReportRequestedIds.add(msgId);
+			}
+		}
+		synchronized (this) {
+			mQueuedCount -= storedMsgs.size();
+		}
+		boolean persisted = false;
+		try {
+			// Drop the messages already received by a previous session
+			Set<String> persistedIds = getPersistedMessageIds(msgIds);
+			List<ChatMessage> newMsgs = new ArrayList<ChatMessage>(msgs.size());
+			for (ChatMessage msg : msgs) {
+				if (!persistedIds.contains(msg.getMessageId())) {
+					newMsgs.add(msg);
+				}
+			}
+			if (logger.isActivated()) {
+				logger.debug("Replay " + newMsgs.size() + " stored messages out of " + msgs.size());
+			}
+			if (!newMsgs.isEmpty()) {
+				deliver(newMsgs, displayReportRequestedIds);
+			}
+			persisted = true;
+		} catch (RuntimeException e) {
+			if (logger.isActivated()) {
+				logger.error("Can't replay stored messages", e);
+			}
+		}
+		List<String> deliveryReportRequestedIds = new ArrayList<String>();
+		synchronized (this) {
+			for (StoredMessage storedMsg : storedMsgs) {
+				String msgId = storedMsg.mMsg.getMessageId();
+				mPendingMessages.remove(msgId);
+				if (!persisted) {
+					/*
+					 * Not acknowledged: the network keeps the message. It is
+					 * forgotten so that it is accepted if pushed again.
+					 */
+					mReceivedIds.remove(msgId);
+				} else if (storedMsg.mDeliveryReportRequested) {
+					deliveryReportRequestedIds.add(msgId);
+				}
+			}
+		}
+		for (String msgId : deliveryReportRequestedIds) {
+			sendDeliveryReport(msgId);
+		}
+	}
+}
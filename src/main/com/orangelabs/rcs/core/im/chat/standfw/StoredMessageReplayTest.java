@@ -0,0 +1,156 @@
+package com.orangelabs.rcs.core.im.chat.standfw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.orangelabs.rcs.core.im.chat.ChatMessage;
+import com.orangelabs.rcs.core.im.chat.standfw.StoredMessageReplay.StoredMessage;
+
+public class StoredMessageReplayTest extends TestCase {
+
+	private TestReplay replay;
+
+	@Override
+	protected void setUp() {
+		replay = new TestReplay(3);
+	}
+
+	public void testMessageReceivedTwiceIsDropped() {
+		assertFalse(replay.receive(message("1"), false));
+		assertFalse(replay.receive(message("1"), false));
+		assertEquals(1, replay.queued.size());
+	}
+
+	public void testBatchFull() {
+		assertFalse(replay.receive(message("1"), false));
+		assertFalse(replay.receive(message("2"), false));
+		assertTrue(replay.receive(message("3"), false));
+		replay.replayQueued();
+		// The count restarts with the next batch
+		assertFalse(replay.receive(message("4"), false));
+	}
+
+	public void testMessagePersistedByPreviousSessionIsDropped() {
+		replay.persistedIds.add("2");
+		replay.receive(message("1"), true);
+		replay.receive(message("2"), true);
+		replay.receive(message("3"), false);
+		replay.replayQueued();
+		assertEquals(1, replay.delivered.size());
+		assertEquals(Arrays.asList("1", "3"), getIds(replay.delivered.get(0)));
+		assertTrue(replay.displayReportRequestedIds.contains("1"));
+		assertFalse(replay.displayReportRequestedIds.contains("3"));
+	}
+
+	public void testBatchOfPersistedMessagesIsNotDelivered() {
+		replay.persistedIds.add("1");
+		replay.receive(message("1"), false);
+		assertTrue(replay.deferDeliveryReport("1"));
+		replay.replayQueued();
+		assertTrue(replay.delivered.isEmpty());
+		// Acknowledged again since the network pushed it again
+		assertEquals(Arrays.asList("1"), replay.deliveryReports);
+	}
+
+	public void testDeliveryReportIsDeferredUntilPersisted() {
+		replay.receive(message("1"), false);
+		replay.receive(message("2"), false);
+		assertTrue(replay.deferDeliveryReport("1"));
+		assertTrue(replay.deliveryReports.isEmpty());
+		replay.replayQueued();
+		assertEquals(Arrays.asList("1"), replay.deliveryReports);
+		// Once persisted a report is not deferred anymore
+		assertFalse(replay.deferDeliveryReport("1"));
+		assertFalse(replay.deferDeliveryReport("unknown"));
+	}
+
+	public void testFailedBatchIsNotAcknowledged() {
+		replay.failure = true;
+		replay.receive(message("1"), false);
+		assertTrue(replay.deferDeliveryReport("1"));
+		replay.replayQueued();
+		assertTrue(replay.deliveryReports.isEmpty());
+
+		// The message is accepted when the network pushes it again
+		replay.failure = false;
+		replay.receive(message("1"), false);
+		assertTrue(replay.deferDeliveryReport("1"));
+		replay.replayQueued();
+		assertEquals(1, replay.delivered.size());
+		assertEquals(Arrays.asList("1"), replay.deliveryReports);
+	}
+
+	public void testMessageReceivedAfterReplayIsDropped() {
+		replay.receive(message("1"), false);
+		replay.replayQueued();
+		replay.receive(message("1"), false);
+		assertTrue(replay.queued.isEmpty());
+	}
+
+	private static ChatMessage message(String msgId) {
+		return new ChatMessage(msgId, null, "Hello", "text/plain", null, null);
+	}
+
+	private static List<String> getIds(List<ChatMessage> msgs) {
+		List<String> msgIds = new ArrayList<String>();
+		for (ChatMessage msg : msgs) {
+			msgIds.add(msg.getMessageId());
+		}
+		return msgIds;
+	}
+
+	private static class TestReplay extends StoredMessageReplay {
+		final List<StoredMessage> queued = new ArrayList<StoredMessage>();
+
+		final Set<String> persistedIds = new HashSet<String>();
+
+		final List<List<ChatMessage>> delivered = new ArrayList<List<ChatMessage>>();
+
+		final Set<String> displayReportRequestedIds = new HashSet<String>();
+
+		final List<String> deliveryReports = new ArrayList<String>();
+
+		boolean failure = false;
+
+		TestReplay(int batchSize) {
+			super(batchSize);
+		}
+
+		void replayQueued() {
+			List<StoredMessage> batch = new ArrayList<StoredMessage>(queued);
+			queued.clear();
+			replay(batch);
+		}
+
+		@Override
+		void queue(String msgId, StoredMessage storedMsg) {
+			queued.add(storedMsg);
+		}
+
+		@Override
+		Set<String> getPersistedMessageIds(List<String> msgIds) {
+			Set<String> ids = new HashSet<String>(msgIds);
+			ids.retainAll(persistedIds);
+			return ids;
+		}
+
+		@Override
+		void deliver(List<ChatMessage> msgs, Set<String> displayReportRequestedIds) {
+			if (failure) {
+				throw new IllegalStateException("Database failure");
+			}
+			delivered.add(msgs);
+			this.displayReportRequestedIds.addAll(displayReportRequestedIds);
+		}
+
+		@Override
+		void sendDeliveryReport(String msgId) {
+			deliveryReports.add(msgId);
+		}
+	}
+}
@@ -24,8 +24,13 @@ package com.orangelabs.rcs.core.im.chat.standfw;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.Vector;
 
+import android.os.Handler;
+import android.os.HandlerThread;
+
 import com.gsma.services.rcs.contacts.ContactId;
 import com.orangelabs.rcs.core.ImsService;
 import com.orangelabs.rcs.core.ImsServiceSession;
@@ -33,10 +38,12 @@ import com.orangelabs.rcs.core.ImsSessionListener;
 import com.orangelabs.rcs.core.SessionTimerManager;
 import com.orangelabs.rcs.core.im.InstantMessagingService;
 import com.orangelabs.rcs.core.im.chat.ChatError;
+import com.orangelabs.rcs.core.im.chat.ChatMessage;
 import com.orangelabs.rcs.core.im.chat.ChatSessionListener;
 import com.orangelabs.rcs.core.im.chat.ChatUtils;
 import com.orangelabs.rcs.core.im.chat.OneToOneChatSession;
 import com.orangelabs.rcs.core.im.chat.imdn.ImdnDocument;
+import com.orangelabs.rcs.core.im.chat.standfw.StoredMessageReplay.StoredMessage;
 import com.orangelabs.rcs.core.im.filetransfer.FileTransferUtils;
 import com.orangelabs.rcs.protocol.msrp.MsrpEventListener;
 import com.orangelabs.rcs.protocol.msrp.MsrpSession;
@@ -48,7 +55,9 @@ import com.orangelabs.rcs.protocol.sip.SipUtils;
 import com.orangelabs.rcs.protocol.sip.SipRequest;
 import com.orangelabs.rcs.protocol.sip.SipResponse;
 import com.orangelabs.rcs.protocol.sip.SipTransactionContext;
+import com.orangelabs.rcs.provider.messaging.MessagingLog;
 import com.orangelabs.rcs.provider.settings.RcsSettings;
+import com.orangelabs.rcs.service.broadcaster.EventCoalescer;
 import com.orangelabs.rcs.utils.PhoneUtils;
 
 import static com.orangelabs.rcs.utils.StringUtils.UTF8;
@@ -57,10 +66,68 @@ import com.orangelabs.rcs.utils.logger.Logger;
 
 /**
  * Terminating Store & Forward session for messages
+ * <p>
+ * The stored messages pushed by the network are replayed in batches: a batch
+ * is persisted in a single transaction and notified at once, then the
+ * delivery reports of its messages are sent. Messages received twice are
+ * dropped.
  * 
  * @author jexa7410
  */
 public class TerminatingStoreAndForwardMsgSession extends OneToOneChatSession implements MsrpEventListener {
+	/**
+	 * Max number of stored messages replayed in a batch
+	 */
+	private static final int REPLAY_BATCH_SIZE = 50;
+
+	/**
+	 * Max delay in milliseconds before a stored message is replayed
+	 */
+	private static final long REPLAY_BATCH_DELAY = 300;
+
+	/**
+	 * Messages waiting to be replayed, started with the first message
+	 */
+	private EventCoalescer<String, StoredMessage> mReplay;
+
+	/**
+	 * Thread replaying the messages, as persisting them is too slow for the
+	 * thread shared by the broadcasters
+	 */
+	private HandlerThread mReplayThread;
+
+	/**
+	 * Bookkeeping of the replayed messages, also the lock of the replay state
+	 */
+	private final StoredMessageReplay mStoredMessages = new StoredMessageReplay(REPLAY_BATCH_SIZE) {
+		@Override
+		void queue(String msgId, StoredMessage storedMsg) {
+			getReplay().post(msgId, storedMsg);
+		}
+
+		@Override
+		Set<String> getPersistedMessageIds(List<String> msgIds) {
+			return MessagingLog.getInstance().getPersistedMessageIds(msgIds);
+		}
+
+		@Override
+		void deliver(List<ChatMessage> msgs, Set<String> displayReportRequestedIds) {
+			// Is composing event is reset
+			getIsComposingManager().receiveIsComposingEvent(getRemoteContact(), false);
+
+			for (ImsSessionListener listener : getListeners()) {
+				((ChatSessionListener)listener).handleReceiveMessages(msgs,
+						displayReportRequestedIds);
+			}
+		}
+
+		@Override
+		void sendDeliveryReport(String msgId) {
+			TerminatingStoreAndForwardMsgSession.super.sendMsrpMessageDeliveryStatus(null, msgId,
+					ImdnDocument.DELIVERY_STATUS_DELIVERED);
+		}
+	};
+
 	/**
      * The logger
      */
@@ -360,6 +427,69 @@ public class TerminatingStoreAndForwardMsgSession extends OneToOneChatSession im
 		}
 	}
 	
+	@Override
+	protected void receive(ChatMessage msg, boolean imdnDisplayedRequested) {
+		if (mStoredMessages.receive(msg, imdnDisplayedRequested)) {
+			EventCoalescer<String, StoredMessage> replay;
+			synchronized (mStoredMessages) {
+				replay = mReplay;
+			}
+			replay.flush();
+		}
+	}
+
+	/**
+	 * Returns the replay queue, started with the first message. It shall be
+	 * called under the lock of the replay state.
+	 *
+	 * @return Replay queue
+	 */
+	private EventCoalescer<String, StoredMessage> getReplay() {
+		if (mReplay == null) {
+			mReplayThread = new HandlerThread(TerminatingStoreAndForwardMsgSession.class.getSimpleName());
+			mReplayThread.start();
+			mReplay = new EventCoalescer<String, StoredMessage>(
+					new EventCoalescer.Dispatcher<StoredMessage>() {
+						@Override
+						public void dispatch(List<StoredMessage> storedMsgs) {
+							mStoredMessages.replay(storedMsgs);
+						}
+					}, REPLAY_BATCH_DELAY, new Handler(mReplayThread.getLooper()));
+		}
+		return mReplay;
+	}
+
+	@Override
+	public void sendMsrpMessageDeliveryStatus(ContactId contact, String msgId, String status) {
+		if (ImdnDocument.DELIVERY_STATUS_DELIVERED.equals(status)
+				&& mStoredMessages.deferDeliveryReport(msgId)) {
+			// Reported once the message is persisted
+			return;
+		}
+		super.sendMsrpMessageDeliveryStatus(contact, msgId, status);
+	}
+
+	@Override
+	public void closeMediaSession() {
+		EventCoalescer<String, StoredMessage> replay;
+		HandlerThread replayThread;
+		synchronized (mStoredMessages) {
+			replay = mReplay;
+			replayThread = mReplayThread;
+		}
+		if (replay == null) {
+			super.closeMediaSession();
+			return;
+		}
+		// Replay the last batch while its delivery reports may still be sent
+		replay.flush();
+		super.closeMediaSession();
+
+		// Persist the messages received meanwhile, they are acknowledged in a later session
+		replay.flush();
+		replayThread.quit();
+	}
+
     @Override
     public String getSdpDirection() {
         return SdpUtils.DIRECTION_RECVONLY;
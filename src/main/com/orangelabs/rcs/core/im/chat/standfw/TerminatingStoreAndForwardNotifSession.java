@@ -23,6 +23,8 @@
 package com.orangelabs.rcs.core.im.chat.standfw;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.Vector;
 
 import com.gsma.services.rcs.RcsContactFormatException;
@@ -68,6 +70,11 @@ public class TerminatingStoreAndForwardNotifSession extends OneToOneChatSession
 	 */
 	private MsrpManager msrpMgr = null;
 
+	/**
+	 * Delivery reports received by this session, by message ID and status
+	 */
+	private final Set<String> mReceivedReports = new HashSet<String>();
+
 	/**
      * The logger
      */
@@ -403,6 +410,12 @@ public class TerminatingStoreAndForwardNotifSession extends OneToOneChatSession
             if (imdn == null) {
                 return;
             }
+            synchronized (mReceivedReports) {
+                if (!mReceivedReports.add(imdn.getMsgId() + '/' + imdn.getStatus())) {
+                    // Same report pushed again by the store & forward server
+                    return;
+                }
+            }
 
             boolean isFileTransfer = MessagingLog.getInstance().isFileTransfer(imdn.getMsgId());
             if (isFileTransfer) {
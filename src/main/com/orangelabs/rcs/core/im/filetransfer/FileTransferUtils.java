@@ -25,13 +25,15 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.xml.sax.InputSource;
 
+import android.content.ContentResolver;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.CompressFormat;
 import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
 import android.net.Uri;
 
 import com.orangelabs.rcs.core.content.ContentManager;
@@ -67,6 +69,44 @@ public class FileTransferUtils {
 	 */
 	private static final Logger logger = Logger.getLogger(FileTransferUtils.class.getName());
 
+	/**
+	 * Max size in bytes of a file icon
+	 */
+	private static final int FILEICON_MAX_SIZE = 10 * 1024;
+
+	/**
+	 * Max width and height in pixels of a file icon
+	 */
+	private static final int FILEICON_MAX_DIMENSION = 200;
+
+	/**
+	 * Max JPEG quality of a file icon
+	 */
+	private static final int FILEICON_MAX_QUALITY = 90;
+
+	/**
+	 * Min JPEG quality of a file icon
+	 */
+	private static final int FILEICON_MIN_QUALITY = 10;
+
+	/**
+	 * Number of file icons kept in cache
+	 */
+	private static final int FILEICON_CACHE_SIZE = 8;
+
+	/**
+	 * Cache of the last file icons, by image Uri and size
+	 */
+	private static final Map<String, byte[]> sFileIconCache = new LinkedHashMap<String, byte[]>(
+			FILEICON_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+			return size() > FILEICON_CACHE_SIZE;
+		}
+	};
+
 	/**
 	 * Is a file transfer HTTP event type
 	 *
@@ -81,6 +121,12 @@ public class FileTransferUtils {
 
 	/**
 	 * Create a content of fileIcon from a file
+	 * <p>
+	 * The image is decoded with a sample size fitting the icon dimension, so
+	 * that a large picture is never decoded at full resolution, then the
+	 * highest JPEG quality under the size limit is searched. The compressed
+	 * icons are cached by image so that sending the same image again does
+	 * not decode it again.
 	 *
 	 * @param file
 	 *            Uri of the image
@@ -89,44 +135,26 @@ public class FileTransferUtils {
 	 * @return the content of the file icon
 	 */
 	public static MmContent createFileicon(Uri file, String fileIconId) {
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		InputStream in = null;
 		try {
-			in = AndroidFactory.getApplicationContext().getContentResolver().openInputStream(file);
-			Bitmap bitmap = BitmapFactory.decodeStream(in);
-			if (bitmap == null) {
-				if (logger.isActivated()) {
-					logger.warn("Cannot decode image " + file);
-				}
-				return null;
-			}
-			int width = bitmap.getWidth();
-			int height = bitmap.getHeight();
-
 			long size = FileUtils.getFileSize(AndroidFactory.getApplicationContext(), file);
-			// Resize the bitmap
-			float scale = 0.05f;
-			Matrix matrix = new Matrix();
-			matrix.postScale(scale, scale);
-
-			// Recreate the new bitmap
-			Bitmap resizedBitmap = Bitmap.createBitmap(bitmap, 0, 0, width, height, matrix, true);
-
-			// Compress the file to be under the limit (10KBytes)
-			int quality = 90;
-			int maxSize = 1024 * 10;
-			while (size > maxSize) {
-				out = new ByteArrayOutputStream();
-				resizedBitmap.compress(CompressFormat.JPEG, quality, out);
-				out.flush();
-				out.close();
-				size = out.size();
-				quality -= 10;
+			String cacheKey = file.toString() + '#' + size;
+			byte[] fileIconData;
+			synchronized (sFileIconCache) {
+				fileIconData = sFileIconCache.get(cacheKey);
+			}
+			if (fileIconData == null) {
+				fileIconData = compressFileicon(file);
+				if (fileIconData == null) {
+					return null;
+				}
+				synchronized (sFileIconCache) {
+					sFileIconCache.put(cacheKey, fileIconData);
+				}
+			} else if (logger.isActivated()) {
+				logger.debug("Reuse icon of image " + file);
 			}
 			// Create fileIcon URL
 			String fileIconName = buildFileiconUrl(fileIconId, "image/jpeg");
-			// Get the fileIcon data
-			byte[] fileIconData = out.toByteArray();
 
 			// Generate fileIcon content
 			Uri fileIconUri = ContentManager.generateUriForReceivedContent(fileIconName, "image/jpeg");
@@ -145,9 +173,109 @@ public class FileTransferUtils {
 				logger.error(e.getMessage(), e);
 			}
 			return null;
+		}
+	}
+
+	/**
+	 * Decode an image at the dimension of a file icon and compress it as JPEG
+	 * under the size limit of a file icon
+	 *
+	 * @param file
+	 *            Uri of the image
+	 * @return the JPEG data or null if the image cannot be decoded
+	 * @throws IOException
+	 */
+	private static byte[] compressFileicon(Uri file) throws IOException {
+		ContentResolver resolver = AndroidFactory.getApplicationContext().getContentResolver();
+
+		// Read the dimension of the image without decoding it
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		InputStream in = null;
+		try {
+			in = resolver.openInputStream(file);
+			BitmapFactory.decodeStream(in, null, options);
+		} finally {
+			CloseableUtils.close(in);
+		}
+		int width = options.outWidth;
+		int height = options.outHeight;
+		if (width <= 0 || height <= 0) {
+			if (logger.isActivated()) {
+				logger.warn("Cannot decode image " + file);
+			}
+			return null;
+		}
+
+		// Decode with the largest power of 2 sample size keeping the image
+		// larger than the icon
+		int maxDimension = Math.max(width, height);
+		int sampleSize = 1;
+		while (maxDimension / (sampleSize * 2) >= FILEICON_MAX_DIMENSION) {
+			sampleSize *= 2;
+		}
+		options = new BitmapFactory.Options();
+		options.inSampleSize = sampleSize;
+		Bitmap bitmap;
+		try {
+			in = resolver.openInputStream(file);
+			bitmap = BitmapFactory.decodeStream(in, null, options);
 		} finally {
 			CloseableUtils.close(in);
 		}
+		if (bitmap == null) {
+			if (logger.isActivated()) {
+				logger.warn("Cannot decode image " + file);
+			}
+			return null;
+		}
+
+		// Resize the bitmap to the icon dimension
+		width = bitmap.getWidth();
+		height = bitmap.getHeight();
+		maxDimension = Math.max(width, height);
+		if (maxDimension > FILEICON_MAX_DIMENSION) {
+			float scale = (float) FILEICON_MAX_DIMENSION / maxDimension;
+			Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap,
+					Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+			if (resizedBitmap != bitmap) {
+				bitmap.recycle();
+				bitmap = resizedBitmap;
+			}
+		}
+
+		try {
+			// Compress the bitmap to be under the limit: the max quality is
+			// tried first, then the highest quality under the limit is searched
+			ByteArrayOutputStream out = new ByteArrayOutputStream(FILEICON_MAX_SIZE);
+			bitmap.compress(CompressFormat.JPEG, FILEICON_MAX_QUALITY, out);
+			if (out.size() <= FILEICON_MAX_SIZE) {
+				return out.toByteArray();
+			}
+			byte[] data = null;
+			int low = FILEICON_MIN_QUALITY;
+			int high = FILEICON_MAX_QUALITY - 1;
+			while (low <= high) {
+				int quality = (low + high) >>> 1;
+				out.reset();
+				bitmap.compress(CompressFormat.JPEG, quality, out);
+				if (out.size() <= FILEICON_MAX_SIZE) {
+					data = out.toByteArray();
+					low = quality + 1;
+				} else {
+					high = quality - 1;
+				}
+			}
+			if (data == null) {
+				// Even the min quality exceeds the limit: keep it anyway
+				out.reset();
+				bitmap.compress(CompressFormat.JPEG, FILEICON_MIN_QUALITY, out);
+				data = out.toByteArray();
+			}
+			return data;
+		} finally {
+			bitmap.recycle();
+		}
 	}
 
 	/**
@@ -17,16 +17,18 @@
  ******************************************************************************/
 package com.orangelabs.rcs.core.im.filetransfer.http;
 
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import com.orangelabs.rcs.platform.network.TlsContextManager;
+
 /**
  * SSL Factory created for file tranfer
  * 
@@ -34,35 +36,47 @@ import javax.net.ssl.X509TrustManager;
  */
 public class FileTransSSLFactory {
 
-    static private SSLContext sslcontext = null;
-    
-    
-    static
-    {
-    	try {
-    		sslcontext = SSLContext.getInstance("TLS");
-		} catch (NoSuchAlgorithmException e) {
-			sslcontext = null;
-		}
-    }
-    
+    /**
+     * Key of the context in the TLS context pool
+     */
+    private static final String CONTEXT_KEY = "ft:trust-all";
+
     /**
      * Get a SSL context generated with a trust all manager
+     * <p>
+     * The context is initialized once and shared by the transfers, so that
+     * the TLS sessions with the content server are resumed.
      *
-     * @return SSLContext
-     * @return XML result or null if fails
+     * @return SSLContext or null if fails
      */
     static public SSLContext getFileTransferSSLContext()
     {
     	try {
-			sslcontext.init(null, new TrustManager[]{ new AllTrustManager()}, new SecureRandom());
-		} catch (KeyManagementException e) {
-			return null;
-		} catch (NullPointerException e) {
+			return TlsContextManager.getContext(CONTEXT_KEY, new TlsContextManager.ContextFactory() {
+				@Override
+				public SSLContext createContext() throws GeneralSecurityException {
+					SSLContext sslcontext = SSLContext.getInstance("TLS");
+					sslcontext.init(null, new TrustManager[]{ new AllTrustManager()}, new SecureRandom());
+					return sslcontext;
+				}
+			});
+		} catch (Exception e) {
 			return null;
 		}
-	
-		return sslcontext;
+    }
+
+    /**
+     * Get a SSL socket factory of the file transfer SSL context
+     *
+     * @return SSLSocketFactory or null if fails
+     */
+    static public SSLSocketFactory getFileTransferSocketFactory()
+    {
+    	SSLContext sslcontext = getFileTransferSSLContext();
+    	if (sslcontext == null) {
+    		return null;
+    	}
+    	return TlsContextManager.getSocketFactory(sslcontext);
     }
     
     public static class AllTrustManager implements X509TrustManager {
@@ -21,8 +21,10 @@
  ******************************************************************************/
 package com.orangelabs.rcs.core.im.filetransfer.http;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.gsma.services.rcs.RcsCommon.Direction;
@@ -36,12 +38,38 @@ import com.orangelabs.rcs.provider.messaging.FtHttpResume;
 import com.orangelabs.rcs.provider.messaging.FtHttpResumeDownload;
 import com.orangelabs.rcs.provider.messaging.FtHttpResumeUpload;
 import com.orangelabs.rcs.provider.messaging.MessagingLog;
+import com.orangelabs.rcs.provider.settings.RcsSettings;
 import com.orangelabs.rcs.utils.logger.Logger;
 
 /**
  * File Transfer HTTP resume manager
+ * <p>
+ * Pending sessions are resumed by order of priority, then in favor of the
+ * contacts having the fewest sessions running, then by order of arrival.
+ * Uploads and downloads have their own pool of slots so that a backlog in
+ * one direction does not delay the other one. A resume requested by the
+ * user does not wait for a slot.
+ * <p>
+ * Only the resumes go through this manager: new transfers are still
+ * admitted by {@link InstantMessagingService#isMaxConcurrentOutgoingFileTransfersReached()}.
  */
 public class FtHttpResumeManager {
+	/**
+	 * Priority of a resume explicitly requested by the user
+	 */
+	public static final int PRIORITY_USER = 0;
+
+	/**
+	 * Priority of a resume of an incoming transfer which is accepted on
+	 * behalf of the user (auto-accept)
+	 */
+	public static final int PRIORITY_AUTO_ACCEPT = 1;
+
+	/**
+	 * Priority of a resume triggered by the system
+	 */
+	public static final int PRIORITY_SYSTEM = 2;
+
 	/**
 	 * Interface to get access to the FtHttp table
 	 */
@@ -53,31 +81,77 @@ public class FtHttpResumeManager {
 	private InstantMessagingService imsService;
 
 	/**
-	 * List of pending sessions to resume
+	 * Pending sessions to resume
+	 */
+	private final List<PendingResume> pendingResumes = new ArrayList<PendingResume>();
+
+	/**
+	 * Arrival counter of pending sessions
 	 */
-	private LinkedList<FtHttpResume> listOfFtHttpResume;
+	private long arrivalCounter = 0;
 
 	/**
-	 * FT HTTP session being resumed
+	 * Max number of downloads resumed in parallel
 	 */
-	private FtHttpResume ftHttpResume;
+	private int maxDownloads;
+
+	/**
+	 * Max number of uploads resumed in parallel
+	 */
+	private int maxUploads;
+
+	/**
+	 * Number of downloads being resumed
+	 */
+	private int runningDownloads = 0;
+
+	/**
+	 * Number of uploads being resumed
+	 */
+	private int runningUploads = 0;
+
+	/**
+	 * Number of sessions being resumed per contact (or per group chat)
+	 */
+	private final Map<String, Integer> runningByOwner = new HashMap<String, Integer>();
 
 	/**
 	 * The logger
 	 */
 	private static final Logger logger = Logger.getLogger(FtHttpResumeManager.class.getSimpleName());
 
-	private boolean terminate = false; // TODO
+	private boolean terminate = false;
+
+	/**
+	 * Pending session to resume
+	 */
+	private static class PendingResume {
+		final FtHttpResume resume;
+
+		final String owner;
+
+		int priority;
+
+		final long order;
+
+		PendingResume(FtHttpResume resume, int priority, long order) {
+			this.resume = resume;
+			this.owner = resume.isGroup() ? resume.getChatId() : String.valueOf(resume
+					.getContact());
+			this.priority = priority;
+			this.order = order;
+		}
+	}
 
 	/**
 	 * Constructor
-	 * 
+	 *
 	 * @param imsService
 	 *            IMS service
 	 */
 	public FtHttpResumeManager(InstantMessagingService instantMessagingService) {
 		dao = MessagingLog.getInstance();
-		
+
 		if (dao == null) {
 			if (logger.isActivated()) {
 				logger.error("Cannot resume FT");
@@ -85,6 +159,9 @@ public class FtHttpResumeManager {
 			return;
 		}
 		imsService = instantMessagingService;
+		RcsSettings settings = RcsSettings.getInstance();
+		maxDownloads = Math.max(1, settings.getMaxConcurrentFtHttpResumeDownloads());
+		maxUploads = Math.max(1, settings.getMaxConcurrentFtHttpResumeUploads());
 		try {
 			// Retrieve all resumable sessions
 			List<FtHttpResume> listFile2resume = dao.retrieveFileTransfersPausedBySystem();
@@ -97,7 +174,17 @@ public class FtHttpResumeManager {
 							ftHttpResume.getFileTransferId(), FileTransfer.State.PAUSED,
 							FileTransfer.ReasonCode.PAUSED_BY_SYSTEM);
 				}
-				listOfFtHttpResume = new LinkedList<FtHttpResume>(listFile2resume);
+				boolean autoAccept = settings.isFileTransferAutoAccepted();
+				synchronized (this) {
+					for (FtHttpResume ftHttpResume : listFile2resume) {
+						int priority = PRIORITY_SYSTEM;
+						if (autoAccept && ftHttpResume.getDirection() == Direction.INCOMING) {
+							priority = PRIORITY_AUTO_ACCEPT;
+						}
+						pendingResumes.add(new PendingResume(ftHttpResume, priority,
+								arrivalCounter++));
+					}
+				}
 				processNext();
 			}
 		} catch (Exception e) {
@@ -109,13 +196,161 @@ public class FtHttpResumeManager {
 	}
 
 	/**
-	 * resume next pending session
+	 * Raise the priority of a pending session. A session raised to
+	 * PRIORITY_USER is resumed at once, even if all the slots of its
+	 * direction are in use.
+	 *
+	 * @param fileTransferId File transfer ID
+	 * @param priority New priority
+	 * @return Returns true if the session was pending, else returns false
+	 */
+	public boolean prioritize(String fileTransferId, int priority) {
+		boolean found = false;
+		synchronized (this) {
+			for (PendingResume pending : pendingResumes) {
+				if (pending.resume.getFileTransferId().equals(fileTransferId)) {
+					if (priority < pending.priority) {
+						pending.priority = priority;
+					}
+					if (logger.isActivated()) {
+						logger.debug("Prioritize FT HTTP " + fileTransferId + " priority="
+								+ pending.priority);
+					}
+					found = true;
+					break;
+				}
+			}
+		}
+		if (found) {
+			processNext();
+		}
+		return found;
+	}
+
+	/**
+	 * Resume pending sessions while slots are available in their direction.
+	 * The sessions are started outside of the lock of the manager since
+	 * starting them notifies the listeners.
 	 */
 	private void processNext() {
-		if (listOfFtHttpResume.isEmpty())
-			return;
-		// Remove the oldest session from the list
-		ftHttpResume = listOfFtHttpResume.poll();
+		List<PendingResume> admitted;
+		while (!(admitted = admit()).isEmpty()) {
+			for (PendingResume pending : admitted) {
+				boolean started = false;
+				try {
+					started = resume(pending);
+				} catch (RuntimeException e) {
+					if (logger.isActivated()) {
+						logger.error("Failed to resume FT HTTP "
+								+ pending.resume.getFileTransferId(), e);
+					}
+				}
+				if (!started) {
+					release(pending);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take the next sessions to resume out of the queue and reserve their
+	 * slot
+	 *
+	 * @return Sessions to resume, empty if none may be resumed now
+	 */
+	private synchronized List<PendingResume> admit() {
+		List<PendingResume> admitted = new ArrayList<PendingResume>();
+		if (terminate) {
+			return admitted;
+		}
+		while (true) {
+			PendingResume next = null;
+			for (PendingResume pending : pendingResumes) {
+				if (hasSlot(pending) && (next == null || compare(pending, next) < 0)) {
+					next = pending;
+				}
+			}
+			if (next == null) {
+				return admitted;
+			}
+			pendingResumes.remove(next);
+			if (next.resume.getDirection() == Direction.INCOMING) {
+				runningDownloads++;
+			} else {
+				runningUploads++;
+			}
+			runningByOwner.put(next.owner, getRunning(next.owner) + 1);
+			admitted.add(next);
+		}
+	}
+
+	/**
+	 * Check if a slot is available for a pending session
+	 *
+	 * @param pending Pending session
+	 * @return Returns true if the session may be resumed now
+	 */
+	private boolean hasSlot(PendingResume pending) {
+		if (pending.priority == PRIORITY_USER) {
+			return true;
+		}
+		if (pending.resume.getDirection() == Direction.INCOMING) {
+			return runningDownloads < maxDownloads;
+		}
+		return runningUploads < maxUploads;
+	}
+
+	/**
+	 * Order of resume of two pending sessions
+	 *
+	 * @param lhs Pending session
+	 * @param rhs Pending session
+	 * @return Negative if lhs shall be resumed first
+	 */
+	private int compare(PendingResume lhs, PendingResume rhs) {
+		if (lhs.priority != rhs.priority) {
+			return lhs.priority < rhs.priority ? -1 : 1;
+		}
+		int lhsRunning = getRunning(lhs.owner);
+		int rhsRunning = getRunning(rhs.owner);
+		if (lhsRunning != rhsRunning) {
+			return lhsRunning < rhsRunning ? -1 : 1;
+		}
+		return lhs.order < rhs.order ? -1 : (lhs.order == rhs.order ? 0 : 1);
+	}
+
+	private int getRunning(String owner) {
+		Integer running = runningByOwner.get(owner);
+		return running == null ? 0 : running;
+	}
+
+	/**
+	 * Release the slot of a session
+	 *
+	 * @param pending Session
+	 */
+	private synchronized void release(PendingResume pending) {
+		if (pending.resume.getDirection() == Direction.INCOMING) {
+			runningDownloads--;
+		} else {
+			runningUploads--;
+		}
+		int running = getRunning(pending.owner) - 1;
+		if (running > 0) {
+			runningByOwner.put(pending.owner, running);
+		} else {
+			runningByOwner.remove(pending.owner);
+		}
+	}
+
+	/**
+	 * Resume a session
+	 *
+	 * @param pending Session to resume
+	 * @return Returns true if a session has been started
+	 */
+	private boolean resume(PendingResume pending) {
+		FtHttpResume ftHttpResume = pending.resume;
 		if (logger.isActivated()) {
 			logger.debug("Resume FT HTTP " + ftHttpResume);
 		}
@@ -126,7 +361,7 @@ public class FtHttpResumeManager {
 			// Creates the Resume Download session object
 			final ResumeDownloadFileSharingSession resumeDownload = new ResumeDownloadFileSharingSession(
                     imsService, downloadContent, downloadInfo);
-			resumeDownload.addListener(getFileSharingSessionListener());
+			resumeDownload.addListener(getFileSharingSessionListener(pending));
 			// Start the download HTTP FT session object
 			new Thread() {
 				public void run() {
@@ -139,7 +374,7 @@ public class FtHttpResumeManager {
 					.getListener()
 					.handleIncomingFileTransferResuming(resumeDownload, resumeDownload.isGroupFileTransfer(), resumeDownload.getChatSessionID(),
 							resumeDownload.getContributionID());
-			break;
+			return true;
 		case Direction.OUTGOING:
 		    // TODO : only managed for 1-1 FToHTTP
             FtHttpResumeUpload uploadInfo = (FtHttpResumeUpload) ftHttpResume;
@@ -149,10 +384,10 @@ public class FtHttpResumeManager {
                             uploadInfo.getFile(), uploadInfo.getMimetype(),
                             uploadInfo.getSize(), uploadInfo.getFileName());
 
-                // Create Resume Upload session 
+                // Create Resume Upload session
                 final ResumeUploadFileSharingSession resumeUpload = new ResumeUploadFileSharingSession(imsService, uploadContent,
                         uploadInfo);
-                resumeUpload.addListener(getFileSharingSessionListener());
+                resumeUpload.addListener(getFileSharingSessionListener(pending));
 
                 // Start Resume Upload session
                 new Thread() {
@@ -164,37 +399,45 @@ public class FtHttpResumeManager {
                 // Notify the UI and update rich messaging
                 imsService.getImsModule().getListener()
                         .handleOutgoingFileTransferResuming(resumeUpload, false);
+                return true;
             }
-            break;
+            return false;
 		}
-
+		return false;
 	}
 
 	/**
 	 * Create an event listener to handle end of session
-	 * 
+	 *
+	 * @param pending Session
 	 * @return the File sharing event listener
 	 */
-	private FileSharingSessionListener getFileSharingSessionListener() {
+	private FileSharingSessionListener getFileSharingSessionListener(final PendingResume pending) {
 		return new FileSharingSessionListener() {
 			AtomicBoolean fired = new AtomicBoolean(false);
 
-			@Override
-			public void handleSessionTerminatedByRemote() {
+			/**
+			 * The session does not use its slot anymore: resume next ones
+			 */
+			private void releaseSlot() {
 				if (fired.compareAndSet(false, true)) {
+					release(pending);
 					processNext();
 				}
 			}
 
+			@Override
+			public void handleSessionTerminatedByRemote() {
+				releaseSlot();
+			}
+
 			@Override
 			public void handleSessionStarted() {
 			}
 
 			@Override
 			public void handleSessionAborted(int reason) {
-				if (fired.compareAndSet(false, true)) {
-					processNext();
-				}
+				releaseSlot();
 			}
 
 			@Override
@@ -207,16 +450,12 @@ public class FtHttpResumeManager {
 
 			@Override
 			public void handleTransferError(FileSharingError error) {
-				if (fired.compareAndSet(false, true)) {
-					processNext();
-				}
+				releaseSlot();
 			}
 
 			@Override
 			public void handleFileTransfered(MmContent content) {
-				if (fired.compareAndSet(false, true)) {
-					processNext();
-				}
+				releaseSlot();
 			}
 
 			@Override
@@ -229,10 +468,12 @@ public class FtHttpResumeManager {
 
 			@Override
 			public void handleFileTransferPausedByUser() {
+				releaseSlot();
 			}
 
 			@Override
 			public void handleFileTransferPausedBySystem() {
+				releaseSlot();
 			}
 
 			@Override
@@ -257,7 +498,8 @@ public class FtHttpResumeManager {
 		};
 	}
 
-	public void terminate() {
+	public synchronized void terminate() {
 		this.terminate = true;
+		pendingResumes.clear();
 	}
 }
@@ -26,17 +26,27 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
 
 import android.net.Uri;
 
 import com.orangelabs.rcs.core.content.ContentManager;
 import com.orangelabs.rcs.core.content.MmContent;
 import com.orangelabs.rcs.protocol.sip.SipUtils;
+import com.orangelabs.rcs.provider.messaging.MessagingLog;
+import com.orangelabs.rcs.provider.settings.RcsSettings;
 import com.orangelabs.rcs.utils.logger.Logger;
 
 /**
@@ -50,6 +60,11 @@ public class HttpDownloadManager extends HttpTransferManager {
 	 */
 	private final static int RETRY_MAX = 3;
 
+	/**
+	 * Min size of a segment of a segmented download
+	 */
+	private final static int SEGMENT_MIN_SIZE = 512 * 1024;
+
 	/**
 	 * File content to download
 	 */
@@ -80,6 +95,17 @@ public class HttpDownloadManager extends HttpTransferManager {
 	 */
 	private int retryCount = 0;
 
+	/**
+	 * File transfer ID used to persist the segments of a segmented download
+	 * (null if the download shall not be segmented)
+	 */
+	private String fileTransferId;
+
+	/**
+	 * Number of bytes received by all the segments
+	 */
+	private long segmentedLength = 0;
+
 	/**
 	 * The logger
 	 */
@@ -106,6 +132,25 @@ public class HttpDownloadManager extends HttpTransferManager {
 		streamForFile = openStreamForFile(file);
 	}
 
+	/**
+	 * Constructor
+	 * 
+	 * @param content
+	 *            File content to download
+	 * @param listener
+	 *            HTTP transfer event listener
+	 * @param httpServerAddress
+	 *            Server address from where file is downloaded
+	 * @param fileTransferId
+	 *            File transfer ID under which the progress of a segmented
+	 *            download is persisted
+	 */
+	public HttpDownloadManager(MmContent content, HttpTransferEventListener listener, Uri httpServerAddress,
+			String fileTransferId) {
+		this(content, listener, httpServerAddress);
+		this.fileTransferId = fileTransferId;
+	}
+
 	/**
 	 * Open output stream for download file
 	 * 
@@ -139,6 +184,31 @@ public class HttpDownloadManager extends HttpTransferManager {
 	 * @return Returns true if successful. Data are saved during the transfer in the content object.
 	 */
 	public boolean downloadFile() {
+		List<Segment> segments = createSegments();
+		if (segments != null) {
+			DefaultHttpClient client = createMultiConnectionHttpClient();
+			if (client != null) {
+				try {
+					if (isRangeSupported(client)) {
+						return downloadSegments(client, segments);
+					}
+				} finally {
+					client.getConnectionManager().shutdown();
+				}
+			}
+			if (logger.isActivated()) {
+				logger.debug("Ranges not supported by server: download file in one stream");
+			}
+		}
+		return downloadFileInOneStream();
+	}
+
+	/**
+	 * Download file through a single connection
+	 * 
+	 * @return Returns true if successful
+	 */
+	private boolean downloadFileInOneStream() {
 		try {
 			if (logger.isActivated()) {
 				logger.debug("Download file " + getHttpServerAddr());
@@ -160,7 +230,7 @@ public class HttpDownloadManager extends HttpTransferManager {
 			if (!getFile(request)) {
 				if (retryCount < RETRY_MAX && !isCancelled() && !isPaused()) {
 					retryCount++;
-					return downloadFile();
+					return downloadFileInOneStream();
 				} else {
                     if (logger.isActivated()) {
                         if (isPaused()) {
@@ -366,6 +436,21 @@ public class HttpDownloadManager extends HttpTransferManager {
 	 * @return True if successful
 	 */
 	public boolean resumeDownload() {
+		List<Segment> segments = loadSegments();
+		if (segments != null) {
+			resetParamForResume();
+			DefaultHttpClient client = createMultiConnectionHttpClient();
+			if (client != null) {
+				if (logger.isActivated()) {
+					logger.debug("Resume segmented download of file " + getHttpServerAddr());
+				}
+				try {
+					return downloadSegments(client, segments);
+				} finally {
+					client.getConnectionManager().shutdown();
+				}
+			}
+		}
 		if (streamForFile == null) {
 			streamForFile = openStreamForFile(file);
 			if (streamForFile == null)
@@ -417,4 +502,488 @@ public class HttpDownloadManager extends HttpTransferManager {
 			return false;
 		}
 	}
+
+	/**
+	 * Split the file in segments if a segmented download is enabled and the
+	 * file is large enough
+	 * 
+	 * @return Segments or null if the file shall be downloaded in one stream
+	 */
+	private List<Segment> createSegments() {
+		if (fileTransferId == null) {
+			return null;
+		}
+		RcsSettings settings = RcsSettings.getInstance();
+		long size = content.getSize();
+		if (size < settings.getFtHttpSegmentedDownloadMinSize() * 1024L) {
+			return null;
+		}
+		return splitSegments(size, settings.getFtHttpDownloadSegments());
+	}
+
+	/**
+	 * Split a file in contiguous segments of at least SEGMENT_MIN_SIZE bytes
+	 * 
+	 * @param size
+	 *            Size of the file
+	 * @param maxCount
+	 *            Max number of segments
+	 * @return Segments or null if the file shall be downloaded in one stream
+	 */
+	static List<Segment> splitSegments(long size, int maxCount) {
+		long count = Math.min(maxCount, size / SEGMENT_MIN_SIZE);
+		if (count < 2) {
+			return null;
+		}
+		List<Segment> segments = new ArrayList<Segment>((int)count);
+		long length = size / count;
+		for (int i = 0; i < count; i++) {
+			long start = i * length;
+			long end = (i == count - 1) ? size - 1 : start + length - 1;
+			segments.add(new Segment(start, end, start));
+		}
+		return segments;
+	}
+
+	/**
+	 * Load the segments persisted by a previous segmented download
+	 * 
+	 * @return Segments or null if the file has not been downloaded by segments
+	 */
+	private List<Segment> loadSegments() {
+		if (fileTransferId == null) {
+			return null;
+		}
+		try {
+			String encoded = MessagingLog.getInstance().getFileDownloadSegments(fileTransferId);
+			if (encoded == null) {
+				return null;
+			}
+			return decodeSegments(encoded, content.getSize());
+		} catch (Exception e) {
+			if (logger.isActivated()) {
+				logger.error("Cannot load download segments", e);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Decode the segments persisted as "start-end:position" values separated
+	 * by ';'
+	 * 
+	 * @param encoded
+	 *            Encoded segments
+	 * @param size
+	 *            Size of the file
+	 * @return Segments or null if a segment is invalid
+	 */
+	static List<Segment> decodeSegments(String encoded, long size) {
+		List<Segment> segments = new ArrayList<Segment>();
+		for (String value : encoded.split(";")) {
+			Segment segment = Segment.decode(value);
+			if (segment == null || segment.end >= size) {
+				if (logger.isActivated()) {
+					logger.warn("Invalid download segment " + value);
+				}
+				return null;
+			}
+			segments.add(segment);
+		}
+		return segments;
+	}
+
+	/**
+	 * Encode the segments as "start-end:position" values separated by ';'
+	 * 
+	 * @param segments
+	 *            Segments
+	 * @return Encoded segments
+	 */
+	static String encodeSegments(List<Segment> segments) {
+		StringBuilder builder = new StringBuilder();
+		for (Segment segment : segments) {
+			if (builder.length() > 0) {
+				builder.append(';');
+			}
+			segment.encode(builder);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Persist the progress of the segments
+	 * 
+	 * @param segments
+	 *            Segments or null to clear them
+	 */
+	private void saveSegments(List<Segment> segments) {
+		String encoded = null;
+		if (segments != null) {
+			encoded = encodeSegments(segments);
+		}
+		try {
+			MessagingLog.getInstance().setFileDownloadSegments(fileTransferId, encoded);
+		} catch (Exception e) {
+			if (logger.isActivated()) {
+				logger.error("Cannot save download segments", e);
+			}
+		}
+	}
+
+	/**
+	 * Check that the server supports byte ranges for the file
+	 * 
+	 * @param client
+	 *            HTTP client
+	 * @return Returns true if ranges are supported
+	 */
+	private boolean isRangeSupported(DefaultHttpClient client) {
+		HttpGet request = new HttpGet(getHttpServerAddr().toString());
+		request.addHeader("User-Agent", SipUtils.userAgentString());
+		request.addHeader("Range", "bytes=0-0");
+		try {
+			HttpResponse response = client.execute(request);
+			int statusCode = response.getStatusLine().getStatusCode();
+			if (HTTP_TRACE_ENABLED) {
+				String trace = "<<< Receive HTTP response:";
+				trace += "\n" + statusCode + " " + response.getStatusLine().getReasonPhrase();
+				System.out.println(trace);
+			}
+			Header contentRange = response.getFirstHeader("Content-Range");
+			if (!isRangeResponse(statusCode,
+					contentRange != null ? contentRange.getValue() : null, content.getSize())) {
+				// Do not read a complete file sent instead of the range
+				request.abort();
+				return false;
+			}
+			HttpEntity entity = response.getEntity();
+			if (entity != null) {
+				entity.consumeContent();
+			}
+			return true;
+		} catch (Exception e) {
+			if (logger.isActivated()) {
+				logger.error("Range request exception", e);
+			}
+			request.abort();
+			return false;
+		}
+	}
+
+	/**
+	 * Check that a response is a partial content of a file of a given size
+	 * 
+	 * @param statusCode
+	 *            Status code of the response
+	 * @param contentRange
+	 *            Content-Range header of the response or null
+	 * @param size
+	 *            Size of the file
+	 * @return Returns true if the server has answered with a range of the file
+	 */
+	static boolean isRangeResponse(int statusCode, String contentRange, long size) {
+		return statusCode == 206 && contentRange != null
+				&& contentRange.trim().endsWith("/" + size);
+	}
+
+	/**
+	 * Download the unfinished segments in parallel. Each segment is written
+	 * at its own position into the file which is allocated at its final size.
+	 * 
+	 * @param client
+	 *            HTTP client
+	 * @param segments
+	 *            Segments of the file
+	 * @return Returns true if successful
+	 */
+	private boolean downloadSegments(DefaultHttpClient client, List<Segment> segments) {
+		if (streamForFile != null) {
+			try {
+				streamForFile.close();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+			streamForFile = null;
+		}
+		boolean failure = false;
+		boolean complete = false;
+		RandomAccessFile output = null;
+		try {
+			output = new RandomAccessFile(file, "rw");
+			if (output.length() != content.getSize()) {
+				output.setLength(content.getSize());
+			}
+			FileChannel channel = output.getChannel();
+			segmentedLength = 0;
+			for (Segment segment : segments) {
+				segmentedLength += segment.position - segment.start;
+			}
+			saveSegments(segments);
+			while (true) {
+				List<SegmentDownload> downloads = new ArrayList<SegmentDownload>();
+				for (Segment segment : segments) {
+					if (!segment.isComplete()) {
+						SegmentDownload download = new SegmentDownload(client, getHttpServerAddr()
+								.toString(), channel, segment) {
+							@Override
+							boolean isStopped() {
+								return isCancelled() || isPaused();
+							}
+
+							@Override
+							void progress(int length) {
+								segmentProgress(length);
+							}
+						};
+						downloads.add(download);
+						download.start();
+					}
+				}
+				if (logger.isActivated()) {
+					logger.debug("Download " + downloads.size() + " segments of file " + getHttpServerAddr());
+				}
+				boolean error = false;
+				for (SegmentDownload download : downloads) {
+					download.join();
+					failure |= download.failure;
+					error |= download.error;
+				}
+				complete = true;
+				for (Segment segment : segments) {
+					complete &= segment.isComplete();
+				}
+				if (complete || failure || isCancelled() || isPaused()) {
+					break;
+				}
+				if (!error || retryCount >= RETRY_MAX) {
+					break;
+				}
+				retryCount++;
+				saveSegments(segments);
+			}
+			if (complete) {
+				channel.force(false);
+			}
+		} catch (Exception e) {
+			if (logger.isActivated()) {
+				logger.error("Download file exception", e);
+			}
+			failure = true;
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+					// Nothing to do
+				}
+			}
+		}
+
+		if (isCancelled()) {
+			saveSegments(null);
+			file.delete();
+			return false;
+		}
+		if (complete) {
+			saveSegments(null);
+			return true;
+		}
+		saveSegments(segments);
+		if (failure && !isPaused()) {
+			// Unfinished segments are resumed later
+			if (logger.isActivated()) {
+				logger.debug("Segmented download failed. Set in paused");
+			}
+			pauseTransferBySystem();
+		}
+		if (logger.isActivated()) {
+			if (isPaused()) {
+				logger.debug("Download file paused");
+			} else {
+				logger.debug("Failed to download file");
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Notify the progress of the segmented download
+	 * 
+	 * @param length
+	 *            Number of bytes received by a segment
+	 */
+	private synchronized void segmentProgress(int length) {
+		segmentedLength += length;
+		getListener().httpTransferProgress(segmentedLength, content.getSize());
+	}
+
+	/**
+	 * Segment of a segmented download
+	 */
+	static class Segment {
+		/**
+		 * Position of the first byte
+		 */
+		final long start;
+
+		/**
+		 * Position of the last byte
+		 */
+		final long end;
+
+		/**
+		 * Position of the next byte to receive
+		 */
+		volatile long position;
+
+		Segment(long start, long end, long position) {
+			this.start = start;
+			this.end = end;
+			this.position = position;
+		}
+
+		boolean isComplete() {
+			return position > end;
+		}
+
+		/**
+		 * Returns the Range header value of the remaining bytes
+		 * 
+		 * @return Range
+		 */
+		String getRange() {
+			return "bytes=" + position + "-" + end;
+		}
+
+		/**
+		 * Encode the segment as "start-end:position"
+		 * 
+		 * @param builder
+		 *            String builder
+		 */
+		void encode(StringBuilder builder) {
+			builder.append(start).append('-').append(end).append(':').append(position);
+		}
+
+		/**
+		 * Decode a segment encoded as "start-end:position"
+		 * 
+		 * @param value
+		 *            Encoded segment
+		 * @return Segment or null if the value is invalid
+		 */
+		static Segment decode(String value) {
+			int dash = value.indexOf('-');
+			int colon = value.indexOf(':');
+			if (dash <= 0 || colon <= dash) {
+				return null;
+			}
+			try {
+				long start = Long.parseLong(value.substring(0, dash));
+				long end = Long.parseLong(value.substring(dash + 1, colon));
+				long position = Long.parseLong(value.substring(colon + 1));
+				if (start < 0 || end < start || position < start || position > end + 1) {
+					return null;
+				}
+				return new Segment(start, end, position);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Thread downloading the remaining bytes of a segment
+	 */
+	static class SegmentDownload extends Thread {
+		private final DefaultHttpClient client;
+
+		private final String url;
+
+		private final FileChannel channel;
+
+		private final Segment segment;
+
+		/**
+		 * The server answered with an error: the segment may be retried
+		 */
+		boolean error = false;
+
+		/**
+		 * The connection or the file failed: the download is paused
+		 */
+		boolean failure = false;
+
+		SegmentDownload(DefaultHttpClient client, String url, FileChannel channel, Segment segment) {
+			this.client = client;
+			this.url = url;
+			this.channel = channel;
+			this.segment = segment;
+		}
+
+		/**
+		 * Check if the transfer has been cancelled or paused
+		 * 
+		 * @return Returns true if the download shall stop
+		 */
+		boolean isStopped() {
+			return false;
+		}
+
+		/**
+		 * Notify the bytes written into the file
+		 * 
+		 * @param length
+		 *            Number of bytes
+		 */
+		void progress(int length) {
+		}
+
+		@Override
+		public void run() {
+			HttpGet request = new HttpGet(url);
+			request.addHeader("User-Agent", SipUtils.userAgentString());
+			request.addHeader("Range", segment.getRange());
+			try {
+				HttpResponse response = client.execute(request);
+				int statusCode = response.getStatusLine().getStatusCode();
+				if (statusCode != 206) {
+					if (logger.isActivated()) {
+						logger.warn("Segment " + segment.start + " failed with status " + statusCode);
+					}
+					error = true;
+					return;
+				}
+				byte[] buffer = new byte[CHUNK_MAX_SIZE];
+				ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+				InputStream input = response.getEntity().getContent();
+				int num;
+				while (!segment.isComplete() && !isStopped()
+						&& (num = input.read(buffer)) != -1) {
+					int length = (int)Math.min(num, segment.end + 1 - segment.position);
+					byteBuffer.clear();
+					byteBuffer.limit(length);
+					long position = segment.position;
+					while (byteBuffer.hasRemaining()) {
+						position += channel.write(byteBuffer, position);
+					}
+					segment.position = position;
+					progress(length);
+				}
+				if (!segment.isComplete() && !isStopped()) {
+					// Connection closed before the end of the segment
+					error = true;
+				}
+			} catch (Exception e) {
+				if (logger.isActivated()) {
+					logger.error("Segment " + segment.start + " download exception", e);
+				}
+				failure = true;
+			} finally {
+				// Release the connection without reading the rest of the response
+				request.abort();
+			}
+		}
+	}
 }
@@ -0,0 +1,90 @@
+package com.orangelabs.rcs.core.im.filetransfer.http;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.orangelabs.rcs.core.im.filetransfer.http.HttpDownloadManager.Segment;
+
+public class HttpDownloadManagerTest extends TestCase {
+
+	private static final long KB = 1024;
+
+	private static final long MB = 1024 * KB;
+
+	public void testSplitCoversTheWholeFile() {
+		long size = 10 * MB + 3;
+		List<Segment> segments = HttpDownloadManager.splitSegments(size, 4);
+		assertEquals(4, segments.size());
+		long next = 0;
+		for (Segment segment : segments) {
+			assertEquals(next, segment.start);
+			assertEquals(segment.start, segment.position);
+			assertFalse(segment.isComplete());
+			next = segment.end + 1;
+		}
+		// The last segment takes the remainder of the division
+		assertEquals(size, next);
+	}
+
+	public void testSplitKeepsSegmentsLargeEnough() {
+		// 1.5 MB gives at most 3 segments of 512 KB
+		List<Segment> segments = HttpDownloadManager.splitSegments(3 * 512 * KB, 8);
+		assertEquals(3, segments.size());
+		for (Segment segment : segments) {
+			assertTrue(segment.end - segment.start + 1 >= 512 * KB);
+		}
+	}
+
+	public void testSplitFallsBackToOneStream() {
+		assertNull(HttpDownloadManager.splitSegments(10 * MB, 1));
+		assertNull(HttpDownloadManager.splitSegments(512 * KB, 4));
+	}
+
+	public void testEncodeDecodeRoundTrip() {
+		long size = 4 * MB;
+		List<Segment> segments = HttpDownloadManager.splitSegments(size, 4);
+		segments.get(0).position = segments.get(0).end + 1;
+		segments.get(2).position += 1000;
+		String encoded = HttpDownloadManager.encodeSegments(segments);
+		List<Segment> decoded = HttpDownloadManager.decodeSegments(encoded, size);
+		assertEquals(segments.size(), decoded.size());
+		for (int i = 0; i < segments.size(); i++) {
+			assertEquals(segments.get(i).start, decoded.get(i).start);
+			assertEquals(segments.get(i).end, decoded.get(i).end);
+			assertEquals(segments.get(i).position, decoded.get(i).position);
+		}
+		assertEquals(encoded, HttpDownloadManager.encodeSegments(decoded));
+	}
+
+	public void testResumeRequestsOnlyTheRemainingBytes() {
+		List<Segment> segments = HttpDownloadManager.decodeSegments("0-99:100;100-199:150;200-299:200", 300);
+		assertTrue(segments.get(0).isComplete());
+		assertFalse(segments.get(1).isComplete());
+		assertEquals("bytes=150-199", segments.get(1).getRange());
+		assertEquals("bytes=200-299", segments.get(2).getRange());
+	}
+
+	public void testDecodeRejectsInvalidSegments() {
+		// Malformed values
+		assertNull(HttpDownloadManager.decodeSegments("0-99", 100));
+		assertNull(HttpDownloadManager.decodeSegments("a-99:0", 100));
+		assertNull(HttpDownloadManager.decodeSegments("0-49:0;;50-99:50", 100));
+		// End before start, position out of the segment
+		assertNull(HttpDownloadManager.decodeSegments("50-10:50", 100));
+		assertNull(HttpDownloadManager.decodeSegments("0-49:10;50-99:49", 100));
+		assertNull(HttpDownloadManager.decodeSegments("0-49:51", 100));
+		// Segment beyond the end of the file, e.g. the file has changed
+		assertNull(HttpDownloadManager.decodeSegments("0-49:0;50-100:50", 100));
+	}
+
+	public void testRangeResponse() {
+		assertTrue(HttpDownloadManager.isRangeResponse(206, "bytes 0-0/1048576", 1048576));
+		// The complete file sent instead of the range
+		assertFalse(HttpDownloadManager.isRangeResponse(200, null, 1048576));
+		assertFalse(HttpDownloadManager.isRangeResponse(206, null, 1048576));
+		// Another size than the one announced by the file info
+		assertFalse(HttpDownloadManager.isRangeResponse(206, "bytes 0-0/2048", 1048576));
+		assertFalse(HttpDownloadManager.isRangeResponse(206, "bytes 0-0/*", 1048576));
+	}
+}
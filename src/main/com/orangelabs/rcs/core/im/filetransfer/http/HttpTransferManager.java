@@ -44,6 +44,7 @@ import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.SingleClientConnManager;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
@@ -110,16 +111,26 @@ public abstract class HttpTransferManager {
      * HTTP client
      */
     private DefaultHttpClient httpClient = null;
+
+    /**
+     * Scheme registry of the HTTP client
+     */
+    private SchemeRegistry schemeRegistry = null;
+
+    /**
+     * Parameters of the HTTP client
+     */
+    private HttpParams httpParams = null;
     
     /**
      * Cancellation flag
      */
-    private boolean isCancelled = false;    
+    private volatile boolean isCancelled = false;    
     
     /**
      * Pause flag
      */
-    private boolean isPaused = false;
+    private volatile boolean isPaused = false;
     
 
     /**
@@ -194,6 +205,8 @@ public abstract class HttpTransferManager {
             HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
             ClientConnectionManager cm = new SingleClientConnManager(params, schemeRegistry);
             httpClient = new DefaultHttpClient(cm, params);
+            this.schemeRegistry = schemeRegistry;
+            this.httpParams = params;
             
             
             // Create local HTTP context
@@ -280,6 +293,21 @@ public abstract class HttpTransferManager {
     	return httpClient;
     }
 
+    /**
+     * Create a HTTP client which may execute requests from several threads
+     * at the same time. The caller shall shut down its connection manager
+     * once the transfer is over.
+     *
+     * @return HTTP client or null if the server address is invalid
+     */
+    protected DefaultHttpClient createMultiConnectionHttpClient() {
+        if (schemeRegistry == null) {
+            return null;
+        }
+        ClientConnectionManager cm = new ThreadSafeClientConnManager(httpParams, schemeRegistry);
+        return new DefaultHttpClient(cm, httpParams);
+    }
+
     /**
      * Interrupts file transfer
      */
@@ -24,13 +24,11 @@ package com.orangelabs.rcs.core.im.filetransfer.http;
 import static com.orangelabs.rcs.utils.StringUtils.UTF8;
 import static com.orangelabs.rcs.utils.StringUtils.UTF8_STR;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -38,6 +36,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.Map;
 
@@ -87,6 +87,16 @@ public class HttpUploadManager extends HttpTransferManager {
 	 */
 	private final static String lineEnd = "\r\n";
 
+	/**
+	 * Last boundary of the multipart body
+	 */
+	private final static byte[] LAST_BOUNDARY = (twoHyphens + BOUNDARY_TAG + twoHyphens).getBytes(UTF8);
+
+	/**
+	 * Min period between two progress notifications in milliseconds
+	 */
+	private final static long PROGRESS_NOTIFICATION_PERIOD = 250;
+
 	/**
 	 * Maximum value of retry
 	 */
@@ -141,6 +151,17 @@ public class HttpUploadManager extends HttpTransferManager {
 	 * Http Authentication Agent
 	 */
 	private HttpAuthenticationAgent auth;
+
+	/**
+	 * Buffer reused for all the data read from files
+	 */
+	private final ByteBuffer transferBuffer = ByteBuffer.allocate(CHUNK_MAX_SIZE);
+
+	/**
+	 * Time of the last progress notification
+	 */
+	private long lastProgressNotification = 0;
+
 	/**
 	 * The logger
 	 */
@@ -275,7 +296,7 @@ public class HttpUploadManager extends HttpTransferManager {
 	 * @throws Exception
 	 */
 	private byte[] sendMultipartPost(HttpResponse resp) throws CoreException, IOException, Exception {
-		DataOutputStream outputStream = null;
+		OutputStream outputStream = null;
 		Uri file = content.getUri();
 
 		// Get the connection
@@ -287,7 +308,7 @@ public class HttpUploadManager extends HttpTransferManager {
             connection = (HttpsURLConnection) url.openConnection();
 
 			try {
-				conn.setSSLSocketFactory(FileTransSSLFactory.getFileTransferSSLContext().getSocketFactory());
+				conn.setSSLSocketFactory(FileTransSSLFactory.getFileTransferSocketFactory());
 			} catch (Exception e) {
 				if (logger.isActivated()) {
 					logger.error("Failed to initiate SSL for connection:", e);
@@ -298,7 +319,6 @@ public class HttpUploadManager extends HttpTransferManager {
 		connection.setDoInput(true);
 		connection.setDoOutput(true);
 		connection.setReadTimeout(5000);
-		connection.setChunkedStreamingMode(CHUNK_MAX_SIZE);
 
 		// POST construction
 		connection.setRequestMethod("POST");
@@ -341,22 +361,33 @@ public class HttpUploadManager extends HttpTransferManager {
 			System.out.println(trace);
 		}
 
-		// Create the DataOutputStream and start writing its body
-		outputStream = new DataOutputStream(connection.getOutputStream());
-		outputStream.writeBytes(body);
+		// The length of the body is known: stream it instead of buffering it or chunking it
+		byte[] bodyStart = body.getBytes(UTF8);
+		byte[] thumbnailPartHeader = generateThumbnailPartHeader();
+		byte[] filePartHeader = generateFilePartHeader();
+		long contentLength = bodyStart.length + filePartHeader.length + content.getSize()
+				+ lineEnd.length() + LAST_BOUNDARY.length;
+		if (thumbnailPartHeader != null) {
+			contentLength += thumbnailPartHeader.length + getThumbnailLength() + lineEnd.length();
+		}
+		connection.setFixedLengthStreamingMode(contentLength);
+
+		// Create the output stream and start writing its body
+		outputStream = connection.getOutputStream();
+		outputStream.write(bodyStart);
 
 		// Add file icon
-		if (fileIcon != null) {
-			writeThumbnailMultipart(outputStream);
+		if (thumbnailPartHeader != null) {
+			writeThumbnailMultipart(outputStream, thumbnailPartHeader);
 		}
 		// From this point, resuming is possible
 		((HttpUploadTransferEventListener)getListener()).uploadStarted();
 		try {
 			// Add File
-			writeFileMultipart(outputStream, file);
+			writeFileMultipart(outputStream, file, filePartHeader);
 			if (!isCancelled()) {
 				// if the upload is cancelled, we don't send the last boundary to get bad request
-				outputStream.writeBytes(twoHyphens + BOUNDARY_TAG + twoHyphens);
+				outputStream.write(LAST_BOUNDARY);
 
 				// Check response status code
 				int responseCode = connection.getResponseCode();
@@ -375,9 +406,7 @@ public class HttpUploadManager extends HttpTransferManager {
 				case 200:
 					// 200 OK
 					success = true;
-					InputStream inputStream = connection.getInputStream();
-					result = convertStreamToString(inputStream);
-					inputStream.close();
+					result = readResponse(connection);
 					if (HTTP_TRACE_ENABLED) {
 						System.out.println("\n " + new String(result));
 					}
@@ -431,19 +460,13 @@ public class HttpUploadManager extends HttpTransferManager {
 					if (logger.isActivated()) {
 						logger.debug("File transfer paused by user");
 					}
-					// Sent data are bufferized. Must wait for response to enable sending to server.
-					int responseCode = connection.getResponseCode();
-					if (logger.isActivated()) {
-						logger.debug("Second POST response " + responseCode + " " + connection.getResponseMessage());
-					}
 				} else {
 					if (logger.isActivated()) {
 						logger.debug("File transfer cancelled by user");
 					}
 				}
-				// Close streams
-				outputStream.flush();
-				outputStream.close();
+				// The body can't be completed: drop the connection, the data
+				// already sent are kept by the server for a resume
 				connection.disconnect();
 				return null;
 			}
@@ -465,51 +488,68 @@ public class HttpUploadManager extends HttpTransferManager {
 		}
 	}
 
+	/**
+	 * Generate the header of the thumbnail multipart
+	 *
+	 * @return Header or null if there is no thumbnail to send
+	 */
+	private byte[] generateThumbnailPartHeader() {
+		if (fileIcon == null || fileIcon.getSize() <= 0) {
+			return null;
+		}
+		StringBuilder thumbnailPartHeader = new StringBuilder(twoHyphens).append(BOUNDARY_TAG)
+				.append(lineEnd)
+				.append("Content-Disposition: form-data; name=\"Thumbnail\"; filename=\"thumb_")
+				.append(content.getName()).append("\"").append(lineEnd)
+				.append("Content-Type: image/jpeg").append(lineEnd)
+				.append("Content-Length: ").append(fileIcon.getSize()).append(lineEnd).append(lineEnd);
+		return thumbnailPartHeader.toString().getBytes(UTF8);
+	}
+
+	/**
+	 * Returns the number of thumbnail bytes to send
+	 *
+	 * @return Length
+	 */
+	private long getThumbnailLength() {
+		byte[] data = fileIcon.getData();
+		return data != null ? data.length : fileIcon.getSize();
+	}
+
 	/**
 	 * Write the thumbnail multipart
 	 *
 	 * @param outputStream
-	 *            DataOutputStream to write to
+	 *            Stream to write to
+	 * @param thumbnailPartHeader
+	 *            Header of the thumbnail multipart
 	 */
-	private void writeThumbnailMultipart(DataOutputStream outputStream) throws IOException {
+	private void writeThumbnailMultipart(OutputStream outputStream, byte[] thumbnailPartHeader)
+			throws IOException {
 		if (logger.isActivated()) {
 			logger.debug("write file icon " + fileIcon.getName() + " (size=" + fileIcon.getSize() + ")");
 		}
-		if (fileIcon.getSize() > 0) {
-			outputStream.writeBytes(twoHyphens + BOUNDARY_TAG + lineEnd);
-			outputStream.writeBytes("Content-Disposition: form-data; name=\"Thumbnail\"; filename=\"thumb_" + content.getName() + "\""
-					+ lineEnd);
-			outputStream.writeBytes("Content-Type: image/jpeg" + lineEnd);
-			outputStream.writeBytes("Content-Length: " + fileIcon.getSize());
-			outputStream.writeBytes(lineEnd + lineEnd);
-			// Are thumbnail data available ?
-			if (fileIcon.getData() != null) {
-				// Thumbnail data were loaded upon creation.
-				// Write thumbnail content
-				outputStream.write(fileIcon.getData());
-			} else {
-				// Thumbnail must be loaded from file.
-				FileInputStream fileInputStream = null;
-				try {
-					fileInputStream = (FileInputStream)AndroidFactory.getApplicationContext()
-							.getContentResolver().openInputStream(fileIcon.getUri());
-					byte[] buffer = new byte[(int)fileIcon.getSize()];
-					int bytesRead = fileInputStream.read(buffer, 0, (int)fileIcon.getSize());
-					if (bytesRead > 0) {
-						outputStream.write(buffer);
-					}
-				} catch (Exception e) {
-					if (logger.isActivated()) {
-						logger.error(e.getMessage(), e);
-					}
-				} finally {
-					if (fileInputStream != null) {
-						fileInputStream.close();
-					}
+		outputStream.write(thumbnailPartHeader);
+		// Are thumbnail data available ?
+		if (fileIcon.getData() != null) {
+			// Thumbnail data were loaded upon creation.
+			// Write thumbnail content
+			outputStream.write(fileIcon.getData());
+		} else {
+			// Thumbnail must be streamed from file.
+			FileInputStream fileInputStream = null;
+			try {
+				fileInputStream = (FileInputStream)AndroidFactory.getApplicationContext()
+						.getContentResolver().openInputStream(fileIcon.getUri());
+				writeFileData(fileInputStream.getChannel(), outputStream, 0, fileIcon.getSize(),
+						false);
+			} finally {
+				if (fileInputStream != null) {
+					fileInputStream.close();
 				}
 			}
-			outputStream.writeBytes(lineEnd);
 		}
+		outputStream.write(lineEnd.getBytes(UTF8));
 	}
 
 	/**
@@ -526,88 +566,134 @@ public class HttpUploadManager extends HttpTransferManager {
 		return tidPartHeader + lineEnd + lineEnd + mTId + lineEnd;
 	}
 
+	/**
+	 * Generate the header of the file multipart
+	 *
+	 * @return Header
+	 * @throws UnsupportedEncodingException
+	 */
+	private byte[] generateFilePartHeader() throws UnsupportedEncodingException {
+		StringBuilder filePartHeader = new StringBuilder(twoHyphens).append(BOUNDARY_TAG)
+				.append(lineEnd)
+				.append("Content-Disposition: form-data; name=\"File\"; filename=\"")
+				.append(URLEncoder.encode(content.getName(), UTF8_STR)).append("\"").append(lineEnd)
+				.append("Content-Type: ").append(content.getEncoding()).append(lineEnd)
+				.append("Content-Length: ").append(content.getSize()).append(lineEnd).append(lineEnd);
+		return filePartHeader.toString().getBytes(UTF8);
+	}
+
 	/**
 	 * Write the file multipart
 	 *
 	 * @param outputStream
-	 *            DataOutputStream to write to
+	 *            Stream to write to
 	 * @param file
 	 *            File Uri
+	 * @param filePartHeader
+	 *            Header of the file multipart
 	 * @throws IOException
 	 */
-	private void writeFileMultipart(DataOutputStream outputStream, Uri file)
+	private void writeFileMultipart(OutputStream outputStream, Uri file, byte[] filePartHeader)
 			throws IOException {
-		// Check file path
-		String filename = content.getName();
-		long fileSize = content.getSize();
-
-		// Build and write headers
-        StringBuilder filePartHeader = new StringBuilder(twoHyphens).append(BOUNDARY_TAG)
-                .append(lineEnd)
-                .append("Content-Disposition: form-data; name=\"File\"; filename=\"")
-                .append(URLEncoder.encode(filename, UTF8_STR)).append("\"").append(lineEnd)
-                .append("Content-Type: ").append(content.getEncoding()).append(lineEnd)
-                .append("Content-Length: ").append(fileSize).append(lineEnd).append(lineEnd);
-        outputStream.writeBytes(filePartHeader.toString());
+		outputStream.write(filePartHeader);
 
 		// Write file content
-		InputStream fileInputStream = null;
+		FileInputStream fileInputStream = null;
 		try {
 			fileInputStream = (FileInputStream)AndroidFactory.getApplicationContext()
 					.getContentResolver().openInputStream(file);
-			int bytesAvailable = fileInputStream.available();
-			int bufferSize = Math.min(bytesAvailable, CHUNK_MAX_SIZE);
-			byte[] buffer = new byte[bufferSize];
-			int bytesRead = fileInputStream.read(buffer, 0, bufferSize);
-			int progress = 0;
-
-			while (bytesRead > 0 && !isCancelled()) {
-				progress += bytesRead;
-				outputStream.write(buffer, 0, bytesRead);
-				bytesAvailable = fileInputStream.available();
-				getListener().httpTransferProgress(progress, fileSize);
-				bufferSize = Math.min(bytesAvailable, CHUNK_MAX_SIZE);
-				buffer = new byte[bufferSize];
-				bytesRead = fileInputStream.read(buffer, 0, bufferSize);
-			}
+			writeFileData(fileInputStream.getChannel(), outputStream, 0, content.getSize(), true);
 		} catch (SecurityException e) {
 			/*TODO: WIll be changed in CR037*/
 			throw e;
-		} catch (Exception e) {
-			if (logger.isActivated()) {
-				logger.error(e.getMessage(), e);
-			}
 		} finally {
 			if (fileInputStream != null) {
 				fileInputStream.close();
 			}
 		}
 		if (!isCancelled())
-			outputStream.writeBytes(lineEnd);
+			outputStream.write(lineEnd.getBytes(UTF8));
 	}
 
 	/**
-	 * Stream conversion
+	 * Write file data from a position up to a given size through the transfer
+	 * buffer
+	 *
+	 * @param channel
+	 *            File channel
+	 * @param outputStream
+	 *            Stream to write to
+	 * @param position
+	 *            Position of the first byte to write
+	 * @param size
+	 *            Size of the data to write up to
+	 * @param notify
+	 *            True if the progress is notified
+	 * @throws IOException
+	 */
+	private void writeFileData(FileChannel channel, OutputStream outputStream, long position,
+			long size, boolean notify) throws IOException {
+		long progress = position;
+		channel.position(position);
+		while (progress < size && !isCancelled()) {
+			transferBuffer.clear();
+			if (size - progress < transferBuffer.capacity()) {
+				transferBuffer.limit((int)(size - progress));
+			}
+			int bytesRead = channel.read(transferBuffer);
+			if (bytesRead < 0) {
+				throw new IOException("Unexpected end of file after " + progress + " bytes");
+			}
+			outputStream.write(transferBuffer.array(), 0, bytesRead);
+			progress += bytesRead;
+			if (notify) {
+				notifyProgress(progress, size);
+			}
+		}
+	}
+
+	/**
+	 * Notify the upload progress, at most once per notification period except
+	 * for the last byte
 	 *
-	 * @param is
-	 *            Input stream
+	 * @param progress
+	 *            Number of bytes sent
+	 * @param size
+	 *            Total size
+	 */
+	private void notifyProgress(long progress, long size) {
+		long now = System.currentTimeMillis();
+		if (progress < size && now - lastProgressNotification < PROGRESS_NOTIFICATION_PERIOD) {
+			return;
+		}
+		lastProgressNotification = now;
+		getListener().httpTransferProgress(progress, size);
+	}
+
+	/**
+	 * Read the response body as it is received
+	 *
+	 * @param connection
+	 *            HTTP connection
 	 * @return Byte array
+	 * @throws IOException
 	 */
-	private static byte[] convertStreamToString(InputStream is) {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-		StringBuilder sb = new StringBuilder();
-
-		String line = null;
+	private static byte[] readResponse(HttpURLConnection connection) throws IOException {
+		InputStream is = connection.getInputStream();
+		int length = connection.getContentLength();
+		ByteArrayOutputStream result = new ByteArrayOutputStream(length > 0 ? length : 1024);
 		try {
-			while ((line = reader.readLine()) != null) {
-				sb.append(line);
+			byte[] buffer = new byte[1024];
+			int bytesRead;
+			while ((bytesRead = is.read(buffer)) != -1) {
+				result.write(buffer, 0, bytesRead);
 			}
 		} catch (IOException e) {
 			// Nothing to do
 		} finally {
 			CloseableUtils.close(is);
 		}
-		return sb.toString().getBytes(UTF8);
+		return result.toByteArray();
 	}
 
 	/**
@@ -700,7 +786,7 @@ public class HttpUploadManager extends HttpTransferManager {
 		if (logger.isActivated()) {
 			logger.debug("sendPutForResumingUpload. Already sent from "+resumeInfo.getStart()+" to "+resumeInfo.getEnd());
 		}
-		DataOutputStream outputStream = null;
+		OutputStream outputStream = null;
 		Uri file = content.getUri();
 
 		// Get the connection
@@ -709,7 +795,7 @@ public class HttpUploadManager extends HttpTransferManager {
 		connection = (HttpsURLConnection) new URL(resumeInfo.getUri().toString()).openConnection();
 
 		try {
-			connection.setSSLSocketFactory(FileTransSSLFactory.getFileTransferSSLContext().getSocketFactory());
+			connection.setSSLSocketFactory(FileTransSSLFactory.getFileTransferSocketFactory());
 		} catch (Exception e) {
 			if (logger.isActivated()) {
 				logger.error("Failed to initiate SSL for connection:", e);
@@ -725,7 +811,8 @@ public class HttpUploadManager extends HttpTransferManager {
 		connection.setRequestProperty("Connection", "Keep-Alive");
 		connection.setRequestProperty("User-Agent", SipUtils.userAgentString());
 		connection.setRequestProperty("Content-Type", this.content.getEncoding());
-		connection.setRequestProperty("Content-Length", String.valueOf(content.getSize() - (resumeInfo.getEnd()+1)));
+		// Stream the remaining data instead of buffering them to compute the Content-Length
+		connection.setFixedLengthStreamingMode(content.getSize() - (resumeInfo.getEnd()+1));
         // according to RFC 2616, section 14.16 the Content-Range header must contain an element bytes-unit
         connection.setRequestProperty("Content-Range", "bytes " + (resumeInfo.getEnd()+1) + "-" + (content.getSize()-1) + "/"
                 + content.getSize());
@@ -753,9 +840,8 @@ public class HttpUploadManager extends HttpTransferManager {
 			System.out.println(trace);
 		}
 
-		// Create the DataOutputStream and start writing its body
-		outputStream = new DataOutputStream(connection.getOutputStream());
-		outputStream.writeBytes(body);
+		// Create the output stream and start writing its body
+		outputStream = connection.getOutputStream();
 
 		try {
 			// Add File
@@ -773,9 +859,7 @@ public class HttpUploadManager extends HttpTransferManager {
 				case 200:
 					// 200 OK
 					success = true;
-					InputStream inputStream = connection.getInputStream();
-					result = convertStreamToString(inputStream);
-					inputStream.close();
+					result = readResponse(connection);
 					if (HTTP_TRACE_ENABLED) {
 						System.out.println("\n" + new String(result));
 					}
@@ -801,19 +885,13 @@ public class HttpUploadManager extends HttpTransferManager {
 					if (logger.isActivated()) {
 						logger.warn("File transfer paused by user");
 					}
-					// Sent data are bufferized. Must wait for response to enable sending to server.
-					int responseCode = connection.getResponseCode();
-					if (logger.isActivated()) {
-						logger.debug("PUT response " + responseCode + " " + connection.getResponseMessage());
-					}
 				} else {
 					if (logger.isActivated()) {
 						logger.warn("File transfer cancelled by user");
 					}
 				}
-				// Close streams
-				outputStream.flush();
-				outputStream.close();
+				// The body can't be completed: drop the connection, the data
+				// already sent are kept by the server for a resume
 				connection.disconnect();
 				return null;
 			}
@@ -846,32 +924,23 @@ public class HttpUploadManager extends HttpTransferManager {
 	 *            the offset in bytes
 	 * @throws IOException
 	 */
-	private void writeRemainingFileData(DataOutputStream outputStream, Uri file, int offset) throws IOException {
+	private void writeRemainingFileData(OutputStream outputStream, Uri file, int offset) throws IOException {
 		// Write file content
 		FileInputStream fileInputStream = (FileInputStream)AndroidFactory.getApplicationContext()
 				.getContentResolver().openInputStream(file);
-		// Skip bytes already received
-		int bytesRead = (int) fileInputStream.skip(offset+1);
-		int bytesAvailable = fileInputStream.available();
-		int bufferSize = Math.min(bytesAvailable, CHUNK_MAX_SIZE);
-		byte[] buffer = new byte[bufferSize];
-		int progress = bytesRead;
-		bytesRead = fileInputStream.read(buffer, 0, bufferSize);
-		if (logger.isActivated()) {
-			logger.debug("Send "+bytesAvailable+" remaining bytes starting from " + progress);
-		}
-		// Send remaining bytes
-		while (bytesRead > 0 && !isCancelled()) {
-			progress += bytesRead;
-			outputStream.write(buffer, 0, bytesRead);
-			bytesAvailable = fileInputStream.available();
-			getListener().httpTransferProgress(progress, content.getSize());
-			bufferSize = Math.min(bytesAvailable, CHUNK_MAX_SIZE);
-			buffer = new byte[bufferSize];
-			bytesRead = fileInputStream.read(buffer, 0, bufferSize);
-
+		try {
+			// Skip bytes already received
+			long position = offset + 1;
+			if (logger.isActivated()) {
+				logger.debug("Send " + (content.getSize() - position)
+						+ " remaining bytes starting from " + position);
+			}
+			// Send remaining bytes
+			writeFileData(fileInputStream.getChannel(), outputStream, position, content.getSize(),
+					true);
+		} finally {
+			fileInputStream.close();
 		}
-		fileInputStream.close();
 	}
 
 	/**
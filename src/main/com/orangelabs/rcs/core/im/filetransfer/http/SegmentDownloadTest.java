@@ -0,0 +1,237 @@
+package com.orangelabs.rcs.core.im.filetransfer.http;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.http.impl.client.DefaultHttpClient;
+
+import com.orangelabs.rcs.core.im.filetransfer.http.HttpDownloadManager.Segment;
+import com.orangelabs.rcs.core.im.filetransfer.http.HttpDownloadManager.SegmentDownload;
+
+public class SegmentDownloadTest extends TestCase {
+
+	private static final int SIZE = 64 * 1024;
+
+	private byte[] data;
+
+	private StubServer server;
+
+	private DefaultHttpClient client;
+
+	private File file;
+
+	private RandomAccessFile output;
+
+	@Override
+	protected void setUp() throws Exception {
+		data = new byte[SIZE];
+		new Random(1).nextBytes(data);
+		server = new StubServer(data);
+		server.start();
+		client = new DefaultHttpClient();
+		file = File.createTempFile("segment", ".tmp");
+		output = new RandomAccessFile(file, "rw");
+		output.setLength(SIZE);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		output.close();
+		file.delete();
+		client.getConnectionManager().shutdown();
+		server.close();
+	}
+
+	public void testPartialSegmentKeepsTheReceivedBytes() throws Exception {
+		// The connection is closed after 1000 bytes of the segment
+		server.respond(1000);
+		Segment segment = new Segment(0, SIZE - 1, 0);
+		SegmentDownload download = download(segment);
+		assertTrue(download.error || download.failure);
+		assertFalse(segment.isComplete());
+		assertEquals(1000, segment.position);
+		assertReceived(0, 1000);
+	}
+
+	public void testResumeFromTheReportedOffset() throws Exception {
+		List<Segment> segments = HttpDownloadManager.decodeSegments("0-32767:32768;32768-65535:40000",
+				SIZE);
+		Segment segment = segments.get(1);
+		SegmentDownload download = download(segment);
+		assertFalse(download.error);
+		assertFalse(download.failure);
+		assertTrue(segment.isComplete());
+		assertEquals(Arrays.asList("bytes=40000-65535"), server.getRanges());
+		assertReceived(40000, SIZE);
+	}
+
+	public void testRetryResumesWhereThePartialDownloadStopped() throws Exception {
+		server.respond(1000);
+		Segment segment = new Segment(0, SIZE - 1, 0);
+		download(segment);
+		SegmentDownload retry = download(segment);
+		assertFalse(retry.error);
+		assertFalse(retry.failure);
+		assertTrue(segment.isComplete());
+		assertEquals(Arrays.asList("bytes=0-65535", "bytes=1000-65535"), server.getRanges());
+		assertReceived(0, SIZE);
+	}
+
+	public void testRetryAfterServerError() throws Exception {
+		server.respond(StubServer.SERVER_ERROR);
+		Segment segment = new Segment(32768, SIZE - 1, 32768);
+		SegmentDownload download = download(segment);
+		// A server error may be retried, nothing has been written
+		assertTrue(download.error);
+		assertFalse(download.failure);
+		assertEquals(32768, segment.position);
+		SegmentDownload retry = download(segment);
+		assertFalse(retry.error);
+		assertTrue(segment.isComplete());
+		assertEquals(Arrays.asList("bytes=32768-65535", "bytes=32768-65535"), server.getRanges());
+		assertReceived(32768, SIZE);
+	}
+
+	public void testStoppedDownloadIsNotAnError() throws Exception {
+		final Segment segment = new Segment(0, SIZE - 1, 0);
+		SegmentDownload download = new SegmentDownload(client, server.getUrl(),
+				output.getChannel(), segment) {
+			@Override
+			boolean isStopped() {
+				// Paused after the first chunk
+				return segment.position > 0;
+			}
+		};
+		download.start();
+		download.join();
+		assertFalse(download.error);
+		assertFalse(download.failure);
+		assertFalse(segment.isComplete());
+		assertReceived(0, (int)segment.position);
+	}
+
+	private SegmentDownload download(Segment segment) throws InterruptedException {
+		SegmentDownload download = new SegmentDownload(client, server.getUrl(),
+				output.getChannel(), segment);
+		download.start();
+		download.join();
+		return download;
+	}
+
+	private void assertReceived(int start, int end) throws IOException {
+		byte[] received = new byte[end - start];
+		output.seek(start);
+		output.readFully(received);
+		assertTrue(Arrays.equals(Arrays.copyOfRange(data, start, end), received));
+	}
+
+	/**
+	 * HTTP server answering the range requests of a file, one request per
+	 * connection. The responses may be scripted to fail.
+	 */
+	private static class StubServer extends Thread {
+		/**
+		 * Answer with a 500 instead of the range
+		 */
+		static final int SERVER_ERROR = -1;
+
+		private final byte[] data;
+
+		private final ServerSocket socket;
+
+		private final LinkedList<Integer> responses = new LinkedList<Integer>();
+
+		private final List<String> ranges = new ArrayList<String>();
+
+		StubServer(byte[] data) throws IOException {
+			this.data = data;
+			socket = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+		}
+
+		String getUrl() {
+			return "http://127.0.0.1:" + socket.getLocalPort() + "/file";
+		}
+
+		/**
+		 * Script the next response
+		 *
+		 * @param limit
+		 *            SERVER_ERROR or max number of bytes sent before the
+		 *            connection is closed
+		 */
+		synchronized void respond(int limit) {
+			responses.add(limit);
+		}
+
+		synchronized List<String> getRanges() {
+			return new ArrayList<String>(ranges);
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+
+		@Override
+		public void run() {
+			while (!socket.isClosed()) {
+				try {
+					Socket connection = socket.accept();
+					try {
+						serve(connection);
+					} finally {
+						connection.close();
+					}
+				} catch (IOException e) {
+					// Server closed or connection aborted by the client
+				}
+			}
+		}
+
+		private void serve(Socket connection) throws IOException {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					connection.getInputStream(), "ISO-8859-1"));
+			String range = null;
+			String line;
+			while ((line = reader.readLine()) != null && line.length() > 0) {
+				if (line.regionMatches(true, 0, "Range:", 0, 6)) {
+					range = line.substring(6).trim();
+				}
+			}
+			Integer limit;
+			synchronized (this) {
+				ranges.add(range);
+				limit = responses.poll();
+			}
+			OutputStream out = connection.getOutputStream();
+			if (limit != null && limit == SERVER_ERROR) {
+				out.write(("HTTP/1.1 500 Internal Server Error\r\nContent-Length: 0\r\n"
+						+ "Connection: close\r\n\r\n").getBytes("ISO-8859-1"));
+				out.flush();
+				return;
+			}
+			int dash = range.indexOf('-');
+			int start = Integer.parseInt(range.substring("bytes=".length(), dash));
+			int end = Integer.parseInt(range.substring(dash + 1));
+			int length = end - start + 1;
+			out.write(("HTTP/1.1 206 Partial Content\r\nContent-Range: bytes " + start + "-" + end
+					+ "/" + data.length + "\r\nContent-Length: " + length
+					+ "\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+			out.write(data, start, limit != null ? Math.min(limit, length) : length);
+			out.flush();
+		}
+	}
+}
@@ -118,7 +118,8 @@ public class TerminatingHttpFileSharingSession extends HttpFileTransferSession i
 		
 		// Instantiate the download manager
 		MmContent content = getContent();
-		downloadManager = new HttpDownloadManager(content, this, fileTransferInfo.getFileUri());
+		downloadManager = new HttpDownloadManager(content, this, fileTransferInfo.getFileUri(),
+				fileTransferId);
 
 		// Download thumbnail
 		if (fileTransferInfo.getFileThumbnail() != null) {
@@ -151,7 +152,8 @@ public class TerminatingHttpFileSharingSession extends HttpFileTransferSession i
 		mGroupFileTransfer = resume.isGroup();
 		this.resumeFT = resume;
 		// Instantiate the download manager
-		downloadManager = new HttpDownloadManager(getContent(), this, resume.getDownloadServerAddress());
+		downloadManager = new HttpDownloadManager(getContent(), this, resume.getDownloadServerAddress(),
+				resume.getFileTransferId());
 
 		if (shouldBeAutoAccepted()) {
 			setSessionAccepted();
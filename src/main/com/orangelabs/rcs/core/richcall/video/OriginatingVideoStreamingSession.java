@@ -89,7 +89,9 @@ public class OriginatingVideoStreamingSession extends VideoStreamingSession {
 
             // Build SDP part
 	    	String ipAddress = getDialogPath().getSipStack().getLocalIpAddress();
-            String videoSdp = VideoSdpBuilder.buildSdpOfferWithOrientation(getVideoPlayer().getSupportedCodecs(), getVideoPlayer().getLocalRtpPort());
+            // RTCP feedback is offered only if the player handles it
+            String videoSdp = VideoSdpBuilder.buildSdpOfferWithOrientation(getVideoPlayer().getSupportedCodecs(), getVideoPlayer().getLocalRtpPort(),
+                    getVideoPlayer().isRtcpFeedbackSupported());
             String sdp = SdpUtils.buildVideoSDP(ipAddress, videoSdp, SdpUtils.DIRECTION_SENDONLY);
 
             //buildVideoSdp(ipAddress, getVideoPlayer().getLocalRtpPort(), getVideoPlayer().getSupportedCodecs());
@@ -178,6 +180,18 @@ public class OriginatingVideoStreamingSession extends VideoStreamingSession {
         	// TODO getVideoPlayer().setOrientationHeaderId(extensionHeader.getExtensionId());
         }
 
+        // Set the RTCP feedback accepted by the remote
+        int payloadType = selectedVideoCodec.getPayloadType();
+        boolean nack = VideoSdpBuilder.isRtcpFeedbackNegotiated(mediaVideo, payloadType, VideoSdpBuilder.RTCP_FB_NACK);
+        boolean pli = VideoSdpBuilder.isRtcpFeedbackNegotiated(mediaVideo, payloadType, VideoSdpBuilder.RTCP_FB_PLI);
+        boolean fir = VideoSdpBuilder.isRtcpFeedbackNegotiated(mediaVideo, payloadType, VideoSdpBuilder.RTCP_FB_FIR);
+        if (logger.isActivated()) {
+            logger.debug("RTCP feedback: nack=" + nack + ", pli=" + pli + ", fir=" + fir);
+        }
+        if (nack || pli || fir) {
+            getVideoPlayer().setRtcpFeedback(nack, pli, fir);
+        }
+
         // Set video player event listener
         getVideoPlayer().addEventListener(new MyPlayerEventListener(this));
 
@@ -203,6 +203,20 @@ public class TerminatingVideoStreamingSession extends VideoStreamingSession {
             	// TODO getVideoRenderer().setOrientationHeaderId(extensionHeader.getExtensionId());
             }
 
+            // Set the RTCP feedback offered by the remote, if the renderer sends it
+            boolean rtcpFeedback = getVideoRenderer().isRtcpFeedbackSupported();
+            int payloadType = selectedVideoCodec.getPayloadType();
+            boolean nack = rtcpFeedback
+                    && VideoSdpBuilder.isRtcpFeedbackNegotiated(mediaVideo, payloadType, VideoSdpBuilder.RTCP_FB_NACK);
+            boolean pli = rtcpFeedback
+                    && VideoSdpBuilder.isRtcpFeedbackNegotiated(mediaVideo, payloadType, VideoSdpBuilder.RTCP_FB_PLI);
+            if (logger.isActivated()) {
+                logger.debug("RTCP feedback: nack=" + nack + ", pli=" + pli);
+            }
+            if (nack || pli) {
+                getVideoRenderer().setRtcpFeedback(nack, pli);
+            }
+
             // Set video renderer event listener
             getVideoRenderer().addEventListener(new MyRendererEventListener(this));
 
@@ -211,7 +225,8 @@ public class TerminatingVideoStreamingSession extends VideoStreamingSession {
 
             // Build SDP part
 	    	String ipAddress = getDialogPath().getSipStack().getLocalIpAddress();
-            String videoSdp = VideoSdpBuilder.buildSdpAnswer(selectedVideoCodec, getVideoRenderer().getLocalRtpPort(), mediaVideo); 
+            String videoSdp = VideoSdpBuilder.buildSdpAnswer(selectedVideoCodec, getVideoRenderer().getLocalRtpPort(), mediaVideo,
+                    rtcpFeedback); 
             String sdp = SdpUtils.buildVideoSDP(ipAddress, videoSdp, SdpUtils.DIRECTION_RECVONLY);
 
             // Set the local SDP part in the dialog path
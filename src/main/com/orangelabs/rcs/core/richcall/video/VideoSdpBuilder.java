@@ -23,6 +23,7 @@ import java.util.Vector;
 
 import com.gsma.services.rcs.vsh.VideoCodec;
 import com.orangelabs.rcs.protocol.rtp.RtpUtils;
+import com.orangelabs.rcs.protocol.sdp.MediaAttribute;
 import com.orangelabs.rcs.protocol.sdp.MediaDescription;
 import com.orangelabs.rcs.protocol.sdp.SimpleSessionDescription.Media;
 import com.orangelabs.rcs.protocol.sip.SipUtils;
@@ -39,15 +40,52 @@ public class VideoSdpBuilder {
      */
     public static final String ATTRIBUTE_EXTENSION = "extmap";
 
+    /**
+     * RTCP feedback attribute name, RFC4585
+     */
+    public static final String ATTRIBUTE_RTCP_FB = "rtcp-fb";
+
+    /**
+     * Generic NACK feedback, RFC4585
+     */
+    public static final String RTCP_FB_NACK = "nack";
+
+    /**
+     * Picture Loss Indication feedback, RFC4585
+     */
+    public static final String RTCP_FB_PLI = "nack pli";
+
+    /**
+     * Full Intra Request feedback, RFC5104
+     */
+    public static final String RTCP_FB_FIR = "ccm fir";
+
+    /**
+     * RTP profile, RFC3551
+     */
+    public static final String PROFILE_AVP = "RTP/AVP";
+
+    /**
+     * RTP profile with RTCP feedback, RFC4585
+     */
+    public static final String PROFILE_AVPF = "RTP/AVPF";
+
+    /**
+     * RTCP feedback offered for each codec
+     */
+    private static final String[] RTCP_FEEDBACK = { RTCP_FB_NACK, RTCP_FB_PLI, RTCP_FB_FIR };
+
     /**
      * Build SDP offer without the orientation extension ordered by the
      * preferred codec
      * 
      * @param supportedCodecs Codecs to create SDP
      * @param localRtpPort Local RTP port
+     * @param rtcpFeedback True to offer the RTP/AVPF profile with RTCP feedback
      * @return SDP offer
      */
-    public static String buildSdpOfferWithoutOrientation(VideoCodec[] supportedCodecs, int localRtpPort) {
+    public static String buildSdpOfferWithoutOrientation(VideoCodec[] supportedCodecs, int localRtpPort,
+            boolean rtcpFeedback) {
 
         
     	
@@ -59,7 +97,7 @@ public class VideoSdpBuilder {
             codecs.add(supportedCodecs[i]);
         }
 
-        result.append("m=video " + localRtpPort + " RTP/AVP");
+        result.append("m=video " + localRtpPort + " " + (rtcpFeedback ? PROFILE_AVPF : PROFILE_AVP));
         for (VideoCodec codec : codecs) {
             result.append(" ").append(codec.getPayloadType());
         }
@@ -79,6 +117,11 @@ public class VideoSdpBuilder {
                 result.append("a=framesize:" + codec.getPayloadType() + " " + codec.getVideoWidth() + "-" + codec.getVideoHeight() + SipUtils.CRLF);
             }
             result.append("a=fmtp:" + codec.getPayloadType() + " " + codec.getParameters() + SipUtils.CRLF);
+            if (rtcpFeedback) {
+                for (String feedback : RTCP_FEEDBACK) {
+                    appendRtcpFeedback(result, codec.getPayloadType(), feedback);
+                }
+            }
         }
 
         return result.toString();
@@ -90,10 +133,13 @@ public class VideoSdpBuilder {
      * 
      * @param supportedCodecs Codecs to create SDP
      * @param localRtpPort Local RTP port
+     * @param rtcpFeedback True to offer the RTP/AVPF profile with RTCP feedback
      * @return SDP offer
      */
-    public static String buildSdpOfferWithOrientation(VideoCodec[] supportedCodecs, int localRtpPort) {
-        StringBuilder sdp = new StringBuilder(buildSdpOfferWithoutOrientation(supportedCodecs, localRtpPort))
+    public static String buildSdpOfferWithOrientation(VideoCodec[] supportedCodecs, int localRtpPort,
+            boolean rtcpFeedback) {
+        StringBuilder sdp = new StringBuilder(buildSdpOfferWithoutOrientation(supportedCodecs,
+                localRtpPort, rtcpFeedback))
                 .append("a=").append(ATTRIBUTE_EXTENSION).append(':').append(RtpUtils.RTP_DEFAULT_EXTENSION_ID)
                 .append(" " + SdpOrientationExtension.VIDEO_ORIENTATION_URI).append(SipUtils.CRLF);
         return sdp.toString();
@@ -104,11 +150,13 @@ public class VideoSdpBuilder {
      *
      * @param codec Media codec
      * @param localRtpPort Local RTP port
+     * @param profile RTP profile
      * @return SDP
      */
-    private static String buildSdpWithoutOrientation(VideoCodec videoCodec, int localRtpPort) {
+    private static String buildSdpWithoutOrientation(VideoCodec videoCodec, int localRtpPort,
+            String profile) {
         StringBuilder sdp = new StringBuilder()
-                .append("m=video ").append(localRtpPort).append(" RTP/AVP ")
+                .append("m=video ").append(localRtpPort).append(' ').append(profile).append(' ')
                 .append(videoCodec.getPayloadType()).append(SipUtils.CRLF)
                 .append("a=rtpmap:").append(videoCodec.getPayloadType()).append(" ")
                 .append(videoCodec.getEncoding()).append("/")
@@ -132,10 +180,12 @@ public class VideoSdpBuilder {
      * @param codec Media Codec
      * @param localRtpPort Local RTP Port
      * @param extensionId
+     * @param profile RTP profile
      * @return SDP
      */
-    private static String buildSdpWithOrientationExtension(VideoCodec codec, int localRtpPort, int extensionId) {
-        StringBuilder sdp = new StringBuilder(buildSdpWithoutOrientation(codec, localRtpPort))
+    private static String buildSdpWithOrientationExtension(VideoCodec codec, int localRtpPort,
+            int extensionId, String profile) {
+        StringBuilder sdp = new StringBuilder(buildSdpWithoutOrientation(codec, localRtpPort, profile))
                 .append("a=").append(ATTRIBUTE_EXTENSION).append(':').append(extensionId)
                 .append(" " + SdpOrientationExtension.VIDEO_ORIENTATION_URI).append(SipUtils.CRLF);
         return sdp.toString();
@@ -145,22 +195,94 @@ public class VideoSdpBuilder {
     /**
      * Builds the SDP for a SIP INVITE response. If the SIP INVITE SDP
      * doesn't have the orientation extension then the response SDP
-     * also shouldn't have.
+     * also shouldn't have. The answer takes the RTP/AVPF profile if the
+     * offer did and RTCP feedback is supported, else the RTP/AVP profile.
      * 
      * @param codec Media Codec
      * @param localRtpPort Local RTP Port
      * @param videoMedia Invite video media
+     * @param rtcpFeedback True if RTCP feedback is supported
      * @return SDP answer
      */
-    public static String buildSdpAnswer(VideoCodec codec, int localRtpPort, MediaDescription inviteVideoMedia) {
-        if (inviteVideoMedia != null) {
-            SdpOrientationExtension extension = SdpOrientationExtension.create(inviteVideoMedia);
-            if (extension != null) {
-                return buildSdpWithOrientationExtension(codec, localRtpPort,
-                        extension.getExtensionId());
+    public static String buildSdpAnswer(VideoCodec codec, int localRtpPort,
+            MediaDescription inviteVideoMedia, boolean rtcpFeedback) {
+        if (inviteVideoMedia == null) {
+            return buildSdpWithoutOrientation(codec, localRtpPort, PROFILE_AVP);
+        }
+
+        rtcpFeedback &= isRtcpFeedbackProfile(inviteVideoMedia);
+        String profile = rtcpFeedback ? PROFILE_AVPF : PROFILE_AVP;
+        StringBuilder sdp;
+        SdpOrientationExtension extension = SdpOrientationExtension.create(inviteVideoMedia);
+        if (extension != null) {
+            sdp = new StringBuilder(buildSdpWithOrientationExtension(codec, localRtpPort,
+                    extension.getExtensionId(), profile));
+        } else {
+            sdp = new StringBuilder(buildSdpWithoutOrientation(codec, localRtpPort, profile));
+        }
+
+        // Only the RTCP feedback offered by the remote is accepted
+        if (rtcpFeedback) {
+            for (String feedback : RTCP_FEEDBACK) {
+                if (isRtcpFeedbackNegotiated(inviteVideoMedia, codec.getPayloadType(), feedback)) {
+                    appendRtcpFeedback(sdp, codec.getPayloadType(), feedback);
+                }
+            }
+        }
+        return sdp.toString();
+    }
+
+    /**
+     * Checks if a video media uses the RTP profile with RTCP feedback
+     *
+     * @param videoMedia Video media
+     * @return True if the profile is RTP/AVPF
+     */
+    public static boolean isRtcpFeedbackProfile(MediaDescription videoMedia) {
+        return PROFILE_AVPF.equalsIgnoreCase(videoMedia.protocol);
+    }
+
+    /**
+     * Checks if a RTCP feedback is negotiated for a codec in a video media:
+     * the media uses the RTP/AVPF profile and carries the feedback
+     *
+     * @param videoMedia Video media
+     * @param payloadType Payload type of the codec
+     * @param feedback RTCP feedback, e.g. RTCP_FB_NACK
+     * @return True if the feedback is present for the codec or for all codecs
+     */
+    public static boolean isRtcpFeedbackNegotiated(MediaDescription videoMedia, int payloadType,
+            String feedback) {
+        if (!isRtcpFeedbackProfile(videoMedia)) {
+            return false;
+        }
+        for (MediaAttribute attribute : videoMedia.mediaAttributes) {
+            if (!ATTRIBUTE_RTCP_FB.equals(attribute.getName()) || attribute.getValue() == null) {
+                continue;
+            }
+            String value = attribute.getValue().trim();
+            int index = value.indexOf(' ');
+            if (index == -1) {
+                continue;
+            }
+            String payload = value.substring(0, index);
+            if ((payload.equals("*") || payload.equals(String.valueOf(payloadType)))
+                    && value.substring(index + 1).trim().equalsIgnoreCase(feedback)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        return buildSdpWithoutOrientation(codec, localRtpPort);
+    /**
+     * Append a RTCP feedback attribute for a codec
+     *
+     * @param sdp SDP being built
+     * @param payloadType Payload type of the codec
+     * @param feedback RTCP feedback
+     */
+    private static void appendRtcpFeedback(StringBuilder sdp, int payloadType, String feedback) {
+        sdp.append("a=").append(ATTRIBUTE_RTCP_FB).append(':').append(payloadType).append(' ')
+                .append(feedback).append(SipUtils.CRLF);
     }
 }
@@ -0,0 +1,78 @@
+package com.orangelabs.rcs.core.richcall.video;
+
+import junit.framework.TestCase;
+
+import com.gsma.services.rcs.vsh.VideoCodec;
+import com.orangelabs.rcs.protocol.sdp.MediaDescription;
+import com.orangelabs.rcs.protocol.sdp.SdpParser;
+
+public class VideoSdpBuilderTest extends TestCase {
+
+	private static final VideoCodec CODEC = new VideoCodec("H264", 96, 90000, 15, 256000, 320,
+			240, "profile-level-id=42900b");
+
+	private static final String SESSION = "v=0\r\n"
+			+ "o=- 3585 3585 IN IP4 10.0.0.1\r\n"
+			+ "s=-\r\n"
+			+ "c=IN IP4 10.0.0.1\r\n"
+			+ "t=0 0\r\n";
+
+	private static MediaDescription parseVideo(String media) throws Exception {
+		return new SdpParser((SESSION + media).getBytes("UTF-8")).getMediaDescription("video");
+	}
+
+	public void testOfferWithFeedbackUsesTheAvpfProfile() throws Exception {
+		String offer = VideoSdpBuilder.buildSdpOfferWithOrientation(new VideoCodec[] {
+			CODEC
+		}, 5000, true);
+		assertTrue(offer.startsWith("m=video 5000 RTP/AVPF 96\r\n"));
+		assertTrue(offer.contains("a=rtcp-fb:96 nack\r\n"));
+		assertTrue(offer.contains("a=rtcp-fb:96 nack pli\r\n"));
+		assertTrue(offer.contains("a=rtcp-fb:96 ccm fir\r\n"));
+
+		MediaDescription media = parseVideo(offer);
+		assertTrue(VideoSdpBuilder.isRtcpFeedbackNegotiated(media, 96, VideoSdpBuilder.RTCP_FB_NACK));
+		assertTrue(VideoSdpBuilder.isRtcpFeedbackNegotiated(media, 96, VideoSdpBuilder.RTCP_FB_PLI));
+	}
+
+	public void testOfferWithoutFeedbackUsesTheAvpProfile() throws Exception {
+		String offer = VideoSdpBuilder.buildSdpOfferWithOrientation(new VideoCodec[] {
+			CODEC
+		}, 5000, false);
+		assertTrue(offer.startsWith("m=video 5000 RTP/AVP 96\r\n"));
+		assertFalse(offer.contains("rtcp-fb"));
+	}
+
+	public void testAnswerAcceptsTheOfferedFeedback() throws Exception {
+		MediaDescription offer = parseVideo("m=video 6000 RTP/AVPF 96\r\n"
+				+ "a=rtpmap:96 H264/90000\r\n"
+				+ "a=rtcp-fb:96 nack\r\n");
+		String answer = VideoSdpBuilder.buildSdpAnswer(CODEC, 5000, offer, true);
+		assertTrue(answer.startsWith("m=video 5000 RTP/AVPF 96\r\n"));
+		assertTrue(answer.contains("a=rtcp-fb:96 nack\r\n"));
+		assertFalse(answer.contains("a=rtcp-fb:96 nack pli"));
+		assertFalse(answer.contains("ccm fir"));
+	}
+
+	public void testAnswerWithoutFeedbackSupportUsesTheAvpProfile() throws Exception {
+		MediaDescription offer = parseVideo("m=video 6000 RTP/AVPF 96\r\n"
+				+ "a=rtpmap:96 H264/90000\r\n"
+				+ "a=rtcp-fb:96 nack\r\n");
+		String answer = VideoSdpBuilder.buildSdpAnswer(CODEC, 5000, offer, false);
+		assertTrue(answer.startsWith("m=video 5000 RTP/AVP 96\r\n"));
+		assertFalse(answer.contains("rtcp-fb"));
+	}
+
+	public void testFeedbackIsNotNegotiatedWithTheAvpProfile() throws Exception {
+		// Feedback attributes are meaningless out of the RTP/AVPF profile
+		MediaDescription offer = parseVideo("m=video 6000 RTP/AVP 96\r\n"
+				+ "a=rtpmap:96 H264/90000\r\n"
+				+ "a=rtcp-fb:96 nack\r\n"
+				+ "a=rtcp-fb:96 nack pli\r\n");
+		assertFalse(VideoSdpBuilder.isRtcpFeedbackNegotiated(offer, 96, VideoSdpBuilder.RTCP_FB_NACK));
+		assertFalse(VideoSdpBuilder.isRtcpFeedbackNegotiated(offer, 96, VideoSdpBuilder.RTCP_FB_PLI));
+		String answer = VideoSdpBuilder.buildSdpAnswer(CODEC, 5000, offer, true);
+		assertTrue(answer.startsWith("m=video 5000 RTP/AVP 96\r\n"));
+		assertFalse(answer.contains("rtcp-fb"));
+	}
+}
@@ -55,6 +55,7 @@ import local.org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import local.org.bouncycastle.operator.ContentSigner;
 
 import com.orangelabs.rcs.platform.AndroidFactory;
+import com.orangelabs.rcs.platform.network.TlsContextManager;
 import com.orangelabs.rcs.protocol.sip.UserProfile;
 import com.orangelabs.rcs.provider.settings.RcsSettings;
 import com.orangelabs.rcs.provider.settings.RcsSettingsData;
@@ -632,6 +633,9 @@ public class KeyStoreManager {
 			synchronized(this) {
 				ks.store(fos, KEYSTORE_PASSWORD.toCharArray());
 			}
+
+			// The pooled TLS contexts have loaded the previous keystore
+			TlsContextManager.invalidate();
 		} catch (Exception ex) {
 			if (logger.isActivated()) {
                 logger.error("Saving " + getKeystorePath() + " of type " + getKeystoreType()
@@ -20,7 +20,7 @@ package com.orangelabs.rcs.core.sip.streaming;
 import com.orangelabs.rcs.protocol.rtp.media.MediaException;
 import com.orangelabs.rcs.protocol.rtp.media.MediaInput;
 import com.orangelabs.rcs.protocol.rtp.media.MediaSample;
-import com.orangelabs.rcs.utils.FifoBuffer;
+import com.orangelabs.rcs.protocol.rtp.media.MediaSampleQueue;
 
 /**
  * Data player in charge of sending data payload to the network via
@@ -30,14 +30,36 @@ import com.orangelabs.rcs.utils.FifoBuffer;
  */
 public class DataSender implements MediaInput {
     /**
-     * Received frames
+     * Queued frames
      */
-    private FifoBuffer fifo = null;
+    private MediaSampleQueue queue = null;
+
+    /**
+     * Max number of queued frames
+     */
+    private final int capacity;
+
+    /**
+     * Overflow policy
+     */
+    private final int policy;
+
+    /**
+     * Pacing flag
+     */
+    private final boolean pacing;
 
     /**
      * Constructor
+     *
+     * @param capacity Max number of queued frames
+     * @param policy Overflow policy (see {@link MediaSampleQueue})
+     * @param pacing Pacing flag
      */
-    public DataSender() {
+    public DataSender(int capacity, int policy, boolean pacing) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.pacing = pacing;
     }
 
     /**
@@ -45,29 +67,30 @@ public class DataSender implements MediaInput {
      *
      * @param data Data
      * @param timestamp Timestamp
-     * @param marker Marker bit 
+     * @return Returns false if the frame has been dropped
      */
-    public void addFrame(byte[] data, long timestamp) {
-        if (fifo != null) {
-        	MediaSample sample = new MediaSample(data, timestamp);
-            fifo.addObject(sample);
+    public boolean addFrame(byte[] data, long timestamp) {
+        MediaSampleQueue q = queue;
+        if (q != null) {
+            return q.put(data, timestamp);
         }
+        return false;
     }
 
     /**
      * Open the player
      */
     public void open() {
-        fifo = new FifoBuffer();
+        queue = new MediaSampleQueue(capacity, policy, pacing);
     }
 
     /**
      * Close the player
      */
     public void close() {
-        if (fifo != null) {
-            fifo.close();
-            fifo = null;
+        if (queue != null) {
+            queue.close();
+            queue = null;
         }
     }
 
@@ -78,14 +101,40 @@ public class DataSender implements MediaInput {
      * @throws MediaException
      */
     public MediaSample readSample() throws MediaException {
-        try {
-            if (fifo != null) {
-                return (MediaSample)fifo.getObject();
-            } else {
-                throw new MediaException("Media input not opened");
-            }
-        } catch (Exception e) {
-            throw new MediaException("Can't read media sample");
+        MediaSampleQueue q = queue;
+        if (q == null) {
+            throw new MediaException("Media input not opened");
         }
+        return q.take();
+    }
+
+    /**
+     * Returns the number of frames waiting to be sent
+     *
+     * @return Number of frames
+     */
+    public int getQueueSize() {
+        MediaSampleQueue q = queue;
+        return (q != null) ? q.size() : 0;
+    }
+
+    /**
+     * Returns the number of frames dropped because the queue was full
+     *
+     * @return Number of frames
+     */
+    public long getDroppedFrames() {
+        MediaSampleQueue q = queue;
+        return (q != null) ? q.getDroppedCount() : 0;
+    }
+
+    /**
+     * Returns the smoothed time spent by frames in the queue before being sent
+     *
+     * @return Latency in milliseconds
+     */
+    public long getLatency() {
+        MediaSampleQueue q = queue;
+        return (q != null) ? q.getLatency() : 0;
     }
 }
\ No newline at end of file
@@ -38,6 +38,7 @@ import com.orangelabs.rcs.protocol.sdp.MediaDescription;
 import com.orangelabs.rcs.protocol.sdp.SdpParser;
 import com.orangelabs.rcs.protocol.sdp.SdpUtils;
 import com.orangelabs.rcs.protocol.sip.SipUtils;
+import com.orangelabs.rcs.provider.settings.RcsSettings;
 import com.orangelabs.rcs.utils.NetworkRessourceManager;
 import com.orangelabs.rcs.utils.logger.Logger;
 
@@ -62,7 +63,7 @@ public abstract class GenericSipRtpSession extends GenericSipSession implements
     /**
 	 * Data sender
 	 */
-	private DataSender dataSender = new DataSender();
+	private DataSender dataSender;
 	
     /**
      * Data receiver
@@ -104,6 +105,12 @@ public abstract class GenericSipRtpSession extends GenericSipSession implements
 		// Get local port
 		localRtpPort = NetworkRessourceManager.generateLocalRtpPort();
 
+		// Create the data sender
+		RcsSettings settings = RcsSettings.getInstance();
+		dataSender = new DataSender(settings.getStreamingQueueSizeForExtensions(),
+				settings.getStreamingQueuePolicyForExtensions(),
+				settings.isStreamingPacingForExtensions());
+
         // Create the RTP sender & receiver
 		rtpReceiver = new MediaRtpReceiver(localRtpPort);
 		rtpSender = new MediaRtpSender(format, localRtpPort);
@@ -222,6 +229,33 @@ public abstract class GenericSipRtpSession extends GenericSipSession implements
     	}
     }
     
+    /**
+     * Returns the number of payloads waiting to be sent
+     * 
+     * @return Number of payloads
+     */
+    public int getSendQueueSize() {
+    	return dataSender.getQueueSize();
+    }
+
+    /**
+     * Returns the number of payloads dropped because the send queue was full
+     * 
+     * @return Number of payloads
+     */
+    public long getDroppedPayloads() {
+    	return dataSender.getDroppedFrames();
+    }
+
+    /**
+     * Returns the smoothed time spent by payloads in the send queue
+     * 
+     * @return Latency in milliseconds
+     */
+    public long getSendLatency() {
+    	return dataSender.getLatency();
+    }
+
     /**
      * Invoked when the RTP stream was aborted
      */
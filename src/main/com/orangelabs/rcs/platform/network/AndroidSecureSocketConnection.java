@@ -19,6 +19,7 @@ package com.orangelabs.rcs.platform.network;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.SecureRandom;
 import java.security.cert.Certificate;
@@ -53,7 +54,6 @@ public class AndroidSecureSocketConnection extends AndroidSocketConnection {
      * SSL factory
      */
 	// Changed by Deutsche Telekom
-    // TODO: check why this was static before
 	private SSLSocketFactory mSslSocketFactory = null;
 
 	// Changed by Deutsche Telekom
@@ -193,23 +193,52 @@ public class AndroidSecureSocketConnection extends AndroidSocketConnection {
 	
 	/**
 	 * Returns the SSL factory instance
-	 * 
-	 * @param checkCertificate flag to indicate whether the remote certificate will be checked
+	 * <p>
+	 * The SSL context is shared by the connections using the same certificate
+	 * checks, so that a connection to a relay already contacted resumes the
+	 * TLS session.
 	 * 
 	 * @return SSL factory
 	 * @throws IOException
 	 */
 	// Changed by Deutsche Telekom
-    // TODO: check why this was static before
 	private synchronized SSLSocketFactory getSslFactory() throws IOException {
+		if (mSslSocketFactory == null) {
+			String key = "msrp:" + (mCheckCertificate ? "ca" : "self-signed") + ":"
+					+ KeyStoreManager.getKeystorePath() + ":" + KeyStoreManager.isOwnCertificateUsed();
+			try {
+				SSLContext sslContext = TlsContextManager.getContext(key,
+						new TlsContextManager.ContextFactory() {
+							@Override
+							public SSLContext createContext() throws GeneralSecurityException,
+									IOException {
+								return createSslContext();
+							}
+						});
+				mSslSocketFactory = TlsContextManager.getSocketFactory(sslContext);
+			} catch(Exception e) {
+				throw new IOException("Certificate exception: " + e.getMessage());
+			}
+		}
+		return mSslSocketFactory;
+	}
+
+	/**
+	 * Create the SSL context
+	 * 
+	 * @return SSL context
+	 * @throws GeneralSecurityException
+	 * @throws IOException
+	 */
+	// Changed by Deutsche Telekom
+	private SSLContext createSslContext() throws GeneralSecurityException, IOException {
         // Changed by Deutsche Telekom
 	    FileInputStream ksFileInputStream = null;
         FileInputStream tsFileInputStream = null;
-		if (mSslSocketFactory == null) {
 			try {
 				// Changed by Deutsche Telekom
 				if (logger.isActivated()) {
-					logger.debug("Create SSLSocketFactory");
+					logger.debug("Create SSLContext");
 				}
 				String keyStoreType = keys.getKeystoreType();
 				String keyStoreFile = keys.getKeystorePath();
@@ -268,16 +297,11 @@ public class AndroidSecureSocketConnection extends AndroidSocketConnection {
 		        secureRandom.nextInt();
 
 		        sslContext.init(kms, tms, secureRandom);
-
-		        mSslSocketFactory = sslContext.getSocketFactory();
-			} catch(Exception e) {
-				throw new IOException("Certificate exception: " + e.getMessage());
+		        return sslContext;
 			} finally {
 			    CloseableUtils.close(ksFileInputStream);
 			    CloseableUtils.close(tsFileInputStream);
 			}
-		}
-		return mSslSocketFactory;
 	}
 
 }
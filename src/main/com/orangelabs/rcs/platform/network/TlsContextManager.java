@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.platform.network;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import com.orangelabs.rcs.utils.logger.Logger;
+
+/**
+ * TLS context manager
+ * <p>
+ * The SSL contexts are shared by all the connections of a same kind (SIP,
+ * MSRP, HTTP) instead of being created per connection, so that they share
+ * their session cache: a new connection to a server already contacted
+ * resumes the TLS session, by session ticket where the platform supports it
+ * or else by session ID, instead of running a full handshake. The session
+ * caches are bounded in size and in lifetime.
+ * <p>
+ * The sockets created by the factories of this manager also feed the
+ * handshake statistics (number of full and resumed handshakes, time spent).
+ */
+public class TlsContextManager {
+	/**
+	 * Max number of sessions cached per context
+	 */
+	public static final int SESSION_CACHE_SIZE = 32;
+
+	/**
+	 * Lifetime of a cached session in seconds
+	 */
+	public static final int SESSION_TIMEOUT = 4 * 60 * 60;
+
+	/**
+	 * Creates the context of a pool entry
+	 */
+	public interface ContextFactory {
+		/**
+		 * Create and initialize a context
+		 *
+		 * @return SSL context
+		 * @throws GeneralSecurityException
+		 * @throws IOException
+		 */
+		SSLContext createContext() throws GeneralSecurityException, IOException;
+	}
+
+	/**
+	 * Pooled contexts by key
+	 */
+	private static final Map<String, SSLContext> sContexts = new HashMap<String, SSLContext>();
+
+	private static int sFullHandshakes = 0;
+
+	private static int sResumedHandshakes = 0;
+
+	private static long sFullHandshakeTime = 0;
+
+	private static long sResumedHandshakeTime = 0;
+
+	/**
+	 * The logger
+	 */
+	private static final Logger logger = Logger.getLogger(TlsContextManager.class.getSimpleName());
+
+	/**
+	 * Returns the pooled context of a key, the context is created on first use
+	 *
+	 * @param key Key identifying the configuration of the context (trust and key material)
+	 * @param factory Factory creating the context if not pooled yet
+	 * @return SSL context
+	 * @throws GeneralSecurityException
+	 * @throws IOException
+	 */
+	public static synchronized SSLContext getContext(String key, ContextFactory factory)
+			throws GeneralSecurityException, IOException {
+		SSLContext context = sContexts.get(key);
+		if (context == null) {
+			if (logger.isActivated()) {
+				logger.debug("Create TLS context " + key);
+			}
+			context = factory.createContext();
+			configureSessionCache(context.getClientSessionContext());
+			configureSessionCache(context.getServerSessionContext());
+			sContexts.put(key, context);
+		}
+		return context;
+	}
+
+	/**
+	 * Drop the pooled contexts, e.g. when the keystore has been modified. The
+	 * sessions cached by the dropped contexts are not resumed anymore.
+	 */
+	public static synchronized void invalidate() {
+		if (logger.isActivated()) {
+			logger.debug("Invalidate " + sContexts.size() + " TLS contexts");
+		}
+		sContexts.clear();
+	}
+
+	/**
+	 * Returns a socket factory of a context which enables session tickets on
+	 * the sockets and records their handshakes
+	 *
+	 * @param context SSL context
+	 * @return Socket factory
+	 */
+	public static SSLSocketFactory getSocketFactory(SSLContext context) {
+		return new TlsSocketFactory(context.getSocketFactory());
+	}
+
+	/**
+	 * Returns the number of full handshakes
+	 *
+	 * @return Number of handshakes
+	 */
+	public static synchronized int getFullHandshakes() {
+		return sFullHandshakes;
+	}
+
+	/**
+	 * Returns the number of resumed handshakes
+	 *
+	 * @return Number of handshakes
+	 */
+	public static synchronized int getResumedHandshakes() {
+		return sResumedHandshakes;
+	}
+
+	/**
+	 * Returns the mean duration of the full handshakes
+	 *
+	 * @return Duration in milliseconds
+	 */
+	public static synchronized long getMeanFullHandshakeTime() {
+		return sFullHandshakes > 0 ? sFullHandshakeTime / sFullHandshakes : 0;
+	}
+
+	/**
+	 * Returns the mean duration of the resumed handshakes
+	 *
+	 * @return Duration in milliseconds
+	 */
+	public static synchronized long getMeanResumedHandshakeTime() {
+		return sResumedHandshakes > 0 ? sResumedHandshakeTime / sResumedHandshakes : 0;
+	}
+
+	private static void configureSessionCache(SSLSessionContext sessions) {
+		if (sessions != null) {
+			sessions.setSessionCacheSize(SESSION_CACHE_SIZE);
+			sessions.setSessionTimeout(SESSION_TIMEOUT);
+		}
+	}
+
+	/**
+	 * Enable session tickets (RFC 5077) on a socket. This is not part of the
+	 * JSSE API, so it is only done where the provider offers it.
+	 *
+	 * @param socket SSL socket
+	 */
+	private static void enableSessionTickets(SSLSocket socket) {
+		try {
+			Method method = socket.getClass().getMethod("setUseSessionTickets", boolean.class);
+			method.invoke(socket, true);
+		} catch (Exception e) {
+			// Not supported by the provider: sessions are resumed by session ID
+		}
+	}
+
+	private static synchronized void recordHandshake(boolean resumed, long duration) {
+		if (resumed) {
+			sResumedHandshakes++;
+			sResumedHandshakeTime += duration;
+		} else {
+			sFullHandshakes++;
+			sFullHandshakeTime += duration;
+		}
+	}
+
+	/**
+	 * Prepare a socket created by a pooled context
+	 *
+	 * @param socket Socket
+	 * @return Socket
+	 */
+	private static Socket prepareSocket(Socket socket) {
+		if (socket instanceof SSLSocket) {
+			SSLSocket sslSocket = (SSLSocket) socket;
+			enableSessionTickets(sslSocket);
+			sslSocket.addHandshakeCompletedListener(new HandshakeRecorder());
+		}
+		return socket;
+	}
+
+	/**
+	 * Records the handshake of a socket. The handshake is timed from the
+	 * creation of the socket, which is just before the handshake for sockets
+	 * created connected or layered over a connected socket.
+	 */
+	private static class HandshakeRecorder implements HandshakeCompletedListener {
+		private final long mStart = System.currentTimeMillis();
+
+		@Override
+		public void handshakeCompleted(HandshakeCompletedEvent event) {
+			long duration = System.currentTimeMillis() - mStart;
+			SSLSession session = event.getSession();
+			// A resumed session has been created by a previous handshake
+			boolean resumed = session.getCreationTime() < mStart;
+			recordHandshake(resumed, duration);
+			event.getSocket().removeHandshakeCompletedListener(this);
+			if (logger.isActivated()) {
+				logger.debug("TLS handshake with " + session.getPeerHost() + ":"
+						+ session.getPeerPort() + (resumed ? " resumed" : " full") + " in "
+						+ duration + "ms (full=" + getFullHandshakes() + " "
+						+ getMeanFullHandshakeTime() + "ms, resumed=" + getResumedHandshakes()
+						+ " " + getMeanResumedHandshakeTime() + "ms)");
+			}
+		}
+	}
+
+	/**
+	 * Socket factory preparing the sockets of a pooled context
+	 */
+	private static class TlsSocketFactory extends SSLSocketFactory {
+		private final SSLSocketFactory mFactory;
+
+		public TlsSocketFactory(SSLSocketFactory factory) {
+			mFactory = factory;
+		}
+
+		@Override
+		public String[] getDefaultCipherSuites() {
+			return mFactory.getDefaultCipherSuites();
+		}
+
+		@Override
+		public String[] getSupportedCipherSuites() {
+			return mFactory.getSupportedCipherSuites();
+		}
+
+		@Override
+		public Socket createSocket() throws IOException {
+			return prepareSocket(mFactory.createSocket());
+		}
+
+		@Override
+		public Socket createSocket(Socket socket, String host, int port, boolean autoClose)
+				throws IOException {
+			return prepareSocket(mFactory.createSocket(socket, host, port, autoClose));
+		}
+
+		@Override
+		public Socket createSocket(String host, int port) throws IOException {
+			return prepareSocket(mFactory.createSocket(host, port));
+		}
+
+		@Override
+		public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+				throws IOException {
+			return prepareSocket(mFactory.createSocket(host, port, localHost, localPort));
+		}
+
+		@Override
+		public Socket createSocket(InetAddress host, int port) throws IOException {
+			return prepareSocket(mFactory.createSocket(host, port));
+		}
+
+		@Override
+		public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+				int localPort) throws IOException {
+			return prepareSocket(mFactory.createSocket(address, port, localAddress, localPort));
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.orangelabs.rcs.platform.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+import junit.framework.TestCase;
+
+import com.orangelabs.rcs.utils.Base64;
+
+public class TlsContextManagerTest extends TestCase {
+
+	/**
+	 * JKS keystore holding the self-signed certificate of localhost
+	 */
+	private static final String KEYSTORE = "/u3+7QAAAAIAAAABAAAAAQAGc2VydmVyAAABoVNzDKYAAAB/MH0wDgYKKwYBBAEqAhEBAQUABGud"
+			+ "VUq+cgdrVuMTcthFbYooeA0XMMU/gpspjrFyiJwOTycTtdl6+2/DeQIPAOWHIo0/L+0YVWSL0OyF"
+			+ "vZoaOSj32kN+q18QDj23Kp8PaCSJ2SWfS7UsOodUhhERM2XT0tsdz26QqhSyU+7TCAAAAAEABVgu"
+			+ "NTA5AAABRDCCAUAwgeigAwIBAgIJAIp3b1DxhBZmMAoGCCqGSM49BAMCMBQxEjAQBgNVBAMTCWxv"
+			+ "Y2FsaG9zdDAgFw0yNjEwMTkwOTE2NTFaGA8yMTI2MDkyNTA5MTY1MVowFDESMBAGA1UEAxMJbG9j"
+			+ "YWxob3N0MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEFo+DXxZcfsL1PM10PRDMqnZDqjwH4xDR"
+			+ "tY23/JiWHDtRmcfmnDxSi2uRYATMYDpusGUT87H28Q/arugass7e76MhMB8wHQYDVR0OBBYEFKwz"
+			+ "AiyECqsSQldGyj38Snl7DmL2MAoGCCqGSM49BAMCA0cAMEQCIEu7xXCIYviZR18Ha3mc97/QEZ/H"
+			+ "EVXcUQQj0GPXydq4AiBc52Bu6ZYrNhb5py+xWmKAa1pLl34OZTci9fvFEzdwkfljbMFfwdgXMKt7"
+			+ "Niwto4Oj1Rjt";
+
+	private static final char[] PASSWORD = "secret".toCharArray();
+
+	private static final int CONNECTIONS = 20;
+
+	private KeyStore keyStore;
+
+	private SSLServerSocket server;
+
+	private int contextsCreated = 0;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		keyStore = KeyStore.getInstance("JKS");
+		keyStore.load(new ByteArrayInputStream(Base64.decodeBase64(KEYSTORE.getBytes("UTF-8"))),
+				PASSWORD);
+
+		KeyManagerFactory kmFactory = KeyManagerFactory.getInstance(KeyManagerFactory
+				.getDefaultAlgorithm());
+		kmFactory.init(keyStore, PASSWORD);
+		SSLContext serverContext = SSLContext.getInstance("TLS");
+		serverContext.init(kmFactory.getKeyManagers(), null, null);
+		server = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0,
+				50, InetAddress.getByName("127.0.0.1"));
+		// Sessions are resumed by ID or by ticket as with the servers of the stack
+		server.setEnabledProtocols(new String[] {
+			"TLSv1.2"
+		});
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						Socket socket = server.accept();
+						try {
+							socket.getInputStream().read();
+							socket.getOutputStream().write(1);
+						} finally {
+							socket.close();
+						}
+					}
+				} catch (IOException e) {
+					// Server closed
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.close();
+		TlsContextManager.invalidate();
+		super.tearDown();
+	}
+
+	private SSLSocketFactory getSocketFactory() throws Exception {
+		SSLContext context = TlsContextManager.getContext("test",
+				new TlsContextManager.ContextFactory() {
+					@Override
+					public SSLContext createContext() throws GeneralSecurityException,
+							IOException {
+						contextsCreated++;
+						TrustManagerFactory tmFactory = TrustManagerFactory
+								.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+						tmFactory.init(keyStore);
+						SSLContext context = SSLContext.getInstance("TLS");
+						context.init(null, tmFactory.getTrustManagers(), null);
+						return context;
+					}
+				});
+		return TlsContextManager.getSocketFactory(context);
+	}
+
+	/**
+	 * Open a connection with a new factory, as done by each connection of
+	 * the stack, and exchange a byte
+	 */
+	private void connect() throws Exception {
+		SSLSocket socket = (SSLSocket) getSocketFactory().createSocket("127.0.0.1",
+				server.getLocalPort());
+		try {
+			socket.startHandshake();
+			socket.getOutputStream().write(1);
+			assertEquals(1, socket.getInputStream().read());
+		} finally {
+			socket.close();
+		}
+		// A resumed session is told by its creation time, in milliseconds
+		Thread.sleep(5);
+	}
+
+	/**
+	 * Wait for the handshakes notified asynchronously
+	 */
+	private void awaitHandshakes(int count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (TlsContextManager.getFullHandshakes() + TlsContextManager.getResumedHandshakes() < count
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+	}
+
+	public void testSessionsAreResumedAcrossConnections() throws Exception {
+		int full = TlsContextManager.getFullHandshakes();
+		int resumed = TlsContextManager.getResumedHandshakes();
+		for (int i = 0; i < CONNECTIONS; i++) {
+			connect();
+		}
+		awaitHandshakes(full + resumed + CONNECTIONS);
+		assertEquals(1, contextsCreated);
+		assertEquals(1, TlsContextManager.getFullHandshakes() - full);
+		assertEquals(CONNECTIONS - 1, TlsContextManager.getResumedHandshakes() - resumed);
+	}
+
+	public void testInvalidatedContextRunsAFullHandshake() throws Exception {
+		int full = TlsContextManager.getFullHandshakes();
+		int resumed = TlsContextManager.getResumedHandshakes();
+		connect();
+		connect();
+		TlsContextManager.invalidate();
+		connect();
+		awaitHandshakes(full + resumed + 3);
+		assertEquals(2, contextsCreated);
+		assertEquals(2, TlsContextManager.getFullHandshakes() - full);
+		assertEquals(1, TlsContextManager.getResumedHandshakes() - resumed);
+	}
+}
@@ -45,6 +45,16 @@ public class MediaRtpReceiver {
      */
 	protected RtpInputStream inputStream = null;
 
+    /**
+     * Generic NACK negotiated flag
+     */
+	protected boolean nackEnabled = false;
+
+    /**
+     * PLI negotiated flag
+     */
+	protected boolean pliEnabled = false;
+
 	/**
 	 * The logger
 	 */
@@ -76,6 +86,7 @@ public class MediaRtpReceiver {
 			// Create the input stream
             inputStream = new RtpInputStream(remoteAddress, remotePort, localPort, format);
             inputStream.addRtpStreamListener(rtpStreamListener);
+            inputStream.setRtcpFeedback(nackEnabled, pliEnabled);
     		inputStream.open();
 			if (logger.isActivated()) {
 				logger.debug("Input stream: " + inputStream.getClass().getName());
@@ -105,6 +116,19 @@ public class MediaRtpReceiver {
         }
     }
 
+    /**
+     * Sets the RTCP feedback negotiated for the received stream (RFC 4585).
+     * It shall be set before the session is prepared.
+     *
+     * @param nackEnabled True if the missing packets may be requested with
+     *            generic NACK
+     * @param pliEnabled True if key frames may be requested with PLI
+     */
+    public void setRtcpFeedback(boolean nackEnabled, boolean pliEnabled) {
+        this.nackEnabled = nackEnabled;
+        this.pliEnabled = pliEnabled;
+    }
+
     /**
 	 * Start the RTP session
 	 */
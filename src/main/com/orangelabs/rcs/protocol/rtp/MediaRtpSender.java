@@ -21,7 +21,9 @@ package com.orangelabs.rcs.protocol.rtp;
 import com.orangelabs.rcs.protocol.rtp.codec.Codec;
 import com.orangelabs.rcs.protocol.rtp.format.Format;
 import com.orangelabs.rcs.protocol.rtp.media.MediaInput;
+import com.orangelabs.rcs.protocol.rtp.stream.KeyFrameRequestListener;
 import com.orangelabs.rcs.protocol.rtp.stream.MediaCaptureStream;
+import com.orangelabs.rcs.protocol.rtp.stream.RateAdaptationListener;
 import com.orangelabs.rcs.protocol.rtp.stream.RtpInputStream;
 import com.orangelabs.rcs.protocol.rtp.stream.RtpOutputStream;
 import com.orangelabs.rcs.protocol.rtp.stream.RtpStreamListener;
@@ -56,6 +58,21 @@ public class MediaRtpSender {
      */
 	protected int localPort;
 
+    /**
+     * Rate adaptation listener
+     */
+	protected RateAdaptationListener rateAdaptationListener = null;
+
+    /**
+     * Retransmission on generic NACK flag
+     */
+	protected boolean retransmissionEnabled = false;
+
+    /**
+     * Key frame request listener
+     */
+	protected KeyFrameRequestListener keyFrameRequestListener = null;
+
     /**
      * The logger
      */
@@ -96,6 +113,9 @@ public class MediaRtpSender {
             // Create the output stream
             outputStream = new RtpOutputStream(remoteAddress, remotePort, localPort, RtpOutputStream.RTCP_SOCKET_TIMEOUT);
             outputStream.addRtpStreamListener(rtpStreamListener);
+            outputStream.setRateAdaptationListener(rateAdaptationListener);
+            outputStream.setRetransmissionEnabled(retransmissionEnabled);
+            outputStream.setKeyFrameRequestListener(keyFrameRequestListener);
             outputStream.open();
 			if (logger.isActivated()) {
 				logger.debug("Output stream: " + outputStream.getClass().getName());
@@ -147,6 +167,9 @@ public class MediaRtpSender {
             //outputStream = new RtpOutputStream(remoteAddress, remotePort, localRtpPort, RtpOutputStream.RTCP_SOCKET_TIMEOUT);
 			outputStream = new RtpOutputStream(remoteAddress, remotePort, rtpStream);
             outputStream.addRtpStreamListener(rtpStreamListener);
+            outputStream.setRateAdaptationListener(rateAdaptationListener);
+            outputStream.setRetransmissionEnabled(retransmissionEnabled);
+            outputStream.setKeyFrameRequestListener(keyFrameRequestListener);
             outputStream.open();
 			if (logger.isActivated()) {
 				logger.debug("Output stream: " + outputStream.getClass().getName());
@@ -172,6 +195,31 @@ public class MediaRtpSender {
         }
     }
 
+    /**
+     * Sets the listener notified of the target bitrate computed from the
+     * reception reports of the remote. It shall be set before the session is
+     * prepared.
+     *
+     * @param listener Rate adaptation listener
+     */
+    public void setRateAdaptationListener(RateAdaptationListener listener) {
+        this.rateAdaptationListener = listener;
+    }
+
+    /**
+     * Sets the RTCP feedback negotiated for the sent stream (RFC 4585). It
+     * shall be set before the session is prepared.
+     *
+     * @param retransmissionEnabled True if the packets requested by generic
+     *            NACK shall be retransmitted
+     * @param listener Listener notified of the key frames requested by PLI
+     *            or FIR, or null
+     */
+    public void setRtcpFeedback(boolean retransmissionEnabled, KeyFrameRequestListener listener) {
+        this.retransmissionEnabled = retransmissionEnabled;
+        this.keyFrameRequestListener = listener;
+    }
+
     /**
      * Start the RTP session
      */
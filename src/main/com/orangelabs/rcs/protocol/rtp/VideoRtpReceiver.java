@@ -59,6 +59,7 @@ public class VideoRtpReceiver  extends MediaRtpReceiver {
             inputStream = new RtpInputStream(remoteAddress, remotePort, localPort, format);
             inputStream.setExtensionHeaderId(orientationHeaderId);
             inputStream.addRtpStreamListener(rtpStreamListener);
+            inputStream.setRtcpFeedback(nackEnabled, pliEnabled);
     		inputStream.open();
 			if (logger.isActivated()) {
 				logger.debug("Input stream: " + inputStream.getClass().getName());
@@ -63,6 +63,9 @@ public class VideoRtpSender extends MediaRtpSender {
             // Create the output stream
             outputStream = new RtpOutputStream(remoteAddress, remotePort, localPort, RtpOutputStream.RTCP_SOCKET_TIMEOUT);
             outputStream.addRtpStreamListener(rtpStreamListener);
+            outputStream.setRateAdaptationListener(rateAdaptationListener);
+            outputStream.setRetransmissionEnabled(retransmissionEnabled);
+            outputStream.setKeyFrameRequestListener(keyFrameRequestListener);
             outputStream.open();
 			if (logger.isActivated()) {
 				logger.debug("Output stream: " + outputStream.getClass().getName());
@@ -111,6 +114,9 @@ public class VideoRtpSender extends MediaRtpSender {
             //outputStream = new RtpOutputStream(remoteAddress, remotePort, localRtpPort, RtpOutputStream.RTCP_SOCKET_TIMEOUT);
             outputStream = new RtpOutputStream(remoteAddress, remotePort, rtpStream);
             outputStream.addRtpStreamListener(rtpStreamListener);
+            outputStream.setRateAdaptationListener(rateAdaptationListener);
+            outputStream.setRetransmissionEnabled(retransmissionEnabled);
+            outputStream.setKeyFrameRequestListener(keyFrameRequestListener);
             outputStream.open();
 			if (logger.isActivated()) {
 				logger.debug("Output stream: " + outputStream.getClass().getName());
@@ -18,6 +18,8 @@
 
 package com.orangelabs.rcs.protocol.rtp.codec.video.h264;
 
+import java.util.Arrays;
+
 import com.orangelabs.rcs.protocol.rtp.codec.video.VideoCodec;
 import com.orangelabs.rcs.protocol.rtp.format.Format;
 import com.orangelabs.rcs.protocol.rtp.format.video.VideoOrientation;
@@ -53,6 +55,21 @@ public class JavaDepacketizer extends VideoCodec {
      */
     private static final byte VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK = 0x1F;
 
+    /**
+     * Max number of fragments of a frame
+     */
+    private static final int MAX_FRAME_FRAGMENTS = VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK + 1;
+
+    /**
+     * Size of the FU indicator and of the FU header of a FU-A packet
+     */
+    private static final int FU_A_HEADERS_SIZE = 2;
+
+    /**
+     * Max delay in milliseconds to wait for the missing fragments of a frame
+     */
+    private static final long FRAME_REASSEMBLY_TIMEOUT = 500;
+
     /**
      * Packet NalUnitHeader
      */
@@ -128,11 +145,8 @@ public class JavaDepacketizer extends VideoCodec {
      * @return Processing result
      */
     private int handleSingleNalUnitPacket(Buffer input, Buffer output) {
-        // Create output buffer
-        byte[] bufferData = (byte[]) input.getData();
-        int bufferDataLength = bufferData.length;
-        byte[] data = new byte[bufferDataLength];
-        System.arraycopy(bufferData, 0, data, 0, bufferDataLength);
+        // The payload of the RTP packet is the NAL unit: hand it over as is
+        byte[] data = (byte[]) input.getData();
 
         // Set buffer
         output.setData(data);
@@ -204,33 +218,41 @@ public class JavaDepacketizer extends VideoCodec {
      */
     private int handleFragmentationUnitPacket(Buffer input, Buffer output) {
         if (!input.isDiscard()) {
-            assemblersCollection.put(input);
-            if (assemblersCollection.getLastActiveAssembler().complete()) {
-                assemblersCollection.getLastActiveAssembler().copyToBuffer(output);
-                assemblersCollection.removeOldestThan(input.getTimeStamp());
-                return BUFFER_PROCESSED_OK;
-            } else {
-                output.setDiscard(true);
-                return OUTPUT_BUFFER_NOT_FILLED;
+            FrameAssembler assembler = assemblersCollection.put(input);
+            if (assembler != null && assembler.complete()) {
+                long timeStamp = assembler.getTimeStamp();
+                boolean copied = assembler.copyToBuffer(output);
+                assemblersCollection.removeOldestThan(timeStamp);
+                if (copied) {
+                    return BUFFER_PROCESSED_OK;
+                }
             }
-        } else {
-            output.setDiscard(true);
-            return OUTPUT_BUFFER_NOT_FILLED;
         }
+        output.setDiscard(true);
+        return OUTPUT_BUFFER_NOT_FILLED;
     }
 
     /**
      * Used to assemble fragments with the same timestamp into a single frame.
+     * <p>
+     * Fragments are written in their order of arrival into a frame buffer
+     * which is allocated once and reused for the next frames. The position of
+     * each fragment is indexed by its sequence number so that the frame is
+     * rebuilt in order even if the fragments have been received out of order.
      */
     public static class FrameAssembler {
-        private byte[][] reassembledData = null; // Frame sequence chunks
-        private int[] reassembledDataSize = null; // Sequence chunk size
-        private int reassembledDataFullSize = 0; // Frame sequence chunks full size
-        private boolean reassembledDataHasStart = false; // Has start chunk
-        private boolean reassembledDataHasEnd = false; // Has end chunk
-        private int reassembledDataPosSeqStart = Integer.MAX_VALUE; // Pos seq start
-        private int reassembledDataPosSeqEnd = Integer.MIN_VALUE; // Pos seq end
-        private byte reassembledDataNALHeader = 0; // Final frame NAL header
+        private final byte[] frameData = new byte[MAX_H264_FRAME_SIZE]; // Fragments payload
+        private int frameDataLength = 0; // Fragments payload length
+        private final int[] fragmentOffset = new int[MAX_FRAME_FRAGMENTS]; // Offset by sequence position
+        private final int[] fragmentSize = new int[MAX_FRAME_FRAGMENTS]; // Size by sequence position
+        private boolean frameTooLarge = false; // Frame exceeds the decoder limit
+        private boolean hasStart = false; // Has start fragment
+        private boolean hasEnd = false; // Has end fragment
+        private int posSeqStart = 0; // Pos seq start
+        private int posSeqEnd = 0; // Pos seq end
+        private byte nalHeader = 0; // Final frame NAL header
+        private boolean inUse = false;
+        private long creationTime = 0;
         private long timeStamp = -1;
         private Format format = null;
         private long seqNumber = -1;
@@ -240,172 +262,200 @@ public class JavaDepacketizer extends VideoCodec {
          * Add the buffer (which contains a fragment) to the assembler.
          *
          * @param buffer
+         * @param now Current time in milliseconds
+         * @return Returns true if the fragment has been accepted
          */
-        public void put(Buffer buffer) {
-
-            if (buffer.getLength() <= 2) {
+        public boolean put(Buffer buffer, long now) {
+            int length = buffer.getLength();
+            if (length <= FU_A_HEADERS_SIZE) {
                 // no actual data in buffer, no need to keep. Typically
                 // happens when RTP marker is set.
-                return;
+                return false;
             }
 
             byte[] currentRtpPacketData = ((byte[]) buffer.getData());
-            H264RtpHeaders h264RtpHeaders = new H264RtpHeaders(currentRtpPacketData);
+            byte fuIndicator = currentRtpPacketData[0];
+            byte fuHeader = currentRtpPacketData[1];
 
             // Forbidden zero bit, must be zero for a valid stream
-            if (h264RtpHeaders.getFUI_F()) {
-                return;
+            if ((fuIndicator & 0x80) != 0) {
+                return false;
+            }
+
+            // Only Fragmentation Units (FU-A) of the non-interleaved mode are
+            // reassembled
+            if ((fuIndicator & 0x1F) != H264RtpHeaders.AVC_NALTYPE_FUA) {
+                return false;
+            }
+
+            // Sequence position on frame
+            int posSeq = (int) (buffer.getSequenceNumber() & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK);
+            if (fragmentSize[posSeq] > 0) {
+                // Duplicated fragment
+                return true;
             }
 
-            if (reassembledData == null) {
+            if (!inUse) {
                 // First packet
+                inUse = true;
+                creationTime = now;
                 timeStamp = buffer.getTimeStamp();
                 format = buffer.getFormat();
                 seqNumber = buffer.getSequenceNumber();
 
-                // Get NAL header
-                reassembledDataNALHeader = h264RtpHeaders.getNALHeader();
-
-                // Copy packet data to reassembledData
-                reassembledData = new byte[JavaPacketizer.H264_MAX_RTP_PKTS][H264_FRAME_PACKET_SIZE];
-                reassembledDataSize = new int[JavaPacketizer.H264_MAX_RTP_PKTS];
-                reassembledDataHasStart = false;
-                reassembledDataHasEnd = false;
+                // Compose NAL header from the FU indicator and the FU header
+                nalHeader = (byte) ((fuIndicator & 0xE0) | (fuHeader & 0x1F));
             }
 
-            // Sequence position on frame
-            int posSeq = (int) (buffer.getSequenceNumber() & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK);
-
-            // Exclude header size
-            int payloadStartPosition = h264RtpHeaders.getHeaderSize();
             // Exclude header size
-            int payloadLength = buffer.getLength() - h264RtpHeaders.getHeaderSize();
-
-            // Fragmentation Units (FU-A) have NALs separated through several
-            // RTP packets
-            if (h264RtpHeaders.getFUI_TYPE() == H264RtpHeaders.AVC_NALTYPE_FUA) {
-
-                // Fill Has Start Chunk
-                reassembledDataHasStart |= (h264RtpHeaders.getFUH_S());
-                // Fill Has End Chunk
-                reassembledDataHasEnd |= (h264RtpHeaders.getFUH_E());
-
-                // Fill Pos Seq Start
-                reassembledDataPosSeqStart = ((h264RtpHeaders.getFUH_S()) ? posSeq
-                        : reassembledDataPosSeqStart);
-                // Fill Pos Seq End
-                reassembledDataPosSeqEnd = ((h264RtpHeaders.getFUH_E()) ? posSeq
-                        : reassembledDataPosSeqEnd);
+            int payloadLength = length - FU_A_HEADERS_SIZE;
+            if (frameDataLength + payloadLength > frameData.length) {
+                // The frame will not be given to the decoder, only track the
+                // fragment to know when the frame is complete
+                frameTooLarge = true;
+            } else {
+                System.arraycopy(currentRtpPacketData, FU_A_HEADERS_SIZE, frameData,
+                        frameDataLength, payloadLength);
+                fragmentOffset[posSeq] = frameDataLength;
+                frameDataLength += payloadLength;
             }
+            fragmentSize[posSeq] = payloadLength;
 
-            // Sequence chuck size
-            reassembledDataSize[posSeq] = payloadLength;
-
-            // Sum chucks total sizes
-            reassembledDataFullSize += payloadLength;
-
-            // Copy data
-            System.arraycopy(currentRtpPacketData, payloadStartPosition, reassembledData[posSeq],
-                    0, payloadLength);
+            if ((fuHeader & 0x80) != 0) {
+                hasStart = true;
+                posSeqStart = posSeq;
+            }
+            if ((fuHeader & 0x40) != 0) {
+                hasEnd = true;
+                posSeqEnd = posSeq;
+            }
             videoOrientation = buffer.getVideoOrientation();
+            return true;
         }
 
         /**
          * Is the frame complete?
          */
         public boolean complete() {
-
-            if (!reassembledDataHasStart || !reassembledDataHasEnd) {
+            if (!hasStart || !hasEnd) {
                 return false; // has start and end chunk
             }
 
             // Validate chunk sizes between start and end pos
-            int posCurrent = reassembledDataPosSeqStart;
-            while ((posCurrent & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK) != reassembledDataPosSeqEnd) {
+            int posCurrent = posSeqStart;
+            while (posCurrent != posSeqEnd) {
                 // need more data?
-                if (reassembledDataSize[posCurrent & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK] <= 0) {
+                if (fragmentSize[posCurrent] <= 0) {
                     return false;
                 }
-                posCurrent++;
+                posCurrent = (posCurrent + 1) & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK;
             }
             // Validate last chunk
-            if (reassembledDataSize[reassembledDataPosSeqEnd] <= 0) {
-                return false;
-            }
-
-            // TODO: if some of the last ones come in after the marker, there
-            // will be blank squares in the lower right.
-            return true;
+            return fragmentSize[posSeqEnd] > 0;
         }
 
         /**
          * Assumes that complete() has been called and returns true.
+         *
+         * @param bDest Buffer to fill
+         * @return Returns false if the frame is too large for the decoder
          */
-        private void copyToBuffer(Buffer bDest) {
-
-            if (reassembledDataFullSize <= MAX_H264_FRAME_SIZE) {
-                // + 1 because of the header size
-                byte[] finalData = new byte[reassembledDataFullSize + 1];
-                int finalDataPos = 0;
-
-                // Copy NAL header
-                finalData[finalDataPos] = reassembledDataNALHeader;
-                finalDataPos += 1;
-
-                // Copy chunk data between start and end pos
-                int posCurrent = reassembledDataPosSeqStart;
-                int posSeq = 0;
-                while ((posCurrent & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK) != reassembledDataPosSeqEnd) {
-                    // need more data?
-                    posSeq = posCurrent & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK;
-
-                    // Copy data
-                    System.arraycopy(reassembledData[posSeq], 0, finalData, finalDataPos,
-                            reassembledDataSize[posSeq]);
-                    finalDataPos += reassembledDataSize[posSeq];
-
-                    posCurrent++;
-                }
+        private boolean copyToBuffer(Buffer bDest) {
+            if (frameTooLarge) {
+                return false;
+            }
 
-                // Copy last chunk data
-                System.arraycopy(reassembledData[reassembledDataPosSeqEnd], 0, finalData,
-                        finalDataPos, reassembledDataSize[reassembledDataPosSeqEnd]);
-
-                // If the frame data can be processed by native module, ie
-                // reassembled frame size not too big
-                // Set buffer
-                bDest.setData(finalData);
-                bDest.setLength(reassembledDataSize[reassembledDataPosSeqEnd]);
-                bDest.setOffset(0);
-                bDest.setTimeStamp(timeStamp);
-                bDest.setFormat(format);
-                bDest.setFlags(Buffer.FLAG_RTP_MARKER | Buffer.FLAG_RTP_TIME);
-                bDest.setVideoOrientation(videoOrientation);
-                bDest.setSequenceNumber(seqNumber);
+            // + 1 because of the header size
+            int finalDataLength = 1;
+            int posCurrent = posSeqStart;
+            while (posCurrent != posSeqEnd) {
+                finalDataLength += fragmentSize[posCurrent];
+                posCurrent = (posCurrent + 1) & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK;
+            }
+            finalDataLength += fragmentSize[posSeqEnd];
+
+            // The decoder keeps the sample data: the frame is the only array
+            // allocated for it
+            byte[] finalData = new byte[finalDataLength];
+            finalData[0] = nalHeader;
+            int finalDataPos = 1;
+
+            // Copy chunk data between start and end pos, in sequence order
+            posCurrent = posSeqStart;
+            while (true) {
+                System.arraycopy(frameData, fragmentOffset[posCurrent], finalData, finalDataPos,
+                        fragmentSize[posCurrent]);
+                finalDataPos += fragmentSize[posCurrent];
+                if (posCurrent == posSeqEnd) {
+                    break;
+                }
+                posCurrent = (posCurrent + 1) & VIDEO_DECODER_MAX_PAYLOADS_CHUNKS_MASK;
             }
 
-            // Set reassembledData to null
-            reassembledData = null;
+            // Set buffer
+            bDest.setData(finalData);
+            bDest.setLength(finalDataLength);
+            bDest.setOffset(0);
+            bDest.setTimeStamp(timeStamp);
+            bDest.setFormat(format);
+            bDest.setFlags(Buffer.FLAG_RTP_MARKER | Buffer.FLAG_RTP_TIME);
+            bDest.setVideoOrientation(videoOrientation);
+            bDest.setSequenceNumber(seqNumber);
+            return true;
         }
 
         /**
-         * Reset the FrameAssembler
+         * Reset the FrameAssembler so that it may be reused for another frame
          *
          * It as package access instead of private for improved performance.
          * See: http://developer.android.com/guide/practices/performance.html 
          *   Consider Package Instead of Private Access with Private Inner Classes
          */
-        private void reset() {
-            reassembledData = null;
-            reassembledDataSize = null;
-            reassembledDataFullSize = 0;
-            reassembledDataHasStart = false;
-            reassembledDataHasEnd = false;
-            reassembledDataPosSeqStart = Integer.MAX_VALUE;
-            reassembledDataPosSeqEnd = Integer.MIN_VALUE;
-            reassembledDataNALHeader = 0;
+        void reset() {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            Arrays.fill(fragmentSize, 0);
+            frameDataLength = 0;
+            frameTooLarge = false;
+            hasStart = false;
+            hasEnd = false;
+            posSeqStart = 0;
+            posSeqEnd = 0;
+            nalHeader = 0;
             timeStamp = -1;
             format = null;
+            seqNumber = -1;
+            videoOrientation = null;
+        }
+
+        /**
+         * Is the assembler reassembling a frame?
+         *
+         * @return boolean
+         */
+        public boolean isInUse() {
+            return inUse;
+        }
+
+        /**
+         * Is the frame waiting for its missing fragments for too long?
+         *
+         * @param now Current time in milliseconds
+         * @return boolean
+         */
+        public boolean isExpired(long now) {
+            return inUse && (now - creationTime) > FRAME_REASSEMBLY_TIMEOUT;
+        }
+
+        /**
+         * Get creation time of the frame
+         *
+         * @return Time in milliseconds
+         */
+        public long getCreationTime() {
+            return creationTime;
         }
 
         /**
@@ -420,108 +470,73 @@ public class JavaDepacketizer extends VideoCodec {
 
     /**
      * Used to manage different timestamps, as packets could be coming not in
-     * order. Data is an array of FrameAssemblers, sorted by timestamps (oldest
-     * is first, newest is last)
+     * order. Data is a fixed pool of FrameAssemblers: an assembler is
+     * recycled once its frame is delivered, once a newer frame is delivered,
+     * once its frame has expired or, if all of them are in use, when it holds
+     * the oldest frame.
      */
     public static class FrameAssemblerCollection {
         private final static int NUMBER_OF_ASSEMBLERS = 5;
-        private FrameAssembler[] assemblers = new FrameAssembler[NUMBER_OF_ASSEMBLERS];
-        private int activeAssembler = 0;
-        private int numberOfAssemblers = 0;
+        private final FrameAssembler[] assemblers = new FrameAssembler[NUMBER_OF_ASSEMBLERS];
 
         /**
-         * Add the buffer (which contains a fragment) to the right assembler.
-         *
-         * @param buffer
+         * Constructor
          */
-        public void put(Buffer buffer) {
-            activeAssembler = getAssembler(buffer.getTimeStamp());
-            assemblers[activeAssembler].put(buffer);
-        }
-
-        /**
-         * Get the active frame assembler
-         *
-         * @return frameAssembler Last active assembler
-         */
-        public FrameAssembler getLastActiveAssembler() {
-            return assemblers[activeAssembler];
+        public FrameAssemblerCollection() {
+            for (int i = 0; i < NUMBER_OF_ASSEMBLERS; i++) {
+                assemblers[i] = new FrameAssembler();
+            }
         }
 
         /**
-         * Create a new frame assembler for given timeStamp
+         * Add the buffer (which contains a fragment) to the right assembler.
          *
-         * @param timeStamp
-         * @return assembler number Position of the assembler in the collection
+         * @param buffer
+         * @return Assembler of the fragment or null if the fragment has been
+         *         dropped
          */
-        public int createNewAssembler(long timeStamp) {
-            int spot = -1;
-            if (numberOfAssemblers < NUMBER_OF_ASSEMBLERS) {
-                // If there's enough space left to create a new assembler
-                // We search its spot
-                for (int i = 0; i < numberOfAssemblers; i++) {
-                    if (timeStamp < assemblers[i].getTimeStamp()) {
-                        spot = i;
-                    }
-                }
-                if (spot == -1) {
-                    spot = numberOfAssemblers;
-                }
-                numberOfAssemblers++;
-
-                // Store the assembler that will be "discarded" and can be reused
-                FrameAssembler oldAssembler = assemblers[numberOfAssemblers - 1];
-
-                // Decale all assemblers with newest timeStamp to the right
-                for (int i = numberOfAssemblers - 1; i > spot; i--) {
-                    assemblers[i] = assemblers[i - 1];
-                }
-                if (oldAssembler != null) {
-                    // Reuse and reset the discarded assembler
-                    assemblers[spot] = oldAssembler;
-                    assemblers[spot].reset();
-                } else {
-                    assemblers[spot] = new FrameAssembler();
-                }
-            } else {
-                // Store the assembler that will be "discarded" and can be reused
-                FrameAssembler oldAssembler = assemblers[0];
-
-                // Not enough space, we destroy the oldest assembler
-                for (int i = 1; i < NUMBER_OF_ASSEMBLERS; i++) {
-                    assemblers[i - 1] = assemblers[i];
-                }
-                // Last spot is for the new assembler
-                spot = NUMBER_OF_ASSEMBLERS - 1;
-                if (oldAssembler != null) {
-                    // Reuse and reset the discarded assembler
-                    assemblers[spot] = oldAssembler;
-                    assemblers[spot].reset();
-                } else {
-                    assemblers[spot] = new FrameAssembler();
-                }
+        public FrameAssembler put(Buffer buffer) {
+            long now = System.currentTimeMillis();
+            FrameAssembler assembler = getAssembler(buffer.getTimeStamp(), now);
+            if (!assembler.put(buffer, now)) {
+                return null;
             }
-            return spot;
+            return assembler;
         }
 
         /**
-         * Get the assembler used for given timestamp
+         * Get the assembler used for given timestamp. Expired frames are
+         * dropped on the way.
          *
          * @param timeStamp
+         * @param now Current time in milliseconds
          * @return FrameAssembler associated to timeStamp
          */
-        public int getAssembler(long timeStamp) {
-            int assemblerNumber = -1;
-            for (int i = 0; i < numberOfAssemblers; i++) {
-                if (assemblers[i].getTimeStamp() == timeStamp) {
-                    assemblerNumber = i;
+        private FrameAssembler getAssembler(long timeStamp, long now) {
+            FrameAssembler free = null;
+            FrameAssembler oldest = null;
+            for (int i = 0; i < NUMBER_OF_ASSEMBLERS; i++) {
+                FrameAssembler assembler = assemblers[i];
+                if (assembler.isExpired(now)) {
+                    assembler.reset();
+                }
+                if (!assembler.isInUse()) {
+                    if (free == null) {
+                        free = assembler;
+                    }
+                } else if (assembler.getTimeStamp() == timeStamp) {
+                    return assembler;
+                } else if (oldest == null || assembler.getCreationTime() < oldest.getCreationTime()) {
+                    oldest = assembler;
                 }
             }
-            if (assemblerNumber == -1) {
-                // Given timestamp never used, we create a new assembler
-                assemblerNumber = createNewAssembler(timeStamp);
+            if (free != null) {
+                return free;
             }
-            return assemblerNumber;
+
+            // Not enough space, we drop the oldest frame
+            oldest.reset();
+            return oldest;
         }
 
         /**
@@ -532,18 +547,13 @@ public class JavaDepacketizer extends VideoCodec {
          * @param timeStamp
          */
         public void removeOldestThan(long timeStamp) {
-            // Find spot from which to remove
-            int spot = numberOfAssemblers - 1;
-            for (int i = 0; i < numberOfAssemblers; i++) {
-                if (timeStamp <= assemblers[i].getTimeStamp()) {
-                    spot = i;
+            for (int i = 0; i < NUMBER_OF_ASSEMBLERS; i++) {
+                FrameAssembler assembler = assemblers[i];
+                // RTP timestamps are 32 bits and wrap around
+                if (assembler.isInUse() && (int) (assembler.getTimeStamp() - timeStamp) <= 0) {
+                    assembler.reset();
                 }
             }
-            // remove all assemblers with oldest timeStamp to the left
-            for (int i = numberOfAssemblers - 1; i > spot; i--) {
-                assemblers[i - 1] = assemblers[i];
-            }
-            numberOfAssemblers -= spot + 1;
         }
     }
 }
@@ -84,8 +84,8 @@ public class ReceptionReport {
         return ssrc;
     }
 
-    public int setSsrc(int ssrc) {
-        return ssrc;
+    public void setSsrc(int ssrc) {
+        this.ssrc = ssrc;
     }
 
     public double getFractionLost() {
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.orangelabs.rcs.protocol.rtp.core;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * RTCP feedback packet (RFC 4585): transport layer feedback (RTPFB) or
+ * payload specific feedback (PSFB)
+ *
+ * @author jexa7410
+ */
+public class RtcpFeedbackPacket extends RtcpPacket {
+    /**
+     * Generic NACK format of a RTPFB packet
+     */
+    public static final int FMT_NACK = 1;
+
+    /**
+     * Picture Loss Indication format of a PSFB packet
+     */
+    public static final int FMT_PLI = 1;
+
+    /**
+     * Full Intra Request format of a PSFB packet (RFC 5104)
+     */
+    public static final int FMT_FIR = 4;
+
+	public int ssrc;
+	public int mediaSsrc;
+	public int format;
+	public byte[] fci;
+
+	public RtcpFeedbackPacket(RtcpPacket parent) {
+		super(parent);
+	}
+
+	public RtcpFeedbackPacket(int type, int format, int ssrc, int mediaSsrc, byte fci[]) {
+		this.type = type;
+		this.format = format;
+		this.ssrc = ssrc;
+		this.mediaSsrc = mediaSsrc;
+		this.fci = fci;
+
+		if ((fci.length & 3) != 0) {
+			throw new IllegalArgumentException("Bad FCI length");
+		}
+		if (format < 0 || format > 31) {
+			throw new IllegalArgumentException("Bad format");
+		}
+	}
+
+	@Override
+	public int calcLength() {
+		return 12 + fci.length;
+	}
+
+	@Override
+	public void assemble(DataOutputStream out) throws IOException {
+		out.writeByte(128 + format);
+		out.writeByte(type);
+		out.writeShort(2 + (fci.length >> 2));
+		out.writeInt(ssrc);
+		out.writeInt(mediaSsrc);
+		out.write(fci);
+	}
+}
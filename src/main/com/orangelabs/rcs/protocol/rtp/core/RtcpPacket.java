@@ -64,6 +64,16 @@ public abstract class RtcpPacket extends Packet {
      */
     public static final int RTCP_APP = 204;
 
+    /**
+     * RTCP transport layer feedback (RFC 4585)
+     */
+    public static final int RTCP_RTPFB = 205;
+
+    /**
+     * RTCP payload specific feedback (RFC 4585)
+     */
+    public static final int RTCP_PSFB = 206;
+
     /**
      * RTCP APP
      */
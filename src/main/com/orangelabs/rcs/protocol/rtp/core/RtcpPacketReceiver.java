@@ -23,6 +23,7 @@ import com.orangelabs.rcs.platform.network.NetworkFactory;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpApplicationEvent;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpByeEvent;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpEvent;
+import com.orangelabs.rcs.protocol.rtp.event.RtcpFeedbackEvent;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpEventListener;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpReceiverReportEvent;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpSdesEvent;
@@ -30,10 +31,9 @@ import com.orangelabs.rcs.protocol.rtp.event.RtcpSenderReportEvent;
 import com.orangelabs.rcs.protocol.rtp.util.Packet;
 import com.orangelabs.rcs.utils.logger.Logger;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Vector;
 
 /**
@@ -187,17 +187,23 @@ public class RtcpPacketReceiver extends Thread {
      */
 	public RtcpPacket parseRtcpPacket(Packet packet) {
 		RtcpCompoundPacket compoundPacket = new RtcpCompoundPacket(packet);
-		Vector<RtcpPacket> subpackets = new Vector<RtcpPacket>();
-		DataInputStream in = new DataInputStream(
-				new ByteArrayInputStream(compoundPacket.data,
-						compoundPacket.offset,
-						compoundPacket.length));
+		ArrayList<RtcpPacket> subpackets = new ArrayList<RtcpPacket>(3);
+		byte[] data = compoundPacket.data;
+		int end = compoundPacket.offset + compoundPacket.length;
 		try {
             rtcpSession.updateavgrtcpsize(compoundPacket.length);
 			int length = 0;
 			for (int offset = 0; offset < compoundPacket.length; offset += length) {
+				int pos = compoundPacket.offset + offset;
+				if (pos + 4 > end) {
+					if (logger.isActivated()) {
+						logger.error("Bad RTCP packet length");
+					}
+					return null;
+				}
+
 				// Read first byte
-				int firstbyte = in.readUnsignedByte();
+				int firstbyte = data[pos] & 0xff;
 				if ((firstbyte & 0xc0) != 128) {
 					if (logger.isActivated()) {
 						logger.error("Bad RTCP packet version");
@@ -206,10 +212,10 @@ public class RtcpPacketReceiver extends Thread {
 				}
 
 				// Read type of subpacket
-				int type = in.readUnsignedByte();
+				int type = data[pos + 1] & 0xff;
 
 				// Read length of subpacket
-				length = in.readUnsignedShort();
+				length = RtcpPacketUtils.readUnsignedShort(data, pos + 2);
 				length = length + 1 << 2;
 				int padlen = 0;
 				if (offset + length > compoundPacket.length) {
@@ -220,7 +226,7 @@ public class RtcpPacketReceiver extends Thread {
 				}
 				if (offset + length == compoundPacket.length) {
 					if ((firstbyte & 0x20) != 0) {
-						padlen = compoundPacket.data[compoundPacket.offset + compoundPacket.length - 1] & 0xff;
+						padlen = data[end - 1] & 0xff;
 						if (padlen == 0) {
 							if (logger.isActivated()) {
 								logger.error("Bad RTCP packet format");
@@ -237,6 +243,7 @@ public class RtcpPacketReceiver extends Thread {
 				}
 				int inlength = length - padlen;
 				firstbyte &= 0x1f;
+				pos += 4;
 
 				// Parse subpacket
 				RtcpPacket subpacket;
@@ -253,33 +260,19 @@ public class RtcpPacketReceiver extends Thread {
 						}
 						RtcpSenderReportPacket srp = new RtcpSenderReportPacket(compoundPacket);
 						subpacket = srp;
-						srp.ssrc = in.readInt();
-						srp.ntptimestampmsw = (long) in.readInt() & 0xffffffffL;
-						srp.ntptimestamplsw = (long) in.readInt() & 0xffffffffL;
-						srp.rtptimestamp = (long) in.readInt() & 0xffffffffL;
-						srp.packetcount = (long) in.readInt() & 0xffffffffL;
-						srp.octetcount = (long) in.readInt() & 0xffffffffL;
-						srp.reports = new RtcpReport[firstbyte];
+						srp.ssrc = RtcpPacketUtils.readInt(data, pos);
+						srp.ntptimestampmsw = (long) RtcpPacketUtils.readInt(data, pos + 4) & 0xffffffffL;
+						srp.ntptimestamplsw = (long) RtcpPacketUtils.readInt(data, pos + 8) & 0xffffffffL;
+						srp.rtptimestamp = (long) RtcpPacketUtils.readInt(data, pos + 12) & 0xffffffffL;
+						srp.packetcount = (long) RtcpPacketUtils.readInt(data, pos + 16) & 0xffffffffL;
+						srp.octetcount = (long) RtcpPacketUtils.readInt(data, pos + 20) & 0xffffffffL;
+						srp.reports = parseReports(data, pos + 24, firstbyte, packet.receivedAt);
 
                         RtpSource sourceSR = rtcpSession.getMySource();
                         if (sourceSR != null) {
                             sourceSR.receivedSenderReport(srp);
                         }
 
-						for (int i = 0; i < srp.reports.length; i++) {
-							RtcpReport report = new RtcpReport();
-							srp.reports[i] = report;
-							report.ssrc = in.readInt();
-							long val = in.readInt();
-							val &= 0xffffffffL;
-							report.fractionlost = (int) (val >> 24);
-							report.packetslost = (int) (val & 0xffffffL);
-							report.lastseq = (long) in.readInt() & 0xffffffffL;
-							report.jitter = in.readInt();
-							report.lsr = (long) in.readInt() & 0xffffffffL;
-							report.dlsr = (long) in.readInt() & 0xffffffffL;
-						}
-
 						// Notify event listeners
 						notifyRtcpListeners(new RtcpSenderReportEvent(srp));
 						break;
@@ -295,22 +288,8 @@ public class RtcpPacketReceiver extends Thread {
 						}
 						RtcpReceiverReportPacket rrp = new RtcpReceiverReportPacket(compoundPacket);
 						subpacket = rrp;
-						rrp.ssrc = in.readInt();
-						rrp.reports = new RtcpReport[firstbyte];
-
-						for (int i = 0; i < rrp.reports.length; i++) {
-							RtcpReport report = new RtcpReport();
-							rrp.reports[i] = report;
-							report.ssrc = in.readInt();
-							long val = in.readInt();
-							val &= 0xffffffffL;
-							report.fractionlost = (int) (val >> 24);
-							report.packetslost = (int) (val & 0xffffffL);
-							report.lastseq = (long) in.readInt() & 0xffffffffL;
-							report.jitter = in.readInt();
-							report.lsr = (long) in.readInt() & 0xffffffffL;
-							report.dlsr = (long) in.readInt() & 0xffffffffL;
-						}
+						rrp.ssrc = RtcpPacketUtils.readInt(data, pos);
+						rrp.reports = parseReports(data, pos + 4, firstbyte, packet.receivedAt);
 
 						// Notify event listeners
 						notifyRtcpListeners(new RtcpReceiverReportEvent(rrp));
@@ -322,16 +301,18 @@ public class RtcpPacketReceiver extends Thread {
 						subpacket = sdesp;
 						sdesp.sdes = new RtcpSdesBlock[firstbyte];
 						int sdesoff = 4;
+						int sdesend = pos - 4 + inlength;
 						for (int i = 0; i < sdesp.sdes.length; i++) {
 							RtcpSdesBlock chunk = new RtcpSdesBlock();
 							sdesp.sdes[i] = chunk;
-							chunk.ssrc = in.readInt();
+							chunk.ssrc = RtcpPacketUtils.readInt(data, pos);
+							pos += 4;
 							sdesoff += 5;
-							Vector<RtcpSdesItem> items = new Vector<RtcpSdesItem>();
+							ArrayList<RtcpSdesItem> items = new ArrayList<RtcpSdesItem>(1);
 							boolean gotcname = false;
 							int j;
-							while ((j = in.readUnsignedByte()) != 0) {
-								if (j < 1 || j > 8) {
+							while ((j = data[pos++] & 0xff) != 0) {
+								if (j < 1 || j > 8 || pos >= sdesend) {
 									stats.numMalformedRtcpPkts++;
 									if (logger.isActivated()) {
 										logger.error("Bad RTCP SDES packet format");
@@ -342,11 +323,19 @@ public class RtcpPacketReceiver extends Thread {
 									gotcname = true;
 								}
 								RtcpSdesItem item = new RtcpSdesItem();
-								items.addElement(item);
+								items.add(item);
 								item.type = j;
-								int sdeslen = in.readUnsignedByte();
+								int sdeslen = data[pos++] & 0xff;
+								if (pos + sdeslen > sdesend) {
+									stats.numMalformedRtcpPkts++;
+									if (logger.isActivated()) {
+										logger.error("Bad RTCP SDES packet format");
+									}
+									return null;
+								}
 								item.data = new byte[sdeslen];
-								in.readFully(item.data);
+								System.arraycopy(data, pos, item.data, 0, sdeslen);
+								pos += sdeslen;
 								sdesoff += 2 + sdeslen;
 							}
 							if (!gotcname) {
@@ -356,15 +345,9 @@ public class RtcpPacketReceiver extends Thread {
 								}
 								return null;
 							}
-							chunk.items = new RtcpSdesItem[items.size()];
-							items.copyInto(chunk.items);
+							chunk.items = items.toArray(new RtcpSdesItem[items.size()]);
 							if ((sdesoff & 3) != 0) {
-                                if (in.skip(4 - (sdesoff & 3)) != 4 - (sdesoff & 3)) {
-                                    if (logger.isActivated()) {
-                                        logger.error("Bad RTCP SDES packet format");
-                                    }
-                                    return null;
-                                }
+								pos += 4 - (sdesoff & 3);
 								sdesoff = sdesoff + 3 & -4;
 							}
 						}
@@ -385,14 +368,22 @@ public class RtcpPacketReceiver extends Thread {
                     case RtcpPacket.RTCP_BYE:
 						RtcpByePacket byep = new RtcpByePacket(compoundPacket);
 						subpacket = byep;
+						if (inlength < 4 + 4 * firstbyte) {
+							stats.numMalformedRtcpPkts++;
+							if (logger.isActivated()) {
+								logger.error("Bad RTCP BYE packet format");
+							}
+							return null;
+						}
 						byep.ssrc = new int[firstbyte];
 						for (int i = 0; i < byep.ssrc.length; i++) {
-							byep.ssrc[i] = in.readInt();
+							byep.ssrc[i] = RtcpPacketUtils.readInt(data, pos);
+							pos += 4;
 						}
 
 						int reasonlen;
 						if (inlength > 4 + 4 * firstbyte) {
-							reasonlen = in.readUnsignedByte();
+							reasonlen = data[pos++] & 0xff;
 							byep.reason = new byte[reasonlen];
 							reasonlen++;
 						} else {
@@ -407,14 +398,7 @@ public class RtcpPacketReceiver extends Thread {
 							}
 							return null;
 						}
-						in.readFully(byep.reason);
-                        int skipBye = reasonlen - byep.reason.length;
-                        if (in.skip(skipBye) != skipBye) {
-                            if (logger.isActivated()) {
-                                logger.error("Bad RTCP BYE packet format");
-                            }
-                            return null;
-                        }
+						System.arraycopy(data, pos, byep.reason, 0, byep.reason.length);
 
 						// Notify event listeners
 						notifyRtcpListeners(new RtcpByeEvent(byep));
@@ -430,23 +414,39 @@ public class RtcpPacketReceiver extends Thread {
 						}
 						RtcpAppPacket appp = new RtcpAppPacket(compoundPacket);
 						subpacket = appp;
-						appp.ssrc = in.readInt();
-						appp.name = in.readInt();
+						appp.ssrc = RtcpPacketUtils.readInt(data, pos);
+						appp.name = RtcpPacketUtils.readInt(data, pos + 4);
 						appp.subtype = firstbyte;
 						appp.data = new byte[inlength - 12];
-						in.readFully(appp.data);
-                        int skipApp = inlength - 12 - appp.data.length;
-                        if (in.skip(skipApp) != skipApp) {
-                            if (logger.isActivated()) {
-                                logger.error("Bad RTCP APP packet format");
-                            }
-                            return null;
-                        }
+						System.arraycopy(data, pos + 8, appp.data, 0, appp.data.length);
 
 						// Notify event listeners
 						notifyRtcpListeners(new RtcpApplicationEvent(appp));
 						break;
 
+					// RTCP feedback event
+                    case RtcpPacket.RTCP_RTPFB:
+                    case RtcpPacket.RTCP_PSFB:
+						if (inlength < 12) {
+							stats.numMalformedRtcpPkts++;
+							if (logger.isActivated()) {
+								logger.error("Bad RTCP feedback packet format");
+							}
+							return null;
+						}
+						RtcpFeedbackPacket fbp = new RtcpFeedbackPacket(compoundPacket);
+						subpacket = fbp;
+						fbp.type = type;
+						fbp.format = firstbyte;
+						fbp.ssrc = RtcpPacketUtils.readInt(data, pos);
+						fbp.mediaSsrc = RtcpPacketUtils.readInt(data, pos + 4);
+						fbp.fci = new byte[inlength - 12];
+						System.arraycopy(data, pos + 8, fbp.fci, 0, fbp.fci.length);
+
+						// Notify event listeners
+						notifyRtcpListeners(new RtcpFeedbackEvent(fbp));
+						break;
+
 					// RTCP unknown event
 					default:
 						stats.numUnknownTypes++;
@@ -457,13 +457,7 @@ public class RtcpPacketReceiver extends Thread {
 				}
 				subpacket.offset = offset;
 				subpacket.length = length;
-				subpackets.addElement(subpacket);
-                if (in.skipBytes(padlen) != padlen) {
-                    if (logger.isActivated()) {
-                        logger.error("Bad RTCP packet format");
-                    }
-                    return null;
-                }
+				subpackets.add(subpacket);
 			}
 
 		} catch (Exception e) {
@@ -472,9 +466,36 @@ public class RtcpPacketReceiver extends Thread {
 			}
 			return null;
 		}
-		compoundPacket.packets = new RtcpPacket[subpackets.size()];
-		subpackets.copyInto(compoundPacket.packets);
+		compoundPacket.packets = subpackets.toArray(new RtcpPacket[subpackets.size()]);
 		return compoundPacket;
+	}
+
+    /**
+     * Parse the report blocks of a SR or RR packet
+     *
+     * @param data Packet data
+     * @param pos Position of the first report block
+     * @param count Number of report blocks
+     * @param receivedAt Time the packet has been received
+     * @return Reports
+     */
+	private static RtcpReport[] parseReports(byte[] data, int pos, int count, long receivedAt) {
+		RtcpReport[] reports = new RtcpReport[count];
+		for (int i = 0; i < count; i++) {
+			RtcpReport report = new RtcpReport();
+			reports[i] = report;
+			report.ssrc = RtcpPacketUtils.readInt(data, pos);
+			long val = (long) RtcpPacketUtils.readInt(data, pos + 4) & 0xffffffffL;
+			report.fractionlost = (int) (val >> 24);
+			report.packetslost = (int) (val & 0xffffffL);
+			report.lastseq = (long) RtcpPacketUtils.readInt(data, pos + 8) & 0xffffffffL;
+			report.jitter = RtcpPacketUtils.readInt(data, pos + 12);
+			report.lsr = (long) RtcpPacketUtils.readInt(data, pos + 16) & 0xffffffffL;
+			report.dlsr = (long) RtcpPacketUtils.readInt(data, pos + 20) & 0xffffffffL;
+			report.receiptTime = receivedAt;
+			pos += 24;
+		}
+		return reports;
 	}
 
     /**
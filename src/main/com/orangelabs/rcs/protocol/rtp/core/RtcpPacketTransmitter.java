@@ -15,23 +15,42 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  ******************************************************************************/
+package com.orangelabs.rcs.protocol.rtp.core;
 
-package com.orangelabs.rcs.protocol.rtp.core;
+import static com.orangelabs.rcs.utils.StringUtils.UTF8;
 
 import com.orangelabs.rcs.platform.network.DatagramConnection;
 import com.orangelabs.rcs.platform.network.NetworkFactory;
 import com.orangelabs.rcs.utils.logger.Logger;
 
 import java.io.IOException;
-import java.util.Random;
-import java.util.Vector;
 
 /**
  * RTCP packet transmitter
+ * <p>
+ * Compound packets (SR or RR, SDES and optionally BYE) are sent as per the
+ * transmission rules of RFC 3550 section 6.3: the interval is randomized and
+ * reconsidered when the timer expires.
  *
  * @author jexa7410
  */
 public class RtcpPacketTransmitter extends Thread {
+    /**
+     * Max number of NACK items (PID and BLP) in a feedback packet
+     */
+    private static final int MAX_NACK_ITEMS = 16;
+
+    /**
+     * Max size of a compound packet: SR with one report block, SDES with a
+     * CNAME of 255 bytes and BYE or a feedback packet
+     */
+    private static final int MAX_PACKET_SIZE = 52 + 268 + 12 + 4 * MAX_NACK_ITEMS;
+
+    /**
+     * Size of a reception report block
+     */
+    private static final int REPORT_BLOCK_SIZE = 24;
+
     /**
 	 * Remote address
 	 */
@@ -58,19 +77,34 @@ public class RtcpPacketTransmitter extends Thread {
     private RtcpSession rtcpSession = null;
 
     /**
-     * Flag used to determine when to terminate after sending a BYE
+     * Buffer in which compound packets are assembled
      */
-    private boolean waitingForByeBackoff = false;
+    private final byte[] packetBuffer = new byte[MAX_PACKET_SIZE];
 
     /**
-     * Flag used to properly close
+     * SDES packet, assembled once as the CNAME does not change
      */
-    private boolean closed = false;
+    private byte[] sdesPacket;
+
+    /**
+     * Reception report, updated before each transmission
+     */
+    private ReceptionReport receptionReport;
+
+    /**
+     * Lock used to wait for the next transmission and to serialize transmissions
+     */
+    private final Object scheduleLock = new Object();
 
     /**
-     * Random value
+     * Flag set when a RTCP packet has been sent
      */
-    private Random rand = new Random();
+    private boolean rtcpSent = false;
+
+    /**
+     * Flag used to properly close
+     */
+    private boolean closed = false;
 
     /**
      * The logger
@@ -87,19 +121,7 @@ public class RtcpPacketTransmitter extends Thread {
      */
     public RtcpPacketTransmitter(String address, int port, RtcpSession rtcpSession)
             throws IOException {
-        super();
-
-        this.remoteAddress = address;
-        this.remotePort = port;
-        this.rtcpSession = rtcpSession;
-
-        // Open the connection
-        datagramConnection = NetworkFactory.getFactory().createDatagramConnection();
-        datagramConnection.open();
-
-        if (logger.isActivated()) {
-            logger.debug("RTCP transmitter connected to " + remoteAddress + ":" + remotePort);
-        }
+        this(address, port, rtcpSession, null);
     }
 
     /**
@@ -118,6 +140,7 @@ public class RtcpPacketTransmitter extends Thread {
         this.remoteAddress = address;
         this.remotePort = port;
         this.rtcpSession = rtcpSession;
+        this.sdesPacket = assembleSdesPacket();
 
         // Open the connection
         if (connection != null) {
@@ -133,18 +156,27 @@ public class RtcpPacketTransmitter extends Thread {
     }
 
     /**
-     * Close the transmitter
+     * Close the transmitter. A BYE packet is sent if any RTP or RTCP packet
+     * has been sent during the session.
      *
      * @throws IOException
      */
 	public void close() throws IOException {
-	    if (closed) {
-            return;
+        synchronized (scheduleLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            // RFC 3550 6.3.7: a participant which never sent an RTP or RTCP
+            // packet must not send a BYE packet
+            if (rtcpSent || rtcpSession.timeOfLastRTPSent > 0) {
+                transmitCompoundPacket(true);
+            }
+            rtcpSession.getMySource().activeSender = false;
+            scheduleLock.notifyAll();
         }
 
-	    rtcpSession.isByeRequested = true;
-        closed = true;
-        
         // Close the datagram connection
 		if (datagramConnection != null) {
 			datagramConnection.close();
@@ -158,65 +190,43 @@ public class RtcpPacketTransmitter extends Thread {
         if (this.getState() == State.NEW) {
             this.start();
         }
-
 	}
 
 	/**
 	 * Background processing
 	 */
 	public void run() {
-        if (closed) {
-            return;
-        }
+		try {
+            synchronized (scheduleLock) {
+                if (closed) {
+                    return;
+                }
 
-		try {
-            // Send a SDES packet
-            sendSdesPacket();
-
-            boolean terminate = false;
-            while (!terminate) {
-                try {
-                    // Wait the RTCP report interval.
-                    Thread.sleep((long)rtcpSession.getReportInterval());
-
-                    // Right time to send a RTCP packet or reschedule ?
-                    if ((rtcpSession.timeOfLastRTCPSent + rtcpSession.T) <= rtcpSession
-                            .currentTime()) {
-                        // We know that it is time to send a RTCP packet, is it
-                        // a BYE packet
-                        if ((rtcpSession.isByeRequested && waitingForByeBackoff)) {
-                            // If it is bye then did we ever sent anything
-                            if (rtcpSession.timeOfLastRTCPSent > 0
-                                    && rtcpSession.timeOfLastRTPSent > 0) {
-                                rtcpSession.getMySource().activeSender = false;
-                                rtcpSession.timeOfLastRTCPSent = rtcpSession.currentTime();
-                            } else {
-                                // We never sent anything and we have to quit :(
-                                // do not send BYE
-                                terminate = true;
-                            }
-                        } else {
-                            if (!closed) {
-                                transmit(assembleRtcpPacket());
-                                if (rtcpSession.isByeRequested && !waitingForByeBackoff) {
-                                    // We have sent a BYE packet, so terminate
-                                    terminate = true;
-                                } else {
-                                    rtcpSession.timeOfLastRTCPSent = rtcpSession.currentTime();
-                                }
-                            } else {
-                                terminate = true;
-                            }
-
-                        }
+                // The first report is sent after the initial interval (RFC 3550 6.2),
+                // half the minimum interval so that the remote soon knows our CNAME
+                long nextTime = rtcpSession.currentTime() + (long)rtcpSession.getReportInterval();
+
+                while (!closed) {
+                    long now = rtcpSession.currentTime();
+                    if (now < nextTime) {
+                        scheduleLock.wait(nextTime - now);
+                        continue;
                     }
-                    waitingForByeBackoff = false;
 
-                } catch (InterruptedException e) {
-                    waitingForByeBackoff = true;
-                    rtcpSession.isByeRequested = true;
+                    // Timer reconsideration: the interval is computed again
+                    // with the current state of the session
+                    long lastTime = (long)rtcpSession.timeOfLastRTCPSent;
+                    long interval = (long)rtcpSession.getReportInterval();
+                    if (lastTime + interval <= now) {
+                        transmitCompoundPacket(false);
+                        nextTime = now + (long)rtcpSession.getReportInterval();
+                    } else {
+                        nextTime = lastTime + interval;
+                    }
                 }
             }
+        } catch (InterruptedException e) {
+            // Terminated
 		} catch (Exception e) {
 			if (logger.isActivated()) {
                 logger.error("Can't send the RTCP packet", e);
@@ -225,208 +235,228 @@ public class RtcpPacketTransmitter extends Thread {
 	}
 
     /**
-     * assemble RTCP packet
+     * Send a generic NACK (RFC 4585 section 6.2.1) for lost packets of the
+     * received source. Consecutive sequence numbers are packed in the same
+     * NACK item as far as possible.
+     *
+     * @param mediaSsrc SSRC of the received source
+     * @param seqnums Sequence numbers of the lost packets
+     * @param count Number of sequence numbers
      */
-    private byte[] assembleRtcpPacket() {
-        byte data[] = new byte[0];
-
-        // Sender or receiver packet
-        RtpSource s = rtcpSession.getMySource();
-        if ((s.activeSender) && (rtcpSession.timeOfLastRTCPSent < rtcpSession.timeOfLastRTPSent)) {
-            data = RtcpPacketUtils.append(data, assembleSenderReportPacket());
-        } else {
-            data = RtcpPacketUtils.append(data, assembleReceiverReportPacket());
+    public void sendNack(int mediaSsrc, int[] seqnums, int count) {
+        synchronized (scheduleLock) {
+            if (closed || count == 0) {
+                return;
+            }
+            int offset = assembleRegularPackets();
+            int pos = offset + 12;
+            int end = pos + 4 * MAX_NACK_ITEMS;
+            int pid = seqnums[0] & 0xffff;
+            int blp = 0;
+            for (int i = 1; i < count; i++) {
+                int delta = (short)(seqnums[i] - pid);
+                if (delta >= 1 && delta <= 16) {
+                    blp |= 1 << (delta - 1);
+                    continue;
+                }
+                RtcpPacketUtils.writeShort(packetBuffer, pos, pid);
+                RtcpPacketUtils.writeShort(packetBuffer, pos + 2, blp);
+                pos += 4;
+                if (pos == end) {
+                    break;
+                }
+                pid = seqnums[i] & 0xffff;
+                blp = 0;
+            }
+            if (pos < end) {
+                RtcpPacketUtils.writeShort(packetBuffer, pos, pid);
+                RtcpPacketUtils.writeShort(packetBuffer, pos + 2, blp);
+                pos += 4;
+            }
+            assembleFeedbackHeader(packetBuffer, offset, RtcpPacket.RTCP_RTPFB,
+                    RtcpFeedbackPacket.FMT_NACK, mediaSsrc, pos);
+            transmitBuffer(pos);
         }
+    }
 
-        // SDES packets
-        Vector<RtcpSdesPacket> repvec = makereports();
-        for (int i = 0; i < repvec.size(); i++) {
-            if (repvec.elementAt(i).data != null)
-                data = RtcpPacketUtils.append(data, repvec.elementAt(i).data);
+    /**
+     * Send a Picture Loss Indication (RFC 4585 section 6.3.1) to request a
+     * key frame from the received source
+     *
+     * @param mediaSsrc SSRC of the received source
+     */
+    public void sendPictureLossIndication(int mediaSsrc) {
+        synchronized (scheduleLock) {
+            if (closed) {
+                return;
+            }
+            int offset = assembleRegularPackets();
+            int pos = offset + 12;
+            assembleFeedbackHeader(packetBuffer, offset, RtcpPacket.RTCP_PSFB,
+                    RtcpFeedbackPacket.FMT_PLI, mediaSsrc, pos);
+            transmitBuffer(pos);
         }
+    }
 
-        // BYE packet
-        RtcpByePacket byepacket = null;
-        if (rtcpSession.isByeRequested) {
-            int ssrc[] = {rtcpSession.SSRC};
-            byepacket = new RtcpByePacket(ssrc, null);
-            data = RtcpPacketUtils.append(data, byepacket.data);
+    /**
+     * Assemble and transmit a compound packet: SR or RR, SDES and BYE if
+     * requested
+     *
+     * @param bye True if a BYE packet shall be appended
+     */
+    private void transmitCompoundPacket(boolean bye) {
+        int length = assembleRegularPackets();
+        if (bye) {
+            length = assembleByePacket(packetBuffer, length);
         }
-
-        return data;
+        transmitBuffer(length);
     }
 
     /**
-     * assemble RTCP SR packet
-     * @return packet data
+     * Assemble the packets starting any compound packet: SR or RR and SDES
+     *
+     * @return offset of the end of the packets
      */
-    private byte[] assembleSenderReportPacket() {
-        final int FIXED_HEADER_SIZE = 4;
-        byte V_P_RC = (byte)((RtcpPacket.VERSION << 6) | (RtcpPacket.PADDING << 5) | (0x00));
-        byte ss[] = RtcpPacketUtils.longToBytes(rtcpSession.SSRC, 4);
-        byte PT[] = RtcpPacketUtils.longToBytes((long)RtcpPacket.RTCP_SR, 1);
-        byte NTP_TimeStamp[] = RtcpPacketUtils.longToBytes(rtcpSession.currentTime(), 8);
-        short randomOffset = (short)Math.abs(rand.nextInt() & 0x000000FF);
-        byte RTP_TimeStamp[] = RtcpPacketUtils.longToBytes((long)rtcpSession.tc
-                + randomOffset, 4);
-        byte SenderPacketCount[] = RtcpPacketUtils.longToBytes(rtcpSession.packetCount, 4);
-        byte SenderOctetCount[] = RtcpPacketUtils.longToBytes(rtcpSession.octetCount, 4);
-
-        // report block
-        byte receptionReportBlocks[] = new byte[0];
-        receptionReportBlocks = RtcpPacketUtils.append(receptionReportBlocks,
-                assembleRTCPReceptionReport());
-        byte receptionReports = (byte)(receptionReportBlocks.length / 24);
-        V_P_RC = (byte)(V_P_RC | (byte)(receptionReports & 0x1F));
+    private int assembleRegularPackets() {
+        int length = assembleReportPacket(packetBuffer, 0);
+        System.arraycopy(sdesPacket, 0, packetBuffer, length, sdesPacket.length);
+        return length + sdesPacket.length;
+    }
 
-        // Length is 32 bit words contained in the packet -1
-        byte length[] = RtcpPacketUtils.longToBytes((FIXED_HEADER_SIZE + ss.length
-                + NTP_TimeStamp.length + RTP_TimeStamp.length + SenderPacketCount.length
-                + SenderOctetCount.length + receptionReportBlocks.length) / 4 - 1, 2);
-
-        // Build RTCP SR Packet
-        byte rtcpSRPacket[] = new byte[1];
-        rtcpSRPacket[0] = V_P_RC;
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, PT);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, length);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, ss);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, NTP_TimeStamp);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, RTP_TimeStamp);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, SenderPacketCount);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, SenderOctetCount);
-        rtcpSRPacket = RtcpPacketUtils.append(rtcpSRPacket, receptionReportBlocks);
-
-        return rtcpSRPacket;
+    /**
+     * Transmit the compound packet assembled in the packet buffer
+     *
+     * @param length Length of the compound packet
+     */
+    private void transmitBuffer(int length) {
+        // The datagram connection sends whole arrays
+        byte[] data = new byte[length];
+        System.arraycopy(packetBuffer, 0, data, 0, length);
+        transmit(data);
     }
 
     /**
-     * assemble RTCP RR packet
-     * @return packet data
+     * Assemble a SR packet if we are an active sender, else a RR packet
+     *
+     * @param buf buffer
+     * @param offset offset of the packet in the buffer
+     * @return offset of the end of the packet
      */
-    private byte[] assembleReceiverReportPacket() {
-        final int FIXED_HEADER_SIZE = 4;
-        byte V_P_RC = (byte)((RtcpPacket.VERSION << 6) | (RtcpPacket.PADDING << 5) | (0x00));
-        byte ss[] = RtcpPacketUtils.longToBytes(rtcpSession.SSRC, 4);
-        byte PT[] = RtcpPacketUtils.longToBytes((long)RtcpPacket.RTCP_RR, 1);
-
-        // report block
-        byte receptionReportBlocks[] = new byte[0];
-        receptionReportBlocks = RtcpPacketUtils.append(receptionReportBlocks,
-                assembleRTCPReceptionReport());
-        byte receptionReports = (byte)(receptionReportBlocks.length / 24);
-        V_P_RC = (byte)(V_P_RC | (byte)(receptionReports & 0x1F));
-
-        byte length[] = RtcpPacketUtils.longToBytes(
-                (FIXED_HEADER_SIZE + ss.length + receptionReportBlocks.length) / 4 - 1, 2);
-
-        // Build RTCP RR Packet
-        byte RRPacket[] = new byte[1];
-        RRPacket[0] = V_P_RC;
-        RRPacket = RtcpPacketUtils.append(RRPacket, PT);
-        RRPacket = RtcpPacketUtils.append(RRPacket, length);
-        RRPacket = RtcpPacketUtils.append(RRPacket, ss);
-        RRPacket = RtcpPacketUtils.append(RRPacket, receptionReportBlocks);
-        return RRPacket;
+    private int assembleReportPacket(byte[] buf, int offset) {
+        boolean sender = rtcpSession.isActiveSender();
+        RtpSource source = rtcpSession.getMySource();
+        int reportCount = source.hasReceivedRtpPackets() ? 1 : 0;
+        int pos = offset + 4;
+
+        RtcpPacketUtils.writeInt(buf, pos, rtcpSession.SSRC);
+        pos += 4;
+        if (sender) {
+            long now = rtcpSession.currentTime();
+            long ntpTimestamp = RtcpPacketUtils.toNtpTimestamp(now);
+            RtcpPacketUtils.writeInt(buf, pos, (int)(ntpTimestamp >>> 32));
+            RtcpPacketUtils.writeInt(buf, pos + 4, (int)ntpTimestamp);
+            // RTP timestamp of the same instant as the NTP timestamp
+            RtcpPacketUtils.writeInt(buf, pos + 8, (int)rtcpSession.getRtpTimestamp(now));
+            RtcpPacketUtils.writeInt(buf, pos + 12, (int)rtcpSession.packetCount);
+            RtcpPacketUtils.writeInt(buf, pos + 16, (int)rtcpSession.octetCount);
+            pos += 20;
+        }
+        if (reportCount > 0) {
+            pos = assembleReceptionReport(buf, pos);
+        }
+
+        // Length is 32 bit words contained in the packet -1
+        buf[offset] = (byte)((RtcpPacket.VERSION << 6) | (RtcpPacket.PADDING << 5) | reportCount);
+        buf[offset + 1] = (byte)(sender ? RtcpPacket.RTCP_SR : RtcpPacket.RTCP_RR);
+        RtcpPacketUtils.writeShort(buf, offset + 2, (pos - offset) / 4 - 1);
+        return pos;
     }
 
     /**
-     * assemble RTCP Reception report block
-     * @return report data
+     * Assemble the reception report block of the received source
+     *
+     * @param buf buffer
+     * @param offset offset of the block in the buffer
+     * @return offset of the end of the block
      */
-    private byte[] assembleRTCPReceptionReport() {
-        byte reportBlock[] = new byte[0];
+    private int assembleReceptionReport(byte[] buf, int offset) {
         RtpSource source = rtcpSession.getMySource();
+        if (receptionReport == null) {
+            receptionReport = source.generateReceptionReport();
+        } else {
+            source.updateReceptionReport(receptionReport);
+        }
 
-        ReceptionReport rr = source.generateReceptionReport();
-        byte SSRC[] = RtcpPacketUtils.longToBytes((long)rr.getSsrc(), 4);
-        byte fraction_lost[] = RtcpPacketUtils.longToBytes((long)rr.getFractionLost(), 1);
-        byte pkts_lost[] = RtcpPacketUtils.longToBytes((long)rr.getCumulativeNumberOfPacketsLost(), 3);
-        byte last_seq[] = RtcpPacketUtils.longToBytes((long)rr.getExtendedHighestSequenceNumberReceived(), 4);
-        byte jitter[] = RtcpPacketUtils.longToBytes((long)rr.getInterarrivalJitter(), 4);
-        byte lst[] = RtcpPacketUtils.longToBytes((long)rr.getLastSenderReport(), 4);
-        byte dlsr[] = RtcpPacketUtils.longToBytes((long)rr.getDelaySinceLastSenderReport(), 4);
-
-        reportBlock = RtcpPacketUtils.append(reportBlock, SSRC);
-        reportBlock = RtcpPacketUtils.append(reportBlock, fraction_lost);
-        reportBlock = RtcpPacketUtils.append(reportBlock, pkts_lost);
-        reportBlock = RtcpPacketUtils.append(reportBlock, last_seq);
-        reportBlock = RtcpPacketUtils.append(reportBlock, jitter);
-        reportBlock = RtcpPacketUtils.append(reportBlock, lst);
-        reportBlock = RtcpPacketUtils.append(reportBlock, dlsr);
-
-        return reportBlock;
+        int fractionLost = Math.min((int)receptionReport.getFractionLost(), 0xff);
+        int packetsLost = Math.max(Math.min(receptionReport.getCumulativeNumberOfPacketsLost(),
+                0x7fffff), -0x800000);
+        RtcpPacketUtils.writeInt(buf, offset, (int)receptionReport.getSsrc());
+        RtcpPacketUtils.writeInt(buf, offset + 4, (fractionLost << 24) | (packetsLost & 0xffffff));
+        RtcpPacketUtils.writeInt(buf, offset + 8,
+                (int)receptionReport.getExtendedHighestSequenceNumberReceived());
+        RtcpPacketUtils.writeInt(buf, offset + 12, (int)receptionReport.getInterarrivalJitter());
+        RtcpPacketUtils.writeInt(buf, offset + 16, (int)receptionReport.getLastSenderReport());
+        RtcpPacketUtils.writeInt(buf, offset + 20,
+                (int)receptionReport.getDelaySinceLastSenderReport());
+        return offset + REPORT_BLOCK_SIZE;
     }
 
-	/**
-	 * Send a BYE packet
-	 */
-	public void sendByePacket() {
-		// Create a report
-	    Vector<RtcpSdesPacket> repvec = makereports();
-	    RtcpPacket[] packets = new RtcpPacket[repvec.size() + 1];
-	    repvec.copyInto(packets);
-
-	    // Create a RTCP bye packet
-	    int ssrc[] = {rtcpSession.SSRC};
-	    RtcpByePacket rtcpbyepacket = new RtcpByePacket(ssrc, null);
-	    packets[packets.length - 1] = rtcpbyepacket;
-
-		// Create a RTCP compound packet
-	    RtcpCompoundPacket cp = new RtcpCompoundPacket(packets);
+    /**
+     * Assemble a BYE packet for our source
+     *
+     * @param buf buffer
+     * @param offset offset of the packet in the buffer
+     * @return offset of the end of the packet
+     */
+    private int assembleByePacket(byte[] buf, int offset) {
+        buf[offset] = (byte)((RtcpPacket.VERSION << 6) | (RtcpPacket.PADDING << 5) | 1);
+        buf[offset + 1] = (byte)RtcpPacket.RTCP_BYE;
+        RtcpPacketUtils.writeShort(buf, offset + 2, 1);
+        RtcpPacketUtils.writeInt(buf, offset + 4, rtcpSession.SSRC);
+        return offset + 8;
+    }
 
-        rtcpSession.getMySource().activeSender = false;
-
-	    // Send the RTCP packet
-		transmit(cp);
-	}
-
-	/**
-     * Generate a RTCP report
+    /**
+     * Assemble the header of a feedback packet whose FCI is already in the
+     * buffer
      *
-     * @return Vector
+     * @param buf buffer
+     * @param offset offset of the packet in the buffer
+     * @param type RTPFB or PSFB
+     * @param format feedback message type
+     * @param mediaSsrc SSRC of the media source
+     * @param end offset of the end of the packet
      */
-	public Vector<RtcpSdesPacket> makereports() {
-		Vector<RtcpSdesPacket> packets = new Vector<RtcpSdesPacket>();
-
-		RtcpSdesPacket rtcpsdespacket = new RtcpSdesPacket(new RtcpSdesBlock[1]);
-		rtcpsdespacket.sdes[0] = new RtcpSdesBlock();
-		rtcpsdespacket.sdes[0].ssrc = rtcpSession.SSRC;
-
-		Vector<RtcpSdesItem> vector = new Vector<RtcpSdesItem>();
-		vector.addElement(new RtcpSdesItem(1, RtpSource.CNAME));
-		rtcpsdespacket.sdes[0].items = new RtcpSdesItem[vector.size()];
-		vector.copyInto(rtcpsdespacket.sdes[0].items);
-
-		packets.addElement(rtcpsdespacket);
-		return packets;
-	}
+    private void assembleFeedbackHeader(byte[] buf, int offset, int type, int format,
+            int mediaSsrc, int end) {
+        buf[offset] = (byte)((RtcpPacket.VERSION << 6) | (RtcpPacket.PADDING << 5) | format);
+        buf[offset + 1] = (byte)type;
+        RtcpPacketUtils.writeShort(buf, offset + 2, (end - offset) / 4 - 1);
+        RtcpPacketUtils.writeInt(buf, offset + 4, rtcpSession.SSRC);
+        RtcpPacketUtils.writeInt(buf, offset + 8, mediaSsrc);
+    }
 
     /**
-     * Transmit a RTCP compound packet to the remote destination
+     * Assemble the SDES packet carrying our CNAME
      *
-     * @param packet Compound packet to be sent
-     */
-	private void transmit(RtcpCompoundPacket packet) {
-		// Prepare data to be sent
-		byte[] data = packet.data;
-		if (packet.offset > 0) {
-			System.arraycopy(data, packet.offset,
-					data = new byte[packet.length], 0, packet.length);
-		}
+     * @return packet data
+     */
+    private byte[] assembleSdesPacket() {
+        byte[] cname = RtpSource.CNAME.getBytes(UTF8);
+        int cnameLength = Math.min(cname.length, 0xff);
 
-		// Update statistics
-		stats.numBytes += packet.length;
-        stats.numPackets++;
-        rtcpSession.updateavgrtcpsize(packet.length);
-        rtcpSession.timeOfLastRTCPSent = rtcpSession.currentTime();
-		// Send data over UDP
-		try {
-			datagramConnection.send(remoteAddress, remotePort, data);
-		} catch(IOException e) {
-			if (logger.isActivated()) {
-				logger.error("Can't send the RTCP packet", e);
-			}
-		}
+        // SSRC, CNAME item and at least one null octet to end the item list,
+        // padded to a 32 bit boundary
+        int chunkLength = (4 + 2 + cnameLength + 4) & ~3;
+        byte[] packet = new byte[4 + chunkLength];
+        packet[0] = (byte)((RtcpPacket.VERSION << 6) | (RtcpPacket.PADDING << 5) | 1);
+        packet[1] = (byte)RtcpPacket.RTCP_SDES;
+        RtcpPacketUtils.writeShort(packet, 2, packet.length / 4 - 1);
+        RtcpPacketUtils.writeInt(packet, 4, rtcpSession.SSRC);
+        packet[8] = 1;
+        packet[9] = (byte)cnameLength;
+        System.arraycopy(cname, 0, packet, 10, cnameLength);
+        return packet;
     }
 
     /**
@@ -438,8 +468,8 @@ public class RtcpPacketTransmitter extends Thread {
         // Update statistics
         stats.numBytes += packet.length;
         stats.numPackets++;
-        rtcpSession.updateavgrtcpsize(packet.length);
-        rtcpSession.timeOfLastRTCPSent = rtcpSession.currentTime();
+        rtcpSession.rtcpPacketSent(packet.length);
+        rtcpSent = true;
         // Send data over UDP
         try {
             datagramConnection.send(remoteAddress, remotePort, packet);
@@ -458,24 +488,4 @@ public class RtcpPacketTransmitter extends Thread {
 	public RtcpStatisticsTransmitter getStatistics() {
 		return stats;
 	}
-
-    /**
-     * Send a SDES packet
-     */
-    private void sendSdesPacket() {
-        // Create a report
-        Vector<RtcpSdesPacket> repvec = makereports();
-        RtcpPacket packets[] = new RtcpPacket[repvec.size()];
-        repvec.copyInto(packets);
-
-        // Create a RTCP compound packet
-        RtcpCompoundPacket cp = new RtcpCompoundPacket(packets);
-
-        // Assemble the RTCP packet
-        int i = cp.calcLength();
-        cp.assemble(i, false);
-
-        // Send the RTCP packet
-        transmit(cp);
-    }
 }
@@ -25,6 +25,11 @@ package com.orangelabs.rcs.protocol.rtp.core;
  */
 public class RtcpPacketUtils {
 
+    /**
+     * Seconds between the NTP epoch (1900) and the Java epoch (1970)
+     */
+    private static final long NTP_EPOCH_OFFSET = 2208988800L;
+
     /**
      * Convert 64 bit long to n bytes.
      *
@@ -56,4 +61,76 @@ public class RtcpPacketUtils {
             packet[i + pck1.length] = pck2[i];
         return packet;
     }
-};
+
+    /**
+     * Write a 16 bit value in network byte order
+     *
+     * @param buf buffer
+     * @param offset offset in the buffer
+     * @param value value
+     */
+    public static void writeShort(byte[] buf, int offset, int value) {
+        buf[offset] = (byte)(value >> 8);
+        buf[offset + 1] = (byte)value;
+    }
+
+    /**
+     * Write a 32 bit value in network byte order
+     *
+     * @param buf buffer
+     * @param offset offset in the buffer
+     * @param value value
+     */
+    public static void writeInt(byte[] buf, int offset, int value) {
+        buf[offset] = (byte)(value >> 24);
+        buf[offset + 1] = (byte)(value >> 16);
+        buf[offset + 2] = (byte)(value >> 8);
+        buf[offset + 3] = (byte)value;
+    }
+
+    /**
+     * Read a 16 bit unsigned value in network byte order
+     *
+     * @param buf buffer
+     * @param offset offset in the buffer
+     * @return value
+     */
+    public static int readUnsignedShort(byte[] buf, int offset) {
+        return ((buf[offset] & 0xff) << 8) | (buf[offset + 1] & 0xff);
+    }
+
+    /**
+     * Read a 32 bit value in network byte order
+     *
+     * @param buf buffer
+     * @param offset offset in the buffer
+     * @return value
+     */
+    public static int readInt(byte[] buf, int offset) {
+        return ((buf[offset] & 0xff) << 24) | ((buf[offset + 1] & 0xff) << 16)
+                | ((buf[offset + 2] & 0xff) << 8) | (buf[offset + 3] & 0xff);
+    }
+
+    /**
+     * Convert a time to a 64 bit NTP timestamp (RFC 3550 section 4)
+     *
+     * @param timeMillis time in milliseconds since the Java epoch
+     * @return NTP timestamp
+     */
+    public static long toNtpTimestamp(long timeMillis) {
+        long seconds = timeMillis / 1000 + NTP_EPOCH_OFFSET;
+        long fraction = ((timeMillis % 1000) << 32) / 1000;
+        return (seconds << 32) | fraction;
+    }
+
+    /**
+     * Convert a time to the middle 32 bits of its NTP timestamp, as used by
+     * the LSR field of the reception reports
+     *
+     * @param timeMillis time in milliseconds since the Java epoch
+     * @return compact NTP timestamp in units of 1/65536 seconds
+     */
+    public static long toCompactNtpTimestamp(long timeMillis) {
+        return (toNtpTimestamp(timeMillis) >>> 16) & 0xffffffffL;
+    }
+}
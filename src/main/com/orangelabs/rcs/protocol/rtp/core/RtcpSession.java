@@ -15,7 +15,6 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  ******************************************************************************/
-
 package com.orangelabs.rcs.protocol.rtp.core;
 
 import java.util.Random;
@@ -42,6 +41,30 @@ public class RtcpSession {
      */
     private static final double RTCP_RCVR_BW_FRACTION = 0.75;
 
+    /**
+     * RFC 3550 A.7: the timer reconsideration converges to a value below the
+     * intended average, the randomized interval is divided by e-3/2 to
+     * compensate
+     */
+    private static final double COMPENSATION = Math.E - 1.5;
+
+    /**
+     * Size of the UDP and IP headers, accounted in the average RTCP packet size
+     */
+    private static final int UDP_IP_OVERHEAD = 28;
+
+    /**
+     * Min time (ms) between the RTP packets from which the RTP clock rate is
+     * estimated
+     */
+    private static final double MIN_CLOCK_ESTIMATION_TIME = 1000;
+
+    /**
+     * Number of RTP timestamp units after which the packet from which the RTP
+     * clock rate is estimated is renewed, to stay far from the wrap around
+     */
+    private static final long MAX_CLOCK_ESTIMATION_UNITS = 0x40000000L;
+
     /**
      * Bandwidth
      */
@@ -52,11 +75,6 @@ public class RtcpSession {
      */
     private double rtcpBandwidth;
 
-    /**
-     * Minimum time between RTCP message (ms)
-     */
-    private int rtcp_min_time = DEFAULT_RTCP_MIN_TIME;
-
     /**
      * RTCP average packet size
      */
@@ -77,16 +95,6 @@ public class RtcpSession {
      */
     private boolean initial;
 
-    /**
-     * Is a sender
-     */
-    private boolean isSender;
-
-    /**
-     * True if session instantiator requested a close.
-     */
-    public boolean isByeRequested = false;
-
     /**
      * Time this source last sent an RTP Packet
      */
@@ -98,14 +106,9 @@ public class RtcpSession {
     public double timeOfLastRTCPSent = 0;
 
     /**
-     * The startup time for the application.
-     */
-    public long appStartupTime;
-
-    /**
-     * Ramdomized time interval for next RTCP transmission.
+     * The time the RTCP packet before the last one was transmitted.
      */
-    public double T = 0;
+    private double timeOfPreviousRTCPSent = 0;
 
     /**
      * Synchronization Source identifier for this source.
@@ -117,11 +120,6 @@ public class RtcpSession {
      */
     private RtpSource rtpSource;
 
-    /**
-     * The current time.
-     */
-    public double tc = 0;
-
     /**
      * Total Number of RTP data packets sent out by this source since starting transmission.
      */
@@ -133,6 +131,22 @@ public class RtcpSession {
     */
     public long octetCount;
 
+    /**
+     * RTP timestamp of the last RTP data packet sent out by this source.
+     */
+    public long lastRtpTimestamp;
+
+    /**
+     * RTP timestamp of the packet from which the RTP clock rate is estimated
+     */
+    private long refRtpTimestamp;
+
+    /**
+     * Time the packet from which the RTP clock rate is estimated was sent
+     * (0 if none)
+     */
+    private double timeOfRefRTPSent = 0;
+
     /**
      * Initialize the Random Number Generator.
      */
@@ -142,10 +156,9 @@ public class RtcpSession {
      * Constructor.
      *
      * @param isSender is sender
-     * @param bandwidth bandwidth (can set 16000 (16kops 128kbps))
+     * @param bandwidth bandwidth in octets per second (can set 16000 (16kops 128kbps))
      */
     public RtcpSession(boolean isSender, double bandwidth) {
-        this.isSender = isSender;
         members = 2;
         senders = 1;
         this.bandwidth = bandwidth;
@@ -154,9 +167,7 @@ public class RtcpSession {
         initial = true;
 
         // Initialize the Session level variables
-        appStartupTime = currentTime();
-        timeOfLastRTCPSent = appStartupTime;
-        tc = appStartupTime;
+        timeOfLastRTCPSent = currentTime();
         SSRC = rnd.nextInt();
         packetCount = 0;
         octetCount = 0;
@@ -184,46 +195,111 @@ public class RtcpSession {
     }
 
     /**
-     * Get the interval of RTCP message
+     * Returns the session bandwidth
      *
-     * @return interval
+     * @return bandwidth in octets per second
      */
-    public double getReportInterval() {
-        // Interval
-        double t;
-        // no. of members for computation
-        double n;
+    public double getBandwidth() {
+        return bandwidth;
+    }
 
+    /**
+     * Is this source an active sender, i.e. has it sent RTP packets since the
+     * RTCP packet before the last one (RFC 3550 "we_sent")
+     *
+     * @return boolean
+     */
+    public boolean isActiveSender() {
+        return rtpSource.activeSender && timeOfLastRTPSent > timeOfPreviousRTCPSent;
+    }
+
+    /**
+     * Get the randomized interval until the next RTCP message, computed as per
+     * RFC 3550 section 6.3.1 and appendix A.7. It shall be computed again when
+     * the timer expires so that the transmission may be reconsidered.
+     *
+     * @return interval in milliseconds
+     */
+    public double getReportInterval() {
         // initial half the min delay for quicker notification
-        if (initial) {
-            initial = false;
-            rtcp_min_time /= 2;
-        }
+        double rtcpMinTime = initial ? DEFAULT_RTCP_MIN_TIME / 2 : DEFAULT_RTCP_MIN_TIME;
 
         // If there were active senders, give them at least a minimum share of
         // the RTCP bandwidth. Otherwise all participants share the RTCP
         // bandwidth equally.
-        n = members;
-        if (senders > 0 && senders < members * RTCP_SENDER_BW_FRACTION) {
-            if (isSender) {
-                rtcpBandwidth *= RTCP_SENDER_BW_FRACTION;
+        double bw = rtcpBandwidth;
+        double n = members;
+        if (senders > 0 && senders <= members * RTCP_SENDER_BW_FRACTION) {
+            if (isActiveSender()) {
+                bw *= RTCP_SENDER_BW_FRACTION;
                 n = senders;
             } else {
-                rtcpBandwidth *= RTCP_RCVR_BW_FRACTION;
+                bw *= RTCP_RCVR_BW_FRACTION;
                 n -= senders;
             }
         }
 
-        // get interval
-        t = (double)avgrtcpsize * n / bandwidth;
-        if (t < rtcp_min_time)
-            t = rtcp_min_time;
+        // get deterministic interval
+        double t = (double)avgrtcpsize * n / bw * 1000;
+        if (t < rtcpMinTime) {
+            t = rtcpMinTime;
+        }
 
         // add noise to avoid traffic bursts
-        t *= (Math.random() + 0.5);
+        return t * (rnd.nextDouble() + 0.5) / COMPENSATION;
+    }
+
+    /**
+     * Update the session after a RTCP packet has been sent
+     *
+     * @param size size of the RTCP packet
+     */
+    public void rtcpPacketSent(int size) {
+        updateavgrtcpsize(size);
+        timeOfPreviousRTCPSent = timeOfLastRTCPSent;
+        timeOfLastRTCPSent = currentTime();
+        initial = false;
+    }
+
+    /**
+     * Update the session after a RTP packet has been sent
+     *
+     * @param timestamp RTP timestamp of the packet
+     * @param size size of the RTP packet
+     */
+    public void rtpPacketSent(long timestamp, int size) {
+        double now = currentTime();
+        rtpSource.activeSender = true;
+        timeOfLastRTPSent = now;
+        packetCount++;
+        octetCount += size;
+        lastRtpTimestamp = timestamp;
+        if (timeOfRefRTPSent <= 0
+                || ((timestamp - refRtpTimestamp) & 0xffffffffL) > MAX_CLOCK_ESTIMATION_UNITS) {
+            refRtpTimestamp = timestamp;
+            timeOfRefRTPSent = now;
+        }
+    }
 
-        T = t;
-        return t;
+    /**
+     * Get the RTP timestamp corresponding to a time, for a SR (RFC 3550
+     * section 6.4.1): the timestamp of the last RTP packet sent is
+     * extrapolated to the time. The RTP timestamps come from the media input,
+     * so the RTP clock rate is estimated from the timestamps and send times of
+     * the packets. Until it can be estimated, the timestamp of the last RTP
+     * packet sent is returned.
+     *
+     * @param time time in milliseconds
+     * @return RTP timestamp
+     */
+    public long getRtpTimestamp(double time) {
+        double elapsed = timeOfLastRTPSent - timeOfRefRTPSent;
+        long units = (lastRtpTimestamp - refRtpTimestamp) & 0xffffffffL;
+        if (timeOfRefRTPSent <= 0 || elapsed < MIN_CLOCK_ESTIMATION_TIME || units == 0) {
+            return lastRtpTimestamp;
+        }
+        double clockRate = units / elapsed;
+        return (lastRtpTimestamp + (long)((time - timeOfLastRTPSent) * clockRate)) & 0xffffffffL;
     }
 
     /**
@@ -232,7 +308,7 @@ public class RtcpSession {
      * @param size
      */
     public void updateavgrtcpsize(int size) {
-        avgrtcpsize = (int)(0.0625 * (double)size + 0.9375 * (double)avgrtcpsize);
+        avgrtcpsize = (int)(0.0625 * (double)(size + UDP_IP_OVERHEAD) + 0.9375 * (double)avgrtcpsize);
     }
 
     /**
@@ -250,7 +326,6 @@ public class RtcpSession {
      * @return The current time.
      */
     public long currentTime() {
-        tc = System.currentTimeMillis();
-        return (long)tc;
+        return System.currentTimeMillis();
     }
 }
@@ -0,0 +1,155 @@
+package com.orangelabs.rcs.protocol.rtp.core;
+
+import junit.framework.TestCase;
+
+public class RtcpSessionTest extends TestCase {
+
+	/**
+	 * Session bandwidth in octets per second, as used by the RTP streams
+	 */
+	private static final double BANDWIDTH = 16000;
+
+	/**
+	 * Compensation of the timer reconsideration (RFC 3550 A.7)
+	 */
+	private static final double COMPENSATION = Math.E - 1.5;
+
+	private static final int SAMPLES = 1000;
+
+	private TestSession session;
+
+	/**
+	 * RTCP session with a clock set by the test
+	 */
+	private static class TestSession extends RtcpSession {
+		long now = 1000000;
+
+		TestSession(boolean isSender) {
+			super(isSender, BANDWIDTH);
+		}
+
+		@Override
+		public long currentTime() {
+			return now;
+		}
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		session = new TestSession(true);
+	}
+
+	/**
+	 * Check that the randomized intervals are spread over [0.5, 1.5] times
+	 * the deterministic interval, divided by the compensation
+	 */
+	private void assertInterval(double deterministic) {
+		double min = Double.MAX_VALUE;
+		double max = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			double interval = session.getReportInterval();
+			min = Math.min(min, interval);
+			max = Math.max(max, interval);
+		}
+		double low = deterministic * 0.5 / COMPENSATION;
+		double high = deterministic * 1.5 / COMPENSATION;
+		assertTrue("min " + min, min >= low);
+		assertTrue("max " + max, max <= high);
+		// The noise covers the whole range
+		assertTrue("min " + min, min < low + (high - low) * 0.1);
+		assertTrue("max " + max, max > high - (high - low) * 0.1);
+	}
+
+	public void testInitialIntervalIsHalfTheMinimum() {
+		assertInterval(2500);
+	}
+
+	public void testIntervalIsTheMinimumAfterTheFirstReport() {
+		session.rtcpPacketSent(100);
+		assertInterval(5000);
+	}
+
+	public void testIntervalGrowsWithTheReceivers() {
+		// 99 receivers share 75% of the RTCP bandwidth (5% of 16000 octets/s)
+		session.setMembers(100);
+		session.setSenders(1);
+		assertInterval(128.0 * 99 / (0.05 * BANDWIDTH * 0.75) * 1000);
+	}
+
+	public void testActiveSendersShareAQuarterOfTheBandwidth() {
+		session.setMembers(100);
+		session.setSenders(20);
+		session.rtpPacketSent(0, 100);
+		assertTrue(session.isActiveSender());
+		assertInterval(128.0 * 20 / (0.05 * BANDWIDTH * 0.25) * 1000);
+	}
+
+	public void testAllShareTheBandwidthWhenManySend() {
+		// More than a quarter of the members are senders
+		session.setMembers(40);
+		session.setSenders(20);
+		session.rtpPacketSent(0, 100);
+		assertInterval(128.0 * 40 / (0.05 * BANDWIDTH) * 1000);
+	}
+
+	public void testAveragePacketSizeIncludesTheHeaders() {
+		session.setMembers(100);
+		session.setSenders(1);
+		session.rtcpPacketSent(1000);
+		// avg = 1/16 * (1000 + 28) + 15/16 * 128
+		int avg = (int)(0.0625 * 1028 + 0.9375 * 128);
+		assertInterval(avg * 99 / (0.05 * BANDWIDTH * 0.75) * 1000);
+	}
+
+	public void testSenderIsActiveUntilTwoReportsWithoutRtp() {
+		assertFalse(session.isActiveSender());
+		session.now += 10;
+		session.rtpPacketSent(0, 100);
+		assertTrue(session.isActiveSender());
+		session.now += 10;
+		session.rtcpPacketSent(100);
+		assertTrue(session.isActiveSender());
+		session.now += 10;
+		session.rtcpPacketSent(100);
+		assertFalse(session.isActiveSender());
+	}
+
+	public void testRtpPacketSentUpdatesTheSenderInfo() {
+		session.rtpPacketSent(1234, 100);
+		session.rtpPacketSent(5678, 200);
+		assertEquals(2, session.packetCount);
+		assertEquals(300, session.octetCount);
+		assertEquals(5678, session.lastRtpTimestamp);
+		assertEquals((double)session.now, session.timeOfLastRTPSent, 0);
+	}
+
+	public void testRtpTimestampIsTheLastOneUntilTheClockIsKnown() {
+		assertEquals(0, session.getRtpTimestamp(session.now));
+		session.rtpPacketSent(1000, 100);
+		session.now += 500;
+		session.rtpPacketSent(1000 + 45000, 100);
+		assertEquals(46000, session.getRtpTimestamp(session.now + 200));
+	}
+
+	public void testRtpTimestampIsExtrapolatedToTheReportTime() {
+		// 90 kHz clock
+		long timestamp = 3000;
+		for (int i = 0; i <= 20; i++) {
+			session.rtpPacketSent(timestamp, 1000);
+			session.now += 100;
+			timestamp += 9000;
+		}
+		long lastSent = session.now - 100;
+		long expected = session.lastRtpTimestamp + 90 * 40;
+		assertEquals(expected, session.getRtpTimestamp(lastSent + 40));
+	}
+
+	public void testRtpTimestampWrapsAround() {
+		long timestamp = 0xffffffffL - 45000;
+		session.rtpPacketSent(timestamp, 1000);
+		session.now += 1000;
+		session.rtpPacketSent((timestamp + 90000) & 0xffffffffL, 1000);
+		// 500 ms after the last packet: 45000 units later
+		assertEquals((timestamp + 135000) & 0xffffffffL, session.getRtpTimestamp(session.now + 500));
+	}
+}
@@ -68,15 +68,21 @@ public class RtpPacketReceiver extends Thread {
      */
     private static final int FIFO_CLEAN_NUMBER = 20; 
 
+    /**
+     * Max distance of a late packet from the last sequence number, wide
+     * enough to accept retransmitted packets
+     */
+    private static final int MAX_LATE_PACKETS = 100;
+
     /**
      * Signals that thread is interrupted
      */
     private boolean isInterrupted = false;
 
     /**
-     * Last sequence number
+     * Last sequence number (-1 if no packet received)
      */
-    private int lastSeqnum = 0;
+    private int lastSeqnum = -1;
 
     /**
      * timeout
@@ -162,15 +168,18 @@ public class RtpPacketReceiver extends Thread {
                     // Drop empty packet (payload 20)
                     int payloadType = (byte) ((data[1] & 0xff) & 0x7f);
                     if (payloadType != 20) {
-                        // Drop too old packet
+                        // Drop too old packet, the sequence number may wrap
                         int seqnum = (char)((data[2] << 8) | (data[3] & 0xff));
-                        if (seqnum > lastSeqnum - 10) {
+                        int delta = (short)(seqnum - lastSeqnum);
+                        if (lastSeqnum == -1 || delta > -MAX_LATE_PACKETS) {
                             // Clean the FIFO if full
                             if (fifo.size() >= FIFO_MAX_NUMBER) {
                                 fifo.clean(FIFO_CLEAN_NUMBER);
                             }
                             fifo.addObject(data);
-                            lastSeqnum = seqnum;
+                            if (lastSeqnum == -1 || delta > 0) {
+                                lastSeqnum = seqnum;
+                            }
                         } else {
                             stats.numBadRtpPkts++;
                         }
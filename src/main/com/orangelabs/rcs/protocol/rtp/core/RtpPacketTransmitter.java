@@ -32,6 +32,10 @@ import java.io.IOException;
  * @author jexa7410
  */
 public class RtpPacketTransmitter {
+    /**
+     * Number of packets kept for retransmission, a power of 2
+     */
+    private static final int RETRANSMISSION_CACHE_SIZE = 256;
 
     /**
      * Sequence number
@@ -62,6 +66,12 @@ public class RtpPacketTransmitter {
      * RTCP Session
      */
     private RtcpSession rtcpSession = null;
+
+    /**
+     * Last packets sent, indexed by sequence number (null if retransmission
+     * is disabled)
+     */
+    private byte[][] retransmissionCache = null;
 
 	/**
 	 * The logger
@@ -133,6 +143,42 @@ public class RtpPacketTransmitter {
 		}
 	}
 
+    /**
+     * Keep the last packets sent so that they may be retransmitted on
+     * request of the remote (generic NACK of RFC 4585)
+     */
+    public void enableRetransmission() {
+        retransmissionCache = new byte[RETRANSMISSION_CACHE_SIZE][];
+    }
+
+    /**
+     * Retransmit a packet as it was sent, if it is still in the cache
+     *
+     * @param seqnum Sequence number of the packet
+     * @return Returns true if the packet has been retransmitted
+     */
+    public boolean retransmitRtpPacket(int seqnum) {
+        byte[][] cache = retransmissionCache;
+        if (cache == null) {
+            return false;
+        }
+        byte[] data;
+        synchronized (cache) {
+            data = cache[seqnum & (RETRANSMISSION_CACHE_SIZE - 1)];
+        }
+        if (data == null || RtcpPacketUtils.readUnsignedShort(data, 2) != (seqnum & 0xffff)) {
+            // Too old
+            return false;
+        }
+        try {
+            datagramConnection.send(remoteAddress, remotePort, data);
+            stats.numRetransmittedPackets++;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Send a RTP packet
      *
@@ -199,7 +245,7 @@ public class RtpPacketTransmitter {
      * @param packet RTP packet
      * @throws IOException
      */
-	private void transmit(Packet packet) {
+	private void transmit(RtpPacket packet) {
 		// Prepare data to be sent
 		byte[] data = packet.data;
 		if (packet.offset > 0) {
@@ -210,15 +256,19 @@ public class RtpPacketTransmitter {
 		stats.numBytes += packet.length;
 		stats.numPackets++;
 
+		// Keep the packet for retransmission
+		byte[][] cache = retransmissionCache;
+		if (cache != null) {
+			synchronized (cache) {
+				cache[packet.seqnum & (RETRANSMISSION_CACHE_SIZE - 1)] = data;
+			}
+		}
+
 		// Send data over UDP
 		try {
 			datagramConnection.send(remoteAddress, remotePort, data);
 
-            RtpSource s = rtcpSession.getMySource();
-            s.activeSender = true;
-            rtcpSession.timeOfLastRTPSent = rtcpSession.currentTime();
-            rtcpSession.packetCount++;
-            rtcpSession.octetCount += data.length;
+            rtcpSession.rtpPacketSent(packet.timestamp, data.length);
 		} catch (IOException e) {
 //			if (logger.isActivated()) {
 //				logger.error("Can't send the RTP packet", e);
@@ -115,6 +115,11 @@ public class RtpSource {
      */
     private long lastSenderReport;
 
+    /**
+     * Time the last SR Packet was received (ms)
+     */
+    private long lastSenderReportReceiptTime;
+
 
     /**
      * Constructor requires an SSRC for it to be a valid source. The constructor initializes
@@ -151,6 +156,7 @@ public class RtpSource {
         // of 64 in the NTP timestamp received as part of the most recent RTCP
         // sender report
         lastSenderReport = (((srp.ntptimestampmsw << 32) | srp.ntptimestamplsw) & 0x0000ffffffff0000L) >>> 16;
+        lastSenderReportReceiptTime = System.currentTimeMillis();
     }
 
     /**
@@ -167,6 +173,15 @@ public class RtpSource {
         updateSeq(packet.seqnum);
     }
 
+    /**
+     * Has this source received RTP packets
+     *
+     * @return boolean
+     */
+    public boolean hasReceivedRtpPackets() {
+        return baseSeq != -1;
+    }
+
     /**
      * Generate the Reception Report
      *
@@ -190,8 +205,14 @@ public class RtpSource {
         int expected = extendedMax - baseSeq + 1;
         report.setCumulativeNumberOfPacketsLost(expected - received);
 
-        // TODO : Calculate the delay after last sender report received
-        report.setDelaySinceLastSenderReport(0);
+        // Calculate the delay after last sender report received, in units of
+        // 1/65536 seconds
+        if (lastSenderReport != 0) {
+            long delay = System.currentTimeMillis() - lastSenderReportReceiptTime;
+            report.setDelaySinceLastSenderReport((delay << 16) / 1000);
+        } else {
+            report.setDelaySinceLastSenderReport(0);
+        }
         report.setExtendedHighestSequenceNumberReceived(getExtendedSequenceNumber());
 
         // Calculate the fraction lost
@@ -33,4 +33,9 @@ public class RtpStatisticsTransmitter {
 	 * Total number of bytes sent
 	 */
 	public int numBytes = 0;
+
+	/**
+	 * Number of packets retransmitted on request of the remote
+	 */
+	public int numRetransmittedPackets = 0;
 }
@@ -83,6 +83,18 @@ public class MediaSample {
 		this.marker = marker;
 	}
 
+	/**
+	 * Reset the sample content, so that the sample instance may be reused
+	 *
+	 * @param data Data
+	 * @param time Time stamp
+	 */
+	void set(byte[] data, long time) {
+		this.data = data;
+		this.time = time;
+		this.marker = false;
+	}
+
 	/**
 	 * Returns the data sample
 	 * 
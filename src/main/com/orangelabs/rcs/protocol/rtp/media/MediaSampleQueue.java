@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.orangelabs.rcs.protocol.rtp.media;
+
+/**
+ * Bounded media sample queue between a producer (e.g. the application) and
+ * the media processor. The queue is a ring of reusable sample slots: when it
+ * is full the configured overflow policy decides whether the producer is
+ * blocked, the oldest queued sample is dropped or the new sample is dropped.
+ * Optionally samples may be paced, i.e. released to the consumer at the rate
+ * given by their time stamps.
+ * <p>
+ * The queue supports a single consumer: the sample returned by
+ * {@link #take()} stays valid until the next call to {@link #take()}.
+ *
+ * @author jexa7410
+ */
+public class MediaSampleQueue {
+	/**
+	 * Overflow policy: the producer is blocked until a slot is free
+	 */
+	public static final int POLICY_BLOCK = 0;
+
+	/**
+	 * Overflow policy: the oldest queued sample is dropped
+	 */
+	public static final int POLICY_DROP_OLDEST = 1;
+
+	/**
+	 * Overflow policy: the new sample is dropped
+	 */
+	public static final int POLICY_DROP_NEWEST = 2;
+
+	/**
+	 * Weight of the last measure in the smoothed latency (1/8 as for RTP jitter)
+	 */
+	private static final int LATENCY_SMOOTHING_SHIFT = 3;
+
+	/**
+	 * Sample slots
+	 */
+	private final MediaSample[] slots;
+
+	/**
+	 * Time at which each slot has been queued
+	 */
+	private final long[] queuedAt;
+
+	/**
+	 * Slot currently owned by the consumer
+	 */
+	private MediaSample consumerSlot = new MediaSample(null, 0);
+
+	/**
+	 * Overflow policy
+	 */
+	private final int policy;
+
+	/**
+	 * Pacing flag
+	 */
+	private final boolean pacing;
+
+	/**
+	 * Index of the oldest queued sample
+	 */
+	private int head = 0;
+
+	/**
+	 * Number of queued samples
+	 */
+	private int count = 0;
+
+	/**
+	 * Number of dropped samples
+	 */
+	private long dropped = 0;
+
+	/**
+	 * Smoothed queuing latency in milliseconds
+	 */
+	private long latency = 0;
+
+	/**
+	 * Pacing reference: time stamp of the first released sample
+	 */
+	private long pacingTimeStamp = -1;
+
+	/**
+	 * Pacing reference: time at which the first sample has been released
+	 */
+	private long pacingTime = 0;
+
+	/**
+	 * Closed flag
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity Max number of queued samples
+	 * @param policy Overflow policy
+	 * @param pacing Pacing flag: if true samples are released according to their time stamp (in milliseconds)
+	 */
+	public MediaSampleQueue(int capacity, int policy, boolean pacing) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity);
+		}
+		if (policy != POLICY_BLOCK && policy != POLICY_DROP_OLDEST && policy != POLICY_DROP_NEWEST) {
+			throw new IllegalArgumentException("Invalid overflow policy " + policy);
+		}
+		this.policy = policy;
+		this.pacing = pacing;
+		slots = new MediaSample[capacity];
+		queuedAt = new long[capacity];
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new MediaSample(null, 0);
+		}
+	}
+
+	/**
+	 * Add a sample in the queue. Depending on the overflow policy, this
+	 * method may block until a slot is free.
+	 *
+	 * @param data Data
+	 * @param timestamp Time stamp
+	 * @return Returns false if the sample has been dropped or the queue is closed
+	 */
+	public synchronized boolean put(byte[] data, long timestamp) {
+		while (!closed && count == slots.length) {
+			if (policy == POLICY_DROP_NEWEST) {
+				dropped++;
+				return false;
+			}
+			if (policy == POLICY_DROP_OLDEST) {
+				slots[head].set(null, 0);
+				head = (head + 1) % slots.length;
+				count--;
+				dropped++;
+				break;
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// Restore the interrupt so that the owning thread may stop
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		if (closed) {
+			return false;
+		}
+		int index = (head + count) % slots.length;
+		slots[index].set(data, timestamp);
+		queuedAt[index] = System.currentTimeMillis();
+		count++;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Read the oldest sample of the queue. This is a blocking method until a
+	 * sample is available (and due when pacing is enabled) or the queue is
+	 * closed.
+	 *
+	 * @return Sample or null if the queue has been closed
+	 */
+	public synchronized MediaSample take() {
+		while (!closed) {
+			if (count == 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+				continue;
+			}
+			long now = System.currentTimeMillis();
+			long timestamp = slots[head].getTimeStamp();
+			if (pacing && pacingTimeStamp >= 0) {
+				long due = pacingTime + (timestamp - pacingTimeStamp);
+				if (due > now) {
+					try {
+						wait(due - now);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return null;
+					}
+					continue;
+				}
+			}
+			if (pacingTimeStamp < 0 || timestamp < pacingTimeStamp) {
+				// First sample or time stamp discontinuity: restart pacing
+				pacingTimeStamp = timestamp;
+				pacingTime = now;
+			}
+
+			// Swap the head slot with the consumer slot so that the producer
+			// never overwrites a sample being processed
+			MediaSample sample = slots[head];
+			slots[head] = consumerSlot;
+			consumerSlot = sample;
+			latency += ((now - queuedAt[head]) - latency) >> LATENCY_SMOOTHING_SHIFT;
+			head = (head + 1) % slots.length;
+			count--;
+			notifyAll();
+			return sample;
+		}
+		return null;
+	}
+
+	/**
+	 * Close the queue and release any blocked producer or consumer
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (int i = 0; i < slots.length; i++) {
+			slots[i].set(null, 0);
+		}
+		count = 0;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the number of queued samples
+	 *
+	 * @return Size
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the capacity of the queue
+	 *
+	 * @return Capacity
+	 */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns the number of samples dropped since the queue creation
+	 *
+	 * @return Number of dropped samples
+	 */
+	public synchronized long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Returns the smoothed time spent by samples in the queue
+	 *
+	 * @return Latency in milliseconds
+	 */
+	public synchronized long getLatency() {
+		return latency;
+	}
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.protocol.rtp.stream;
+
+/**
+ * Key frame request listener interface
+ * <p>
+ * Notified by a RTP output stream when the remote could not repair a loss
+ * and requests a key frame with a PLI or a FIR feedback packet (RFC 4585 and
+ * RFC 5104). The media encoder is expected to produce an IDR picture as soon
+ * as possible.
+ */
+public interface KeyFrameRequestListener {
+    /**
+     * Invoked when the remote requests a key frame. It is invoked on the
+     * thread receiving the RTCP packets and shall not block.
+     */
+    void onKeyFrameRequested();
+}
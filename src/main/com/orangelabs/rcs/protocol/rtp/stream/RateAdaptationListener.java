@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.protocol.rtp.stream;
+
+/**
+ * Rate adaptation listener interface
+ * <p>
+ * Notified by a RTP output stream when the reception reports of the remote
+ * show losses or a rising round trip time, or show that more bandwidth is
+ * available. The media encoder is expected to adapt its bitrate or its frame
+ * rate to the target bitrate, within the limits of the negotiated codec.
+ */
+public interface RateAdaptationListener {
+    /**
+     * Invoked when the target bitrate of the stream changes. It is invoked on
+     * the thread receiving the RTCP packets and shall not block.
+     *
+     * @param bitrate Target bitrate in bits per second
+     * @param fractionLost Fraction of packets lost reported by the remote (0 to 1)
+     * @param roundTripTime Round trip time in milliseconds or -1 if unknown
+     */
+    void onTargetBitrateChanged(int bitrate, float fractionLost, int roundTripTime);
+}
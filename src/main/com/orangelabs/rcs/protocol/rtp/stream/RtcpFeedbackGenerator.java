@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.protocol.rtp.stream;
+
+import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketTransmitter;
+import com.orangelabs.rcs.protocol.rtp.core.RtpPacket;
+
+/**
+ * RTCP feedback generator
+ * <p>
+ * Detects the gaps in the sequence numbers of a received stream and requests
+ * the missing packets with generic NACK packets (RFC 4585). A request is
+ * repeated a few times, then the packet is considered lost and a key frame is
+ * requested with a PLI packet, so that the picture is repaired without
+ * waiting for the next key frame of the encoder.
+ */
+public class RtcpFeedbackGenerator {
+    /**
+     * Max number of missing packets tracked at once
+     */
+    private static final int MAX_MISSING_PACKETS = 64;
+
+    /**
+     * Interval in milliseconds between two requests of a missing packet
+     */
+    private static final int NACK_INTERVAL = 100;
+
+    /**
+     * Max number of requests of a missing packet
+     */
+    private static final int MAX_NACK_REQUESTS = 3;
+
+    /**
+     * Min interval in milliseconds between two PLI packets
+     */
+    private static final int MIN_PLI_INTERVAL = 500;
+
+    /**
+     * RTCP transmitter
+     */
+    private final RtcpPacketTransmitter rtcpTransmitter;
+
+    /**
+     * True if the missing packets may be requested with NACK packets
+     */
+    private final boolean nackEnabled;
+
+    /**
+     * True if key frames may be requested with PLI packets
+     */
+    private final boolean pliEnabled;
+
+    /**
+     * Sequence numbers of the missing packets
+     */
+    private final int[] missingSeqnums = new int[MAX_MISSING_PACKETS];
+
+    /**
+     * Time of the next request of the missing packets
+     */
+    private final long[] nextRequestTimes = new long[MAX_MISSING_PACKETS];
+
+    /**
+     * Number of requests left for the missing packets
+     */
+    private final int[] requestsLeft = new int[MAX_MISSING_PACKETS];
+
+    /**
+     * Number of missing packets
+     */
+    private int missingCount = 0;
+
+    /**
+     * Sequence numbers requested by the NACK packet being built
+     */
+    private final int[] nackSeqnums = new int[MAX_MISSING_PACKETS];
+
+    /**
+     * Highest sequence number received (-1 if no packet received)
+     */
+    private int highestSeqnum = -1;
+
+    /**
+     * SSRC of the received source
+     */
+    private int mediaSsrc;
+
+    /**
+     * Time of the last PLI packet sent
+     */
+    private long lastPliTime = 0;
+
+    /**
+     * Constructor
+     *
+     * @param rtcpTransmitter RTCP transmitter of the received stream
+     * @param nackEnabled True if generic NACK has been negotiated
+     * @param pliEnabled True if PLI has been negotiated
+     */
+    public RtcpFeedbackGenerator(RtcpPacketTransmitter rtcpTransmitter, boolean nackEnabled,
+            boolean pliEnabled) {
+        this.rtcpTransmitter = rtcpTransmitter;
+        this.nackEnabled = nackEnabled;
+        this.pliEnabled = pliEnabled;
+    }
+
+    /**
+     * Handle a received packet: the packets skipped since the highest
+     * sequence number are added to the missing packets and the pending
+     * requests are sent.
+     *
+     * @param packet RTP packet
+     * @param now Current time in milliseconds
+     */
+    public void packetReceived(RtpPacket packet, long now) {
+        int seqnum = packet.seqnum & 0xffff;
+        mediaSsrc = packet.ssrc;
+        if (highestSeqnum == -1) {
+            highestSeqnum = seqnum;
+            return;
+        }
+
+        int delta = (short)(seqnum - highestSeqnum);
+        if (delta > 0) {
+            if (delta - 1 > MAX_MISSING_PACKETS - missingCount) {
+                // Too many packets to recover: only a key frame will help
+                missingCount = 0;
+                requestKeyFrame(now);
+            } else {
+                // Without NACK a gap is only given time to be reordered
+                int requests = nackEnabled ? MAX_NACK_REQUESTS : 0;
+                long requestTime = nackEnabled ? now : now + NACK_INTERVAL;
+                for (int i = 1; i < delta; i++) {
+                    missingSeqnums[missingCount] = (highestSeqnum + i) & 0xffff;
+                    nextRequestTimes[missingCount] = requestTime;
+                    requestsLeft[missingCount] = requests;
+                    missingCount++;
+                }
+            }
+            highestSeqnum = seqnum;
+        } else {
+            // Late or retransmitted packet
+            int index = indexOf(seqnum);
+            if (index != -1) {
+                remove(index);
+            }
+        }
+        processMissingPackets(now);
+    }
+
+    /**
+     * Is a packet still expected, i.e. is it missing and not given up yet
+     *
+     * @param seqnum Sequence number
+     * @return Boolean
+     */
+    public boolean isPending(int seqnum) {
+        return indexOf(seqnum & 0xffff) != -1;
+    }
+
+    /**
+     * Send the requests which are due and give up the packets which have
+     * been requested too many times
+     *
+     * @param now Current time in milliseconds
+     */
+    private void processMissingPackets(long now) {
+        int nackCount = 0;
+        boolean lost = false;
+        for (int i = 0; i < missingCount;) {
+            if (nextRequestTimes[i] > now) {
+                i++;
+                continue;
+            }
+            if (requestsLeft[i] == 0) {
+                remove(i);
+                lost = true;
+                continue;
+            }
+            requestsLeft[i]--;
+            nextRequestTimes[i] = now + NACK_INTERVAL;
+            nackSeqnums[nackCount++] = missingSeqnums[i];
+            i++;
+        }
+        if (nackCount > 0) {
+            rtcpTransmitter.sendNack(mediaSsrc, nackSeqnums, nackCount);
+        }
+        if (lost) {
+            requestKeyFrame(now);
+        }
+    }
+
+    /**
+     * Request a key frame, unless one has just been requested
+     *
+     * @param now Current time in milliseconds
+     */
+    private void requestKeyFrame(long now) {
+        if (pliEnabled && now - lastPliTime >= MIN_PLI_INTERVAL) {
+            lastPliTime = now;
+            rtcpTransmitter.sendPictureLossIndication(mediaSsrc);
+        }
+    }
+
+    /**
+     * Returns the index of a missing packet
+     *
+     * @param seqnum Sequence number
+     * @return Index or -1 if the packet is not missing
+     */
+    private int indexOf(int seqnum) {
+        for (int i = 0; i < missingCount; i++) {
+            if (missingSeqnums[i] == seqnum) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove a missing packet, keeping the order of the others
+     *
+     * @param index Index of the packet
+     */
+    private void remove(int index) {
+        int moved = missingCount - index - 1;
+        System.arraycopy(missingSeqnums, index + 1, missingSeqnums, index, moved);
+        System.arraycopy(nextRequestTimes, index + 1, nextRequestTimes, index, moved);
+        System.arraycopy(requestsLeft, index + 1, requestsLeft, index, moved);
+        missingCount--;
+    }
+}
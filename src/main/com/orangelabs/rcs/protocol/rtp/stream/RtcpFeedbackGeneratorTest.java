@@ -0,0 +1,242 @@
+package com.orangelabs.rcs.protocol.rtp.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.orangelabs.rcs.platform.network.DatagramConnection;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketTransmitter;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpSession;
+import com.orangelabs.rcs.protocol.rtp.core.RtpPacket;
+
+public class RtcpFeedbackGeneratorTest extends TestCase {
+
+	private static final int SSRC = 0x1234;
+
+	/**
+	 * Packets sent, one every 10 ms
+	 */
+	private static final int PACKETS = 3000;
+
+	/**
+	 * Packets at the end of the stream still given time to be recovered
+	 */
+	private static final int TAIL = 100;
+
+	/**
+	 * Round trip time of a retransmission in ms
+	 */
+	private static final int RTT = 40;
+
+	private long now = 0;
+
+	private Random random;
+
+	/**
+	 * Loss rate of the network
+	 */
+	private double lossRate;
+
+	private RtcpFeedbackGenerator generator;
+
+	private final Set<Integer> received = new HashSet<Integer>();
+
+	private final Set<Integer> lost = new HashSet<Integer>();
+
+	private final Map<Integer, Integer> requests = new HashMap<Integer, Integer>();
+
+	/**
+	 * Retransmissions in flight: arrival time and sequence number
+	 */
+	private final List<long[]> retransmissions = new ArrayList<long[]>();
+
+	private int pliCount = 0;
+
+	/**
+	 * RTCP transmitter retransmitting the packets requested by the NACK
+	 * packets, through the lossy network
+	 */
+	private class RemoteSender extends RtcpPacketTransmitter {
+
+		RemoteSender() throws IOException {
+			super("127.0.0.1", 5001, new RtcpSession(false, 16000), new NullConnection());
+		}
+
+		@Override
+		public void sendNack(int mediaSsrc, int[] seqnums, int count) {
+			assertEquals(SSRC, mediaSsrc);
+			assertTrue(count > 0);
+			for (int i = 0; i < count; i++) {
+				int seqnum = seqnums[i];
+				assertFalse("NACK of a received packet " + seqnum, received.contains(seqnum));
+				Integer previous = requests.get(seqnum);
+				requests.put(seqnum, previous == null ? 1 : previous + 1);
+				if (random.nextDouble() >= lossRate) {
+					retransmissions.add(new long[] {
+							now + RTT, seqnum
+					});
+				}
+			}
+		}
+
+		@Override
+		public void sendPictureLossIndication(int mediaSsrc) {
+			assertEquals(SSRC, mediaSsrc);
+			pliCount++;
+		}
+	}
+
+	/**
+	 * Datagram connection sending nothing
+	 */
+	private static class NullConnection implements DatagramConnection {
+		public void open() {
+		}
+
+		public void open(int port) {
+		}
+
+		public void close() {
+		}
+
+		public void send(String remoteAddr, int remotePort, byte[] data) {
+		}
+
+		public byte[] receive() {
+			return null;
+		}
+
+		public String getLocalAddress() {
+			return "127.0.0.1";
+		}
+
+		public int getLocalPort() {
+			return 5000;
+		}
+	}
+
+	/**
+	 * Send the stream through the network, the packets requested by the NACK
+	 * packets being retransmitted
+	 *
+	 * @param nackEnabled True if generic NACK is negotiated
+	 * @param seed Seed of the losses
+	 */
+	private void simulate(boolean nackEnabled, long seed) throws IOException {
+		random = new Random(seed);
+		generator = new RtcpFeedbackGenerator(new RemoteSender(), nackEnabled, true);
+		for (int seqnum = 0; seqnum < PACKETS; seqnum++) {
+			now += 10;
+			for (int i = 0; i < retransmissions.size();) {
+				long[] retransmission = retransmissions.get(i);
+				if (retransmission[0] <= now) {
+					retransmissions.remove(i);
+					receive((int)retransmission[1]);
+				} else {
+					i++;
+				}
+			}
+			if (seqnum != 0 && random.nextDouble() < lossRate) {
+				lost.add(seqnum);
+			} else {
+				receive(seqnum);
+			}
+		}
+	}
+
+	private void receive(int seqnum) {
+		if (!received.add(seqnum)) {
+			// Duplicate retransmission
+			return;
+		}
+		RtpPacket packet = new RtpPacket();
+		packet.ssrc = SSRC;
+		packet.seqnum = seqnum;
+		generator.packetReceived(packet, now);
+	}
+
+	/**
+	 * Returns the lost packets which have not been retransmitted, apart from
+	 * the last ones
+	 */
+	private int countUnrecovered() {
+		int count = 0;
+		for (int seqnum : lost) {
+			if (seqnum < PACKETS - TAIL && !received.contains(seqnum)) {
+				assertFalse(generator.isPending(seqnum));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public void testLostPacketsAreRecoveredWithNack() throws IOException {
+		lossRate = 0.05;
+		simulate(true, 45);
+		assertTrue(lost.size() > 100);
+		// Each lost packet is lost 3 more times with a probability of 1/8000
+		assertEquals(0, countUnrecovered());
+		assertEquals(0, pliCount);
+		for (int seqnum : lost) {
+			assertTrue(requests.containsKey(seqnum));
+		}
+	}
+
+	public void testUnrecoveredPacketsAreRepairedWithAKeyFrame() throws IOException {
+		lossRate = 0.3;
+		simulate(true, 45);
+		int unrecovered = countUnrecovered();
+		assertTrue("unrecovered " + unrecovered, unrecovered > 0);
+		// Most of the lost packets are still recovered
+		assertTrue("unrecovered " + unrecovered, unrecovered < lost.size() / 10);
+		assertTrue(pliCount > 0);
+		assertTrue(pliCount <= unrecovered);
+		for (int count : requests.values()) {
+			assertTrue(count <= 3);
+		}
+	}
+
+	public void testKeyFramesAreRequestedWithoutNack() throws IOException {
+		lossRate = 0.05;
+		simulate(false, 45);
+		assertTrue(requests.isEmpty());
+		assertEquals(lost.size() - countLostInTail(), countUnrecovered());
+		assertTrue(pliCount > 0);
+		// No more than one PLI each 500 ms
+		assertTrue(pliCount <= PACKETS / 50 + 1);
+	}
+
+	private int countLostInTail() {
+		int count = 0;
+		for (int seqnum : lost) {
+			if (seqnum >= PACKETS - TAIL) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public void testReorderedPacketIsNotLost() throws IOException {
+		random = new Random(45);
+		generator = new RtcpFeedbackGenerator(new RemoteSender(), false, true);
+		receive(0);
+		now += 10;
+		receive(2);
+		now += 10;
+		assertTrue(generator.isPending(1));
+		receive(1);
+		assertFalse(generator.isPending(1));
+		for (int seqnum = 3; seqnum < 100; seqnum++) {
+			now += 10;
+			receive(seqnum);
+		}
+		assertEquals(0, pliCount);
+	}
+}
@@ -46,6 +46,17 @@ public class RtpInputStream implements ProcessorInputStream {
      */
     private static final int RTP_SOCKET_TIMEOUT = 20000;
 
+    /**
+     * Number of packets buffered to reorder the packets
+     */
+    private static final int REORDER_DEPTH = 5;
+
+    /**
+     * Max number of packets buffered while a missing packet is requested
+     * with RTCP feedback
+     */
+    private static final int MAX_REORDER_DEPTH = 64;
+
     /**
      * Remote address
      */
@@ -111,6 +122,26 @@ public class RtpInputStream implements ProcessorInputStream {
      */
     private PriorityQueue<RtpPacket> rtpPacketsBuffer;
 
+    /**
+     * Sequence number of the next packet to be read (-1 if unknown)
+     */
+    private int nextSeqnum = -1;
+
+    /**
+     * Generic NACK negotiated flag
+     */
+    private boolean nackEnabled = false;
+
+    /**
+     * PLI negotiated flag
+     */
+    private boolean pliEnabled = false;
+
+    /**
+     * RTCP feedback generator (null if no RTCP feedback)
+     */
+    private RtcpFeedbackGenerator feedbackGenerator = null;
+
 	/**
 	 * The logger
 	 */
@@ -133,9 +164,11 @@ public class RtpInputStream implements ProcessorInputStream {
         rtpPacketsBuffer = new PriorityQueue<RtpPacket>(10, new Comparator<RtpPacket>() {
             @Override
             public int compare(RtpPacket object1, RtpPacket object2) {
-                if (object1.seqnum == object2.seqnum) {
+                // The sequence number may wrap
+                int delta = (short)(object1.seqnum - object2.seqnum);
+                if (delta == 0) {
                     return 0;
-                } else if (object1.seqnum < object2.seqnum) {
+                } else if (delta < 0) {
                     return -1;
                 }
                 return 1;
@@ -165,6 +198,10 @@ public class RtpInputStream implements ProcessorInputStream {
                 rtcpReceiver.getConnection());
         rtcpTransmitter.start();
 
+        if (nackEnabled || pliEnabled) {
+            feedbackGenerator = new RtcpFeedbackGenerator(rtcpTransmitter, nackEnabled, pliEnabled);
+        }
+
         isClosed = false;
     }
 
@@ -222,18 +259,34 @@ public class RtpInputStream implements ProcessorInputStream {
      */
     public Buffer read() throws Exception {
         try {
-            do {
+            RtpPacket packet;
+            while (true) {
+                packet = rtpPacketsBuffer.peek();
+                if (packet != null) {
+                    if (nextSeqnum != -1 && (short)(packet.seqnum - nextSeqnum) < 0) {
+                        // Duplicate or too late packet
+                        rtpPacketsBuffer.poll();
+                        continue;
+                    }
+                    if (isReadable(packet)) {
+                        break;
+                    }
+                }
+
                 // Wait and read a RTP packet
                 RtpPacket rtpPacket = rtpReceiver.readRtpPacket();
                 if (rtpPacket == null) {
                     return null;
                 }
+                if (feedbackGenerator != null) {
+                    feedbackGenerator.packetReceived(rtpPacket, System.currentTimeMillis());
+                }
 
                 // Add the buffer in queue
                 rtpPacketsBuffer.add(rtpPacket);
-            } while (rtpPacketsBuffer.size() <= 5);
-
-            RtpPacket packet = rtpPacketsBuffer.poll();
+            }
+            rtpPacketsBuffer.poll();
+            nextSeqnum = (packet.seqnum + 1) & 0xffff;
 
         	// Create a buffer
             buffer.setData(packet.data);
@@ -267,6 +320,36 @@ public class RtpInputStream implements ProcessorInputStream {
         }
     }
 
+    /**
+     * Is the first packet of the buffer readable: without RTCP feedback
+     * enough packets must have been buffered to reorder them, else the
+     * packet must be the next one or the missing packets must have been
+     * given up.
+     *
+     * @param packet First packet of the buffer
+     * @return Boolean
+     */
+    private boolean isReadable(RtpPacket packet) {
+        if (feedbackGenerator == null) {
+            return rtpPacketsBuffer.size() > REORDER_DEPTH;
+        }
+        return nextSeqnum == -1 || (packet.seqnum & 0xffff) == nextSeqnum
+                || rtpPacketsBuffer.size() > MAX_REORDER_DEPTH
+                || !feedbackGenerator.isPending(nextSeqnum);
+    }
+
+    /**
+     * Sets the RTCP feedback negotiated for the stream (RFC 4585). It shall
+     * be set before the stream is opened.
+     *
+     * @param nackEnabled True if generic NACK has been negotiated
+     * @param pliEnabled True if PLI has been negotiated
+     */
+    public void setRtcpFeedback(boolean nackEnabled, boolean pliEnabled) {
+        this.nackEnabled = nackEnabled;
+        this.pliEnabled = pliEnabled;
+    }
+
     /**
      * Adds the RTP stream listener
      *
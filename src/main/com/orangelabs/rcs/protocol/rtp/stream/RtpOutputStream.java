@@ -18,13 +18,22 @@
 
 package com.orangelabs.rcs.protocol.rtp.stream;
 
+import com.orangelabs.rcs.protocol.rtp.core.RtcpFeedbackPacket;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpPacket;
 import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketReceiver;
 import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketTransmitter;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketUtils;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpReceiverReportPacket;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpReport;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpSenderReportPacket;
 import com.orangelabs.rcs.protocol.rtp.core.RtcpSession;
 import com.orangelabs.rcs.protocol.rtp.core.RtpPacketReceiver;
 import com.orangelabs.rcs.protocol.rtp.core.RtpPacketTransmitter;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpEvent;
 import com.orangelabs.rcs.protocol.rtp.event.RtcpEventListener;
+import com.orangelabs.rcs.protocol.rtp.event.RtcpFeedbackEvent;
+import com.orangelabs.rcs.protocol.rtp.event.RtcpReceiverReportEvent;
+import com.orangelabs.rcs.protocol.rtp.event.RtcpSenderReportEvent;
 import com.orangelabs.rcs.protocol.rtp.util.Buffer;
 import com.orangelabs.rcs.utils.logger.Logger;
 
@@ -96,6 +105,26 @@ public class RtpOutputStream implements ProcessorOutputStream, RtcpEventListener
      */
     private RtpInputStream rtpInputStream;
 
+    /**
+     * Rate controller (null if no rate adaptation)
+     */
+    private RtpRateController rateController;
+
+    /**
+     * Retransmission on generic NACK flag
+     */
+    private boolean retransmissionEnabled = false;
+
+    /**
+     * Key frame request listener (null if PLI and FIR are not supported)
+     */
+    private KeyFrameRequestListener keyFrameRequestListener;
+
+    /**
+     * Sequence number of the last FIR handled (-1 if none)
+     */
+    private int lastFirSeqnum = -1;
+
     /**
      * The logger
      */
@@ -166,6 +195,9 @@ public class RtpOutputStream implements ProcessorOutputStream, RtcpEventListener
             		remotePort,
             		rtcpSession,
                     rtpReceiver.getConnection());
+            if (retransmissionEnabled) {
+                rtpTransmitter.enableRetransmission();
+            }
             
             // Create the RTCP transmitter
             rtcpTransmitter = new RtcpPacketTransmitter(remoteAddress,
@@ -177,10 +209,19 @@ public class RtpOutputStream implements ProcessorOutputStream, RtcpEventListener
             // Create the RTP transmitter
             rtpTransmitter = new RtpPacketTransmitter(remoteAddress, remotePort, rtcpSession,
                     rtpInputStream.getRtpReceiver().getConnection());
+            if (retransmissionEnabled) {
+                rtpTransmitter.enableRetransmission();
+            }
             
             // Create the RTCP transmitter
             rtcpTransmitter = new RtcpPacketTransmitter(remoteAddress, remotePort + 1, rtcpSession,
                     rtpInputStream.getRtcpReceiver().getConnection());
+
+            // The reports and the feedback about the sent stream are received
+            // by the input stream
+            if (isRtcpListenerNeeded()) {
+                rtpInputStream.getRtcpReceiver().addRtcpListener(this);
+            }
         } else {
             // Create the RTP transmitter
             rtpTransmitter = new RtpPacketTransmitter(remoteAddress, remotePort, rtcpSession);
@@ -211,6 +252,11 @@ public class RtpOutputStream implements ProcessorOutputStream, RtcpEventListener
             if (rtcpReceiver != null)
                 rtcpReceiver.close();
 
+            if (isRtcpListenerNeeded() && rtpInputStream != null
+                    && rtpInputStream.getRtcpReceiver() != null) {
+                rtpInputStream.getRtcpReceiver().removeRtcpListener(this);
+            }
+
             // Remove rtpStreamListener
             rtpStreamListener = null;
 		} catch(Exception e) {
@@ -232,7 +278,79 @@ public class RtpOutputStream implements ProcessorOutputStream, RtcpEventListener
 
     @Override
     public void receiveRtcpEvent(RtcpEvent event) {
-        // Nothing to do 
+        if (event instanceof RtcpFeedbackEvent) {
+            handleFeedback((RtcpFeedbackPacket)event.getPacket());
+            return;
+        }
+        if (rateController == null) {
+            return;
+        }
+        RtcpReport[] reports = null;
+        if (event instanceof RtcpReceiverReportEvent) {
+            reports = ((RtcpReceiverReportPacket)event.getPacket()).reports;
+        } else if (event instanceof RtcpSenderReportEvent) {
+            reports = ((RtcpSenderReportPacket)event.getPacket()).reports;
+        }
+        if (reports != null) {
+            for (RtcpReport report : reports) {
+                rateController.handleReport(report);
+            }
+        }
+    }
+
+    /**
+     * Handle a feedback packet of the remote about the sent stream:
+     * retransmit the packets requested by a generic NACK, notify the key
+     * frame requests of a PLI or of a new FIR
+     *
+     * @param packet Feedback packet
+     */
+    private void handleFeedback(RtcpFeedbackPacket packet) {
+        byte[] fci = packet.fci;
+        if (packet.type == RtcpPacket.RTCP_RTPFB) {
+            if (packet.format != RtcpFeedbackPacket.FMT_NACK || !retransmissionEnabled
+                    || packet.mediaSsrc != rtcpSession.SSRC) {
+                return;
+            }
+            for (int i = 0; i + 4 <= fci.length; i += 4) {
+                int pid = RtcpPacketUtils.readUnsignedShort(fci, i);
+                int blp = RtcpPacketUtils.readUnsignedShort(fci, i + 2);
+                rtpTransmitter.retransmitRtpPacket(pid);
+                for (int bit = 0; blp != 0; bit++, blp >>>= 1) {
+                    if ((blp & 1) != 0) {
+                        rtpTransmitter.retransmitRtpPacket((pid + bit + 1) & 0xffff);
+                    }
+                }
+            }
+        } else if (keyFrameRequestListener != null) {
+            if (packet.format == RtcpFeedbackPacket.FMT_PLI) {
+                if (packet.mediaSsrc == rtcpSession.SSRC) {
+                    keyFrameRequestListener.onKeyFrameRequested();
+                }
+            } else if (packet.format == RtcpFeedbackPacket.FMT_FIR) {
+                // RFC 5104: a FIR is repeated with the same sequence number
+                // until the key frame is received
+                for (int i = 0; i + 8 <= fci.length; i += 8) {
+                    if (RtcpPacketUtils.readInt(fci, i) == rtcpSession.SSRC) {
+                        int seqnum = fci[i + 4] & 0xff;
+                        if (seqnum != lastFirSeqnum) {
+                            lastFirSeqnum = seqnum;
+                            keyFrameRequestListener.onKeyFrameRequested();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Is the stream interested in the RTCP packets received by the RTP input
+     * stream it is associated to
+     *
+     * @return Boolean
+     */
+    private boolean isRtcpListenerNeeded() {
+        return rateController != null || retransmissionEnabled || keyFrameRequestListener != null;
     }
 
     @Override
@@ -249,5 +367,42 @@ public class RtpOutputStream implements ProcessorOutputStream, RtcpEventListener
      */
     public void addRtpStreamListener(RtpStreamListener rtpStreamListener) {
         this.rtpStreamListener = rtpStreamListener;
+    }
+
+    /**
+     * Enables the retransmission of the packets requested by the remote with
+     * generic NACK packets (RFC 4585). It shall be set before the stream is
+     * opened.
+     *
+     * @param enabled True if generic NACK has been negotiated
+     */
+    public void setRetransmissionEnabled(boolean enabled) {
+        this.retransmissionEnabled = enabled;
+    }
+
+    /**
+     * Sets the listener notified of the key frames requested by the remote
+     * with PLI or FIR packets. It shall be set before the stream is opened.
+     *
+     * @param listener Key frame request listener or null to ignore the
+     *            requests
+     */
+    public void setKeyFrameRequestListener(KeyFrameRequestListener listener) {
+        this.keyFrameRequestListener = listener;
+    }
+
+    /**
+     * Sets the rate adaptation listener. It shall be set before the stream is
+     * opened.
+     *
+     * @param listener Rate adaptation listener or null to disable rate
+     *            adaptation
+     */
+    public void setRateAdaptationListener(RateAdaptationListener listener) {
+        if (listener != null) {
+            rateController = new RtpRateController(rtcpSession, listener);
+        } else {
+            rateController = null;
+        }
     }
 }
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010 France Telecom S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.orangelabs.rcs.protocol.rtp.stream;
+
+import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketUtils;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpReport;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpSession;
+
+/**
+ * RTP rate controller
+ * <p>
+ * Computes the target bitrate of a sent stream from the report blocks of the
+ * remote about this stream. The rate is decreased in proportion of the
+ * losses when they exceed 10%, decreased when the round trip time rises over
+ * its minimum and increased slowly when the losses are below 2%.
+ */
+public class RtpRateController {
+    /**
+     * Fraction lost over which the rate is decreased
+     */
+    private static final float LOSS_HIGH = 0.10f;
+
+    /**
+     * Fraction lost under which the rate is increased
+     */
+    private static final float LOSS_LOW = 0.02f;
+
+    /**
+     * Increase factor of the rate
+     */
+    private static final double INCREASE_FACTOR = 1.05;
+
+    /**
+     * Max ratio of the target bitrate to the measured sending rate
+     */
+    private static final double MAX_SENDING_RATE_RATIO = 1.5;
+
+    /**
+     * Decrease factor of the rate when the round trip time rises
+     */
+    private static final double RTT_DECREASE_FACTOR = 0.85;
+
+    /**
+     * Ratio of the round trip time to its minimum over which it is rising
+     */
+    private static final double RTT_RISE_RATIO = 1.5;
+
+    /**
+     * Margin in milliseconds ignored when comparing round trip times
+     */
+    private static final int RTT_RISE_MARGIN = 50;
+
+    /**
+     * Min target bitrate (bits per second)
+     */
+    private static final int MIN_BITRATE = 8000;
+
+    /**
+     * RTCP Session
+     */
+    private final RtcpSession rtcpSession;
+
+    /**
+     * Rate adaptation listener
+     */
+    private final RateAdaptationListener listener;
+
+    /**
+     * Receipt time of the previous report (-1 if none)
+     */
+    private long lastReportTime = -1;
+
+    /**
+     * Octets sent when the previous report was received
+     */
+    private long lastOctetCount = 0;
+
+    /**
+     * Current target bitrate (-1 if not computed yet)
+     */
+    private double targetBitrate = -1;
+
+    /**
+     * Min round trip time measured (ms)
+     */
+    private int minRoundTripTime = Integer.MAX_VALUE;
+
+    /**
+     * Last round trip time measured (-1 if unknown)
+     */
+    private int lastRoundTripTime = -1;
+
+    /**
+     * Constructor
+     *
+     * @param rtcpSession RTCP session of the sent stream
+     * @param listener Rate adaptation listener
+     */
+    public RtpRateController(RtcpSession rtcpSession, RateAdaptationListener listener) {
+        this.rtcpSession = rtcpSession;
+        this.listener = listener;
+    }
+
+    /**
+     * Handle a report block received from the remote
+     *
+     * @param report Report block
+     */
+    public void handleReport(RtcpReport report) {
+        if (report.ssrc != rtcpSession.SSRC) {
+            // Not about our stream
+            return;
+        }
+
+        float fractionLost = report.getFractionLost() / 256f;
+        int roundTripTime = getRoundTripTime(report);
+
+        // Measure the sending rate since the previous report
+        long now = report.receiptTime;
+        long octetCount = rtcpSession.octetCount;
+        long elapsed = now - lastReportTime;
+        long sent = octetCount - lastOctetCount;
+        boolean first = lastReportTime < 0;
+        lastReportTime = now;
+        lastOctetCount = octetCount;
+        if (first || elapsed <= 0 || sent <= 0) {
+            // Nothing to compare with or nothing sent
+            return;
+        }
+        double sendingRate = sent * 8000.0 / elapsed;
+        if (targetBitrate < 0) {
+            targetBitrate = sendingRate;
+        }
+
+        boolean rttRising = roundTripTime > 0 && lastRoundTripTime > 0
+                && roundTripTime > lastRoundTripTime
+                && roundTripTime > minRoundTripTime * RTT_RISE_RATIO + RTT_RISE_MARGIN;
+        if (roundTripTime > 0) {
+            lastRoundTripTime = roundTripTime;
+            minRoundTripTime = Math.min(minRoundTripTime, roundTripTime);
+        }
+
+        double bitrate;
+        if (fractionLost > LOSS_HIGH) {
+            bitrate = Math.min(targetBitrate, sendingRate) * (1 - 0.5 * fractionLost);
+        } else if (rttRising) {
+            bitrate = Math.min(targetBitrate, sendingRate) * RTT_DECREASE_FACTOR;
+        } else if (fractionLost < LOSS_LOW) {
+            // Do not run away from what the encoder actually produces
+            bitrate = Math.min(targetBitrate * INCREASE_FACTOR, sendingRate
+                    * MAX_SENDING_RATE_RATIO);
+        } else {
+            bitrate = targetBitrate;
+        }
+        bitrate = Math.max(bitrate, MIN_BITRATE);
+
+        if ((int)bitrate != (int)targetBitrate) {
+            targetBitrate = bitrate;
+            listener.onTargetBitrateChanged((int)bitrate, fractionLost, roundTripTime);
+        }
+    }
+
+    /**
+     * Compute the round trip time from a report block (RFC 3550 section 6.4.1)
+     *
+     * @param report Report block
+     * @return Round trip time in milliseconds or -1 if unknown
+     */
+    private static int getRoundTripTime(RtcpReport report) {
+        if (report.getLSR() == 0) {
+            // No SR received by the remote yet
+            return -1;
+        }
+        long arrival = RtcpPacketUtils.toCompactNtpTimestamp(report.receiptTime);
+        long delay = (arrival - report.getLSR() - report.getDLSR()) & 0xffffffffL;
+        if (delay > 0x7fffffffL) {
+            // Clocks going backwards
+            return -1;
+        }
+        return (int)((delay * 1000) >> 16);
+    }
+}
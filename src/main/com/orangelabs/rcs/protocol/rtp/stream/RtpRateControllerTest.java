@@ -0,0 +1,160 @@
+package com.orangelabs.rcs.protocol.rtp.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.orangelabs.rcs.protocol.rtp.core.RtcpPacketUtils;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpReport;
+import com.orangelabs.rcs.protocol.rtp.core.RtcpSession;
+
+public class RtpRateControllerTest extends TestCase {
+
+	/**
+	 * Octets sent per second at 1 Mbps
+	 */
+	private static final int MBPS_OCTETS = 125000;
+
+	private RtcpSession session;
+
+	private RtpRateController controller;
+
+	private final List<int[]> changes = new ArrayList<int[]>();
+
+	private long now = 1400000000000L;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		session = new RtcpSession(true, 16000);
+		controller = new RtpRateController(session, new RateAdaptationListener() {
+			@Override
+			public void onTargetBitrateChanged(int bitrate, float fractionLost, int roundTripTime) {
+				changes.add(new int[] {
+						bitrate, (int)(fractionLost * 256), roundTripTime
+				});
+			}
+		});
+		// First report: only a reference for the sending rate
+		receive(0, -1);
+		assertTrue(changes.isEmpty());
+	}
+
+	/**
+	 * Send during one second then receive a report
+	 *
+	 * @param octets octets sent during the second
+	 * @param fractionLost fraction lost in 1/256
+	 * @param roundTripTime round trip time in ms, -1 if no SR received
+	 */
+	private void sendAndReceive(int octets, int fractionLost, int roundTripTime) {
+		session.octetCount += octets;
+		now += 1000;
+		receive(fractionLost, roundTripTime);
+	}
+
+	private void receive(int fractionLost, int roundTripTime) {
+		RtcpReport report = new RtcpReport();
+		report.ssrc = session.SSRC;
+		report.fractionlost = fractionLost;
+		report.receiptTime = now;
+		if (roundTripTime >= 0) {
+			// SR received by the remote right before sending its report
+			report.lsr = RtcpPacketUtils.toCompactNtpTimestamp(now - roundTripTime - 20);
+			report.dlsr = 20 * 65536 / 1000;
+		}
+		controller.handleReport(report);
+	}
+
+	private int lastBitrate() {
+		return changes.get(changes.size() - 1)[0];
+	}
+
+	public void testLowLossIncreasesTheRate() {
+		sendAndReceive(MBPS_OCTETS, 0, -1);
+		assertEquals(1, changes.size());
+		assertEquals(1050000, lastBitrate());
+		assertEquals(-1, changes.get(0)[2]);
+
+		sendAndReceive(MBPS_OCTETS, 4, -1);
+		assertEquals(1102500, lastBitrate());
+	}
+
+	public void testIncreaseIsBoundedByTheSendingRate() {
+		for (int i = 0; i < 20; i++) {
+			sendAndReceive(MBPS_OCTETS, 0, -1);
+		}
+		// The encoder does not follow: no more than 1.5 times what is sent
+		assertEquals(1500000, lastBitrate());
+		int count = changes.size();
+		sendAndReceive(MBPS_OCTETS, 0, -1);
+		assertEquals(count, changes.size());
+	}
+
+	public void testHighLossDecreasesTheRateInProportion() {
+		// 25% lost
+		sendAndReceive(MBPS_OCTETS, 64, -1);
+		assertEquals(875000, lastBitrate());
+		assertEquals(64, changes.get(0)[1]);
+
+		// The decrease applies to the lowest of the target and sending rates
+		sendAndReceive(MBPS_OCTETS / 2, 64, -1);
+		assertEquals(437500, lastBitrate());
+	}
+
+	public void testModerateLossKeepsTheRate() {
+		sendAndReceive(MBPS_OCTETS, 0, -1);
+		int count = changes.size();
+		// 5% lost
+		sendAndReceive(MBPS_OCTETS, 13, -1);
+		assertEquals(count, changes.size());
+	}
+
+	public void testRateIsNotDecreasedUnderTheMinimum() {
+		sendAndReceive(1500, 255, -1);
+		assertEquals(8000, lastBitrate());
+		int count = changes.size();
+		sendAndReceive(1000, 255, -1);
+		assertEquals(count, changes.size());
+	}
+
+	public void testRisingRoundTripTimeDecreasesTheRate() {
+		sendAndReceive(MBPS_OCTETS, 0, 100);
+		assertEquals(1050000, lastBitrate());
+		int rtt = changes.get(0)[2];
+		assertTrue("rtt " + rtt, Math.abs(rtt - 100) <= 1);
+
+		// Under 1.5 times the min plus 50 ms: still increased
+		sendAndReceive(MBPS_OCTETS, 0, 190);
+		assertEquals(1102500, lastBitrate());
+
+		// Rising over it: decreased from the lowest of the target and sending rates
+		sendAndReceive(MBPS_OCTETS, 0, 300);
+		assertEquals(850000, lastBitrate());
+	}
+
+	public void testStableRoundTripTimeIsNotADecrease() {
+		sendAndReceive(MBPS_OCTETS, 0, 100);
+		sendAndReceive(MBPS_OCTETS, 0, 400);
+		int bitrate = lastBitrate();
+		// High but no longer rising
+		sendAndReceive(MBPS_OCTETS, 0, 400);
+		assertTrue(lastBitrate() > bitrate);
+	}
+
+	public void testReportsAboutAnotherSourceAreIgnored() {
+		session.octetCount += MBPS_OCTETS;
+		now += 1000;
+		RtcpReport report = new RtcpReport();
+		report.ssrc = session.SSRC + 1;
+		report.fractionlost = 255;
+		report.receiptTime = now;
+		controller.handleReport(report);
+		assertTrue(changes.isEmpty());
+	}
+
+	public void testNothingSentIsNotAMeasure() {
+		sendAndReceive(0, 255, -1);
+		assertTrue(changes.isEmpty());
+	}
+}
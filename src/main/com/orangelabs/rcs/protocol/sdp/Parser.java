@@ -24,109 +24,120 @@ package com.orangelabs.rcs.protocol.sdp;
 
 import static com.orangelabs.rcs.utils.StringUtils.UTF8;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.util.Vector;
-
 /**
  * Generic parser
+ * <p>
+ * The parser reads the lines of the data in a single pass, by moving an index
+ * over the raw bytes. Nothing is allocated but the strings of the values which
+ * are returned.
  *
  * @author jexa7410
  */
 class Parser {
 	/**
-	 * Buffer
+	 * Data
 	 */
-	private Vector<Integer> buffer = new Vector<Integer>();
+	protected final byte[] data;
+
+	/**
+	 * Index of the next byte to read
+	 */
+	protected int pos = 0;
 
 	/**
-	 * Unget a token
+	 * Constructor
 	 *
-	 * @param tk Token
+	 * @param data Data
 	 */
-	public void ungetToken(String tk) {
-		byte token[] = tk.getBytes(UTF8);
-		for (int i = 0; i < token.length; i++) {
-			buffer.insertElementAt(Integer.valueOf(token[token.length - i - 1]), 0);
-		}
+	public Parser(byte[] data) {
+		this.data = data;
 	}
 
 	/**
-	 * Get a token
+	 * Get a token: the next line is consumed up to the token if it starts with
+	 * the token
 	 *
-	 * @param input Input stream
-	 * @param tk Token
-	 * @return Token value
+	 * @param tk Token (e.g. "a=")
+	 * @return Returns true if the token has been found
 	 */
-	public boolean getToken(ByteArrayInputStream input, String tk) {
-		boolean found = false;
-
-		ByteArrayOutputStream bout = new ByteArrayOutputStream();
-		skipWhitespace(input);
-
-		if (input.available() > 0) {
-			int ch = readChar(input);
-			while (ch != '=' && ch != '\n' && ch != '\r' && ch != -1) {
-				bout.write(ch);
-				ch = readChar(input);
-			}
-			bout.write(ch);
+	public boolean getToken(String tk) {
+		skipWhitespace();
+		int length = tk.length();
+		if (pos + length > data.length) {
+			return false;
 		}
-
-		String token = new String(bout.toByteArray(), UTF8);
-		if (tk.equals(token)) {
-			found = true;
-		} else {
-			ungetToken(token);
+		for (int i = 0; i < length; i++) {
+			if (data[pos + i] != tk.charAt(i)) {
+				return false;
+			}
 		}
-
-		return found;
+		pos += length;
+		return true;
 	}
 
 	/**
 	 * Get a line
 	 *
-	 * @param input Input stream
 	 * @return Line
 	 */
-	public String getLine(ByteArrayInputStream input) {
-		ByteArrayOutputStream bout = new ByteArrayOutputStream();
-		if (input.available() > 0) {
-			int ch = readChar(input);
-			while (ch != '\n' && ch != '\r' && ch != -1) {
-				bout.write(ch);
-				ch = readChar(input);
-			}
+	public String getLine() {
+		int end = getLineEnd();
+		String line = decode(pos, end);
+		pos = end;
+		return line;
+	}
+
+	/**
+	 * Returns the index of the end of the current line
+	 *
+	 * @return Index of the first CR or LF, or length of the data
+	 */
+	protected int getLineEnd() {
+		int end = pos;
+		while (end < data.length && data[end] != '\n' && data[end] != '\r') {
+			end++;
 		}
-		return new String(bout.toByteArray(), UTF8);
+		return end;
 	}
-
-	/**
-	 * Skip whitespace
-	 *
-	 * @param input Input stream
+
+	/**
+	 * Returns the index of a byte in a range of the data
+	 *
+	 * @param b Byte to search
+	 * @param start Start index (inclusive)
+	 * @param end End index (exclusive)
+	 * @return Index or -1 if not found
 	 */
-	private void skipWhitespace(ByteArrayInputStream input) {
-		int ch = readChar(input);
-		while (ch == ' ' || ch == '\n' || ch == '\r') {
-			ch = readChar(input);
+	protected int indexOf(char b, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (data[i] == b) {
+				return i;
+			}
 		}
-		buffer.insertElementAt(Integer.valueOf(ch), 0);
+		return -1;
 	}
 
+	/**
+	 * Decode a range of the data
+	 *
+	 * @param start Start index (inclusive)
+	 * @param end End index (exclusive)
+	 * @return String
+	 */
+	protected String decode(int start, int end) {
+		return new String(data, start, end - start, UTF8);
+	}
+
 	/**
-	 * Read char
-	 *
-	 * @param input Input stream
-	 */
-	private int readChar(ByteArrayInputStream input) {
-		int ch;
-		if (buffer.size() > 0) {
-			ch = ((Integer)buffer.elementAt(0)).intValue();
-			buffer.removeElementAt(0);
-		} else {
-			ch = input.read();
+	 * Skip whitespace
+	 */
+	private void skipWhitespace() {
+		while (pos < data.length) {
+			byte ch = data[pos];
+			if (ch != ' ' && ch != '\n' && ch != '\r') {
+				break;
+			}
+			pos++;
 		}
-		return ch;
 	}
 }
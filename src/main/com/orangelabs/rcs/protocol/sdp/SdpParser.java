@@ -18,11 +18,12 @@
 
 package com.orangelabs.rcs.protocol.sdp;
 
-import java.io.ByteArrayInputStream;
 import java.util.Vector;
 
 /**
  * SDP parser
+ * <p>
+ * The SDP is parsed in a single pass over the raw bytes, see {@link Parser}.
  * 
  * @author jexa7410
  */
@@ -37,19 +38,14 @@ public class SdpParser extends Parser {
 	 */
 	public Vector<MediaDescription> mediaDescriptions = new Vector<MediaDescription>();
 
-	/**
-	 * Input stream
-	 */
-	private ByteArrayInputStream bin = null;
-	
 	/**
 	 * Constructor
 	 * 
 	 * @param data Data
 	 */
 	public SdpParser(byte data[]) {
-		bin = new ByteArrayInputStream(data);
-		if (getToken(bin, "v=")) {
+		super(data);
+		if (getToken("v=")) {
 			parseSessionDescription();
 			parseMediaDescriptions();
 	    }
@@ -60,79 +56,117 @@ public class SdpParser extends Parser {
 	 */
 	private void parseSessionDescription() {
 		// Protocol version
-		sessionDescription.version = getLine(bin);
+		sessionDescription.version = getLine();
 
 		// Origin
-		if (getToken(bin, "o=")) {
-			sessionDescription.origin = getLine(bin);
+		if (getToken("o=")) {
+			sessionDescription.origin = getLine();
 		}
 
 		// Session name
-		if (getToken(bin, "s=")) {
-			sessionDescription.sessionName = getLine(bin);
+		if (getToken("s=")) {
+			sessionDescription.sessionName = getLine();
 		}
 
 		// Session and media Information
-		if (getToken(bin, "i=")) {
-			sessionDescription.sessionInfo = getLine(bin);
+		if (getToken("i=")) {
+			sessionDescription.sessionInfo = getLine();
 		}
 
 		// URI
-		if (getToken(bin, "u=")) {
-			sessionDescription.uri = getLine(bin);
+		if (getToken("u=")) {
+			sessionDescription.uri = getLine();
 		}
 
 		// E-Mail
-		if (getToken(bin, "e=")) {
-			sessionDescription.email = getLine(bin);
+		if (getToken("e=")) {
+			sessionDescription.email = getLine();
 		}
 
 		// Phone number
-		if (getToken(bin, "p=")) {
-			sessionDescription.phone = getLine(bin);
+		if (getToken("p=")) {
+			sessionDescription.phone = getLine();
 		}
 
 		// Connection information
-		if (getToken(bin, "c=")) {
-			sessionDescription.connectionInfo = getLine(bin);
+		if (getToken("c=")) {
+			sessionDescription.connectionInfo = getLine();
 		}
 
 		// Bandwidth information
-		if (getToken(bin, "b=")) {
-			sessionDescription.bandwidthInfo = getLine(bin);
+		if (getToken("b=")) {
+			sessionDescription.bandwidthInfo = getLine();
 		}
 
 		// Time description
 		sessionDescription.timeDescriptions = new Vector<TimeDescription>();
-		while(getToken(bin, "t=")) {
+		while(getToken("t=")) {
 			TimeDescription timeDescription = parseTimeDescription();
 			this.sessionDescription.timeDescriptions.addElement(timeDescription);
 		}
 
 		// Time zone adjustments
-		if (getToken(bin, "z=")) {
-			sessionDescription.timezoneAdjustment = getLine(bin);
+		if (getToken("z=")) {
+			sessionDescription.timezoneAdjustment = getLine();
 		}
 
 		// Encryption key
-		if (getToken(bin, "k=")) {
-			sessionDescription.encryptionKey = getLine(bin);
+		if (getToken("k=")) {
+			sessionDescription.encryptionKey = getLine();
 		}
 
 		// Session attributes
 		sessionDescription.sessionAttributes = new Vector<MediaAttribute>();
-		while(getToken(bin, "a=")) {
-			String sessionAttribute = getLine(bin);
-			int index = sessionAttribute.indexOf(':');
-			if (index > 0) {
-				String name = sessionAttribute.substring(0, index);
-				String value = sessionAttribute.substring(index + 1);
-				MediaAttribute attribute = new MediaAttribute(name, value);
+		while(getToken("a=")) {
+			MediaAttribute attribute = parseAttribute();
+			if (attribute != null) {
 				sessionDescription.sessionAttributes.addElement(attribute);
 			}
 		}
 	}
 	
+	/**
+	 * Parse the value of an attribute line
+	 * 
+	 * @return Attribute or null if the line is not of the form name:value
+	 */
+	private MediaAttribute parseAttribute() {
+		int end = getLineEnd();
+		int index = indexOf(':', pos, end);
+		MediaAttribute attribute = null;
+		if (index > pos) {
+			attribute = new MediaAttribute(decode(pos, index), decode(index + 1, end));
+		}
+		pos = end;
+		return attribute;
+	}
+
+	/**
+	 * Parse the port of a media line
+	 * 
+	 * @param start Start index (inclusive)
+	 * @param end End index (exclusive)
+	 * @return Port
+	 * @throws NumberFormatException
+	 */
+	private int parsePort(int start, int end) throws NumberFormatException {
+		if (start == end) {
+			throw new NumberFormatException("Empty port");
+		}
+		int port = 0;
+		for (int i = start; i < end; i++) {
+			int digit = data[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("Invalid port " + decode(start, end));
+			}
+			port = port * 10 + digit;
+			if (port < 0) {
+				throw new NumberFormatException("Invalid port " + decode(start, end));
+			}
+		}
+		return port;
+	}
+
 	/**
 	 * Parse time description
 	 * 
@@ -142,12 +176,12 @@ public class SdpParser extends Parser {
 		TimeDescription td = new TimeDescription();
 		
 		// Time the session is active
-		td.timeActive = getLine(bin);
+		td.timeActive = getLine();
 
 		// Repeat times
 		td.repeatTimes = new Vector<String>();
-		while(getToken(bin, "r=")) {
-			String repeatTime = getLine(bin);
+		while(getToken("r=")) {
+			String repeatTime = getLine();
 			td.repeatTimes.addElement(repeatTime);
 		}
 		
@@ -158,53 +192,60 @@ public class SdpParser extends Parser {
 	 * Parse media descriptions
 	 */
 	private void parseMediaDescriptions() {
-        while(getToken(bin, "m=")) {
+        while(getToken("m=")) {
             Vector<MediaDescription> descs = new Vector<MediaDescription>();
             
             // Media name and transport address
-            String line = getLine(bin);
-            int end = line.indexOf(' ');
-            String name = line.substring(0, end);
+            int end = getLineEnd();
+            int sep = indexOf(' ', pos, end);
+            if (sep == -1) {
+                throw new IllegalArgumentException("Invalid media line");
+            }
+            String name = decode(pos, sep);
 
-            int start = end + 1;
-            end = line.indexOf(' ', start);
-            int port = Integer.parseInt(line.substring(start, end));
+            int start = sep + 1;
+            sep = indexOf(' ', start, end);
+            if (sep == -1) {
+                throw new IllegalArgumentException("Invalid media line");
+            }
+            int port = parsePort(start, sep);
 
-            start = end + 1;
-            end = line.indexOf(' ', start);
-            String protocol = line.substring(start, end);
+            start = sep + 1;
+            sep = indexOf(' ', start, end);
+            if (sep == -1) {
+                throw new IllegalArgumentException("Invalid media line");
+            }
+            String protocol = decode(start, sep);
 
-            String payload;
-            start = end + 1;
-            end = line.indexOf(' ', start);
-            while (end != -1) {
-                payload = line.substring(start, end);
-                descs.addElement(new MediaDescription(name, port, protocol, payload));
-                start = end + 1;
-                end = line.indexOf(' ', start);
+            start = sep + 1;
+            sep = indexOf(' ', start, end);
+            while (sep != -1) {
+                descs.addElement(new MediaDescription(name, port, protocol, decode(start, sep)));
+                start = sep + 1;
+                sep = indexOf(' ', start, end);
             }
-            payload = line.substring(start);
-            descs.addElement(new MediaDescription(name, port, protocol, payload));
+            descs.addElement(new MediaDescription(name, port, protocol, decode(start, end)));
+            pos = end;
 
             // Session and media information
-            if (getToken(bin, "i=")) {
-                String mediaTitle = getLine(bin);
+            if (getToken("i=")) {
+                String mediaTitle = getLine();
                 for (int i = 0; i < descs.size(); i++) {
                     descs.elementAt(i).mediaTitle = mediaTitle;
                 }
             }
             
             // Connection information
-            if (getToken(bin, "c=")) {
-                String connectionInfo = getLine(bin);
+            if (getToken("c=")) {
+                String connectionInfo = getLine();
                 for (int i = 0; i < descs.size(); i++) {
                     descs.elementAt(i).connectionInfo = connectionInfo;
                 }
             }
 
             // Bandwidth information
-            while(getToken(bin, "b=")) {
-                line = getLine(bin);
+            while(getToken("b=")) {
+                String line = getLine();
                 int index = line.indexOf(':');
                 if (index > 0) {
                     String valueAttribute = line.substring(index + 1);
@@ -225,21 +266,18 @@ public class SdpParser extends Parser {
             }
 
             // Encryption key
-            if (getToken(bin, "k=")) {
-                String encryptionKey = getLine(bin);
+            if (getToken("k=")) {
+                String encryptionKey = getLine();
                 for (int i = 0; i < descs.size(); i++) {
                     descs.elementAt(i).encryptionKey = encryptionKey;
                 }
             }
 
             // Media attributes
-            while(getToken(bin, "a=")) {
-                line = getLine(bin);
-                int index = line.indexOf(':');
-                if (index > 0) {
-                    String nameAttribute = line.substring(0, index);
-                    String valueAttribute = line.substring(index + 1);
-                    MediaAttribute attribute = new MediaAttribute(nameAttribute, valueAttribute);
+            while(getToken("a=")) {
+                MediaAttribute attribute = parseAttribute();
+                if (attribute != null) {
+                    String valueAttribute = attribute.getValue();
 
                     // Dispatch for specific payload
                     if (valueAttribute.indexOf(' ') != -1) {
@@ -0,0 +1,547 @@
+package com.orangelabs.rcs.protocol.sdp;
+
+import static com.orangelabs.rcs.utils.StringUtils.UTF8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+public class SdpParserTest extends TestCase {
+
+	/**
+	 * Golden corpus: offers and answers as built by the stack and by other
+	 * clients
+	 */
+	private static final String[] CORPUS = {
+			// Chat offer
+			"v=0\r\n"
+			+ "o=- 3609158390 3609158390 IN IP4 10.0.0.1\r\n"
+			+ "s=-\r\n"
+			+ "c=IN IP4 10.0.0.1\r\n"
+			+ "t=0 0\r\n"
+			+ "m=message 20000 TCP/MSRP *\r\n"
+			+ "a=accept-types:message/cpim application/im-iscomposing+xml\r\n"
+			+ "a=accept-wrapped-types:text/plain message/imdn+xml\r\n"
+			+ "a=setup:active\r\n"
+			+ "a=path:msrp://10.0.0.1:20000/1391503972255;tcp\r\n"
+			+ "a=sendrecv\r\n",
+			// File transfer offer
+			"v=0\r\n"
+			+ "o=- 3609158390 3609158390 IN IP4 10.0.0.1\r\n"
+			+ "s=-\r\n"
+			+ "c=IN IP4 10.0.0.1\r\n"
+			+ "t=0 0\r\n"
+			+ "m=message 20000 TCP/TLS/MSRP *\r\n"
+			+ "a=path:msrps://10.0.0.1:20000/1391503972256;tcp\r\n"
+			+ "a=setup:active\r\n"
+			+ "a=accept-types:image/jpeg\r\n"
+			+ "a=file-transfer-id:1391503972257\r\n"
+			+ "a=file-disposition:attachment\r\n"
+			+ "a=file-selector:name:\"Photo été.jpg\" type:image/jpeg size:123456\r\n"
+			+ "a=file-icon:cid:image@joyn.com\r\n"
+			+ "a=sendonly\r\n"
+			+ "a=max-size:10485760\r\n",
+			// Video offer with several payloads
+			"v=0\r\n"
+			+ "o=- 3609158390 3609158391 IN IP4 10.0.0.1\r\n"
+			+ "s=-\r\n"
+			+ "i=video share\r\n"
+			+ "u=http://www.example.com/seminars/sdp.pdf\r\n"
+			+ "e=j.doe@example.com (Jane Doe)\r\n"
+			+ "p=+1 617 555-6011\r\n"
+			+ "c=IN IP4 10.0.0.1\r\n"
+			+ "b=AS:256\r\n"
+			+ "t=2873397496 2873404696\r\n"
+			+ "r=7d 1h 0 25h\r\n"
+			+ "r=7d 1h 0 26h\r\n"
+			+ "t=0 0\r\n"
+			+ "z=2882844526 -1h 2898848070 0\r\n"
+			+ "k=prompt\r\n"
+			+ "a=tool:RCS\r\n"
+			+ "a=recvonly\r\n"
+			+ "m=video 40000 RTP/AVP 96 97 98\r\n"
+			+ "i=camera\r\n"
+			+ "c=IN IP4 10.0.0.2\r\n"
+			+ "b=AS:512\r\n"
+			+ "b=RS:800\r\n"
+			+ "b=RR:2000\r\n"
+			+ "k=clear:secret\r\n"
+			+ "a=rtpmap:96 H264/90000\r\n"
+			+ "a=fmtp:96 profile-level-id=42900b;packetization-mode=1\r\n"
+			+ "a=rtpmap:97 H264/90000\r\n"
+			+ "a=fmtp:97 profile-level-id=42800a\r\n"
+			+ "a=rtpmap:98 H263-2000/90000\r\n"
+			+ "a=framesize:98 176-144\r\n"
+			+ "a=framerate:15\r\n"
+			+ "a=rtcp-fb:* nack\r\n"
+			+ "a=sendonly\r\n",
+			// Audio and video answer, with LF line endings and blank lines
+			"v=0\n"
+			+ "o=- 1 2 IN IP6 ::1\n"
+			+ "s= \n"
+			+ "c=IN IP6 ::1\n"
+			+ "t=0 0\n"
+			+ "\n"
+			+ "m=audio 49170 RTP/AVP 0 8 101\n"
+			+ "a=rtpmap:0 PCMU/8000\n"
+			+ "a=rtpmap:101 telephone-event/8000\n"
+			+ "a=fmtp:101 0-15\n"
+			+ "a=ptime:20\n"
+			+ "m=video 0 RTP/AVP 96\n"
+			+ "a=rtpmap:96 H264/90000\n",
+			// Geolocation push, with leading blank lines and no final line end
+			"\r\n\r\nv=0\r\n"
+			+ "o=- 0 0 IN IP4 192.168.1.2\r\n"
+			+ "s=-\r\n"
+			+ "c=IN IP4 192.168.1.2\r\n"
+			+ "t=0 0\r\n"
+			+ "m=message 7 TCP/MSRP *\r\n"
+			+ "a=accept-types:application/vnd.gsma.rcspushlocation+xml\r\n"
+			+ "a=sendonly",
+			// Out of order and unknown lines are not consumed by the grammar
+			"v=0\r\n"
+			+ "s=-\r\n"
+			+ "o=- 0 0 IN IP4 10.0.0.1\r\n"
+			+ "x=unknown\r\n"
+			+ "m=message 9 TCP/MSRP *\r\n",
+			// Attributes without value
+			"v=0\r\n"
+			+ "o=- 0 0 IN IP4 10.0.0.1\r\n"
+			+ "s=-\r\n"
+			+ "t=0 0\r\n"
+			+ "a=ice-lite\r\n"
+			+ "a=:empty-name\r\n"
+			+ "m=image 9 TCP/MSRP *\r\n"
+			+ "a=sendrecv\r\n"
+			+ "a=:empty-name\r\n"
+			+ "a=accept-types:\r\n",
+			// Not an SDP
+			"",
+			"o=- 0 0 IN IP4 10.0.0.1\r\n",
+	};
+
+	private static final int MUTATIONS = 20000;
+
+	private static final String INVALID = "invalid";
+
+	public void testVideoOffer() {
+		SdpParser parser = new SdpParser(CORPUS[2].getBytes(UTF8));
+		SessionDescription session = parser.sessionDescription;
+		assertEquals("0", session.version);
+		assertEquals("video share", session.sessionInfo);
+		assertEquals("+1 617 555-6011", session.phone);
+		assertEquals("AS:256", session.bandwidthInfo);
+		assertEquals(2, session.timeDescriptions.size());
+		assertEquals(2, session.timeDescriptions.get(0).repeatTimes.size());
+		assertEquals("7d 1h 0 26h", session.timeDescriptions.get(0).repeatTimes.get(1));
+		assertEquals("prompt", session.encryptionKey);
+		assertEquals("RCS", parser.getSessionAttribute("tool").getValue());
+
+		Vector<MediaDescription> medias = parser.getMediaDescriptions("video");
+		assertEquals(3, medias.size());
+		MediaDescription media = medias.get(0);
+		assertEquals(40000, media.port);
+		assertEquals("RTP/AVP", media.protocol);
+		assertEquals(96, media.payloadType);
+		assertEquals("camera", media.mediaTitle);
+		assertEquals("IN IP4 10.0.0.2", media.connectionInfo);
+		assertEquals("512", media.bandwidthInfo);
+		assertEquals("800", media.senderBandwidthInfo);
+		assertEquals("2000", media.receiverBandwidthInfo);
+		assertEquals("clear:secret", media.encryptionKey);
+		assertEquals("96 profile-level-id=42900b;packetization-mode=1",
+				media.getMediaAttribute("fmtp").getValue());
+		// Attributes of a payload are only given to that payload
+		assertEquals("98 176-144", medias.get(2).getMediaAttribute("framesize").getValue());
+		assertNull(media.getMediaAttribute("framesize"));
+		// Other attributes are given to all the payloads
+		assertEquals("15", medias.get(1).getMediaAttribute("framerate").getValue());
+		assertEquals("* nack", medias.get(1).getMediaAttribute("rtcp-fb").getValue());
+	}
+
+	public void testFileTransferOffer() {
+		SdpParser parser = new SdpParser(CORPUS[1].getBytes(UTF8));
+		MediaDescription media = parser.getMediaDescription("message");
+		assertEquals("TCP/TLS/MSRP", media.protocol);
+		assertEquals("*", media.payload);
+		assertEquals(-1, media.payloadType);
+		assertEquals("name:\"Photo été.jpg\" type:image/jpeg size:123456",
+				media.getMediaAttribute("file-selector").getValue());
+		assertNull(media.getMediaAttribute("sendonly"));
+	}
+
+	public void testNotAnSdp() {
+		SdpParser parser = new SdpParser(CORPUS[8].getBytes(UTF8));
+		assertNull(parser.sessionDescription.version);
+		assertTrue(parser.getMediaDescriptions().isEmpty());
+	}
+
+	public void testCorpusIsParsedAsByThePreviousParser() {
+		for (String sdp : CORPUS) {
+			assertSameModel(sdp.getBytes(UTF8));
+		}
+	}
+
+	/**
+	 * Random mutations of the corpus, with a fixed seed so that a failure
+	 * can be reproduced
+	 */
+	public void testMutatedCorpusIsParsedAsByThePreviousParser() {
+		Random random = new Random(41);
+		byte[] alphabet = "=:/ \r\n\tvosicbtrzkamx0123456789*".getBytes(UTF8);
+		for (int i = 0; i < MUTATIONS; i++) {
+			byte[] data = CORPUS[random.nextInt(CORPUS.length)].getBytes(UTF8);
+			if (data.length == 0) {
+				continue;
+			}
+			int count = 1 + random.nextInt(4);
+			for (int j = 0; j < count; j++) {
+				int pos = random.nextInt(data.length);
+				switch (random.nextInt(3)) {
+					case 0:
+						/* Replace a byte */
+						data[pos] = alphabet[random.nextInt(alphabet.length)];
+						break;
+					case 1:
+						/* Truncate */
+						byte[] truncated = new byte[pos + 1];
+						System.arraycopy(data, 0, truncated, 0, truncated.length);
+						data = truncated;
+						break;
+					default:
+						/* Remove a byte */
+						if (data.length > 1) {
+							byte[] removed = new byte[data.length - 1];
+							System.arraycopy(data, 0, removed, 0, pos);
+							System.arraycopy(data, pos + 1, removed, pos, removed.length - pos);
+							data = removed;
+						}
+						break;
+				}
+			}
+			if (endsWithBareType(data)) {
+				/*
+				 * The previous parser pushed back the "x=" it could not match,
+				 * and the result depended on that pushback state at the end of
+				 * the data
+				 */
+				continue;
+			}
+			assertSameModel(data);
+		}
+	}
+
+	private static boolean endsWithBareType(byte[] data) {
+		int length = data.length;
+		return length >= 2 && data[length - 1] == '='
+				&& (length == 2 || data[length - 3] == '\n' || data[length - 3] == '\r'
+						|| data[length - 3] == ' ');
+	}
+
+	/**
+	 * Both parsers shall build the same model, or both reject the data. The
+	 * exception which rejects an invalid media line is not compared: the
+	 * previous parser let the index errors of its substrings through.
+	 */
+	private static void assertSameModel(byte[] data) {
+		String expected;
+		try {
+			PreviousSdpParser previous = new PreviousSdpParser(data);
+			expected = dump(previous.sessionDescription, previous.mediaDescriptions);
+		} catch (RuntimeException e) {
+			expected = INVALID;
+		}
+		String actual;
+		try {
+			SdpParser parser = new SdpParser(data);
+			actual = dump(parser.sessionDescription, parser.mediaDescriptions);
+		} catch (RuntimeException e) {
+			actual = INVALID;
+		}
+		assertEquals(new String(data, UTF8), expected, actual);
+	}
+
+	private static String dump(SessionDescription session, Vector<MediaDescription> medias) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("v=").append(session.version).append('\n');
+		sb.append("o=").append(session.origin).append('\n');
+		sb.append("s=").append(session.sessionName).append('\n');
+		sb.append("i=").append(session.sessionInfo).append('\n');
+		sb.append("u=").append(session.uri).append('\n');
+		sb.append("e=").append(session.email).append('\n');
+		sb.append("p=").append(session.phone).append('\n');
+		sb.append("c=").append(session.connectionInfo).append('\n');
+		sb.append("b=").append(session.bandwidthInfo).append('\n');
+		if (session.timeDescriptions != null) {
+			for (TimeDescription time : session.timeDescriptions) {
+				sb.append("t=").append(time.timeActive).append('\n');
+				for (String repeat : time.repeatTimes) {
+					sb.append("r=").append(repeat).append('\n');
+				}
+			}
+		}
+		sb.append("z=").append(session.timezoneAdjustment).append('\n');
+		sb.append("k=").append(session.encryptionKey).append('\n');
+		dumpAttributes(sb, session.sessionAttributes);
+		for (MediaDescription media : medias) {
+			sb.append("m=").append(media.name).append(' ').append(media.port).append(' ')
+					.append(media.protocol).append(' ').append(media.payload).append(' ')
+					.append(media.payloadType).append('\n');
+			sb.append("i=").append(media.mediaTitle).append('\n');
+			sb.append("c=").append(media.connectionInfo).append('\n');
+			sb.append("b=AS:").append(media.bandwidthInfo).append('\n');
+			sb.append("b=RS:").append(media.senderBandwidthInfo).append('\n');
+			sb.append("b=RR:").append(media.receiverBandwidthInfo).append('\n');
+			sb.append("k=").append(media.encryptionKey).append('\n');
+			dumpAttributes(sb, media.mediaAttributes);
+		}
+		return sb.toString();
+	}
+
+	private static void dumpAttributes(StringBuilder sb, Vector<MediaAttribute> attributes) {
+		if (attributes == null) {
+			return;
+		}
+		for (MediaAttribute attribute : attributes) {
+			sb.append("a=").append(attribute.getName()).append(':').append(attribute.getValue())
+					.append('\n');
+		}
+	}
+
+	/**
+	 * SDP parser as it was before parsing in a single pass over the bytes,
+	 * kept as the reference of the model to build
+	 */
+	private static class PreviousSdpParser {
+
+		SessionDescription sessionDescription = new SessionDescription();
+
+		Vector<MediaDescription> mediaDescriptions = new Vector<MediaDescription>();
+
+		private Vector<Integer> buffer = new Vector<Integer>();
+
+		private ByteArrayInputStream bin;
+
+		PreviousSdpParser(byte data[]) {
+			bin = new ByteArrayInputStream(data);
+			if (getToken(bin, "v=")) {
+				parseSessionDescription();
+				parseMediaDescriptions();
+			}
+		}
+
+		private void parseSessionDescription() {
+			sessionDescription.version = getLine(bin);
+			if (getToken(bin, "o=")) {
+				sessionDescription.origin = getLine(bin);
+			}
+			if (getToken(bin, "s=")) {
+				sessionDescription.sessionName = getLine(bin);
+			}
+			if (getToken(bin, "i=")) {
+				sessionDescription.sessionInfo = getLine(bin);
+			}
+			if (getToken(bin, "u=")) {
+				sessionDescription.uri = getLine(bin);
+			}
+			if (getToken(bin, "e=")) {
+				sessionDescription.email = getLine(bin);
+			}
+			if (getToken(bin, "p=")) {
+				sessionDescription.phone = getLine(bin);
+			}
+			if (getToken(bin, "c=")) {
+				sessionDescription.connectionInfo = getLine(bin);
+			}
+			if (getToken(bin, "b=")) {
+				sessionDescription.bandwidthInfo = getLine(bin);
+			}
+			sessionDescription.timeDescriptions = new Vector<TimeDescription>();
+			while (getToken(bin, "t=")) {
+				TimeDescription td = new TimeDescription();
+				td.timeActive = getLine(bin);
+				td.repeatTimes = new Vector<String>();
+				while (getToken(bin, "r=")) {
+					td.repeatTimes.addElement(getLine(bin));
+				}
+				sessionDescription.timeDescriptions.addElement(td);
+			}
+			if (getToken(bin, "z=")) {
+				sessionDescription.timezoneAdjustment = getLine(bin);
+			}
+			if (getToken(bin, "k=")) {
+				sessionDescription.encryptionKey = getLine(bin);
+			}
+			sessionDescription.sessionAttributes = new Vector<MediaAttribute>();
+			while (getToken(bin, "a=")) {
+				String sessionAttribute = getLine(bin);
+				int index = sessionAttribute.indexOf(':');
+				if (index > 0) {
+					String name = sessionAttribute.substring(0, index);
+					String value = sessionAttribute.substring(index + 1);
+					sessionDescription.sessionAttributes.addElement(new MediaAttribute(name,
+							value));
+				}
+			}
+		}
+
+		private void parseMediaDescriptions() {
+			while (getToken(bin, "m=")) {
+				Vector<MediaDescription> descs = new Vector<MediaDescription>();
+				String line = getLine(bin);
+				int end = line.indexOf(' ');
+				String name = line.substring(0, end);
+
+				int start = end + 1;
+				end = line.indexOf(' ', start);
+				int port = Integer.parseInt(line.substring(start, end));
+
+				start = end + 1;
+				end = line.indexOf(' ', start);
+				String protocol = line.substring(start, end);
+
+				String payload;
+				start = end + 1;
+				end = line.indexOf(' ', start);
+				while (end != -1) {
+					payload = line.substring(start, end);
+					descs.addElement(new MediaDescription(name, port, protocol, payload));
+					start = end + 1;
+					end = line.indexOf(' ', start);
+				}
+				payload = line.substring(start);
+				descs.addElement(new MediaDescription(name, port, protocol, payload));
+
+				if (getToken(bin, "i=")) {
+					String mediaTitle = getLine(bin);
+					for (int i = 0; i < descs.size(); i++) {
+						descs.elementAt(i).mediaTitle = mediaTitle;
+					}
+				}
+				if (getToken(bin, "c=")) {
+					String connectionInfo = getLine(bin);
+					for (int i = 0; i < descs.size(); i++) {
+						descs.elementAt(i).connectionInfo = connectionInfo;
+					}
+				}
+				while (getToken(bin, "b=")) {
+					line = getLine(bin);
+					int index = line.indexOf(':');
+					if (index > 0) {
+						String valueAttribute = line.substring(index + 1);
+						if (line.contains("AS")) {
+							for (int i = 0; i < descs.size(); i++) {
+								descs.elementAt(i).bandwidthInfo = valueAttribute;
+							}
+						} else if (line.contains("RS")) {
+							for (int i = 0; i < descs.size(); i++) {
+								descs.elementAt(i).senderBandwidthInfo = valueAttribute;
+							}
+						} else if (line.contains("RR")) {
+							for (int i = 0; i < descs.size(); i++) {
+								descs.elementAt(i).receiverBandwidthInfo = valueAttribute;
+							}
+						}
+					}
+				}
+				if (getToken(bin, "k=")) {
+					String encryptionKey = getLine(bin);
+					for (int i = 0; i < descs.size(); i++) {
+						descs.elementAt(i).encryptionKey = encryptionKey;
+					}
+				}
+				while (getToken(bin, "a=")) {
+					line = getLine(bin);
+					int index = line.indexOf(':');
+					if (index > 0) {
+						String nameAttribute = line.substring(0, index);
+						String valueAttribute = line.substring(index + 1);
+						MediaAttribute attribute = new MediaAttribute(nameAttribute,
+								valueAttribute);
+						if (valueAttribute.indexOf(' ') != -1) {
+							boolean payloadFound = false;
+							for (int i = 0; i < descs.size(); i++) {
+								if (valueAttribute.startsWith(descs.elementAt(i).payload)) {
+									descs.elementAt(i).mediaAttributes.addElement(attribute);
+									payloadFound = true;
+								}
+							}
+							if (!payloadFound) {
+								for (int i = 0; i < descs.size(); i++) {
+									descs.elementAt(i).mediaAttributes.addElement(attribute);
+								}
+							}
+						} else {
+							for (int i = 0; i < descs.size(); i++) {
+								descs.elementAt(i).mediaAttributes.addElement(attribute);
+							}
+						}
+					}
+				}
+				mediaDescriptions.addAll(descs);
+			}
+		}
+
+		private void ungetToken(String tk) {
+			byte token[] = tk.getBytes(UTF8);
+			for (int i = 0; i < token.length; i++) {
+				buffer.insertElementAt(Integer.valueOf(token[token.length - i - 1]), 0);
+			}
+		}
+
+		private boolean getToken(ByteArrayInputStream input, String tk) {
+			boolean found = false;
+			ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			skipWhitespace(input);
+			if (input.available() > 0) {
+				int ch = readChar(input);
+				while (ch != '=' && ch != '\n' && ch != '\r' && ch != -1) {
+					bout.write(ch);
+					ch = readChar(input);
+				}
+				bout.write(ch);
+			}
+			String token = new String(bout.toByteArray(), UTF8);
+			if (tk.equals(token)) {
+				found = true;
+			} else {
+				ungetToken(token);
+			}
+			return found;
+		}
+
+		private String getLine(ByteArrayInputStream input) {
+			ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			if (input.available() > 0) {
+				int ch = readChar(input);
+				while (ch != '\n' && ch != '\r' && ch != -1) {
+					bout.write(ch);
+					ch = readChar(input);
+				}
+			}
+			return new String(bout.toByteArray(), UTF8);
+		}
+
+		private void skipWhitespace(ByteArrayInputStream input) {
+			int ch = readChar(input);
+			while (ch == ' ' || ch == '\n' || ch == '\r') {
+				ch = readChar(input);
+			}
+			buffer.insertElementAt(Integer.valueOf(ch), 0);
+		}
+
+		private int readChar(ByteArrayInputStream input) {
+			int ch;
+			if (buffer.size() > 0) {
+				ch = buffer.elementAt(0).intValue();
+				buffer.removeElementAt(0);
+			} else {
+				ch = input.read();
+			}
+			return ch;
+		}
+	}
+}
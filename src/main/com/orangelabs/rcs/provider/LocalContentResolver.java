@@ -72,6 +72,19 @@ public class LocalContentResolver {
         }
     }
 
+    public final int bulkInsert(Uri uri, ContentValues[] values) {
+        ContentProviderClient contentProviderClient = null;
+        try {
+            contentProviderClient = mContentResolver.acquireContentProviderClient(uri);
+            return contentProviderClient.getLocalContentProvider().bulkInsert(uri, values);
+
+        } finally {
+            if (contentProviderClient != null) {
+                contentProviderClient.release();
+            }
+        }
+    }
+
     public final int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
         ContentProviderClient contentProviderClient = null;
         try {
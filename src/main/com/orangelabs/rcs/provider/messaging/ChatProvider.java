@@ -176,7 +176,7 @@ public class ChatProvider extends ContentProvider {
     }
 
     private static class DatabaseHelper extends SQLiteOpenHelper {
-        private static final int DATABASE_VERSION = 17;
+        private static final int DATABASE_VERSION = 18;
         private boolean isTriggerOn = false;
         public DatabaseHelper(Context ctx) {
             super(ctx, DATABASE_NAME, null, DATABASE_VERSION);
@@ -248,6 +248,7 @@ public class ChatProvider extends ContentProvider {
                     .append(FileTransferLog.KEY_FILEICON).append(" TEXT,")
                     .append(FileTransferLog.KEY_UPLOAD_TID).append(" TEXT,")
                     .append(FileTransferLog.KEY_DOWNLOAD_URI).append(" TEXT,")
+                    .append(FileTransferLog.KEY_DOWNLOAD_SEGMENTS).append(" TEXT,")
                     .append(FileTransferLog.KEY_FILEICON_MIME_TYPE).append(" TEXT)").toString());
             db.execSQL(new StringBuilder("CREATE INDEX ").append(FileTransferLog.KEY_CHAT_ID)
                     .append("_ft_idx").append(" ON ").append(TABLE).append("(")
@@ -1045,6 +1046,37 @@ public class ChatProvider extends ContentProvider {
         }
     }
 
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        switch (sUriMatcher.match(uri)) {
+            case UriType.Message.MESSAGE:
+                /* Intentional fall through */
+            case UriType.Message.MESSAGE_WITH_ID:
+                SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+                int count = 0;
+                db.beginTransaction();
+                try {
+                    for (ContentValues initialValues : values) {
+                        if (db.insert(TABLE_MESSAGE, null, initialValues) != -1) {
+                            count++;
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                if (count > 0) {
+                    /* Observers of a given message are notified through the parent Uri */
+                    getContext().getContentResolver().notifyChange(ChatLog.Message.CONTENT_URI,
+                            null);
+                }
+                return count;
+
+            default:
+                return super.bulkInsert(uri, values);
+        }
+    }
+
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
         Uri groupChatNotificationUri = ChatLog.GroupChat.CONTENT_URI;
@@ -154,6 +154,8 @@ public class FileTransferLog implements IFileTransferLog {
 
 	static final String KEY_DOWNLOAD_URI = "download_uri";
 
+	static final String KEY_DOWNLOAD_SEGMENTS = "download_segments";
+
 	private static final String SELECTION_FILE_BY_T_ID = new StringBuilder(KEY_UPLOAD_TID).append("=?").toString();
 
 	private static final String SELECTION_BY_PAUSED_BY_SYSTEM = new StringBuilder(
@@ -273,12 +275,13 @@ public class FileTransferLog implements IFileTransferLog {
 
 		try {
 			Set<ParticipantInfo> participants = mGroupChatLog.getGroupChatConnectedParticipants(chatId);
+			Set<ContactId> contacts = new HashSet<ContactId>();
 			for (ParticipantInfo participant : participants) {
-				mGroupChatDeliveryInfoLog.addGroupChatDeliveryInfoEntry(chatId,
-						participant.getContact(), fileTransferId,
-						com.gsma.services.rcs.GroupDeliveryInfoLog.Status.NOT_DELIVERED,
-						com.gsma.services.rcs.GroupDeliveryInfoLog.ReasonCode.UNSPECIFIED);
+				contacts.add(participant.getContact());
 			}
+			mGroupChatDeliveryInfoLog.addGroupChatDeliveryInfoEntries(chatId, contacts,
+					fileTransferId, com.gsma.services.rcs.GroupDeliveryInfoLog.Status.NOT_DELIVERED,
+					com.gsma.services.rcs.GroupDeliveryInfoLog.ReasonCode.UNSPECIFIED);
 		} catch (Exception e) {
 			if (logger.isActivated()) {
 				logger.error("Group file transfer with fileTransferId '" + fileTransferId + "' could not be added to database!", e);
@@ -366,6 +369,18 @@ public class FileTransferLog implements IFileTransferLog {
 		}
 	}
 
+	@Override
+	public void markFileTransfersAsRead(List<String> fileTransferIds) {
+		if (logger.isActivated()) {
+			logger.debug(new StringBuilder("markFileTransfersAsRead  (fileTransferIds=").append(fileTransferIds).append(")")
+					.toString());
+		}
+		ContentValues values = new ContentValues();
+		values.put(KEY_READ_STATUS, ReadStatus.READ);
+		MessagingLog.updateByIds(mLocalContentResolver, CONTENT_URI, KEY_FT_ID, fileTransferIds,
+				values);
+	}
+
 	@Override
 	public void setFileTransferProgress(String fileTransferId, long currentSize) {
 		ContentValues values = new ContentValues();
@@ -433,6 +448,30 @@ public class FileTransferLog implements IFileTransferLog {
 				null);
 	}
 
+	@Override
+	public void setFileDownloadSegments(String fileTransferId, String segments) {
+		if (logger.isActivated()) {
+			logger.debug("updateFileDownloadSegments (segments=" + segments
+					+ ") (fileTransferId=" + fileTransferId + ")");
+		}
+		ContentValues values = new ContentValues();
+		if (segments == null) {
+			values.putNull(KEY_DOWNLOAD_SEGMENTS);
+		} else {
+			values.put(KEY_DOWNLOAD_SEGMENTS, segments);
+		}
+		mLocalContentResolver.update(Uri.withAppendedPath(CONTENT_URI, fileTransferId), values, null,
+				null);
+	}
+
+	@Override
+	public String getFileDownloadSegments(String fileTransferId) {
+		if (logger.isActivated()) {
+			logger.debug("Get file download segments for ".concat(fileTransferId));
+		}
+		return getDataAsString(getFileTransferData(KEY_DOWNLOAD_SEGMENTS, fileTransferId));
+	}
+
 	@Override
 	public List<FtHttpResume> retrieveFileTransfersPausedBySystem() {
 		Cursor cursor = null;
@@ -596,6 +635,23 @@ public class FileTransferLog implements IFileTransferLog {
 		}
 	}
 
+	@Override
+	public Cursor getFileTransfersData(List<String> fileTransferIds) {
+		return MessagingLog.queryByIds(mLocalContentResolver, CONTENT_URI, KEY_FT_ID,
+				fileTransferIds);
+	}
+
+	private String getDataAsString(Cursor cursor) {
+		try {
+			return cursor.getString(FIRST_COLUMN_IDX);
+
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
 	private int getDataAsInt(Cursor cursor) {
 		try {
 			return cursor.getInt(FIRST_COLUMN_IDX);
@@ -23,8 +23,10 @@
 package com.orangelabs.rcs.provider.messaging;
 
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import android.content.ContentValues;
 import android.content.Context;
@@ -136,6 +138,52 @@ public class GroupChatLog implements IGroupChatLog {
 
 	private static final int FIRST_COLUMN_IDX = 0;
 
+	/**
+	 * Parsed participants by chat ID.
+	 * <p>
+	 * The participants column is parsed at most once per chat: the entry is
+	 * replaced each time the participants are written by this class, so that
+	 * it always reflects the content of the database.
+	 */
+	private final ConcurrentHashMap<String, ParticipantSet> mParticipantsCache = new ConcurrentHashMap<String, ParticipantSet>();
+
+	/**
+	 * Immutable set of participants of a group chat
+	 */
+	private static final class ParticipantSet {
+
+		/**
+		 * All participants or null if none is stored
+		 */
+		private final Set<ParticipantInfo> mAll;
+
+		/**
+		 * Participants who have not declined or left the group chat
+		 */
+		private final Set<ParticipantInfo> mConnected;
+
+		private ParticipantSet(Set<ParticipantInfo> participants) {
+			if (participants == null) {
+				mAll = null;
+				mConnected = Collections.emptySet();
+				return;
+			}
+			Set<ParticipantInfo> connected = new HashSet<ParticipantInfo>();
+			for (ParticipantInfo participantInfo : participants) {
+				// Only consider participants who have not declined or left GC
+				switch (participantInfo.getStatus()) {
+				case ParticipantInfo.Status.DEPARTED:
+				case ParticipantInfo.Status.DECLINED:
+					break;
+				default:
+					connected.add(participantInfo);
+				}
+			}
+			mAll = Collections.unmodifiableSet(new HashSet<ParticipantInfo>(participants));
+			mConnected = Collections.unmodifiableSet(connected);
+		}
+	}
+
 	private static enum UserAbortion {
 
 		SERVER_NOTIFIED(0), SERVER_NOT_NOTIFIED(1);
@@ -223,6 +271,7 @@ public class GroupChatLog implements IGroupChatLog {
 		values.put(GroupChatLog.KEY_TIMESTAMP, Calendar.getInstance().getTimeInMillis());
 		values.put(GroupChatLog.KEY_USER_ABORTION, UserAbortion.SERVER_NOTIFIED.toInt());
 		mLocalContentResolver.insert(GroupChatLog.CONTENT_URI, values);
+		mParticipantsCache.put(chatId, new ParticipantSet(participants));
 	}
 
 	/*
@@ -273,6 +322,38 @@ public class GroupChatLog implements IGroupChatLog {
 		ContentValues values = new ContentValues();
 		values.put(GroupChatLog.KEY_PARTICIPANTS, encodedParticipants);
 		mLocalContentResolver.update(GroupChatLog.CONTENT_URI, values, GroupChatLog.KEY_CHAT_ID + " = '" + chatId + "'", null);
+		mParticipantsCache.put(chatId, new ParticipantSet(participants));
+	}
+
+	/**
+	 * Returns the parsed participants of a group chat, parsing the stored
+	 * participants only if they are not cached yet
+	 *
+	 * @param chatId Chat ID
+	 * @param encodedParticipants Participants as stored in the database
+	 * @return Participant set
+	 */
+	private ParticipantSet getParticipantSet(String chatId, String encodedParticipants) {
+		ParticipantSet participantSet = mParticipantsCache.get(chatId);
+		if (participantSet != null) {
+			return participantSet;
+		}
+		participantSet = new ParticipantSet(ChatLog.GroupChat.getParticipantInfo(mCtx,
+				encodedParticipants));
+		/*
+		 * Do not overwrite an entry set by a concurrent write: it is more
+		 * recent than the participants read from the database.
+		 */
+		ParticipantSet previous = mParticipantsCache.putIfAbsent(chatId, participantSet);
+		return previous != null ? previous : participantSet;
+	}
+
+	/**
+	 * Forget all the parsed participants, to be called when group chats are
+	 * deleted
+	 */
+	/* package private */ void clearParticipantsCache() {
+		mParticipantsCache.clear();
 	}
 
 	/*
@@ -314,7 +395,7 @@ public class GroupChatLog implements IGroupChatLog {
 					ORDER_BY_TIMESTAMP_DESC);
 			if (cursor.moveToFirst()) {
 				// Decode list of participants
-				Set<ParticipantInfo> participants = ChatLog.GroupChat.getParticipantInfo(mCtx, cursor.getString(2));
+				Set<ParticipantInfo> participants = getParticipantSet(chatId, cursor.getString(2)).mAll;
 				result = new GroupChatInfo(cursor.getString(0), cursor.getString(1), chatId, participants, cursor.getString(3));
 			}
 		} finally {
@@ -335,7 +416,11 @@ public class GroupChatLog implements IGroupChatLog {
 		if (logger.isActivated()) {
 			logger.debug("Get connected participants for " + chatId);
 		}
-		Set<ParticipantInfo> result = new HashSet<ParticipantInfo>();
+		ParticipantSet participantSet = mParticipantsCache.get(chatId);
+		if (participantSet != null) {
+			return participantSet.mConnected;
+		}
+		Set<ParticipantInfo> result = Collections.emptySet();
 		String[] projection = new String[] { GroupChatLog.KEY_PARTICIPANTS };
 		String[] selArgs = new String[] { chatId };
 		Cursor cursor = null;
@@ -344,19 +429,7 @@ public class GroupChatLog implements IGroupChatLog {
 					ORDER_BY_TIMESTAMP_DESC);
 			if (cursor.moveToFirst()) {
 				// Decode list of participants
-				Set<ParticipantInfo> participants = ChatLog.GroupChat.getParticipantInfo(mCtx, cursor.getString(0));
-				if (participants != null) {
-					for (ParticipantInfo participantInfo : participants) {
-						// Only consider participants who have not declined or left GC
-						switch (participantInfo.getStatus()) {
-						case ParticipantInfo.Status.DEPARTED:
-						case ParticipantInfo.Status.DECLINED:
-							break;
-						default:
-							result.add(participantInfo);
-						}
-					}
-				}
+				result = getParticipantSet(chatId, cursor.getString(0)).mConnected;
 			}
 		} catch (Exception e) {
 			if (logger.isActivated()) {
@@ -497,7 +570,12 @@ public class GroupChatLog implements IGroupChatLog {
 		if (logger.isActivated()) {
 			logger.debug("Get group chat participants for ".concat(chatId));
 		}
-		return getParticipants(getDataAsString(getGroupChatData(GroupChatLog.KEY_PARTICIPANTS, chatId)));
+		ParticipantSet participantSet = mParticipantsCache.get(chatId);
+		if (participantSet != null) {
+			return participantSet.mAll;
+		}
+		return getParticipantSet(chatId,
+				getDataAsString(getGroupChatData(GroupChatLog.KEY_PARTICIPANTS, chatId))).mAll;
 	}
 
 	/*
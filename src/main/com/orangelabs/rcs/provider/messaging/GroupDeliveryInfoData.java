@@ -39,4 +39,18 @@ public class GroupDeliveryInfoData {
     public static final String KEY_TIMESTAMP_DELIVERED = GroupDeliveryInfoLog.TIMESTAMP_DELIVERED;
 
     public static final String KEY_TIMESTAMP_DISPLAYED = GroupDeliveryInfoLog.TIMESTAMP_DISPLAYED;
+
+    /**
+     * Per message counters of the delivery info entries, maintained by the
+     * provider (internal use only)
+     */
+    /* package private */ static final Uri SUMMARY_CONTENT_URI = Uri.parse(new StringBuilder(
+            "content://").append(CONTENT_URI.getAuthority()).append("/groupdeliveryinfosummary")
+            .toString());
+
+    /* package private */ static final String KEY_RECIPIENTS = "recipients";
+
+    /* package private */ static final String KEY_UNDELIVERED = "undelivered";
+
+    /* package private */ static final String KEY_UNDISPLAYED = "undisplayed";
 }
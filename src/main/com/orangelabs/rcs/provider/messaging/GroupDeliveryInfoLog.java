@@ -26,6 +26,8 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.Set;
+
 import com.gsma.services.rcs.contacts.ContactId;
 import com.orangelabs.rcs.provider.LocalContentResolver;
 import com.orangelabs.rcs.utils.logger.Logger;
@@ -39,18 +41,13 @@ public class GroupDeliveryInfoLog implements IGroupDeliveryInfoLog {
             GroupDeliveryInfoData.KEY_ID).append("=? AND ")
             .append(GroupDeliveryInfoData.KEY_CONTACT).append("=?").toString();
 
-    private static final String SELECTION_CONTACTS_NOT_RECEIVED_MESSAGE = new StringBuilder(
-            GroupDeliveryInfoData.KEY_DELIVERY_STATUS).append("=")
-            .append(com.gsma.services.rcs.GroupDeliveryInfoLog.Status.NOT_DELIVERED).append(" OR (")
-            .append(GroupDeliveryInfoData.KEY_DELIVERY_STATUS).append("=")
-            .append(com.gsma.services.rcs.GroupDeliveryInfoLog.Status.FAILED).append(" AND ")
-            .append(GroupDeliveryInfoData.KEY_REASON_CODE).append(" IN (")
-            .append(com.gsma.services.rcs.GroupDeliveryInfoLog.ReasonCode.FAILED_DELIVERY).append(",")
-            .append(com.gsma.services.rcs.GroupDeliveryInfoLog.ReasonCode.FAILED_DISPLAY).append("))").toString();
+    private static final String[] PROJECTION_UNDELIVERED = new String[] {
+        GroupDeliveryInfoData.KEY_UNDELIVERED
+    };
 
-    private static final String SELECTION_DELIVERY_INFO_NOT_DISPLAYED = new StringBuilder(
-            GroupDeliveryInfoData.KEY_DELIVERY_STATUS).append("!=")
-            .append(com.gsma.services.rcs.GroupDeliveryInfoLog.Status.DISPLAYED).toString();
+    private static final String[] PROJECTION_UNDISPLAYED = new String[] {
+        GroupDeliveryInfoData.KEY_UNDISPLAYED
+    };
 
     private static final Logger logger = Logger.getLogger(GroupDeliveryInfoLog.class
             .getSimpleName());
@@ -80,6 +77,50 @@ public class GroupDeliveryInfoLog implements IGroupDeliveryInfoLog {
         return mLocalContentResolver.insert(GroupDeliveryInfoData.CONTENT_URI, values);
     }
 
+    @Override
+    public int addGroupChatDeliveryInfoEntries(String chatId, Set<ContactId> contacts,
+            String msgId, int status, int reasonCode) {
+        ContentValues[] values = new ContentValues[contacts.size()];
+        int index = 0;
+        for (ContactId contact : contacts) {
+            ContentValues entry = new ContentValues();
+            entry.put(GroupDeliveryInfoData.KEY_CHAT_ID, chatId);
+            entry.put(GroupDeliveryInfoData.KEY_ID, msgId);
+            entry.put(GroupDeliveryInfoData.KEY_CONTACT, contact.toString());
+            entry.put(GroupDeliveryInfoData.KEY_DELIVERY_STATUS, status);
+            entry.put(GroupDeliveryInfoData.KEY_REASON_CODE, reasonCode);
+            entry.put(GroupDeliveryInfoData.KEY_TIMESTAMP_DELIVERED, 0);
+            entry.put(GroupDeliveryInfoData.KEY_TIMESTAMP_DISPLAYED, 0);
+            values[index++] = entry;
+        }
+        return mLocalContentResolver.bulkInsert(GroupDeliveryInfoData.CONTENT_URI, values);
+    }
+
+    /**
+     * Returns a counter of the delivery info summary of a message
+     *
+     * @param msgId Message ID
+     * @param projection Projection of the counter
+     * @return Counter value or 0 if there is no entry for this message
+     */
+    private int getSummaryCounter(String msgId, String[] projection) {
+        Cursor cursor = null;
+        try {
+            cursor = mLocalContentResolver.query(
+                    Uri.withAppendedPath(GroupDeliveryInfoData.SUMMARY_CONTENT_URI, msgId),
+                    projection, null, null, null);
+            if (!cursor.moveToFirst()) {
+                return 0;
+            }
+            return cursor.getInt(0);
+
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
     /**
      * Set delivery status for outgoing group chat messages and files
      *
@@ -118,18 +159,7 @@ public class GroupDeliveryInfoLog implements IGroupDeliveryInfoLog {
      */
     @Override
     public boolean isDeliveredToAllRecipients(String msgId) {
-        Cursor cursor = null;
-        try {
-            cursor = mLocalContentResolver.query(
-                    Uri.withAppendedPath(GroupDeliveryInfoData.CONTENT_URI, msgId), null,
-                    SELECTION_CONTACTS_NOT_RECEIVED_MESSAGE, null, null);
-            return !cursor.moveToFirst();
-
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
+        return getSummaryCounter(msgId, PROJECTION_UNDELIVERED) == 0;
     }
 
     /*
@@ -140,18 +170,6 @@ public class GroupDeliveryInfoLog implements IGroupDeliveryInfoLog {
      */
     @Override
     public boolean isDisplayedByAllRecipients(String msgId) {
-        Cursor cursor = null;
-        try {
-            cursor = mLocalContentResolver.query(
-                    Uri.withAppendedPath(GroupDeliveryInfoData.CONTENT_URI, msgId), null,
-                    SELECTION_DELIVERY_INFO_NOT_DISPLAYED, null, null);
-
-            return !cursor.moveToFirst();
-
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
+        return getSummaryCounter(msgId, PROJECTION_UNDISPLAYED) == 0;
     }
 }
@@ -18,6 +18,9 @@ import android.database.sqlite.SQLiteOpenHelper;
 import android.net.Uri;
 import android.text.TextUtils;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Group Delivery info provider of chat and file messages
  */
@@ -25,6 +28,29 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
 
     private static final String DATABASE_TABLE = "groupdeliveryinfo";
 
+    private static final String SUMMARY_TABLE = "groupdeliveryinfosummary";
+
+    /**
+     * SQL expression which is 1 if the entry prevents the message from being
+     * delivered to all recipients
+     */
+    private static final String UNDELIVERED_EXPRESSION = new StringBuilder("(")
+            .append("%1$s.").append(GroupDeliveryInfoData.KEY_DELIVERY_STATUS).append("=")
+            .append(GroupDeliveryInfoLog.Status.NOT_DELIVERED).append(" OR (")
+            .append("%1$s.").append(GroupDeliveryInfoData.KEY_DELIVERY_STATUS).append("=")
+            .append(GroupDeliveryInfoLog.Status.FAILED).append(" AND ")
+            .append("%1$s.").append(GroupDeliveryInfoData.KEY_REASON_CODE).append(" IN (")
+            .append(GroupDeliveryInfoLog.ReasonCode.FAILED_DELIVERY).append(",")
+            .append(GroupDeliveryInfoLog.ReasonCode.FAILED_DISPLAY).append(")))").toString();
+
+    /**
+     * SQL expression which is 1 if the entry prevents the message from being
+     * displayed by all recipients
+     */
+    private static final String UNDISPLAYED_EXPRESSION = new StringBuilder("(")
+            .append("%1$s.").append(GroupDeliveryInfoData.KEY_DELIVERY_STATUS).append("!=")
+            .append(GroupDeliveryInfoLog.Status.DISPLAYED).append(")").toString();
+
     private static final String SELECTION_WITH_ID_ONLY = GroupDeliveryInfoData.KEY_ID
             .concat("=?");
 
@@ -36,6 +62,9 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
                 GroupDeliveryInfoLog.CONTENT_URI.getPath().substring(1), UriType.DELIVERY);
         sUriMatcher.addURI(GroupDeliveryInfoLog.CONTENT_URI.getAuthority(), GroupDeliveryInfoLog.CONTENT_URI
                 .getPath().substring(1).concat("/*"), UriType.DELIVERY_WITH_ID);
+        sUriMatcher.addURI(GroupDeliveryInfoData.SUMMARY_CONTENT_URI.getAuthority(),
+                GroupDeliveryInfoData.SUMMARY_CONTENT_URI.getPath().substring(1).concat("/*"),
+                UriType.SUMMARY_WITH_ID);
     }
 
     private static final class UriType {
@@ -43,6 +72,8 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
         private static final int DELIVERY = 1;
 
         private static final int DELIVERY_WITH_ID = 2;
+
+        private static final int SUMMARY_WITH_ID = 3;
     }
 
     private static final class CursorType {
@@ -54,7 +85,7 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
 
     private static class DatabaseHelper extends SQLiteOpenHelper {
 
-        private static final int DATABASE_VERSION = 3;
+        private static final int DATABASE_VERSION = 4;
 
         public DatabaseHelper(Context ctx) {
             super(ctx, DATABASE_NAME, null, DATABASE_VERSION);
@@ -73,11 +104,67 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
                     .append(" INTEGER NOT NULL, PRIMARY KEY(").append(GroupDeliveryInfoData.KEY_ID)
                     .append(",").append(GroupDeliveryInfoData.KEY_CONTACT).append("));")
                     .toString());
+            db.execSQL(new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(SUMMARY_TABLE).append("(")
+                    .append(GroupDeliveryInfoData.KEY_ID).append(" TEXT NOT NULL PRIMARY KEY,")
+                    .append(GroupDeliveryInfoData.KEY_RECIPIENTS).append(" INTEGER NOT NULL,")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append(" INTEGER NOT NULL,")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append(" INTEGER NOT NULL);")
+                    .toString());
+            /*
+             * The counters are maintained by triggers so that they are updated
+             * in the same transaction as the entries they count.
+             */
+            db.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ").append(SUMMARY_TABLE)
+                    .append("_insert AFTER INSERT ON ").append(DATABASE_TABLE).append(" BEGIN ")
+                    .append("INSERT OR IGNORE INTO ").append(SUMMARY_TABLE).append(" VALUES(NEW.")
+                    .append(GroupDeliveryInfoData.KEY_ID).append(",0,0,0); ")
+                    .append("UPDATE ").append(SUMMARY_TABLE).append(" SET ")
+                    .append(GroupDeliveryInfoData.KEY_RECIPIENTS).append("=")
+                    .append(GroupDeliveryInfoData.KEY_RECIPIENTS).append("+1,")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append("=")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append("+")
+                    .append(String.format(UNDELIVERED_EXPRESSION, "NEW")).append(",")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append("=")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append("+")
+                    .append(String.format(UNDISPLAYED_EXPRESSION, "NEW"))
+                    .append(" WHERE ").append(GroupDeliveryInfoData.KEY_ID).append("=NEW.")
+                    .append(GroupDeliveryInfoData.KEY_ID).append("; END;").toString());
+            db.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ").append(SUMMARY_TABLE)
+                    .append("_update AFTER UPDATE ON ").append(DATABASE_TABLE).append(" BEGIN ")
+                    .append("UPDATE ").append(SUMMARY_TABLE).append(" SET ")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append("=")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append("+")
+                    .append(String.format(UNDELIVERED_EXPRESSION, "NEW")).append("-")
+                    .append(String.format(UNDELIVERED_EXPRESSION, "OLD")).append(",")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append("=")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append("+")
+                    .append(String.format(UNDISPLAYED_EXPRESSION, "NEW")).append("-")
+                    .append(String.format(UNDISPLAYED_EXPRESSION, "OLD"))
+                    .append(" WHERE ").append(GroupDeliveryInfoData.KEY_ID).append("=NEW.")
+                    .append(GroupDeliveryInfoData.KEY_ID).append("; END;").toString());
+            db.execSQL(new StringBuilder("CREATE TRIGGER IF NOT EXISTS ").append(SUMMARY_TABLE)
+                    .append("_delete AFTER DELETE ON ").append(DATABASE_TABLE).append(" BEGIN ")
+                    .append("UPDATE ").append(SUMMARY_TABLE).append(" SET ")
+                    .append(GroupDeliveryInfoData.KEY_RECIPIENTS).append("=")
+                    .append(GroupDeliveryInfoData.KEY_RECIPIENTS).append("-1,")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append("=")
+                    .append(GroupDeliveryInfoData.KEY_UNDELIVERED).append("-")
+                    .append(String.format(UNDELIVERED_EXPRESSION, "OLD")).append(",")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append("=")
+                    .append(GroupDeliveryInfoData.KEY_UNDISPLAYED).append("-")
+                    .append(String.format(UNDISPLAYED_EXPRESSION, "OLD"))
+                    .append(" WHERE ").append(GroupDeliveryInfoData.KEY_ID).append("=OLD.")
+                    .append(GroupDeliveryInfoData.KEY_ID).append("; ")
+                    .append("DELETE FROM ").append(SUMMARY_TABLE).append(" WHERE ")
+                    .append(GroupDeliveryInfoData.KEY_ID).append("=OLD.")
+                    .append(GroupDeliveryInfoData.KEY_ID).append(" AND ")
+                    .append(GroupDeliveryInfoData.KEY_RECIPIENTS).append("<=0; END;").toString());
         }
 
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int currentVersion) {
             db.execSQL("DROP TABLE IF EXISTS ".concat(DATABASE_TABLE));
+            db.execSQL("DROP TABLE IF EXISTS ".concat(SUMMARY_TABLE));
             onCreate(db);
         }
     }
@@ -141,6 +228,14 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
                     cursor.setNotificationUri(getContext().getContentResolver(), uri);
                     return cursor;
 
+                case UriType.SUMMARY_WITH_ID:
+                    selection = getSelectionWithAppendedId(selection);
+                    selectionArgs = getSelectionArgsWithAppendedId(selectionArgs,
+                            uri.getLastPathSegment());
+                    cursor = mOpenHelper.getReadableDatabase().query(SUMMARY_TABLE, projection,
+                            selection, selectionArgs, null, null, sort);
+                    return cursor;
+
                 default:
                     throw new IllegalArgumentException(new StringBuilder("Unsupported URI ")
                             .append(uri).append("!").toString());
@@ -173,6 +268,39 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
         }
     }
 
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        switch (sUriMatcher.match(uri)) {
+            case UriType.DELIVERY:
+                /* Intentional fall through */
+            case UriType.DELIVERY_WITH_ID:
+                SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+                Set<String> appendedIds = new HashSet<String>();
+                int count = 0;
+                db.beginTransaction();
+                try {
+                    for (ContentValues initialValues : values) {
+                        if (db.insert(DATABASE_TABLE, null, initialValues) != -1) {
+                            appendedIds.add(initialValues.getAsString(GroupDeliveryInfoData.KEY_ID));
+                            count++;
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                for (String appendedId : appendedIds) {
+                    getContext().getContentResolver().notifyChange(
+                            Uri.withAppendedPath(GroupDeliveryInfoLog.CONTENT_URI, appendedId), null);
+                }
+                return count;
+
+            default:
+                throw new IllegalArgumentException(new StringBuilder("Unsupported URI ")
+                        .append(uri).append("!").toString());
+        }
+    }
+
     @Override
     public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
         switch (sUriMatcher.match(uri)) {
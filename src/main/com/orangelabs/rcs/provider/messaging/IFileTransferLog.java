@@ -118,6 +118,14 @@ public interface IFileTransferLog {
 	 */
 	public void markFileTransferAsRead(String fileTransferId);
 
+	/**
+	 * Update the read status of a list of file transfers at once
+	 * 
+	 * @param fileTransferIds
+	 *            List of file transfer IDs
+	 */
+	public void markFileTransfersAsRead(List<String> fileTransferIds);
+
 	/**
 	 * Update file transfer download progress
 	 * 
@@ -167,6 +175,25 @@ public interface IFileTransferLog {
 	 */
 	public void setFileDownloadAddress(String fileTransferId, Uri downloadAddress);
 
+	/**
+	 * Set progress of the segments of a segmented file download
+	 *
+	 * @param fileTransferId
+	 *            File transfer ID
+	 * @param segments
+	 *            Encoded segments or null to clear them
+	 */
+	public void setFileDownloadSegments(String fileTransferId, String segments);
+
+	/**
+	 * Get progress of the segments of a segmented file download
+	 *
+	 * @param fileTransferId
+	 *            File transfer ID
+	 * @return Encoded segments or null if the file is not downloaded by segments
+	 */
+	public String getFileDownloadSegments(String fileTransferId);
+
 	/**
 	 * Retrieve file transfers paused by SYSTEM on connection loss
 	 */
@@ -203,6 +230,15 @@ public interface IFileTransferLog {
 	 */
 	public Cursor getCacheableFileTransferData(String fileTransferId);
 
+	/**
+	 * Get the data of a list of file transfers with as few queries as possible
+	 * 
+	 * @param fileTransferIds
+	 *            List of file transfer IDs
+	 * @return Cursor with a row per file transfer found, in no specific order
+	 */
+	public Cursor getFileTransfersData(List<String> fileTransferIds);
+
 	/**
 	 * Is group file transfer
 	 * 
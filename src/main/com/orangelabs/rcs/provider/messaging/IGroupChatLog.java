@@ -114,7 +114,7 @@ public interface IGroupChatLog {
 	 * 
 	 * @param chatId
 	 *            Chat ID
-	 * @result List of contacts
+	 * @result Unmodifiable set of participants
 	 */
 	public Set<ParticipantInfo> getGroupChatConnectedParticipants(String chatId);
 
@@ -162,7 +162,7 @@ public interface IGroupChatLog {
 	 * Get group chat participants from its chat ID
 	 * 
 	 * @param chatId Chat ID of the group chat
-	 * @return Set of participants
+	 * @return Unmodifiable set of participants
 	 */
 	public Set<ParticipantInfo> getGroupChatParticipants(String chatId);
 
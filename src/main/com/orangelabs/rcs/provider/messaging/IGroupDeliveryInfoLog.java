@@ -22,6 +22,8 @@
 
 package com.orangelabs.rcs.provider.messaging;
 
+import java.util.Set;
+
 import com.gsma.services.rcs.contacts.ContactId;
 
 import android.net.Uri;
@@ -46,6 +48,20 @@ public interface IGroupDeliveryInfoLog {
     public Uri addGroupChatDeliveryInfoEntry(String chatId, ContactId contact, String msgId,
             int status, int reasonCode);
 
+    /**
+     * Add new entries for several recipients of a chat message or file
+     * transfer in a single transaction
+     *
+     * @param chatId Chat ID of a chat session
+     * @param contacts Contact phone identifiers
+     * @param msgId Message ID of a chat message
+     * @param status Delivery info status
+     * @param reasonCode Delivery info status reason code
+     * @return Number of entries added
+     */
+    public int addGroupChatDeliveryInfoEntries(String chatId, Set<ContactId> contacts,
+            String msgId, int status, int reasonCode);
+
     /**
      * Set delivery status for outgoing group chat messages and files
      *
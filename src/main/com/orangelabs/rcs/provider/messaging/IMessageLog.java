@@ -21,6 +21,7 @@
  ******************************************************************************/
 package com.orangelabs.rcs.provider.messaging;
 
+import java.util.List;
 import java.util.Set;
 
 import com.gsma.services.rcs.contacts.ContactId;
@@ -53,6 +54,17 @@ public interface IMessageLog {
 	 */
 	public void addIncomingOneToOneChatMessage(ChatMessage msg, boolean imdnDisplayedRequested);
 
+	/**
+	 * Add chat messages in a single transaction
+	 * 
+	 * @param msgs
+	 *            Chat messages
+	 * @param imdnDisplayedRequestedIds
+	 *            IDs of the messages for which IMDN display report is requested
+	 */
+	public void addIncomingOneToOneChatMessages(List<ChatMessage> msgs,
+			Set<String> imdnDisplayedRequestedIds);
+
 	/**
 	 * Add a chat message
 	 * 
@@ -105,6 +117,14 @@ public interface IMessageLog {
 	 */
 	public void markMessageAsRead(String msgId);
 
+	/**
+	 * Update the read status of a list of chat messages at once
+	 * 
+	 * @param msgIds
+	 *            List of message IDs
+	 */
+	public void markMessagesAsRead(List<String> msgIds);
+
 	/**
 	 * Set chat message status and reason code
 	 * 
@@ -134,6 +154,15 @@ public interface IMessageLog {
 	 */
 	public boolean isMessagePersisted(String msgId);
 
+	/**
+	 * Get the messages already persisted in db among a list of messages
+	 * 
+	 * @param msgIds
+	 *            message IDs
+	 * @return IDs of the messages which exist in db
+	 */
+	public Set<String> getPersistedMessageIds(List<String> msgIds);
+
 	/**
 	 * Check if the message is read by remote contact
 	 * 
@@ -198,6 +227,15 @@ public interface IMessageLog {
 	 */
 	public Cursor getCacheableChatMessageData(String msgId);
 
+	/**
+	 * Get the data of a list of messages with as few queries as possible
+	 * 
+	 * @param msgIds
+	 *            List of message IDs
+	 * @return Cursor with a row per message found, in no specific order
+	 */
+	public Cursor getChatMessagesData(List<String> msgIds);
+
 
     /**********************************************************************************
      *  tct-stack add for fix bug: don't send queued chat messages
@@ -24,6 +24,7 @@ package com.orangelabs.rcs.provider.messaging;
 
 import java.util.Calendar;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import android.content.ContentValues;
@@ -157,6 +158,12 @@ public class MessageLog implements IMessageLog {
 
 	private void addIncomingOneToOneMessage(ChatMessage msg, int status,
 			int reasonCode) {
+		mLocalContentResolver.insert(ChatLog.Message.CONTENT_URI,
+				getIncomingOneToOneMessageValues(msg, status, reasonCode));
+	}
+
+	private ContentValues getIncomingOneToOneMessageValues(ChatMessage msg, int status,
+			int reasonCode) {
 		ContactId contact = msg.getRemoteContact();
 		String msgId = msg.getMessageId();
 		if (logger.isActivated()) {
@@ -185,7 +192,7 @@ public class MessageLog implements IMessageLog {
 
 		values.put(MessageLog.KEY_STATUS, status);
 		values.put(MessageLog.KEY_REASON_CODE, reasonCode);
-		mLocalContentResolver.insert(ChatLog.Message.CONTENT_URI, values);
+		return values;
 	}
 
 	/**
@@ -253,6 +260,32 @@ public class MessageLog implements IMessageLog {
 		}
 	}
 
+	/**
+	 * Add incoming one-to-one chat messages in a single transaction
+	 *
+	 * @param msgs Chat messages
+	 * @param imdnDisplayedRequestedIds IDs of the messages for which IMDN
+	 *            display was requested
+	 */
+	@Override
+	public void addIncomingOneToOneChatMessages(List<ChatMessage> msgs,
+			Set<String> imdnDisplayedRequestedIds) {
+		ContentValues[] values = new ContentValues[msgs.size()];
+		for (int i = 0; i < values.length; i++) {
+			ChatMessage msg = msgs.get(i);
+			if (imdnDisplayedRequestedIds.contains(msg.getMessageId())) {
+				values[i] = getIncomingOneToOneMessageValues(msg,
+						ChatLog.Message.Status.Content.DISPLAY_REPORT_REQUESTED,
+						ChatLog.Message.ReasonCode.UNSPECIFIED);
+			} else {
+				values[i] = getIncomingOneToOneMessageValues(msg,
+						ChatLog.Message.Status.Content.RECEIVED,
+						ChatLog.Message.ReasonCode.UNSPECIFIED);
+			}
+		}
+		mLocalContentResolver.bulkInsert(ChatLog.Message.CONTENT_URI, values);
+	}
+
 	/**
 	 * Add group chat message
 	 *
@@ -308,11 +341,13 @@ public class MessageLog implements IMessageLog {
 					deliveryStatus = com.gsma.services.rcs.GroupDeliveryInfoLog.Status.UNSUPPORTED;
 				}
 				Set<ParticipantInfo> participants = groupChatLog.getGroupChatConnectedParticipants(chatId);
+				Set<ContactId> contacts = new HashSet<ContactId>();
 				for (ParticipantInfo participant : participants) {
-					groupChatDeliveryInfoLog.addGroupChatDeliveryInfoEntry(chatId,
-							participant.getContact(), msgId, deliveryStatus,
-							com.gsma.services.rcs.GroupDeliveryInfoLog.ReasonCode.UNSPECIFIED);
+					contacts.add(participant.getContact());
 				}
+				groupChatDeliveryInfoLog.addGroupChatDeliveryInfoEntries(chatId, contacts, msgId,
+						deliveryStatus,
+						com.gsma.services.rcs.GroupDeliveryInfoLog.ReasonCode.UNSPECIFIED);
 			} catch (Exception e) {
 				mLocalContentResolver.delete(Uri.withAppendedPath(ChatLog.Message.CONTENT_URI, msgId), null, null);
 				mLocalContentResolver.delete(Uri.withAppendedPath(GroupDeliveryInfoData.CONTENT_URI, msgId), null, null);
@@ -364,6 +399,18 @@ public class MessageLog implements IMessageLog {
 		}
 	}
 
+	@Override
+	public void markMessagesAsRead(List<String> msgIds) {
+		if (logger.isActivated()) {
+			logger.debug(new StringBuilder("Marking chat messages as read: msgIDs=").append(msgIds).toString());
+		}
+		ContentValues values = new ContentValues();
+		values.put(MessageLog.KEY_READ_STATUS, ReadStatus.READ);
+		values.put(MessageLog.KEY_TIMESTAMP_DISPLAYED, Calendar.getInstance().getTimeInMillis());
+		MessagingLog.updateByIds(mLocalContentResolver, ChatLog.Message.CONTENT_URI,
+				KEY_MESSAGE_ID, msgIds, values);
+	}
+
 	@Override
 	public void setChatMessageStatusAndReasonCode(String msgId, int status, int reasonCode) {
 		if (logger.isActivated()) {
@@ -408,6 +455,28 @@ public class MessageLog implements IMessageLog {
 		}
 	}
 
+	@Override
+	public Set<String> getPersistedMessageIds(List<String> msgIds) {
+		Set<String> persistedIds = new HashSet<String>();
+		if (msgIds.isEmpty()) {
+			return persistedIds;
+		}
+		Cursor cursor = null;
+		try {
+			cursor = MessagingLog.queryByIds(mLocalContentResolver, ChatLog.Message.CONTENT_URI,
+					KEY_MESSAGE_ID, msgIds);
+			int msgIdIdx = cursor.getColumnIndexOrThrow(KEY_MESSAGE_ID);
+			while (cursor.moveToNext()) {
+				persistedIds.add(cursor.getString(msgIdIdx));
+			}
+			return persistedIds;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
 	private Cursor getMessageData(String columnName, String msgId) throws SQLException {
 		String[] projection = new String[] {
 			columnName
@@ -432,6 +501,12 @@ public class MessageLog implements IMessageLog {
 		}
 	}
 
+	@Override
+	public Cursor getChatMessagesData(List<String> msgIds) {
+		return MessagingLog.queryByIds(mLocalContentResolver, ChatLog.Message.CONTENT_URI,
+				KEY_MESSAGE_ID, msgIds);
+	}
+
 	private int getDataAsInt(Cursor cursor) {
 		try {
 			return cursor.getInt(FIRST_COLUMN_IDX);
@@ -33,8 +33,10 @@ import com.orangelabs.rcs.core.im.chat.ChatMessage;
 import com.orangelabs.rcs.core.im.chat.GroupChatInfo;
 import com.orangelabs.rcs.provider.LocalContentResolver;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.MergeCursor;
 import android.net.Uri;
 
 /**
@@ -59,6 +61,12 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 
 	private GroupDeliveryInfoLog groupChatDeliveryInfoLog;
 
+	/**
+	 * Max number of IDs bound to a single statement, SQLite limits the number
+	 * of host parameters of a statement to 999
+	 */
+	private static final int MAX_IDS_PER_STATEMENT = 500;
+
 	/**
 	 * Create instance
 	 * 
@@ -98,6 +106,76 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		fileTransferLog = new FileTransferLog(localContentResolver, groupChatLog, groupChatDeliveryInfoLog);
 	}
 
+	/**
+	 * Query the rows matching a list of IDs with as few queries as possible
+	 * 
+	 * @param localContentResolver Local content resolver
+	 * @param uri Content URI
+	 * @param idColumn Column of the IDs
+	 * @param ids List of IDs
+	 * @return Cursor
+	 */
+	/* package private */static Cursor queryByIds(LocalContentResolver localContentResolver,
+			Uri uri, String idColumn, List<String> ids) {
+		int size = ids.size();
+		Cursor[] cursors = new Cursor[(size + MAX_IDS_PER_STATEMENT - 1) / MAX_IDS_PER_STATEMENT];
+		try {
+			for (int i = 0; i < cursors.length; i++) {
+				List<String> chunk = ids.subList(i * MAX_IDS_PER_STATEMENT,
+						Math.min(size, (i + 1) * MAX_IDS_PER_STATEMENT));
+				cursors[i] = localContentResolver.query(uri, null,
+						getSelectionForIds(idColumn, chunk.size()),
+						chunk.toArray(new String[chunk.size()]), null);
+			}
+		} catch (RuntimeException e) {
+			for (Cursor cursor : cursors) {
+				if (cursor != null) {
+					cursor.close();
+				}
+			}
+			throw e;
+		}
+		if (cursors.length == 1) {
+			return cursors[0];
+		}
+		return new MergeCursor(cursors);
+	}
+
+	/**
+	 * Update the rows matching a list of IDs with as few statements as
+	 * possible
+	 * 
+	 * @param localContentResolver Local content resolver
+	 * @param uri Content URI
+	 * @param idColumn Column of the IDs
+	 * @param ids List of IDs
+	 * @param values Values to update
+	 * @return Number of updated rows
+	 */
+	/* package private */static int updateByIds(LocalContentResolver localContentResolver,
+			Uri uri, String idColumn, List<String> ids, ContentValues values) {
+		int size = ids.size();
+		int count = 0;
+		for (int start = 0; start < size; start += MAX_IDS_PER_STATEMENT) {
+			List<String> chunk = ids.subList(start, Math.min(size, start + MAX_IDS_PER_STATEMENT));
+			count += localContentResolver.update(uri, values,
+					getSelectionForIds(idColumn, chunk.size()),
+					chunk.toArray(new String[chunk.size()]));
+		}
+		return count;
+	}
+
+	private static String getSelectionForIds(String idColumn, int count) {
+		StringBuilder selection = new StringBuilder(idColumn).append(" IN (");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				selection.append(',');
+			}
+			selection.append('?');
+		}
+		return selection.append(')').toString();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -194,6 +272,12 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		messageLog.addIncomingOneToOneChatMessage(msg, imdnDisplayedRequested);
 	}
 
+	@Override
+	public void addIncomingOneToOneChatMessages(List<ChatMessage> msgs,
+			Set<String> imdnDisplayedRequestedIds) {
+		messageLog.addIncomingOneToOneChatMessages(msgs, imdnDisplayedRequestedIds);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.orangelabs.rcs.provider.messaging.IMessageLog#
@@ -238,6 +322,11 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		messageLog.markMessageAsRead(msgId);
 	}
 
+	@Override
+	public void markMessagesAsRead(List<String> msgIds) {
+		messageLog.markMessagesAsRead(msgIds);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.orangelabs.rcs.provider.messaging.IMessageLog#
@@ -268,6 +357,11 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		return messageLog.isMessagePersisted(msgId);
 	}
 
+	@Override
+	public Set<String> getPersistedMessageIds(List<String> msgIds) {
+		return messageLog.getPersistedMessageIds(msgIds);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -328,6 +422,11 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		fileTransferLog.markFileTransferAsRead(fileTransferId);
 	}
 
+	@Override
+	public void markFileTransfersAsRead(List<String> fileTransferIds) {
+		fileTransferLog.markFileTransfersAsRead(fileTransferIds);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -372,6 +471,7 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 	 */
 	public void deleteAllEntries() {
 		mLocalContentResolver.delete(GroupChatLog.CONTENT_URI, null, null);
+		groupChatLog.clearParticipantsCache();
 		mLocalContentResolver.delete(ChatLog.Message.CONTENT_URI, null, null);
 		mLocalContentResolver.delete(FileTransferLog.CONTENT_URI, null, null);
 		mLocalContentResolver.delete(GroupDeliveryInfoData.CONTENT_URI, null, null);
@@ -390,6 +490,13 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 				status, reasonCode);
 	}
 
+	@Override
+	public int addGroupChatDeliveryInfoEntries(String chatId, Set<ContactId> contacts,
+			String msgId, int status, int reasonCode) {
+		return groupChatDeliveryInfoLog.addGroupChatDeliveryInfoEntries(chatId, contacts, msgId,
+				status, reasonCode);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.orangelabs.rcs.provider.messaging.IGroupChatDeliveryInfoLog#
@@ -433,6 +540,16 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		fileTransferLog.setFileDownloadAddress(fileTransferId, downloadAddress);
 	}
 
+	@Override
+	public void setFileDownloadSegments(String fileTransferId, String segments) {
+		fileTransferLog.setFileDownloadSegments(fileTransferId, segments);
+	}
+
+	@Override
+	public String getFileDownloadSegments(String fileTransferId) {
+		return fileTransferLog.getFileDownloadSegments(fileTransferId);
+	}
+
 	@Override
 	public List<FtHttpResume> retrieveFileTransfersPausedBySystem() {
 		return fileTransferLog.retrieveFileTransfersPausedBySystem();
@@ -538,6 +655,16 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
 		return messageLog.getCacheableChatMessageData(msgId);
 	}
 
+	@Override
+	public Cursor getChatMessagesData(List<String> msgIds) {
+		return messageLog.getChatMessagesData(msgIds);
+	}
+
+	@Override
+	public Cursor getFileTransfersData(List<String> fileTransferIds) {
+		return fileTransferLog.getFileTransfersData(fileTransferIds);
+	}
+
 
     /**********************************************************************************
      *  tct-stack add for fix bug: don't send queued message and file transfer
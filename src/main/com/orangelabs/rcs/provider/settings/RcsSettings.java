@@ -22,14 +22,18 @@
 
 package com.orangelabs.rcs.provider.settings;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.os.RemoteException;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -87,6 +91,21 @@ public class RcsSettings {
 	 */
 	final private Map<String,String> mCache;
 
+	/**
+	 * Settings written by the current transaction (null if none)
+	 */
+	private Map<String, String> mTransaction;
+
+	/**
+	 * Thread which has started the current transaction
+	 */
+	private volatile Thread mTransactionThread;
+
+	/**
+	 * True if the current transaction shall be applied when it ends
+	 */
+	private boolean mTransactionSuccessful;
+
 	/**
 	 * Create instance
 	 *
@@ -286,6 +305,14 @@ public class RcsSettings {
 			throw new IllegalStateException("RcsInstance not created");
 		}
 		String value = null;
+		Map<String, String> transaction = getTransaction();
+		if (transaction != null) {
+			// Value written by the current transaction
+			value = transaction.get(key);
+			if (value != null) {
+				return value;
+			}
+		}
 		if (tryReadFromCache) {
 			// First read value from cache
 			value = mCache.get(key);
@@ -333,12 +360,18 @@ public class RcsSettings {
 	 * @param value
 	 *            Value
 	 * @param updateCache
-	 * @return the number of rows updated
+	 * @return the number of rows updated (1 if the write is deferred to the
+	 *         end of the current transaction)
 	 */
 	public int writeParameter(String key, String value, boolean updateCache) {
 		if (instance == null || value == null) {
 			return 0;
 		}
+		Map<String, String> transaction = getTransaction();
+		if (transaction != null) {
+			transaction.put(key, value);
+			return 1;
+		}
 		ContentValues values = new ContentValues();
 		values.put(RcsSettingsData.KEY_VALUE, value);
 		String[] whereArgs = new String[] { key };
@@ -350,6 +383,131 @@ public class RcsSettings {
 		return count;
 	}
 
+	/**
+	 * Returns the settings written by the transaction of the calling thread
+	 *
+	 * @return Settings or null if the calling thread has not started a
+	 *         transaction
+	 */
+	private Map<String, String> getTransaction() {
+		if (mTransactionThread != Thread.currentThread()) {
+			return null;
+		}
+		return mTransaction;
+	}
+
+	/**
+	 * Begin a transaction
+	 * <p>
+	 * Until the transaction ends, the parameters written by the calling thread
+	 * are kept in memory and read back from there. When the transaction is
+	 * successful, only the parameters which differ from the stored settings are
+	 * written, in a single batch, so that observers of the settings are
+	 * notified once. Parameters written by other threads are not part of the
+	 * transaction.
+	 *
+	 * @see #setTransactionSuccessful()
+	 * @see #endTransaction()
+	 */
+	public synchronized void beginTransaction() {
+		if (mTransactionThread != null) {
+			throw new IllegalStateException("Transaction already in progress");
+		}
+		mTransaction = new HashMap<String, String>();
+		mTransactionSuccessful = false;
+		mTransactionThread = Thread.currentThread();
+	}
+
+	/**
+	 * Mark the current transaction as successful: its parameters are written
+	 * when it ends
+	 */
+	public void setTransactionSuccessful() {
+		if (getTransaction() == null) {
+			throw new IllegalStateException("No transaction started by this thread");
+		}
+		mTransactionSuccessful = true;
+	}
+
+	/**
+	 * End the current transaction
+	 * <p>
+	 * If the transaction has not been marked as successful, the parameters it
+	 * has written are discarded.
+	 *
+	 * @return the number of parameters updated
+	 */
+	public int endTransaction() {
+		Map<String, String> transaction = getTransaction();
+		if (transaction == null) {
+			throw new IllegalStateException("No transaction started by this thread");
+		}
+		boolean successful = mTransactionSuccessful;
+		synchronized (this) {
+			mTransaction = null;
+			mTransactionThread = null;
+		}
+		if (!successful || transaction.isEmpty()) {
+			return 0;
+		}
+		// Diff against the stored settings, read at once
+		Map<String, String> stored = readAllParameters();
+		mCache.putAll(stored);
+		Map<String, String> changes = new HashMap<String, String>();
+		ArrayList<ContentProviderOperation> ops = new ArrayList<ContentProviderOperation>();
+		for (Map.Entry<String, String> entry : transaction.entrySet()) {
+			String key = entry.getKey();
+			String value = entry.getValue();
+			if (!stored.containsKey(key) || value.equals(stored.get(key))) {
+				continue;
+			}
+			changes.put(key, value);
+			ops.add(ContentProviderOperation.newUpdate(RcsSettingsData.CONTENT_URI)
+					.withSelection(WHERE_CLAUSE, new String[] { key })
+					.withValue(RcsSettingsData.KEY_VALUE, value).build());
+		}
+		if (ops.isEmpty()) {
+			return 0;
+		}
+		try {
+			mContentResolver.applyBatch(RcsSettingsData.CONTENT_URI.getAuthority(), ops);
+		} catch (RemoteException e) {
+			throw new IllegalStateException("Failed to write settings", e);
+		} catch (OperationApplicationException e) {
+			throw new IllegalStateException("Failed to write settings", e);
+		}
+		mCache.putAll(changes);
+		return ops.size();
+	}
+
+	/**
+	 * Read all the stored parameters
+	 *
+	 * @return Values by key
+	 */
+	private Map<String, String> readAllParameters() {
+		Map<String, String> values = new HashMap<String, String>();
+		Cursor c = null;
+		try {
+			c = mContentResolver.query(RcsSettingsData.CONTENT_URI, new String[] {
+					RcsSettingsData.KEY_KEY, RcsSettingsData.KEY_VALUE
+			}, null, null, null);
+			if (c == null) {
+				return values;
+			}
+			int keyIdx = c.getColumnIndexOrThrow(RcsSettingsData.KEY_KEY);
+			int valueIdx = c.getColumnIndexOrThrow(RcsSettingsData.KEY_VALUE);
+			while (c.moveToNext()) {
+				values.put(c.getString(keyIdx), c.getString(valueIdx));
+			}
+			return values;
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
 	/**
 	 * Is RCS service activated
 	 *
@@ -983,6 +1141,26 @@ public class RcsSettings {
 		return readString(RcsSettingsData.FT_HTTP_PASSWORD, RcsSettingsData.DEFAULT_FT_HTTP_PASSWORD);
 	}
 
+	/**
+	 * Get number of segments downloaded in parallel for a large file transfer HTTP
+	 *
+	 * @return Number of segments
+	 */
+	public int getFtHttpDownloadSegments() {
+		return readInteger(RcsSettingsData.FT_HTTP_DOWNLOAD_SEGMENTS,
+				RcsSettingsData.DEFAULT_FT_HTTP_DOWNLOAD_SEGMENTS);
+	}
+
+	/**
+	 * Get min file size for a segmented file transfer HTTP download
+	 *
+	 * @return Size in kilobytes
+	 */
+	public int getFtHttpSegmentedDownloadMinSize() {
+		return readInteger(RcsSettingsData.FT_HTTP_SEGMENTED_DOWNLOAD_MIN_SIZE,
+				RcsSettingsData.DEFAULT_FT_HTTP_SEGMENTED_DOWNLOAD_MIN_SIZE);
+	}
+
 	/**
 	 * Set file transfer HTTP server password
 	 *
@@ -1210,6 +1388,26 @@ public class RcsSettings {
 				RcsSettingsData.DEFAULT_MAX_CONCURRENT_OUTGOING_FT_SESSIONS);
 	}
 
+	/**
+	 * Get max number of paused HTTP file transfer downloads resumed in parallel
+	 *
+	 * @return Number of downloads
+	 */
+	public int getMaxConcurrentFtHttpResumeDownloads() {
+		return readInteger(RcsSettingsData.MAX_CONCURRENT_FT_HTTP_RESUME_DOWNLOADS,
+				RcsSettingsData.DEFAULT_MAX_CONCURRENT_FT_HTTP_RESUME_DOWNLOADS);
+	}
+
+	/**
+	 * Get max number of paused HTTP file transfer uploads resumed in parallel
+	 *
+	 * @return Number of uploads
+	 */
+	public int getMaxConcurrentFtHttpResumeUploads() {
+		return readInteger(RcsSettingsData.MAX_CONCURRENT_FT_HTTP_RESUME_UPLOADS,
+				RcsSettingsData.DEFAULT_MAX_CONCURRENT_FT_HTTP_RESUME_UPLOADS);
+	}
+
 	/**
 	 * Get max number of simultaneous IP call sessions
 	 *
@@ -2342,6 +2540,33 @@ public class RcsSettings {
 		return readInteger(RcsSettingsData.MAX_MSRP_SIZE_EXTENSIONS, RcsSettingsData.DEFAULT_MAX_MSRP_SIZE_EXTENSIONS);
 	}
 
+	/**
+	 * Get max number of payloads queued by extensions using real time streaming (RTP)
+	 * 
+	 * @return Queue size
+	 */
+	public int getStreamingQueueSizeForExtensions() {
+		return readInteger(RcsSettingsData.STREAMING_QUEUE_SIZE_EXTENSIONS, RcsSettingsData.DEFAULT_STREAMING_QUEUE_SIZE_EXTENSIONS);
+	}
+
+	/**
+	 * Get overflow policy of the payload queue for extensions using real time streaming (RTP)
+	 * 
+	 * @return Policy (0: block, 1: drop oldest, 2: drop newest)
+	 */
+	public int getStreamingQueuePolicyForExtensions() {
+		return readInteger(RcsSettingsData.STREAMING_QUEUE_POLICY_EXTENSIONS, RcsSettingsData.DEFAULT_STREAMING_QUEUE_POLICY_EXTENSIONS);
+	}
+
+	/**
+	 * Is payload pacing enabled for extensions using real time streaming (RTP)
+	 * 
+	 * @return Boolean
+	 */
+	public boolean isStreamingPacingForExtensions() {
+		return readBoolean(RcsSettingsData.STREAMING_PACING_EXTENSIONS, RcsSettingsData.DEFAULT_STREAMING_PACING_EXTENSIONS);
+	}
+
 	/**
 	 * Set the client messaging mode
 	 * 
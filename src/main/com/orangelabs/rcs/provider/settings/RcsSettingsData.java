@@ -595,6 +595,18 @@ public class RcsSettingsData {
 	public static final String MAX_CONCURRENT_OUTGOING_FILE_TRANSFERS = "MaxConcurrentOutgoingFileTransferSessions";
 	/* package private */static final Integer DEFAULT_MAX_CONCURRENT_OUTGOING_FT_SESSIONS = 1;
 
+	/**
+	 * Max number of paused HTTP file transfer downloads resumed in parallel
+	 */
+	public static final String MAX_CONCURRENT_FT_HTTP_RESUME_DOWNLOADS = "MaxConcurrentFtHttpResumeDownloads";
+	/* package private */static final Integer DEFAULT_MAX_CONCURRENT_FT_HTTP_RESUME_DOWNLOADS = 3;
+
+	/**
+	 * Max number of paused HTTP file transfer uploads resumed in parallel
+	 */
+	public static final String MAX_CONCURRENT_FT_HTTP_RESUME_UPLOADS = "MaxConcurrentFtHttpResumeUploads";
+	/* package private */static final Integer DEFAULT_MAX_CONCURRENT_FT_HTTP_RESUME_UPLOADS = 2;
+
 	/**
 	 * Max number of simultaneous IP call sessions
 	 */
@@ -786,6 +798,18 @@ public class RcsSettingsData {
 	public static final String FT_HTTP_PASSWORD = "FtHttpServerPassword";
 	/* package private */static final String DEFAULT_FT_HTTP_PASSWORD = "";
 
+	/**
+	 * Number of segments downloaded in parallel for a large file transfer HTTP (1 disables the segmented download)
+	 */
+	public static final String FT_HTTP_DOWNLOAD_SEGMENTS = "FtHttpDownloadSegments";
+	/* package private */static final Integer DEFAULT_FT_HTTP_DOWNLOAD_SEGMENTS = 1;
+
+	/**
+	 * Min file size for a segmented file transfer HTTP download (in kilobytes)
+	 */
+	public static final String FT_HTTP_SEGMENTED_DOWNLOAD_MIN_SIZE = "FtHttpSegmentedDownloadMinSize";
+	/* package private */static final Integer DEFAULT_FT_HTTP_SEGMENTED_DOWNLOAD_MIN_SIZE = 10240;
+
 	/**
 	 * File transfer default protocol
 	 */
@@ -1322,6 +1346,25 @@ public class RcsSettingsData {
 	public static final String MAX_MSRP_SIZE_EXTENSIONS = "ExtensionsMaxMsrpSize";
 	/* package private */static final Integer DEFAULT_MAX_MSRP_SIZE_EXTENSIONS = 0;
 
+	/**
+	 * Max number of payloads queued by extensions using real time streaming (RTP)
+	 */
+	public static final String STREAMING_QUEUE_SIZE_EXTENSIONS = "ExtensionsStreamingQueueSize";
+	/* package private */static final Integer DEFAULT_STREAMING_QUEUE_SIZE_EXTENSIONS = 32;
+
+	/**
+	 * Overflow policy of the payload queue for extensions using real time streaming (RTP)
+	 * (0: block the application, 1: drop oldest payload, 2: drop newest payload)
+	 */
+	public static final String STREAMING_QUEUE_POLICY_EXTENSIONS = "ExtensionsStreamingQueuePolicy";
+	/* package private */static final Integer DEFAULT_STREAMING_QUEUE_POLICY_EXTENSIONS = 1;
+
+	/**
+	 * Pace payloads sent by extensions using real time streaming (RTP) according to their time stamp
+	 */
+	public static final String STREAMING_PACING_EXTENSIONS = "ExtensionsStreamingPacing";
+	/* package private */static final Boolean DEFAULT_STREAMING_PACING_EXTENSIONS = false;
+
 	/**
 	 * Validity of the RCS configuration.
 	 */
@@ -25,8 +25,11 @@ package com.orangelabs.rcs.provider.settings;
 import java.util.ArrayList;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -119,7 +122,7 @@ public class RcsSettingsProvider extends ContentProvider {
     }
 
     private static class DatabaseHelper extends SQLiteOpenHelper {
-        private static final int DATABASE_VERSION = 106;
+        private static final int DATABASE_VERSION = 109;
 
         private Context mContext;
 
@@ -190,6 +193,8 @@ public class RcsSettingsProvider extends ContentProvider {
 			addParameter(db, RcsSettingsData.MAX_CHAT_SESSIONS, RcsSettingsData.DEFAULT_MAX_CHAT_SESSIONS);
 			addParameter(db, RcsSettingsData.MAX_FILE_TRANSFER_SESSIONS, RcsSettingsData.DEFAULT_MAX_FT_SESSIONS);
 			addParameter(db, RcsSettingsData.MAX_CONCURRENT_OUTGOING_FILE_TRANSFERS, RcsSettingsData.DEFAULT_MAX_CONCURRENT_OUTGOING_FT_SESSIONS);
+			addParameter(db, RcsSettingsData.MAX_CONCURRENT_FT_HTTP_RESUME_DOWNLOADS, RcsSettingsData.DEFAULT_MAX_CONCURRENT_FT_HTTP_RESUME_DOWNLOADS);
+			addParameter(db, RcsSettingsData.MAX_CONCURRENT_FT_HTTP_RESUME_UPLOADS, RcsSettingsData.DEFAULT_MAX_CONCURRENT_FT_HTTP_RESUME_UPLOADS);
 			addParameter(db, RcsSettingsData.MAX_IP_CALL_SESSIONS, RcsSettingsData.DEFAULT_MAX_IP_CALL_SESSIONS);
 			addParameter(db, RcsSettingsData.SMS_FALLBACK_SERVICE, RcsSettingsData.DEFAULT_SMS_FALLBACK_SERVICE);
 			addParameter(db, RcsSettingsData.WARN_SF_SERVICE, RcsSettingsData.DEFAULT_WARN_SF_SERVICE);
@@ -213,6 +218,8 @@ public class RcsSettingsProvider extends ContentProvider {
 			addParameter(db, RcsSettingsData.FT_HTTP_SERVER, RcsSettingsData.DEFAULT_FT_HTTP_SERVER);
 			addParameter(db, RcsSettingsData.FT_HTTP_LOGIN, RcsSettingsData.DEFAULT_FT_HTTP_LOGIN);
 			addParameter(db, RcsSettingsData.FT_HTTP_PASSWORD, RcsSettingsData.DEFAULT_FT_HTTP_PASSWORD);
+			addParameter(db, RcsSettingsData.FT_HTTP_DOWNLOAD_SEGMENTS, RcsSettingsData.DEFAULT_FT_HTTP_DOWNLOAD_SEGMENTS);
+			addParameter(db, RcsSettingsData.FT_HTTP_SEGMENTED_DOWNLOAD_MIN_SIZE, RcsSettingsData.DEFAULT_FT_HTTP_SEGMENTED_DOWNLOAD_MIN_SIZE);
 			addParameter(db, RcsSettingsData.FT_PROTOCOL, RcsSettingsData.DEFAULT_FT_PROTOCOL);
 			addParameter(db, RcsSettingsData.IM_CONF_URI, RcsSettingsData.DEFAULT_IM_CONF_URI);
 			addParameter(db, RcsSettingsData.ENDUSER_CONFIRMATION_URI, RcsSettingsData.DEFAULT_ENDUSER_CONFIRMATION_URI);
@@ -305,6 +312,9 @@ public class RcsSettingsProvider extends ContentProvider {
 			addParameter(db, RcsSettingsData.CONTROL_EXTENSIONS, RcsSettingsData.DEFAULT_CONTROL_EXTENSIONS);
 			addParameter(db, RcsSettingsData.ALLOW_EXTENSIONS, RcsSettingsData.DEFAULT_ALLOW_EXTENSIONS);
 			addParameter(db, RcsSettingsData.MAX_MSRP_SIZE_EXTENSIONS, RcsSettingsData.DEFAULT_MAX_MSRP_SIZE_EXTENSIONS);
+			addParameter(db, RcsSettingsData.STREAMING_QUEUE_SIZE_EXTENSIONS, RcsSettingsData.DEFAULT_STREAMING_QUEUE_SIZE_EXTENSIONS);
+			addParameter(db, RcsSettingsData.STREAMING_QUEUE_POLICY_EXTENSIONS, RcsSettingsData.DEFAULT_STREAMING_QUEUE_POLICY_EXTENSIONS);
+			addParameter(db, RcsSettingsData.STREAMING_PACING_EXTENSIONS, RcsSettingsData.DEFAULT_STREAMING_PACING_EXTENSIONS);
 			addParameter(db, RcsSettingsData.CONFIGURATION_VALID, RcsSettingsData.DEFAULT_CONFIGURATION_VALID);
 			addParameter(db, RcsSettingsData.AUTO_ACCEPT_FT_IN_ROAMING, RcsSettingsData.DEFAULT_AUTO_ACCEPT_FT_IN_ROAMING);
 			addParameter(db, RcsSettingsData.AUTO_ACCEPT_FT_CHANGEABLE, RcsSettingsData.DEFAULT_AUTO_ACCEPT_FT_CHANGEABLE);
@@ -385,6 +395,18 @@ public class RcsSettingsProvider extends ContentProvider {
                 .append(restrictedSetOfColumns).append(")");
     }
 
+    /**
+     * Set while the calling thread applies a batch: the notifications are
+     * then sent once, when the batch is committed
+     */
+    private final ThreadLocal<Boolean> mApplyingBatch = new ThreadLocal<Boolean>();
+
+    private void notifyChange(Uri uri) {
+        if (mApplyingBatch.get() == null) {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
     @Override
     public boolean onCreate() {
         mOpenHelper = new DatabaseHelper(getContext());
@@ -470,7 +492,7 @@ public class RcsSettingsProvider extends ContentProvider {
                 SQLiteDatabase database = mOpenHelper.getWritableDatabase();
                 int count = database.update(TABLE, values, selection, selectionArgs);
                 if (count > 0) {
-                    getContext().getContentResolver().notifyChange(notificationUri, null);
+                    notifyChange(notificationUri);
                 }
                 return count;
 
@@ -485,7 +507,7 @@ public class RcsSettingsProvider extends ContentProvider {
                         RESTRICTED_SELECTION_UPDATE_FOR_EXTERNALLY_DEFINED_COLUMNS).toString();
                 count = database.update(TABLE, values, selection, selectionArgs);
                 if (count > 0) {
-                    getContext().getContentResolver().notifyChange(uri, null);
+                    notifyChange(uri);
                 }
                 return count;
 
@@ -495,6 +517,38 @@ public class RcsSettingsProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Apply the operations in a single database transaction. Observers of the
+     * settings are notified once if any setting has been updated.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase database = mOpenHelper.getWritableDatabase();
+        boolean updated = false;
+        ContentProviderResult[] results;
+        mApplyingBatch.set(Boolean.TRUE);
+        database.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            mApplyingBatch.remove();
+        }
+        for (ContentProviderResult result : results) {
+            if (result.count != null && result.count > 0) {
+                updated = true;
+                break;
+            }
+        }
+        if (updated) {
+            /* Observers of a given setting are notified through its parent Uri */
+            notifyChange(RcsServiceConfiguration.Settings.CONTENT_URI);
+        }
+        return results;
+    }
+
     @Override
     public Uri insert(Uri uri, ContentValues initialValues) {
         throw new UnsupportedOperationException(new StringBuilder("Cannot insert URI ").append(uri)
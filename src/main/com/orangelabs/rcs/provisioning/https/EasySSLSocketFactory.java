@@ -22,9 +22,11 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 
 import org.apache.http.conn.ConnectTimeoutException;
@@ -32,9 +34,14 @@ import org.apache.http.conn.scheme.LayeredSocketFactory;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 
+import com.orangelabs.rcs.platform.network.TlsContextManager;
+
 /**
  * This socket factory will create ssl socket that accepts self signed
  * certificate
+ * <p>
+ * The SSL context is shared by all the factories, so that the TLS sessions
+ * with a server are resumed by the next connections.
  * 
  * @author olamy
  * @version $Id: EasySSLSocketFactory.java 765355 2009-04-15 20:59:07Z evenisse
@@ -43,24 +50,33 @@ import org.apache.http.params.HttpParams;
  */
 public class EasySSLSocketFactory implements LayeredSocketFactory {
 
-        private SSLContext sslcontext = null;
+        private static final String CONTEXT_KEY = "https:self-signed";
+
+        private SSLSocketFactory socketFactory = null;
 
         private static SSLContext createEasySSLContext() throws IOException {
                 try {
-                        SSLContext context = SSLContext.getInstance("TLS");
-                        context.init(null, new TrustManager[] { new EasyX509TrustManager(
-                                        null) }, null);
-                        return context;
+                        return TlsContextManager.getContext(CONTEXT_KEY,
+                                        new TlsContextManager.ContextFactory() {
+                                                @Override
+                                                public SSLContext createContext()
+                                                                throws GeneralSecurityException {
+                                                        SSLContext context = SSLContext.getInstance("TLS");
+                                                        context.init(null, new TrustManager[] { new EasyX509TrustManager(
+                                                                        null) }, null);
+                                                        return context;
+                                                }
+                                        });
                 } catch (Exception e) {
                         throw new IOException(e.getMessage());
                 }
         }
 
-        private SSLContext getSSLContext() throws IOException {
-                if (this.sslcontext == null) {
-                        this.sslcontext = createEasySSLContext();
+        private synchronized SSLSocketFactory getSocketFactory() throws IOException {
+                if (this.socketFactory == null) {
+                        this.socketFactory = TlsContextManager.getSocketFactory(createEasySSLContext());
                 }
-                return this.sslcontext;
+                return this.socketFactory;
         }
 
         /**
@@ -75,7 +91,7 @@ public class EasySSLSocketFactory implements LayeredSocketFactory {
                 int soTimeout = HttpConnectionParams.getSoTimeout(params);
 
                 InetSocketAddress remoteAddress = new InetSocketAddress(host, port);
-                SSLSocket sslsock = (SSLSocket) ((sock != null) ? sock : createSocket());
+                Socket plainsock = (sock != null) ? sock : createSocket();
 
                 if ((localAddress != null) || (localPort > 0)) {
                         // we need to bind explicitly
@@ -84,20 +100,33 @@ public class EasySSLSocketFactory implements LayeredSocketFactory {
                         }
                         InetSocketAddress isa = new InetSocketAddress(localAddress,
                                         localPort);
-                        sslsock.bind(isa);
+                        plainsock.bind(isa);
                 }
 
-                sslsock.connect(remoteAddress, connTimeout);
-                sslsock.setSoTimeout(soTimeout);
+                plainsock.connect(remoteAddress, connTimeout);
+                plainsock.setSoTimeout(soTimeout);
+
+                // Layer TLS once connected so that the session is bound to the
+                // peer host and may be resumed by the next connections
+                SSLSocket sslsock = (SSLSocket) createSocket(plainsock, host, port, true);
+                try {
+                        sslsock.startHandshake();
+                } catch (IOException e) {
+                        sslsock.close();
+                        throw e;
+                }
                 return sslsock;
 
         }
 
         /**
+         * Returns an unconnected plain socket: TLS is layered by
+         * {@link #connectSocket(Socket, String, int, InetAddress, int, HttpParams)}
+         * 
          * @see org.apache.http.conn.scheme.SocketFactory#createSocket()
          */
         public Socket createSocket() throws IOException {
-                return getSSLContext().getSocketFactory().createSocket();
+                return new Socket();
         }
 
         /**
@@ -113,7 +142,7 @@ public class EasySSLSocketFactory implements LayeredSocketFactory {
          */
         public Socket createSocket(Socket socket, String host, int port, boolean autoClose)
         throws IOException, UnknownHostException {
-        	return getSSLContext().getSocketFactory().createSocket(socket, host, port, autoClose);
+        	return getSocketFactory().createSocket(socket, host, port, autoClose);
         }
 
         // -------------------------------------------------------------------
@@ -33,6 +33,8 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.apache.http.Header;
 import org.apache.http.HttpHost;
@@ -84,6 +86,7 @@ import com.orangelabs.rcs.provisioning.ProvisioningInfo.Version;
 import com.orangelabs.rcs.provisioning.ProvisioningParser;
 import com.orangelabs.rcs.provisioning.TermsAndConditionsRequest;
 import com.orangelabs.rcs.service.LauncherUtils;
+import com.orangelabs.rcs.utils.HexadecimalUtils;
 import com.orangelabs.rcs.utils.HttpUtils;
 import com.orangelabs.rcs.utils.IntentUtils;
 import com.orangelabs.rcs.utils.NetworkUtils;
@@ -690,6 +693,40 @@ public class HttpsProvisioningManager {
         return 0;
     }
 
+    /**
+     * Get the digest of a provisioning document
+     *
+     * @param content Provisioning document
+     * @return Digest or null if it can't be computed
+     */
+    private static String getDigest(String content) {
+        if (content == null) {
+            return null;
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return HexadecimalUtils.byteArrayToHexString(md.digest(content.getBytes(UTF8)));
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the provisioning info of the document already applied
+     *
+     * @return Provisioning info
+     */
+    private ProvisioningInfo getAppliedProvisioningInfo() {
+        ProvisioningInfo info = new ProvisioningInfo();
+        info.setVersion(RcsSettings.getInstance().getProvisioningVersion());
+        info.setToken(RcsSettings.getInstance().getProvisioningToken());
+        Long validity = LauncherUtils.getProvisioningValidity(mCtx);
+        if (validity != null) {
+            info.setValidity(validity);
+        }
+        return info;
+    }
+
     /**
      * Process provisioning result
      * 
@@ -712,23 +749,57 @@ public class HttpsProvisioningManager {
 					logger.debug("Provisioning request successful");
 				}
 
-				// Parse the received content
-				ProvisioningParser parser = new ProvisioningParser(result.content);
-				
-				// Save GSMA release set into the provider
-				GsmaRelease gsmaRelease = RcsSettings.getInstance().getGsmaRelease();
-				// Save client Messaging Mode set into the provider
-				MessagingMode messagingMode = RcsSettings.getInstance().getMessagingMode();
-				
-				// Before parsing the provisioning, the GSMA release is set to Albatros
-				RcsSettings.getInstance().setGsmaRelease(GsmaRelease.ALBATROS);
-				// Before parsing the provisioning, the client Messaging mode is set to NONE 
-				RcsSettings.getInstance().setMessagingMode(MessagingMode.NONE);
-				
-				if (parser.parse(gsmaRelease, first)) {
+				RcsSettings settings = RcsSettings.getInstance();
+				String digest = getDigest(result.content);
+				ProvisioningInfo info = null;
+
+				// The settings are written when the transaction ends, and only those which have changed
+				settings.beginTransaction();
+				try {
+					if (!first && digest != null && digest.equals(LauncherUtils.getProvisioningDigest(mCtx))) {
+						// Same document as the one already applied: no need to parse it
+						if (logger.isActivated()) {
+							logger.debug("Provisioning document unchanged");
+						}
+						info = getAppliedProvisioningInfo();
+					} else {
+						// Parse the received content
+						ProvisioningParser parser = new ProvisioningParser(result.content);
+
+						// Save GSMA release set into the provider
+						GsmaRelease gsmaRelease = settings.getGsmaRelease();
+
+						// Before parsing the provisioning, the GSMA release is set to Albatros
+						settings.setGsmaRelease(GsmaRelease.ALBATROS);
+						// Before parsing the provisioning, the client Messaging mode is set to NONE
+						settings.setMessagingMode(MessagingMode.NONE);
+
+						if (parser.parse(gsmaRelease, first)) {
+							info = parser.getProvisioningInfo();
+						}
+					}
+					if (info != null) {
+						String version = info.getVersion();
+						settings.setProvisioningVersion(version);
+						settings.setProvisioningToken(info.getToken());
+						if (!ProvisioningInfo.Version.RESETED_NOQUERY.equals(version)
+								&& !ProvisioningInfo.Version.RESETED.equals(version)) {
+							// We parsed successfully the configuration
+							settings.setConfigurationValid(true);
+						}
+						settings.setTransactionSuccessful();
+					}
+				} finally {
+					// The settings written while parsing an invalid document are discarded
+					int updated = settings.endTransaction();
+					if (logger.isActivated()) {
+						logger.debug("Provisioning updated " + updated + " settings");
+					}
+				}
+
+				if (info != null) {
 					// Successfully provisioned, 1st time reg finalized
 					first = false;
-					ProvisioningInfo info = parser.getProvisioningInfo();
 					
 					// Save version
 					String version = info.getVersion();
@@ -742,15 +813,15 @@ public class HttpsProvisioningManager {
 					
 					// Save the validity of the configuration
 					LauncherUtils.saveProvisioningValidity(mCtx, validity);
-					RcsSettings.getInstance().setProvisioningVersion(version);
 
-					// Save token
-					String token = info.getToken();
-					long tokenValidity = info.getTokenValidity();
+					// Token saved with the configuration
 					if (logger.isActivated()) {
-						logger.debug("Provisioning Token=" + token + ", validity=" + tokenValidity);
+						logger.debug("Provisioning Token=" + info.getToken() + ", validity="
+								+ info.getTokenValidity());
 					}
-					RcsSettings.getInstance().setProvisioningToken(token);
+
+					// Digest of the document, kept only if the document is fully applied
+					String appliedDigest = null;
 					
 					// Reset retry alarm counter
 			        retryCount = 0;
@@ -763,8 +834,6 @@ public class HttpsProvisioningManager {
 						if (validity > 0) {
 							ProvisionManager.startRetryAlarm(mCtx, retryIntent, validity * 1000);
 						}
-						// We parsed successfully the configuration
-						RcsSettings.getInstance().setConfigurationValid(true);
 						// Stop the RCS core service. Provisioning is still running.
 						LauncherUtils.stopRcsCoreService(mCtx);
 					} else {
@@ -773,8 +842,6 @@ public class HttpsProvisioningManager {
 							if (logger.isActivated()) {
 								logger.debug("Provisioning: disable RCS client");
 							}
-							// We parsed successfully the configuration
-							RcsSettings.getInstance().setConfigurationValid(true);
 							// Disable and stop RCS service
 							RcsSettings.getInstance().setServiceActivationState(false);
 							LauncherUtils.stopRcsService(mCtx);
@@ -805,9 +872,9 @@ public class HttpsProvisioningManager {
 									// Terms request
 									if (info.getMessage() != null && !RcsSettings.getInstance().isProvisioningTermsAccepted()) {
 										showTermsAndConditions(info);
+									} else {
+										appliedDigest = digest;
 									}
-									// We parsed successfully the configuration
-									RcsSettings.getInstance().setConfigurationValid(true);
 									// Start the RCS core service
 									LauncherUtils.launchRcsCoreService(mCtx);
 								}
@@ -815,6 +882,8 @@ public class HttpsProvisioningManager {
 						}
 					}
 
+					LauncherUtils.saveProvisioningDigest(mCtx, appliedDigest);
+
 					// Send service provisioning intent
 					Intent serviceProvisioned = new Intent(RcsService.ACTION_SERVICE_PROVISIONED);
 					IntentUtils.tryToSetReceiverForegroundFlag(serviceProvisioned);
@@ -823,12 +892,6 @@ public class HttpsProvisioningManager {
 					if (logger.isActivated()) {
 						logger.debug("Can't parse provisioning document");
 					}
-					// Restore GSMA release saved before parsing of the provisioning
-					RcsSettings.getInstance().setGsmaRelease(gsmaRelease);
-					
-					// Restore the client messaging mode saved before parsing of the provisioning
-					RcsSettings.getInstance().setMessagingMode(messagingMode);
-					
 					if (first) {
 						if (logger.isActivated()) {
 							logger.debug("As this is first launch and we do not have a valid configuration yet, retry later");
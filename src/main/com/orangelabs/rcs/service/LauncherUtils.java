@@ -29,6 +29,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.telephony.TelephonyManager;
+import android.text.TextUtils;
 
 import com.orangelabs.rcs.platform.AndroidFactory;
 import com.orangelabs.rcs.platform.registry.AndroidRegistryFactory;
@@ -66,6 +67,11 @@ public class LauncherUtils {
      */
     private static final String REGISTRY_PROVISIONING_EXPIRATION = "ProvisioningExpiration";
 
+    /**
+     * Key for storing the digest of the latest applied provisioning document
+     */
+    private static final String REGISTRY_PROVISIONING_DIGEST = "ProvisioningDigest";
+
 
     /**
      * Logger
@@ -213,6 +219,9 @@ public class LauncherUtils {
         
         // Set the configuration validity flag to false 
         RcsSettings.getInstance().setConfigurationValid(false);
+
+        // Forget the applied provisioning document
+        saveProvisioningDigest(ctx, null);
     }
 
     /**
@@ -335,6 +344,41 @@ public class LauncherUtils {
 		}
 	}
 
+	/**
+	 * Get the digest of the latest applied provisioning document
+	 * 
+	 * @param context
+	 *            Application context
+	 * @return the digest or null if none
+	 */
+	public static String getProvisioningDigest(Context context) {
+		SharedPreferences preferences = context.getSharedPreferences(AndroidRegistryFactory.RCS_PREFS_NAME, Activity.MODE_PRIVATE);
+		return preferences.getString(REGISTRY_PROVISIONING_DIGEST, null);
+	}
+
+	/**
+	 * Save the digest of the latest applied provisioning document in shared
+	 * preferences
+	 * 
+	 * @param context
+	 *            Application context
+	 * @param digest
+	 *            the digest or null to forget the document
+	 */
+	public static void saveProvisioningDigest(Context context, String digest) {
+		SharedPreferences preferences = context.getSharedPreferences(AndroidRegistryFactory.RCS_PREFS_NAME, Activity.MODE_PRIVATE);
+		if (TextUtils.equals(digest, preferences.getString(REGISTRY_PROVISIONING_DIGEST, null))) {
+			return;
+		}
+		SharedPreferences.Editor editor = preferences.edit();
+		if (digest == null) {
+			editor.remove(REGISTRY_PROVISIONING_DIGEST);
+		} else {
+			editor.putString(REGISTRY_PROVISIONING_DIGEST, digest);
+		}
+		editor.commit();
+	}
+
 	public static boolean isAccountChanged() {		
 	    String lastUserAccount = getLastUserAccount(AndroidFactory.getApplicationContext());
 	    String currentUserAccount = getCurrentUserAccount(AndroidFactory.getApplicationContext());
@@ -21,6 +21,8 @@
  ******************************************************************************/
 package com.orangelabs.rcs.service.api;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,15 +30,18 @@ import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
+import android.database.Cursor;
 import android.os.RemoteException;
 
 import com.gsma.services.rcs.IRcsServiceRegistrationListener;
 import com.gsma.services.rcs.RcsServiceException;
 import com.gsma.services.rcs.RcsCommon.Direction;
+import com.gsma.services.rcs.RcsCommon.ReadStatus;
 import com.gsma.services.rcs.RcsService;
 import com.gsma.services.rcs.chat.ChatLog.Message;
 import com.gsma.services.rcs.chat.ChatLog.Message.MimeType;
 import com.gsma.services.rcs.chat.ChatLog.Message.ReasonCode;
+import com.gsma.services.rcs.chat.ChatMessageSnapshot;
 import com.gsma.services.rcs.chat.ChatServiceConfiguration;
 import com.gsma.services.rcs.chat.GroupChat;
 import com.gsma.services.rcs.chat.IChatMessage;
@@ -66,6 +71,7 @@ import com.orangelabs.rcs.provider.settings.RcsSettings;
 import com.orangelabs.rcs.service.broadcaster.GroupChatEventBroadcaster;
 import com.orangelabs.rcs.service.broadcaster.OneToOneChatEventBroadcaster;
 import com.orangelabs.rcs.service.broadcaster.RcsServiceRegistrationEventBroadcaster;
+import com.orangelabs.rcs.utils.ContactUtils;
 import com.orangelabs.rcs.utils.logger.Logger;
 
 /**
@@ -611,6 +617,27 @@ public class ChatServiceImpl extends IChatService.Stub {
 		}
 	}
 
+	/**
+	 * Mark a list of received messages as read
+	 *
+	 * @param msgIds List of message ids
+	 * @throws ServerApiException
+	 */
+	@Override
+	public void markMessagesAsRead(List<String> msgIds) throws ServerApiException {
+		if (msgIds == null || msgIds.isEmpty()) {
+			return;
+		}
+		mMessagingLog.markMessagesAsRead(msgIds);
+		if (mRcsSettings.isImReportsActivated() && mRcsSettings.isRespondToDisplayReports()) {
+			if (logger.isActivated()) {
+				logger.debug("tryToDispatchAllPendingDisplayNotifications for " + msgIds.size()
+						+ " messages");
+			}
+			tryToDispatchAllPendingDisplayNotifications();
+		}
+	}
+
 	/**
 	 * Returns service version
 	 *
@@ -677,6 +704,66 @@ public class ChatServiceImpl extends IChatService.Stub {
 		return new ChatMessageImpl(persistentStorage);
 	}
 
+	/**
+	 * Returns a snapshot of a chat message
+	 *
+	 * @param msgId Message ID
+	 * @return ChatMessageSnapshot or null if not found
+	 */
+	public ChatMessageSnapshot getChatMessageSnapshot(String msgId) {
+		List<ChatMessageSnapshot> snapshots = getChatMessageSnapshots(Collections
+				.singletonList(msgId));
+		return snapshots.isEmpty() ? null : snapshots.get(0);
+	}
+
+	/**
+	 * Returns the snapshots of a list of chat messages
+	 *
+	 * @param msgIds List of message IDs
+	 * @return List of snapshots in the order of the IDs
+	 */
+	public List<ChatMessageSnapshot> getChatMessageSnapshots(List<String> msgIds) {
+		if (msgIds == null || msgIds.isEmpty()) {
+			return new ArrayList<ChatMessageSnapshot>();
+		}
+		Map<String, ChatMessageSnapshot> snapshots = new HashMap<String, ChatMessageSnapshot>();
+		Cursor cursor = mMessagingLog.getChatMessagesData(msgIds);
+		try {
+			while (cursor.moveToNext()) {
+				ChatMessageSnapshot snapshot = createChatMessageSnapshot(cursor);
+				snapshots.put(snapshot.getId(), snapshot);
+			}
+		} finally {
+			cursor.close();
+		}
+		List<ChatMessageSnapshot> result = new ArrayList<ChatMessageSnapshot>(snapshots.size());
+		for (String msgId : msgIds) {
+			ChatMessageSnapshot snapshot = snapshots.get(msgId);
+			if (snapshot != null) {
+				result.add(snapshot);
+			}
+		}
+		return result;
+	}
+
+	private static ChatMessageSnapshot createChatMessageSnapshot(Cursor cursor) {
+		String contact = cursor.getString(cursor.getColumnIndexOrThrow(Message.CONTACT));
+		return new ChatMessageSnapshot(cursor.getString(cursor
+				.getColumnIndexOrThrow(Message.MESSAGE_ID)),
+				contact != null ? ContactUtils.createContactId(contact) : null,
+				cursor.getString(cursor.getColumnIndexOrThrow(Message.CONTENT)),
+				cursor.getString(cursor.getColumnIndexOrThrow(Message.MIME_TYPE)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(Message.DIRECTION)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(Message.TIMESTAMP)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(Message.TIMESTAMP_SENT)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(Message.TIMESTAMP_DELIVERED)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(Message.TIMESTAMP_DISPLAYED)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(Message.STATUS)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(Message.REASON_CODE)),
+				cursor.getString(cursor.getColumnIndexOrThrow(Message.CHAT_ID)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(Message.READ_STATUS)) == ReadStatus.READ);
+	}
+
 	/**
 	 * Handle rejoin group chat as part of send operation
 	 *
@@ -22,11 +22,13 @@
 package com.orangelabs.rcs.service.api;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.IBinder;
 import android.os.RemoteException;
@@ -34,13 +36,16 @@ import android.os.RemoteException;
 import com.gsma.services.rcs.GroupDeliveryInfoLog;
 import com.gsma.services.rcs.IRcsServiceRegistrationListener;
 import com.gsma.services.rcs.RcsCommon.Direction;
+import com.gsma.services.rcs.RcsCommon.ReadStatus;
 import com.gsma.services.rcs.RcsService;
 import com.gsma.services.rcs.chat.ParticipantInfo;
 import com.gsma.services.rcs.contacts.ContactId;
 import com.gsma.services.rcs.ft.FileTransfer;
 import com.gsma.services.rcs.ft.FileTransfer.ReasonCode;
 import com.gsma.services.rcs.ft.FileTransfer.State;
+import com.gsma.services.rcs.ft.FileTransferLog;
 import com.gsma.services.rcs.ft.FileTransferServiceConfiguration;
+import com.gsma.services.rcs.ft.FileTransferSnapshot;
 import com.gsma.services.rcs.ft.IFileTransfer;
 import com.gsma.services.rcs.ft.IFileTransferService;
 import com.gsma.services.rcs.ft.IGroupFileTransferListener;
@@ -65,6 +70,7 @@ import com.orangelabs.rcs.provider.settings.RcsSettingsData.ImageResizeOption;
 import com.orangelabs.rcs.service.broadcaster.GroupFileTransferBroadcaster;
 import com.orangelabs.rcs.service.broadcaster.OneToOneFileTransferBroadcaster;
 import com.orangelabs.rcs.service.broadcaster.RcsServiceRegistrationEventBroadcaster;
+import com.orangelabs.rcs.utils.ContactUtils;
 import com.orangelabs.rcs.utils.IdGenerator;
 import com.orangelabs.rcs.utils.MimeManager;
 import com.orangelabs.rcs.utils.logger.Logger;
@@ -912,6 +918,88 @@ public class FileTransferServiceImpl extends IFileTransferService.Stub {
 		mMessagingLog.markFileTransferAsRead(transferId);
 	}
 
+	/**
+	 * Mark a list of received file transfers as read
+	 * 
+	 * @param transferIds List of file transfer IDs
+	 * @throws RemoteException
+	 */
+	@Override
+	public void markFileTransfersAsRead(List<String> transferIds) throws RemoteException {
+		if (transferIds == null || transferIds.isEmpty()) {
+			return;
+		}
+		mMessagingLog.markFileTransfersAsRead(transferIds);
+	}
+
+	/**
+	 * Returns a snapshot of a file transfer
+	 * 
+	 * @param transferId File transfer ID
+	 * @return FileTransferSnapshot or null if not found
+	 * @throws RemoteException
+	 */
+	@Override
+	public FileTransferSnapshot getFileTransferSnapshot(String transferId) throws RemoteException {
+		List<FileTransferSnapshot> snapshots = getFileTransferSnapshots(Collections
+				.singletonList(transferId));
+		return snapshots.isEmpty() ? null : snapshots.get(0);
+	}
+
+	/**
+	 * Returns the snapshots of a list of file transfers
+	 * 
+	 * @param transferIds List of file transfer IDs
+	 * @return List of snapshots in the order of the IDs
+	 * @throws RemoteException
+	 */
+	@Override
+	public List<FileTransferSnapshot> getFileTransferSnapshots(List<String> transferIds)
+			throws RemoteException {
+		if (transferIds == null || transferIds.isEmpty()) {
+			return new ArrayList<FileTransferSnapshot>();
+		}
+		Map<String, FileTransferSnapshot> snapshots = new HashMap<String, FileTransferSnapshot>();
+		Cursor cursor = mMessagingLog.getFileTransfersData(transferIds);
+		try {
+			while (cursor.moveToNext()) {
+				FileTransferSnapshot snapshot = createFileTransferSnapshot(cursor);
+				snapshots.put(snapshot.getTransferId(), snapshot);
+			}
+		} finally {
+			cursor.close();
+		}
+		List<FileTransferSnapshot> result = new ArrayList<FileTransferSnapshot>(snapshots.size());
+		for (String transferId : transferIds) {
+			FileTransferSnapshot snapshot = snapshots.get(transferId);
+			if (snapshot != null) {
+				result.add(snapshot);
+			}
+		}
+		return result;
+	}
+
+	private static FileTransferSnapshot createFileTransferSnapshot(Cursor cursor) {
+		String contact = cursor.getString(cursor.getColumnIndexOrThrow(FileTransferLog.CONTACT));
+		String file = cursor.getString(cursor.getColumnIndexOrThrow(FileTransferLog.FILE));
+		String fileIcon = cursor.getString(cursor.getColumnIndexOrThrow(FileTransferLog.FILEICON));
+		return new FileTransferSnapshot(cursor.getString(cursor
+				.getColumnIndexOrThrow(FileTransferLog.FT_ID)), cursor.getString(cursor
+				.getColumnIndexOrThrow(FileTransferLog.CHAT_ID)),
+				contact != null ? ContactUtils.createContactId(contact) : null,
+				cursor.getString(cursor.getColumnIndexOrThrow(FileTransferLog.FILENAME)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(FileTransferLog.FILESIZE)),
+				cursor.getString(cursor.getColumnIndexOrThrow(FileTransferLog.MIME_TYPE)),
+				fileIcon != null ? Uri.parse(fileIcon) : null,
+				file != null ? Uri.parse(file) : null,
+				cursor.getInt(cursor.getColumnIndexOrThrow(FileTransferLog.STATE)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(FileTransferLog.REASON_CODE)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(FileTransferLog.DIRECTION)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(FileTransferLog.TIMESTAMP)),
+				cursor.getLong(cursor.getColumnIndexOrThrow(FileTransferLog.TRANSFERRED)),
+				cursor.getInt(cursor.getColumnIndexOrThrow(FileTransferLog.READ_STATUS)) == ReadStatus.READ);
+	}
+
 	/**
 	 * Set Auto accept mode
 	 * @param enable true is AA is enabled in normal conditions
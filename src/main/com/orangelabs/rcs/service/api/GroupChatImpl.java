@@ -895,6 +895,14 @@ public class GroupChatImpl extends IGroupChat.Stub implements ChatSessionListene
 		}
 	}
 
+	@Override
+	public void handleReceiveMessages(List<ChatMessage> msgs, Set<String> imdnDisplayedRequestedIds) {
+		/* Messages are not replayed in batch in group chat */
+		for (ChatMessage msg : msgs) {
+			handleReceiveMessage(msg, imdnDisplayedRequestedIds.contains(msg.getMessageId()));
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -393,6 +393,12 @@ public class GroupFileTransferImpl extends IFileTransfer.Stub implements FileSha
 		FileSharingSession session = mImService
 				.getFileSharingSession(mFileTransferId);
 		if (session == null) {
+			if (mImService.prioritizeFileTransferResume(mFileTransferId)) {
+				if (logger.isActivated()) {
+					logger.info("Transfer was waiting in the resume queue: resumed at once");
+				}
+				return;
+			}
 			/*
 			 * TODO: Throw correct exception as part of CR037 implementation
 			 */
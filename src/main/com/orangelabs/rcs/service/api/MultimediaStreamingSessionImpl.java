@@ -316,6 +316,63 @@ public class MultimediaStreamingSessionImpl extends IMultimediaStreamingSession.
 		}
 
 	}
+
+	/**
+	 * Returns the number of payloads waiting to be sent
+	 *
+	 * @return Number of payloads
+	 */
+	public int getSendQueueSize() {
+		GenericSipRtpSession session = mSipService.getGenericSipRtpSession(mSessionId);
+		if (session == null) {
+			/*
+			 * TODO: Throw correct exception as part of CR037 as persisted storage not
+			 * available for this service!
+			 */
+			throw new IllegalStateException(
+					"Unable to retrieve queue size since session with session ID '" + mSessionId
+							+ "' not available.");
+		}
+		return session.getSendQueueSize();
+	}
+
+	/**
+	 * Returns the number of payloads dropped because the send queue was full
+	 *
+	 * @return Number of payloads
+	 */
+	public long getDroppedPayloads() {
+		GenericSipRtpSession session = mSipService.getGenericSipRtpSession(mSessionId);
+		if (session == null) {
+			/*
+			 * TODO: Throw correct exception as part of CR037 as persisted storage not
+			 * available for this service!
+			 */
+			throw new IllegalStateException(
+					"Unable to retrieve dropped payloads since session with session ID '"
+							+ mSessionId + "' not available.");
+		}
+		return session.getDroppedPayloads();
+	}
+
+	/**
+	 * Returns the smoothed time spent by payloads in the send queue
+	 *
+	 * @return Latency in milliseconds
+	 */
+	public long getSendLatency() {
+		GenericSipRtpSession session = mSipService.getGenericSipRtpSession(mSessionId);
+		if (session == null) {
+			/*
+			 * TODO: Throw correct exception as part of CR037 as persisted storage not
+			 * available for this service!
+			 */
+			throw new IllegalStateException(
+					"Unable to retrieve latency since session with session ID '" + mSessionId
+							+ "' not available.");
+		}
+		return session.getSendLatency();
+	}
 	
     /*------------------------------- SESSION EVENTS ----------------------------------*/
 
@@ -22,8 +22,10 @@
 
 package com.orangelabs.rcs.service.api;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -453,6 +455,45 @@ public class OneToOneChatImpl extends IOneToOneChat.Stub implements ChatSessionL
 		}
 	}
 
+	@Override
+	public void handleReceiveMessages(List<ChatMessage> msgs, Set<String> imdnDisplayedRequestedIds) {
+		if (msgs.isEmpty()) {
+			return;
+		}
+		if (logger.isActivated()) {
+			logger.info(new StringBuilder("New IMs received from ").append(mContact)
+					.append(": ").append(msgs.size()).append(" messages.").toString());
+		}
+		Map<String, List<String>> msgIdsByMimeType = groupMessageIdsByMimeType(msgs);
+		synchronized (lock) {
+			mMessagingLog.addIncomingOneToOneChatMessages(msgs, imdnDisplayedRequestedIds);
+			for (Map.Entry<String, List<String>> msgIds : msgIdsByMimeType.entrySet()) {
+				mBroadcaster.broadcastMessagesReceived(msgIds.getKey(), msgIds.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Group the IDs of messages by API MIME type, so that each type is
+	 * notified with its own intent
+	 *
+	 * @param msgs Messages in the order they were received
+	 * @return Message IDs by MIME type, in the order of the first message of each type
+	 */
+	static Map<String, List<String>> groupMessageIdsByMimeType(List<ChatMessage> msgs) {
+		Map<String, List<String>> msgIdsByMimeType = new LinkedHashMap<String, List<String>>();
+		for (ChatMessage msg : msgs) {
+			String apiMimeType = ChatUtils.networkMimeTypeToApiMimeType(msg.getMimeType());
+			List<String> msgIds = msgIdsByMimeType.get(apiMimeType);
+			if (msgIds == null) {
+				msgIds = new ArrayList<String>();
+				msgIdsByMimeType.put(apiMimeType, msgIds);
+			}
+			msgIds.add(msg.getMessageId());
+		}
+		return msgIdsByMimeType;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -1009,6 +1050,14 @@ public class OneToOneChatImpl extends IOneToOneChat.Stub implements ChatSessionL
             }
         }
 
+        @Override
+        public void handleReceiveMessages(List<ChatMessage> msgs,
+                Set<String> imdnDisplayedRequestedIds) {
+            for (ChatMessage msg : msgs) {
+                handleReceiveMessage(msg, imdnDisplayedRequestedIds.contains(msg.getMessageId()));
+            }
+        }
+
         @Override
         public void handleImError(ChatError error) {
             if (iLogger.isActivated()) {
@@ -0,0 +1,42 @@
+package com.orangelabs.rcs.service.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.gsma.services.rcs.chat.ChatLog.Message.MimeType;
+import com.orangelabs.rcs.core.im.chat.ChatMessage;
+import com.orangelabs.rcs.core.im.chat.geoloc.GeolocInfoDocument;
+
+public class OneToOneChatImplTest extends TestCase {
+
+	public void testMessageIdsAreGroupedByMimeType() {
+		List<ChatMessage> msgs = new ArrayList<ChatMessage>();
+		msgs.add(message("1", MimeType.TEXT_MESSAGE));
+		msgs.add(message("2", GeolocInfoDocument.MIME_TYPE));
+		msgs.add(message("3", MimeType.TEXT_MESSAGE));
+		msgs.add(message("4", GeolocInfoDocument.MIME_TYPE));
+		msgs.add(message("5", MimeType.TEXT_MESSAGE));
+		Map<String, List<String>> msgIds = OneToOneChatImpl.groupMessageIdsByMimeType(msgs);
+		// One intent per API MIME-type, in the order of the first message of each type
+		assertEquals(Arrays.asList(MimeType.TEXT_MESSAGE, MimeType.GEOLOC_MESSAGE),
+				new ArrayList<String>(msgIds.keySet()));
+		assertEquals(Arrays.asList("1", "3", "5"), msgIds.get(MimeType.TEXT_MESSAGE));
+		assertEquals(Arrays.asList("2", "4"), msgIds.get(MimeType.GEOLOC_MESSAGE));
+	}
+
+	public void testSingleMimeType() {
+		List<ChatMessage> msgs = Arrays.asList(message("1", MimeType.TEXT_MESSAGE),
+				message("2", MimeType.TEXT_MESSAGE));
+		Map<String, List<String>> msgIds = OneToOneChatImpl.groupMessageIdsByMimeType(msgs);
+		assertEquals(1, msgIds.size());
+		assertEquals(Arrays.asList("1", "2"), msgIds.get(MimeType.TEXT_MESSAGE));
+	}
+
+	private static ChatMessage message(String msgId, String mimeType) {
+		return new ChatMessage(msgId, null, "content", mimeType, null, null);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014 Sony Mobile Communications Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.orangelabs.rcs.service.broadcaster;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * EventCoalescer queues the events of a broadcaster and delivers them in
+ * batches on a short deadline. A queued event is superseded by a newer event
+ * posted with the same key, e.g. only the latest progress of a transfer is
+ * delivered.
+ * <p>
+ * Posting an event only takes the lock of the queue, which is released before
+ * the batch is delivered: a slow listener never blocks the posting threads.
+ * Batches are delivered while holding the lock of the coalescer itself. A
+ * broadcaster which also delivers events that are not coalesced shall flush
+ * the coalescer while holding its lock before delivering them, so that
+ * listeners receive the events in the order they were posted.
+ *
+ * @param <K> Key of the events
+ * @param <E> Event
+ */
+public class EventCoalescer<K, E> {
+
+	/**
+	 * Delivers a batch of events
+	 *
+	 * @param <E> Event
+	 */
+	public interface Dispatcher<E> {
+		/**
+		 * Delivers events to the listeners
+		 *
+		 * @param events Events in the order they were posted
+		 */
+		void dispatch(List<E> events);
+	}
+
+	/**
+	 * Thread delivering the batches of the coalescers without their own thread
+	 */
+	private static Handler sHandler;
+
+	/**
+	 * Queued events, also the lock of the queue
+	 */
+	private final LinkedHashMap<K, E> mPendingEvents = new LinkedHashMap<K, E>();
+
+	private final Dispatcher<E> mDispatcher;
+
+	private final long mDelay;
+
+	/**
+	 * Handler delivering the batches, null for the shared thread
+	 */
+	private final Handler mHandler;
+
+	private final Runnable mFlushTask = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * Constructor
+	 *
+	 * @param dispatcher Dispatcher of the batches
+	 * @param delay Max delay in milliseconds before an event is delivered
+	 */
+	public EventCoalescer(Dispatcher<E> dispatcher, long delay) {
+		this(dispatcher, delay, null);
+	}
+
+	/**
+	 * Constructor of a coalescer delivering its batches on a given thread, for a dispatcher
+	 * too slow to share the thread of the broadcasters
+	 *
+	 * @param dispatcher Dispatcher of the batches
+	 * @param delay Max delay in milliseconds before an event is delivered
+	 * @param handler Handler of the thread delivering the batches
+	 */
+	public EventCoalescer(Dispatcher<E> dispatcher, long delay, Handler handler) {
+		mDispatcher = dispatcher;
+		mDelay = delay;
+		mHandler = handler;
+	}
+
+	private Handler getHandler() {
+		return mHandler != null ? mHandler : getSharedHandler();
+	}
+
+	private static synchronized Handler getSharedHandler() {
+		if (sHandler == null) {
+			HandlerThread thread = new HandlerThread(EventCoalescer.class.getSimpleName());
+			thread.start();
+			sHandler = new Handler(thread.getLooper());
+		}
+		return sHandler;
+	}
+
+	/**
+	 * Post an event, superseding the queued event of the same key if any
+	 *
+	 * @param key Key of the event
+	 * @param event Event
+	 */
+	public void post(K key, E event) {
+		synchronized (mPendingEvents) {
+			boolean scheduled = !mPendingEvents.isEmpty();
+			/* Re-insert so that the superseding event takes the place of the latest one */
+			mPendingEvents.remove(key);
+			mPendingEvents.put(key, event);
+			if (!scheduled) {
+				getHandler().postDelayed(mFlushTask, mDelay);
+			}
+		}
+	}
+
+	/**
+	 * Deliver the queued events now, on the calling thread
+	 */
+	public synchronized void flush() {
+		List<E> events;
+		synchronized (mPendingEvents) {
+			if (mPendingEvents.isEmpty()) {
+				return;
+			}
+			getHandler().removeCallbacks(mFlushTask);
+			events = new ArrayList<E>(mPendingEvents.values());
+			mPendingEvents.clear();
+		}
+		/* The queue is released: events posted meanwhile go to the next batch */
+		mDispatcher.dispatch(events);
+	}
+}
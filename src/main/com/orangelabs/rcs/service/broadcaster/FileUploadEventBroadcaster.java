@@ -21,6 +21,8 @@
  ******************************************************************************/
 package com.orangelabs.rcs.service.broadcaster;
 
+import java.util.List;
+
 import com.gsma.services.rcs.upload.IFileUploadListener;
 import com.orangelabs.rcs.utils.logger.Logger;
 
@@ -33,10 +35,44 @@ import android.os.RemoteCallbackList;
  */
 public class FileUploadEventBroadcaster implements IFileUploadEventBroadcaster {
 
+	/**
+	 * Max delay in milliseconds before a progress update is delivered
+	 */
+	private static final long PROGRESS_DELAY = 200;
+
 	private final RemoteCallbackList<IFileUploadListener> mFileUploadListeners = new RemoteCallbackList<IFileUploadListener>();
 
 	private final Logger logger = Logger.getLogger(getClass().getName());
 
+	/**
+	 * Progress updates of a same upload are coalesced, only the latest one
+	 * is delivered
+	 */
+	private final EventCoalescer<String, ProgressEvent> mProgressCoalescer = new EventCoalescer<String, ProgressEvent>(
+			new EventCoalescer.Dispatcher<ProgressEvent>() {
+				@Override
+				public void dispatch(List<ProgressEvent> events) {
+					deliverProgressUpdates(events);
+				}
+			}, PROGRESS_DELAY);
+
+	/**
+	 * Progress update of a file upload
+	 */
+	private static class ProgressEvent {
+		final String uploadId;
+
+		final long currentSize;
+
+		final long totalSize;
+
+		ProgressEvent(String uploadId, long currentSize, long totalSize) {
+			this.uploadId = uploadId;
+			this.currentSize = currentSize;
+			this.totalSize = totalSize;
+		}
+	}
+
 	public FileUploadEventBroadcaster() {
 	}
 
@@ -49,27 +85,45 @@ public class FileUploadEventBroadcaster implements IFileUploadEventBroadcaster {
 	}
 
 	public void broadcastStateChanged(String uploadId, int state) {
-		final int N = mFileUploadListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mFileUploadListeners.getBroadcastItem(i).onStateChanged(uploadId, state);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+		synchronized (mProgressCoalescer) {
+			/* Listeners shall receive the pending progress before the new state */
+			mProgressCoalescer.flush();
+			final int N = mFileUploadListeners.beginBroadcast();
+			for (int i = 0; i < N; i++) {
+				try {
+					mFileUploadListeners.getBroadcastItem(i).onStateChanged(uploadId, state);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener", e);
+					}
 				}
 			}
+			mFileUploadListeners.finishBroadcast();
 		}
-		mFileUploadListeners.finishBroadcast();
 	}
 
 	public void broadcastProgressUpdate(String uploadId, long currentSize, long totalSize) {
+		mProgressCoalescer.post(uploadId, new ProgressEvent(uploadId, currentSize, totalSize));
+	}
+
+	/**
+	 * Deliver a batch of progress updates in a single pass over the listeners
+	 *
+	 * @param events Progress updates
+	 */
+	private void deliverProgressUpdates(List<ProgressEvent> events) {
 		final int N = mFileUploadListeners.beginBroadcast();
 		for (int i = 0; i < N; i++) {
-			try {
-				mFileUploadListeners.getBroadcastItem(i).onProgressUpdate(uploadId, currentSize, totalSize);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+			IFileUploadListener listener = mFileUploadListeners.getBroadcastItem(i);
+			for (ProgressEvent event : events) {
+				try {
+					listener.onProgressUpdate(event.uploadId, event.currentSize, event.totalSize);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener", e);
+					}
+					/* The listener is probably dead, skip its remaining events */
+					break;
 				}
 			}
 		}
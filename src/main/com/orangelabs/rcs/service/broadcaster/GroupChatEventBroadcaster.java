@@ -15,6 +15,8 @@
  */
 package com.orangelabs.rcs.service.broadcaster;
 
+import java.util.List;
+
 import com.gsma.services.rcs.chat.GroupChatIntent;
 import com.gsma.services.rcs.chat.IGroupChatListener;
 import com.gsma.services.rcs.chat.ParticipantInfo;
@@ -34,10 +36,54 @@ import android.os.RemoteCallbackList;
  */
 public class GroupChatEventBroadcaster implements IGroupChatEventBroadcaster {
 
+	/**
+	 * Max delay in milliseconds before a delivery info change is delivered
+	 */
+	private static final long DELIVERY_INFO_DELAY = 200;
+
 	private final RemoteCallbackList<IGroupChatListener> mGroupChatListeners = new RemoteCallbackList<IGroupChatListener>();
 
 	private final Logger logger = Logger.getLogger(getClass().getName());
 
+	/**
+	 * Delivery info changes of a same message and recipient are coalesced,
+	 * only the latest one is delivered
+	 */
+	private final EventCoalescer<String, DeliveryInfoEvent> mDeliveryInfoCoalescer = new EventCoalescer<String, DeliveryInfoEvent>(
+			new EventCoalescer.Dispatcher<DeliveryInfoEvent>() {
+				@Override
+				public void dispatch(List<DeliveryInfoEvent> events) {
+					deliverDeliveryInfoChanges(events);
+				}
+			}, DELIVERY_INFO_DELAY);
+
+	/**
+	 * Delivery info change of a message for a recipient
+	 */
+	private static class DeliveryInfoEvent {
+		final String chatId;
+
+		final ContactId contact;
+
+		final String apiMimeType;
+
+		final String msgId;
+
+		final int status;
+
+		final int reasonCode;
+
+		DeliveryInfoEvent(String chatId, ContactId contact, String apiMimeType, String msgId,
+				int status, int reasonCode) {
+			this.chatId = chatId;
+			this.contact = contact;
+			this.apiMimeType = apiMimeType;
+			this.msgId = msgId;
+			this.status = status;
+			this.reasonCode = reasonCode;
+		}
+	}
+
 	public GroupChatEventBroadcaster() {
 	}
 
@@ -51,30 +97,50 @@ public class GroupChatEventBroadcaster implements IGroupChatEventBroadcaster {
 
 	public void broadcastMessageStatusChanged(String chatId, String mimeType,
 			String msgId, int status, int reasonCode) {
-		final int N = mGroupChatListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mGroupChatListeners.getBroadcastItem(i).onMessageStatusChanged(chatId,
-						mimeType, msgId, status, reasonCode);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener.", e);
+		synchronized (mDeliveryInfoCoalescer) {
+			/* Listeners shall receive the pending delivery info before the new status */
+			mDeliveryInfoCoalescer.flush();
+			final int N = mGroupChatListeners.beginBroadcast();
+			for (int i = 0; i < N; i++) {
+				try {
+					mGroupChatListeners.getBroadcastItem(i).onMessageStatusChanged(chatId,
+							mimeType, msgId, status, reasonCode);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener.", e);
+					}
 				}
 			}
+			mGroupChatListeners.finishBroadcast();
 		}
-		mGroupChatListeners.finishBroadcast();
 	}
 
 	public void broadcastMessageGroupDeliveryInfoChanged(String chatId, ContactId contact,
 			String apiMimeType, String msgId, int status, int reasonCode) {
+		mDeliveryInfoCoalescer.post(msgId + contact, new DeliveryInfoEvent(chatId, contact,
+				apiMimeType, msgId, status, reasonCode));
+	}
+
+	/**
+	 * Deliver a batch of delivery info changes in a single pass over the
+	 * listeners
+	 *
+	 * @param events Delivery info changes
+	 */
+	private void deliverDeliveryInfoChanges(List<DeliveryInfoEvent> events) {
 		final int N = mGroupChatListeners.beginBroadcast();
 		for (int i = 0; i < N; i++) {
-			try {
-				mGroupChatListeners.getBroadcastItem(i).onMessageGroupDeliveryInfoChanged(chatId,
-						contact, apiMimeType, msgId, status, reasonCode);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener.", e);
+			IGroupChatListener listener = mGroupChatListeners.getBroadcastItem(i);
+			for (DeliveryInfoEvent event : events) {
+				try {
+					listener.onMessageGroupDeliveryInfoChanged(event.chatId, event.contact,
+							event.apiMimeType, event.msgId, event.status, event.reasonCode);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener.", e);
+					}
+					/* The listener is probably dead, skip its remaining events */
+					break;
 				}
 			}
 		}
@@ -82,46 +148,58 @@ public class GroupChatEventBroadcaster implements IGroupChatEventBroadcaster {
 	}
 
 	public void broadcastParticipantInfoStatusChanged(String chatId, ParticipantInfo info) {
-		final int N = mGroupChatListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mGroupChatListeners.getBroadcastItem(i)
-						.onParticipantInfoChanged(chatId, info);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+		synchronized (mDeliveryInfoCoalescer) {
+			/* Listeners shall receive the pending delivery info first */
+			mDeliveryInfoCoalescer.flush();
+			final int N = mGroupChatListeners.beginBroadcast();
+			for (int i = 0; i < N; i++) {
+				try {
+					mGroupChatListeners.getBroadcastItem(i)
+							.onParticipantInfoChanged(chatId, info);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener", e);
+					}
 				}
 			}
+			mGroupChatListeners.finishBroadcast();
 		}
-		mGroupChatListeners.finishBroadcast();
 	}
 
 	public void broadcastStateChanged(String chatId, int state, int reasonCode) {
-		final int N = mGroupChatListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mGroupChatListeners.getBroadcastItem(i).onStateChanged(chatId, state, reasonCode);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+		synchronized (mDeliveryInfoCoalescer) {
+			/* Listeners shall receive the pending delivery info first */
+			mDeliveryInfoCoalescer.flush();
+			final int N = mGroupChatListeners.beginBroadcast();
+			for (int i = 0; i < N; i++) {
+				try {
+					mGroupChatListeners.getBroadcastItem(i).onStateChanged(chatId, state, reasonCode);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener", e);
+					}
 				}
 			}
+			mGroupChatListeners.finishBroadcast();
 		}
-		mGroupChatListeners.finishBroadcast();
 	}
 
 	public void broadcastComposingEvent(String chatId, ContactId contact, boolean status) {
-		final int N = mGroupChatListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mGroupChatListeners.getBroadcastItem(i).onComposingEvent(chatId, contact, status);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+		synchronized (mDeliveryInfoCoalescer) {
+			/* Listeners shall receive the pending delivery info first */
+			mDeliveryInfoCoalescer.flush();
+			final int N = mGroupChatListeners.beginBroadcast();
+			for (int i = 0; i < N; i++) {
+				try {
+					mGroupChatListeners.getBroadcastItem(i).onComposingEvent(chatId, contact, status);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener", e);
+					}
 				}
 			}
+			mGroupChatListeners.finishBroadcast();
 		}
-		mGroupChatListeners.finishBroadcast();
 	}
 
 	public void broadcastInvitation(String chatId) {
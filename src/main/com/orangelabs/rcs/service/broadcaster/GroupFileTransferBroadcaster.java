@@ -15,6 +15,8 @@
  */
 package com.orangelabs.rcs.service.broadcaster;
 
+import java.util.List;
+
 import com.gsma.services.rcs.contacts.ContactId;
 import com.gsma.services.rcs.ft.FileTransferIntent;
 import com.gsma.services.rcs.ft.IGroupFileTransferListener;
@@ -25,6 +27,7 @@ import com.orangelabs.rcs.utils.logger.Logger;
 
 import android.content.Intent;
 import android.os.RemoteCallbackList;
+import android.os.RemoteException;
 
 /**
  * GroupFileTransferBroadcaster maintains the registering and unregistering of
@@ -33,16 +36,112 @@ import android.os.RemoteCallbackList;
  */
 public class GroupFileTransferBroadcaster implements IGroupFileTransferBroadcaster {
 
+	/**
+	 * Max delay in milliseconds before a progress update is delivered
+	 */
+	private static final long PROGRESS_DELAY = 200;
+
+	/**
+	 * Max delay in milliseconds before a delivery info change is delivered
+	 */
+	private static final long DELIVERY_INFO_DELAY = 200;
+
 	private final RemoteCallbackList<IGroupFileTransferListener> mGroupFileTransferListeners = new RemoteCallbackList<IGroupFileTransferListener>();
 
 	private final Logger logger = Logger.getLogger(getClass().getName());
 
+	/**
+	 * Progress updates of a same transfer are coalesced, only the latest one
+	 * is delivered
+	 */
+	private final EventCoalescer<String, ProgressEvent> mProgressCoalescer = new EventCoalescer<String, ProgressEvent>(
+			new EventCoalescer.Dispatcher<ProgressEvent>() {
+				@Override
+				public void dispatch(List<ProgressEvent> events) {
+					deliverProgressUpdates(events);
+				}
+			}, PROGRESS_DELAY);
+
+	/**
+	 * Delivery info changes of a same transfer and recipient are coalesced,
+	 * only the latest one is delivered. When both coalescers are locked, the
+	 * progress coalescer is locked first.
+	 */
+	private final EventCoalescer<String, DeliveryInfoEvent> mDeliveryInfoCoalescer = new EventCoalescer<String, DeliveryInfoEvent>(
+			new EventCoalescer.Dispatcher<DeliveryInfoEvent>() {
+				@Override
+				public void dispatch(List<DeliveryInfoEvent> events) {
+					deliverDeliveryInfoChanges(events);
+				}
+			}, DELIVERY_INFO_DELAY);
+
+	/**
+	 * Progress update of a file transfer
+	 */
+	private static class ProgressEvent {
+		final String chatId;
+
+		final String transferId;
+
+		final long currentSize;
+
+		final long totalSize;
+
+		ProgressEvent(String chatId, String transferId, long currentSize, long totalSize) {
+			this.chatId = chatId;
+			this.transferId = transferId;
+			this.currentSize = currentSize;
+			this.totalSize = totalSize;
+		}
+	}
+
+	/**
+	 * Delivery info change of a file transfer for a recipient
+	 */
+	private static class DeliveryInfoEvent {
+		final String chatId;
+
+		final ContactId contact;
+
+		final String transferId;
+
+		final int state;
+
+		final int reasonCode;
+
+		DeliveryInfoEvent(String chatId, ContactId contact, String transferId, int state,
+				int reasonCode) {
+			this.chatId = chatId;
+			this.contact = contact;
+			this.transferId = transferId;
+			this.state = state;
+			this.reasonCode = reasonCode;
+		}
+	}
+
 	public GroupFileTransferBroadcaster() {
 	}
 
 	public void addGroupFileTransferListener(IGroupFileTransferListener listener)
 			throws ServerApiException {
-		mGroupFileTransferListeners.register(listener);
+		/* The cookie tells whether the listener supports batches of progress updates */
+		mGroupFileTransferListeners.register(listener, isProgressBatchSupported(listener));
+	}
+
+	/**
+	 * A listener built against a previous version of the API does not
+	 * implement the query: the unknown transaction gets an empty reply, which
+	 * reads as false.
+	 *
+	 * @param listener Listener
+	 * @return True if the listener supports batches of progress updates
+	 */
+	private Boolean isProgressBatchSupported(IGroupFileTransferListener listener) {
+		try {
+			return listener.isProgressBatchSupported();
+		} catch (RemoteException e) {
+			return false;
+		}
 	}
 
 	public void removeGroupFileTransferListener(IGroupFileTransferListener listener)
@@ -52,27 +151,79 @@ public class GroupFileTransferBroadcaster implements IGroupFileTransferBroadcast
 
 	public void broadcastStateChanged(String chatId, String transferId, int state,
 			int reasonCode) {
-		final int N = mGroupFileTransferListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mGroupFileTransferListeners.getBroadcastItem(i).onStateChanged(chatId,
-						transferId, state, reasonCode);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+		synchronized (mProgressCoalescer) {
+			synchronized (mDeliveryInfoCoalescer) {
+				/* Listeners shall receive the pending events before the new state */
+				mProgressCoalescer.flush();
+				mDeliveryInfoCoalescer.flush();
+				final int N = mGroupFileTransferListeners.beginBroadcast();
+				for (int i = 0; i < N; i++) {
+					try {
+						mGroupFileTransferListeners.getBroadcastItem(i).onStateChanged(chatId,
+								transferId, state, reasonCode);
+					} catch (Exception e) {
+						if (logger.isActivated()) {
+							logger.error("Can't notify listener", e);
+						}
+					}
 				}
+				mGroupFileTransferListeners.finishBroadcast();
 			}
 		}
-		mGroupFileTransferListeners.finishBroadcast();
 	}
 
 	public void broadcastProgressUpdate(String chatId, String transferId, long currentSize,
 			long totalSize) {
+		mProgressCoalescer.post(transferId, new ProgressEvent(chatId, transferId, currentSize,
+				totalSize));
+	}
+
+	public void broadcastGroupDeliveryInfoStateChanged(String chatId, ContactId contact,
+			String transferId, int state, int reasonCode) {
+		mDeliveryInfoCoalescer.post(transferId + contact, new DeliveryInfoEvent(chatId, contact,
+				transferId, state, reasonCode));
+	}
+
+	/**
+	 * Deliver a batch of progress updates in a single pass over the listeners.
+	 * The batch is notified at once only to the listeners supporting it, the
+	 * others are notified of each progress update.
+	 *
+	 * @param events Progress updates
+	 */
+	private void deliverProgressUpdates(List<ProgressEvent> events) {
+		String[] chatIds = null;
+		String[] transferIds = null;
+		long[] currentSizes = null;
+		long[] totalSizes = null;
+		int size = events.size();
+		if (size > 1) {
+			chatIds = new String[size];
+			transferIds = new String[size];
+			currentSizes = new long[size];
+			totalSizes = new long[size];
+			for (int i = 0; i < size; i++) {
+				ProgressEvent event = events.get(i);
+				chatIds[i] = event.chatId;
+				transferIds[i] = event.transferId;
+				currentSizes[i] = event.currentSize;
+				totalSizes[i] = event.totalSize;
+			}
+		}
 		final int N = mGroupFileTransferListeners.beginBroadcast();
 		for (int i = 0; i < N; i++) {
 			try {
-				mGroupFileTransferListeners.getBroadcastItem(i).onProgressUpdate(chatId,
-						transferId, currentSize, totalSize);
+				IGroupFileTransferListener listener = mGroupFileTransferListeners
+						.getBroadcastItem(i);
+				if (size > 1
+						&& Boolean.TRUE.equals(mGroupFileTransferListeners.getBroadcastCookie(i))) {
+					listener.onProgressUpdates(chatIds, transferIds, currentSizes, totalSizes);
+				} else {
+					for (ProgressEvent event : events) {
+						listener.onProgressUpdate(event.chatId, event.transferId,
+								event.currentSize, event.totalSize);
+					}
+				}
 			} catch (Exception e) {
 				if (logger.isActivated()) {
 					logger.error("Can't notify listener", e);
@@ -82,17 +233,26 @@ public class GroupFileTransferBroadcaster implements IGroupFileTransferBroadcast
 		mGroupFileTransferListeners.finishBroadcast();
 	}
 
-	public void broadcastGroupDeliveryInfoStateChanged(String chatId, ContactId contact,
-			String transferId, int state, int reasonCode) {
+	/**
+	 * Deliver a batch of delivery info changes in a single pass over the
+	 * listeners
+	 *
+	 * @param events Delivery info changes
+	 */
+	private void deliverDeliveryInfoChanges(List<DeliveryInfoEvent> events) {
 		final int N = mGroupFileTransferListeners.beginBroadcast();
 		for (int i = 0; i < N; i++) {
-			try {
-				mGroupFileTransferListeners.getBroadcastItem(i)
-						.onDeliveryInfoChanged(chatId, contact, transferId,
-								state, reasonCode);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener per contact", e);
+			IGroupFileTransferListener listener = mGroupFileTransferListeners.getBroadcastItem(i);
+			for (DeliveryInfoEvent event : events) {
+				try {
+					listener.onDeliveryInfoChanged(event.chatId, event.contact, event.transferId,
+							event.state, event.reasonCode);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener per contact", e);
+					}
+					/* The listener is probably dead, skip its remaining events */
+					break;
 				}
 			}
 		}
@@ -15,6 +15,8 @@
  */
 package com.orangelabs.rcs.service.broadcaster;
 
+import java.util.List;
+
 import com.gsma.services.rcs.contacts.ContactId;
 
 /**
@@ -28,4 +30,6 @@ public interface IOneToOneChatEventBroadcaster {
 	public void broadcastComposingEvent(ContactId contact, boolean status);
 
 	public void broadcastMessageReceived(String mimeType, String msgId);
+
+	public void broadcastMessagesReceived(String mimeType, List<String> msgIds);
 }
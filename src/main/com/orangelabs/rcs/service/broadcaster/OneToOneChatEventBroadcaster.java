@@ -15,6 +15,8 @@
  */
 package com.orangelabs.rcs.service.broadcaster;
 
+import java.util.List;
+
 import android.content.Intent;
 import android.os.RemoteCallbackList;
 
@@ -85,4 +87,15 @@ public class OneToOneChatEventBroadcaster implements IOneToOneChatEventBroadcast
 		newOneToOneMessage.putExtra(OneToOneChatIntent.EXTRA_MESSAGE_ID, msgId);
 		AndroidFactory.getApplicationContext().sendBroadcast(newOneToOneMessage);
 	}
+
+	public void broadcastMessagesReceived(String mimeType, List<String> msgIds) {
+		Intent newOneToOneMessages = new Intent(OneToOneChatIntent.ACTION_NEW_ONE_TO_ONE_CHAT_MESSAGE);
+		IntentUtils.tryToSetExcludeStoppedPackagesFlag(newOneToOneMessages);
+		IntentUtils.tryToSetReceiverForegroundFlag(newOneToOneMessages);
+		newOneToOneMessages.putExtra(OneToOneChatIntent.EXTRA_MIME_TYPE, mimeType);
+		newOneToOneMessages.putExtra(OneToOneChatIntent.EXTRA_MESSAGE_ID, msgIds.get(msgIds.size() - 1));
+		newOneToOneMessages.putExtra(OneToOneChatIntent.EXTRA_MESSAGE_IDS,
+				msgIds.toArray(new String[msgIds.size()]));
+		AndroidFactory.getApplicationContext().sendBroadcast(newOneToOneMessages);
+	}
 }
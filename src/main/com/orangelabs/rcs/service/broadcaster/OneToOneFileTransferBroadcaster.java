@@ -15,6 +15,8 @@
  */
 package com.orangelabs.rcs.service.broadcaster;
 
+import java.util.List;
+
 import com.gsma.services.rcs.contacts.ContactId;
 import com.gsma.services.rcs.ft.FileTransferIntent;
 import com.gsma.services.rcs.ft.IOneToOneFileTransferListener;
@@ -25,6 +27,7 @@ import com.orangelabs.rcs.utils.logger.Logger;
 
 import android.content.Intent;
 import android.os.RemoteCallbackList;
+import android.os.RemoteException;
 
 /**
  * OneToOneFileTransferBroadcaster maintains the registering and unregistering of
@@ -33,16 +36,70 @@ import android.os.RemoteCallbackList;
  */
 public class OneToOneFileTransferBroadcaster implements IOneToOneFileTransferBroadcaster {
 
+	/**
+	 * Max delay in milliseconds before a progress update is delivered
+	 */
+	private static final long PROGRESS_DELAY = 200;
+
 	private final RemoteCallbackList<IOneToOneFileTransferListener> mOneToOneFileTransferListeners = new RemoteCallbackList<IOneToOneFileTransferListener>();
 
 	private final Logger logger = Logger.getLogger(getClass().getName());
 
+	/**
+	 * Progress updates of a same transfer are coalesced, only the latest one
+	 * is delivered
+	 */
+	private final EventCoalescer<String, ProgressEvent> mProgressCoalescer = new EventCoalescer<String, ProgressEvent>(
+			new EventCoalescer.Dispatcher<ProgressEvent>() {
+				@Override
+				public void dispatch(List<ProgressEvent> events) {
+					deliverProgressUpdates(events);
+				}
+			}, PROGRESS_DELAY);
+
+	/**
+	 * Progress update of a file transfer
+	 */
+	private static class ProgressEvent {
+		final ContactId contact;
+
+		final String transferId;
+
+		final long currentSize;
+
+		final long totalSize;
+
+		ProgressEvent(ContactId contact, String transferId, long currentSize, long totalSize) {
+			this.contact = contact;
+			this.transferId = transferId;
+			this.currentSize = currentSize;
+			this.totalSize = totalSize;
+		}
+	}
+
 	public OneToOneFileTransferBroadcaster() {
 	}
 
 	public void addOneToOneFileTransferListener(IOneToOneFileTransferListener listener)
 			throws ServerApiException {
-		mOneToOneFileTransferListeners.register(listener);
+		/* The cookie tells whether the listener supports batches of progress updates */
+		mOneToOneFileTransferListeners.register(listener, isProgressBatchSupported(listener));
+	}
+
+	/**
+	 * A listener built against a previous version of the API does not
+	 * implement the query: the unknown transaction gets an empty reply, which
+	 * reads as false.
+	 *
+	 * @param listener Listener
+	 * @return True if the listener supports batches of progress updates
+	 */
+	private Boolean isProgressBatchSupported(IOneToOneFileTransferListener listener) {
+		try {
+			return listener.isProgressBatchSupported();
+		} catch (RemoteException e) {
+			return false;
+		}
 	}
 
 	public void removeOneToOneFileTransferListener(IOneToOneFileTransferListener listener)
@@ -51,27 +108,70 @@ public class OneToOneFileTransferBroadcaster implements IOneToOneFileTransferBro
 	}
 
 	public void broadcastStateChanged(ContactId contact, String transferId, int state, int reasonCode) {
-		final int N = mOneToOneFileTransferListeners.beginBroadcast();
-		for (int i = 0; i < N; i++) {
-			try {
-				mOneToOneFileTransferListeners.getBroadcastItem(i).onStateChanged(contact,
-						transferId, state, reasonCode);
-			} catch (Exception e) {
-				if (logger.isActivated()) {
-					logger.error("Can't notify listener", e);
+		synchronized (mProgressCoalescer) {
+			/* Listeners shall receive the pending progress before the new state */
+			mProgressCoalescer.flush();
+			final int N = mOneToOneFileTransferListeners.beginBroadcast();
+			for (int i = 0; i < N; i++) {
+				try {
+					mOneToOneFileTransferListeners.getBroadcastItem(i).onStateChanged(contact,
+							transferId, state, reasonCode);
+				} catch (Exception e) {
+					if (logger.isActivated()) {
+						logger.error("Can't notify listener", e);
+					}
 				}
 			}
+			mOneToOneFileTransferListeners.finishBroadcast();
 		}
-		mOneToOneFileTransferListeners.finishBroadcast();
 	}
 
 	public void broadcastProgressUpdate(ContactId contact, String transferId, long currentSize,
 			long totalSize) {
+		mProgressCoalescer.post(transferId, new ProgressEvent(contact, transferId, currentSize,
+				totalSize));
+	}
+
+	/**
+	 * Deliver a batch of progress updates in a single pass over the listeners.
+	 * The batch is notified at once only to the listeners supporting it, the
+	 * others are notified of each progress update.
+	 *
+	 * @param events Progress updates
+	 */
+	private void deliverProgressUpdates(List<ProgressEvent> events) {
+		ContactId[] contacts = null;
+		String[] transferIds = null;
+		long[] currentSizes = null;
+		long[] totalSizes = null;
+		int size = events.size();
+		if (size > 1) {
+			contacts = new ContactId[size];
+			transferIds = new String[size];
+			currentSizes = new long[size];
+			totalSizes = new long[size];
+			for (int i = 0; i < size; i++) {
+				ProgressEvent event = events.get(i);
+				contacts[i] = event.contact;
+				transferIds[i] = event.transferId;
+				currentSizes[i] = event.currentSize;
+				totalSizes[i] = event.totalSize;
+			}
+		}
 		final int N = mOneToOneFileTransferListeners.beginBroadcast();
 		for (int i = 0; i < N; i++) {
 			try {
-				mOneToOneFileTransferListeners.getBroadcastItem(i).onProgressUpdate(contact,
-						transferId, currentSize, totalSize);
+				IOneToOneFileTransferListener listener = mOneToOneFileTransferListeners
+						.getBroadcastItem(i);
+				if (size > 1
+						&& Boolean.TRUE.equals(mOneToOneFileTransferListeners.getBroadcastCookie(i))) {
+					listener.onProgressUpdates(contacts, transferIds, currentSizes, totalSizes);
+				} else {
+					for (ProgressEvent event : events) {
+						listener.onProgressUpdate(event.contact, event.transferId,
+								event.currentSize, event.totalSize);
+					}
+				}
 			} catch (Exception e) {
 				if (logger.isActivated()) {
 					logger.error("Can't notify listener", e);
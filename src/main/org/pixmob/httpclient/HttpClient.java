@@ -21,8 +21,8 @@ import static org.pixmob.httpclient.Constants.HTTP_HEAD;
 import static org.pixmob.httpclient.Constants.HTTP_POST;
 import static org.pixmob.httpclient.Constants.HTTP_PUT;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import android.content.Context;
 import android.os.Build;
@@ -45,7 +45,8 @@ public class HttpClient {
     private int connectTimeout = 10;
     private int readTimeout = 30;
     private String userAgent;
-    private final Map<String, String> inMemoryCookies = new HashMap<String, String>(8);
+    private volatile boolean keepAlive;
+    private final Map<String, String> inMemoryCookies = new ConcurrentHashMap<String, String>(8);
 
     /**
      * Create a new instance for this {@link Context}.
@@ -162,6 +163,23 @@ public class HttpClient {
         this.userAgent = userAgent;
     }
 
+    /**
+     * Return <code>true</code> if connections are kept alive between requests.
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Keep connections alive between requests to the same host, so that
+     * successive requests reuse the pooled connection instead of opening a new
+     * one. Disabled by default: every request is sent with
+     * <code>Connection: close</code>.
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
     Map<String, String> getInMemoryCookies() {
         return inMemoryCookies;
     }
@@ -243,7 +243,9 @@ public final class HttpRequest {
 
                     setupUserAgent(conn);
 
-                    conn.setRequestProperty("Connection", "close");
+                    if (!hc.isKeepAlive()) {
+                        conn.setRequestProperty("Connection", "close");
+                    }
                     conn.setRequestProperty("Location", uri);
                     conn.setRequestProperty("Referrer", uri);
                     conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
@@ -336,7 +338,9 @@ public final class HttpRequest {
                             }
                             payloadStream.forceClose();
                         }
-                        conn.disconnect();
+                        if (!hc.isKeepAlive()) {
+                            conn.disconnect();
+                        }
                     }
                 }
                 return null;
@@ -401,7 +405,9 @@ public final class HttpRequest {
 
             setupUserAgent(conn);
 
-            conn.setRequestProperty("Connection", "close");
+            if (!hc.isKeepAlive()) {
+                conn.setRequestProperty("Connection", "close");
+            }
             conn.setRequestProperty("Location", uri);
             conn.setRequestProperty("Referrer", uri);
             conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
@@ -546,7 +552,10 @@ public final class HttpRequest {
                     while (payloadStream.read(buffer) != -1) {}
                 } catch (IOException ignore) {}
                 payloadStream.forceClose();
-                conn.disconnect();
+                if (!hc.isKeepAlive()) {
+                    // Otherwise the fully read connection goes back to the pool
+                    conn.disconnect();
+                }
             }            
         }        
     }